@@ -0,0 +1,210 @@
+package com;
+
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.URI;
+import java.net.URLEncoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * HTTP 接口的本地压测客户端，只发送读请求：80% 按学号查询，10% 分页列出，10% 按姓名前缀分页查询
+ * 用法：java -cp target/benchmarks.jar com.HttpLoadTest [并发连接数] [秒数] [学生数] [接口地址]，
+ * 默认 1000 个并发连接、10 秒、10 万名学生；不指定接口地址时在本进程内启动与 HttpMain 相同配置的服务，
+ * 在临时目录中注册生成的学生后再开始压测。指定地址（如 http://host:8080/students）时须事先注册学号为 S00000000 起的学生。
+ * 每个连接由一个线程（JDK 21 及以上为虚拟线程）循环发送 keep-alive 请求。
+ * 没有使用 java.net.http.HttpClient：它每个请求的客户端开销比服务端处理还大，压测结果反映的会是客户端的瓶颈
+ */
+public class HttpLoadTest {
+    private static final String[] SURNAMES = {"王", "李", "张", "刘", "陈", "杨", "黄", "赵"};
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        int concurrency = args.length > 0 ? Integer.parseInt(args[0]) : 1000;
+        int seconds = args.length > 1 ? Integer.parseInt(args[1]) : 10;
+        int size = args.length > 2 ? Integer.parseInt(args[2]) : 100_000;
+        StudentHttpServer server = null;
+        Path dataDir = null;
+        URI base;
+        if (args.length > 3) {
+            base = URI.create(args[3]);
+        } else {
+            dataDir = Files.createTempDirectory("student-http");
+            server = startServer(dataDir, size);
+            base = URI.create("http://localhost:" + server.getAddress().getPort() + "/students");
+            System.out.println("已在本进程启动服务（" + (server.isUsingVirtualThreads() ? "虚拟线程" : "平台线程池")
+                    + "），注册" + size + "名学生");
+        }
+
+        LatencyRecorder latencies = new LatencyRecorder();
+        AtomicLong errors = new AtomicLong();
+        long begin = System.nanoTime();
+        long deadline = begin + Duration.ofSeconds(seconds).toNanos();
+        ThreadFactory threads = newThreadFactory();
+        Thread[] clients = new Thread[concurrency];
+        for (int i = 0; i < concurrency; i++) {
+            clients[i] = threads.newThread(() -> runClient(base, size, deadline, latencies, errors));
+            clients[i].start();
+        }
+        for (Thread client : clients) {
+            client.join();
+        }
+        double elapsed = (System.nanoTime() - begin) / 1e9;
+
+        long[] sorted = latencies.sorted();
+        System.out.printf("并发 %d，%.1f 秒内完成 %d 个请求，失败 %d 个，吞吐 %.0f 请求/秒%n",
+                concurrency, elapsed, sorted.length, errors.get(), sorted.length / elapsed);
+        if (sorted.length > 0) {
+            System.out.printf("延迟：p50 %.2f ms，p99 %.2f ms，p99.9 %.2f ms，最大 %.2f ms%n",
+                    percentile(sorted, 0.50), percentile(sorted, 0.99), percentile(sorted, 0.999),
+                    sorted[sorted.length - 1] / 1e6);
+        }
+
+        if (server != null) {
+            server.stop(0);
+            deleteRecursively(dataDir);
+        }
+    }
+
+    private static StudentHttpServer startServer(Path dataDir, int size) throws IOException {
+        StuServiceOptions options = new StuServiceOptions.Builder()
+                .dataDir(dataDir)
+                .syncPolicy(JournalSyncPolicy.NEVER)
+                .build();
+        StuService service = new CachingStuService(new ConcurrentStuServiceImpl(options), 1024, Duration.ofMinutes(5));
+        service.addStudents(new StudentGenerator(ServiceState.SEED).next(size));
+        StudentHttpServer server = new StudentHttpServer(service, new InetSocketAddress("localhost", 0));
+        server.start();
+        return server;
+    }
+
+    /**
+     * 有虚拟线程时每个连接一个虚拟线程，否则使用栈较小的平台线程
+     */
+    private static ThreadFactory newThreadFactory() {
+        try {
+            Object builder = Thread.class.getMethod("ofVirtual").invoke(null);
+            return (ThreadFactory) builder.getClass().getMethod("factory").invoke(builder);
+        } catch (ReflectiveOperationException e) {
+            return task -> new Thread(null, task, "load-client", 256 * 1024);
+        }
+    }
+
+    /**
+     * 在一个 keep-alive 连接上循环发送请求直到截止时间，连接出错时计为失败并重新连接
+     */
+    private static void runClient(URI base, int size, long deadline, LatencyRecorder latencies, AtomicLong errors) {
+        int port = base.getPort() < 0 ? 80 : base.getPort();
+        while (System.nanoTime() < deadline) {
+            try (Socket socket = new Socket(base.getHost(), port)) {
+                socket.setTcpNoDelay(true);
+                OutputStream out = socket.getOutputStream();
+                InputStream in = new BufferedInputStream(socket.getInputStream());
+                while (System.nanoTime() < deadline) {
+                    String request = "GET " + nextPath(base.getRawPath(), size) + " HTTP/1.1\r\nHost: "
+                            + base.getHost() + "\r\n\r\n";
+                    long start = System.nanoTime();
+                    out.write(request.getBytes(StandardCharsets.US_ASCII));
+                    out.flush();
+                    if (readResponse(in) == 200) {
+                        latencies.record(System.nanoTime() - start);
+                    } else {
+                        errors.incrementAndGet();
+                    }
+                }
+            } catch (IOException e) {
+                errors.incrementAndGet();
+            }
+        }
+    }
+
+    private static String nextPath(String basePath, int size) {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String studentId = String.format("S%08d", random.nextInt(size));
+        int kind = random.nextInt(10);
+        if (kind < 8) {
+            return basePath + "/" + studentId;
+        }
+        if (kind == 8) {
+            return basePath + "?size=20&after=" + studentId;
+        }
+        return basePath + "/search?type=NAME&mode=PREFIX&size=20&keyword="
+                + URLEncoder.encode(SURNAMES[random.nextInt(SURNAMES.length)], StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 读取一个响应并丢弃响应体，服务端总是给出 Content-Length
+     *
+     * @return 状态码
+     */
+    private static int readResponse(InputStream in) throws IOException {
+        String statusLine = readLine(in);
+        int contentLength = 0;
+        for (String header = readLine(in); !header.isEmpty(); header = readLine(in)) {
+            int colon = header.indexOf(':');
+            if (colon > 0 && header.substring(0, colon).trim().equalsIgnoreCase("Content-Length")) {
+                contentLength = Integer.parseInt(header.substring(colon + 1).trim());
+            }
+        }
+        in.skipNBytes(contentLength);
+        return Integer.parseInt(statusLine.split(" ", 3)[1]);
+    }
+
+    private static String readLine(InputStream in) throws IOException {
+        StringBuilder line = new StringBuilder();
+        for (int c = in.read(); c != '\n'; c = in.read()) {
+            if (c < 0) {
+                throw new IOException("连接已关闭");
+            }
+            if (c != '\r') {
+                line.append((char) c);
+            }
+        }
+        return line.toString();
+    }
+
+    private static double percentile(long[] sorted, double fraction) {
+        int index = (int) Math.min(sorted.length - 1, Math.ceil(fraction * sorted.length) - 1);
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+
+    private static void deleteRecursively(Path dir) throws IOException {
+        try (Stream<Path> paths = Files.walk(dir)) {
+            for (Path path : paths.sorted(Comparator.reverseOrder()).toArray(Path[]::new)) {
+                Files.deleteIfExists(path);
+            }
+        }
+    }
+
+    /**
+     * 由各个连接线程写入的延迟记录（纳秒）
+     */
+    private static final class LatencyRecorder {
+        private long[] values = new long[1 << 16];
+        private int count;
+
+        private synchronized void record(long nanos) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = nanos;
+        }
+
+        private synchronized long[] sorted() {
+            long[] sorted = Arrays.copyOf(values, count);
+            Arrays.sort(sorted);
+            return sorted;
+        }
+    }
+}
@@ -0,0 +1,103 @@
+package com;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Stream;
+
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+/**
+ * 基准测试共享的服务实例
+ * 每轮测试在临时目录中生成 size 条学生的数据文件，再由被测实现从文件加载。
+ * 默认使用 JOURNAL + NEVER，测量内存操作和追加日志本身的开销；
+ * 可通过 -p persistenceMode=SNAPSHOT 或 -p syncPolicy=ALWAYS 测量默认配置或含 fsync 的开销，
+ * 通过 -p implementation=COLUMNAR 测量列式存储实现，-p implementation=OFFHEAP 测量堆外存储实现
+ */
+@State(Scope.Benchmark)
+public class ServiceState {
+    static final long SEED = 20240624L;
+
+    @Param({"1000", "10000", "100000", "1000000"})
+    public int size;
+
+    @Param({"JOURNAL"})
+    public PersistenceMode persistenceMode;
+
+    @Param({"NEVER"})
+    public JournalSyncPolicy syncPolicy;
+
+    @Param({"CSV"})
+    public SnapshotFormat snapshotFormat;
+
+    @Param({"DEFAULT"})
+    public Implementation implementation;
+
+    /**
+     * 被测的 StuService 实现
+     */
+    public enum Implementation {
+        DEFAULT {
+            @Override
+            StuService create(StuServiceOptions options) {
+                return new StuServiceImpl(options);
+            }
+        },
+        COLUMNAR {
+            @Override
+            StuService create(StuServiceOptions options) {
+                return new ColumnarStuServiceImpl(options);
+            }
+        },
+        OFFHEAP {
+            @Override
+            StuService create(StuServiceOptions options) {
+                return new OffHeapStuServiceImpl(options);
+            }
+        };
+
+        abstract StuService create(StuServiceOptions options);
+    }
+
+    StuService service;
+    List<Student> students; // 初始数据，按学号顺序
+    private Path dataDir;
+    private PrintStream originalOut;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        dataDir = Files.createTempDirectory("student-benchmark");
+        StuServiceOptions options = new StuServiceOptions.Builder()
+                .dataDir(dataDir)
+                .snapshotFormat(snapshotFormat)
+                .persistenceMode(persistenceMode)
+                .syncPolicy(syncPolicy)
+                .build();
+        students = new StudentGenerator(SEED).next(size);
+        snapshotFormat.write(options.getDataFilePath(), students, false);
+
+        // 服务每次增删改都会打印提示，控制台输出会淹没被测操作本身的开销
+        originalOut = System.out;
+        System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+        service = implementation.create(options);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        System.setOut(originalOut);
+        try (Stream<Path> files = Files.walk(dataDir)) {
+            for (Path file : (Iterable<Path>) files.sorted(Comparator.reverseOrder())::iterator) {
+                Files.deleteIfExists(file);
+            }
+        }
+    }
+}
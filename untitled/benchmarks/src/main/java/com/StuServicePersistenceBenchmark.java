@@ -0,0 +1,32 @@
+package com;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 保存和加载数据文件的基准测试，每次操作处理全部 size 条记录
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(value = 1, jvmArgsAppend = "-Xmx4g")
+public class StuServicePersistenceBenchmark {
+
+    @Benchmark
+    public void saveToFile(ServiceState state) {
+        state.service.saveToFile();
+    }
+
+    @Benchmark
+    public void loadFromFile(ServiceState state) {
+        state.service.loadFromFile();
+    }
+}
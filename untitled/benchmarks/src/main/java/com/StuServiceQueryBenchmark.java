@@ -0,0 +1,64 @@
+package com;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 查询基准测试，覆盖每种查询类型和匹配方式
+ * 关键词取自已有学生的字段值，保证每次查询至少命中一条记录
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StuServiceQueryBenchmark {
+    private static final int KEYWORD_COUNT = 1024;
+
+    @State(Scope.Thread)
+    public static class QueryState {
+        @Param({"STUDENT_ID", "NAME", "STATUS", "DEPARTMENT", "CLASS", "GENDER", "AGE", "NATIVE_PLACE", "MAJOR"})
+        public QueryType queryType;
+
+        @Param({"EXACT", "CONTAINS", "PREFIX"})
+        public MatchMode matchMode;
+
+        private String[] keywords;
+        private int next;
+
+        @Setup(Level.Trial)
+        public void setUp(ServiceState state) {
+            List<Student> students = state.students;
+            int count = Math.min(KEYWORD_COUNT, students.size());
+            keywords = new String[count];
+            for (int i = 0; i < count; i++) {
+                // 均匀取样，避免只查询排在前面的学生
+                keywords[i] = queryType.getFieldValue(students.get((int) ((long) i * students.size() / count)));
+            }
+        }
+
+        String nextKeyword() {
+            String keyword = keywords[next];
+            next = (next + 1) % keywords.length;
+            return keyword;
+        }
+    }
+
+    @Benchmark
+    public List<Student> queryStudents(ServiceState state, QueryState query) {
+        return state.service.queryStudents(query.nextKeyword(), query.queryType, query.matchMode);
+    }
+}
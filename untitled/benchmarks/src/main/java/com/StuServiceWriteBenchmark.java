@@ -0,0 +1,99 @@
+package com;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * 增删改操作基准测试
+ * 注册和删除各自在每次调用后（不计时）撤销，保证整轮测试中数据量保持在 size 条
+ */
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class StuServiceWriteBenchmark {
+
+    /**
+     * 每次调用前生成一个新学号的学生，调用后删除
+     */
+    @State(Scope.Thread)
+    public static class AddState {
+        private final StudentGenerator generator = new StudentGenerator(ServiceState.SEED + 1);
+        private int nextId;
+        Student student;
+
+        @Setup(Level.Invocation)
+        public void prepare() {
+            student = generator.create("B" + nextId++);
+        }
+
+        @TearDown(Level.Invocation)
+        public void undo(ServiceState state) {
+            state.service.deleteStudent(student.getStudentId());
+        }
+    }
+
+    /**
+     * 依次删除初始数据中的学生，调用后重新注册
+     */
+    @State(Scope.Thread)
+    public static class DeleteState {
+        private int next;
+        Student student;
+
+        @Setup(Level.Invocation)
+        public void prepare(ServiceState state) {
+            student = state.students.get(next);
+            next = (next + 1) % state.students.size();
+        }
+
+        @TearDown(Level.Invocation)
+        public void undo(ServiceState state) {
+            state.service.addStudent(student);
+        }
+    }
+
+    /**
+     * 轮流为初始数据中的学生换一份随机生成的信息，学号不变
+     */
+    @State(Scope.Thread)
+    public static class UpdateState {
+        private final StudentGenerator generator = new StudentGenerator(ServiceState.SEED + 2);
+        private int next;
+
+        Student nextUpdate(ServiceState state) {
+            String studentId = state.students.get(next).getStudentId();
+            next = (next + 1) % state.students.size();
+            return generator.create(studentId);
+        }
+    }
+
+    @Benchmark
+    public void addStudent(ServiceState state, AddState add) {
+        state.service.addStudent(add.student);
+    }
+
+    @Benchmark
+    public void updateStudent(ServiceState state, UpdateState update) {
+        Student student = update.nextUpdate(state);
+        state.service.updateStudent(student.getStudentId(), student);
+    }
+
+    @Benchmark
+    public void deleteStudent(ServiceState state, DeleteState delete) {
+        state.service.deleteStudent(delete.student.getStudentId());
+    }
+}
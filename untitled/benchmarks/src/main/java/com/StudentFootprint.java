@@ -0,0 +1,79 @@
+package com;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.lang.management.MemoryMXBean;
+import java.lang.ref.Reference;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 测量每个学生占用的堆内存
+ * 生成 size 条学生写入文本数据文件，分别用各加载策略读入，比较读入前后 GC 后的已用堆大小；
+ * 最后再测量各 StuService 实现（含各自的索引）加载后的占用。
+ * 用法：java -cp target/benchmarks.jar com.StudentFootprint [size]，默认 1000000 条，
+ * 建议加 -Xmx 给足堆并固定 -XX:+UseSerialGC 使结果稳定
+ */
+public class StudentFootprint {
+    private static final MemoryMXBean MEMORY = ManagementFactory.getMemoryMXBean();
+
+    public static void main(String[] args) throws IOException {
+        int size = args.length > 0 ? Integer.parseInt(args[0]) : 1_000_000;
+        Path dataDir = Files.createTempDirectory("student-footprint");
+        StuServiceOptions options = new StuServiceOptions.Builder()
+                .dataDir(dataDir)
+                .persistenceMode(PersistenceMode.SNAPSHOT)
+                .build();
+        Path dataFile = options.getDataFilePath();
+        SnapshotFormat.CSV.write(dataFile, new StudentGenerator(ServiceState.SEED).next(size), false);
+
+        PrintStream out = System.out;
+        try {
+            for (CsvLoadStrategy strategy : CsvLoadStrategy.values()) {
+                out.printf("%s：每条 %.1f 字节%n", strategy.getLabel(), loadedBytesPerStudent(strategy, dataFile, size));
+            }
+            // 服务加载时会打印提示，不计入测量
+            System.setOut(new PrintStream(OutputStream.nullOutputStream()));
+            for (ServiceState.Implementation implementation : ServiceState.Implementation.values()) {
+                double serviceBytes = serviceBytesPerStudent(implementation, options, size);
+                out.printf("%s 实现（含索引）：每条 %.1f 字节%n", implementation, serviceBytes);
+            }
+        } finally {
+            System.setOut(out);
+            Files.deleteIfExists(dataFile);
+            Files.deleteIfExists(dataDir);
+        }
+    }
+
+    /**
+     * 每次测量放在单独的方法中，返回后读入的数据即不可达，不影响下一次测量的基线
+     */
+    private static double loadedBytesPerStudent(CsvLoadStrategy strategy, Path dataFile, int size) {
+        long before = usedHeap();
+        List<Student> students = new ArrayList<>(size);
+        strategy.read(dataFile, students::add);
+        long after = usedHeap();
+        Reference.reachabilityFence(students);
+        return (double) (after - before) / size;
+    }
+
+    private static double serviceBytesPerStudent(ServiceState.Implementation implementation,
+                                                 StuServiceOptions options, int size) {
+        long before = usedHeap();
+        StuService service = implementation.create(options);
+        long after = usedHeap();
+        Reference.reachabilityFence(service);
+        return (double) (after - before) / size;
+    }
+
+    private static long usedHeap() {
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return MEMORY.getHeapMemoryUsage().getUsed();
+    }
+}
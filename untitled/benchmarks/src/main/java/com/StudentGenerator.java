@@ -0,0 +1,83 @@
+package com;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * 基准测试用的学生数据生成器
+ * 固定随机种子，同样的参数每次生成相同的数据；生成的字段满足 Student.Builder 的验证规则，
+ * 且不含逗号，可以原样写入文本数据文件
+ */
+final class StudentGenerator {
+    private static final String[] SURNAMES = {"王", "李", "张", "刘", "陈", "杨", "黄", "赵", "吴", "周", "徐", "孙", "马", "朱", "胡", "欧阳"};
+    private static final String[] GIVEN_NAMES = {"伟", "芳", "娜", "敏", "静", "丽", "强", "磊", "军", "洋", "勇", "艳", "杰", "娟", "涛", "明", "超", "秀英", "浩然", "子涵"};
+    private static final String[] NATIVE_PLACES = {"北京", "上海", "天津", "重庆", "河北", "山西", "辽宁", "吉林", "江苏", "浙江", "安徽", "福建", "江西", "山东", "河南", "湖北", "湖南", "广东", "四川", "陕西"};
+    private static final String[][] DEPARTMENTS = {
+            {"计算机系", "软件工程", "计算机科学与技术", "网络工程"},
+            {"数学系", "数学与应用数学", "统计学"},
+            {"物理系", "应用物理", "光电信息"},
+            {"外语系", "英语", "日语"},
+            {"经济管理系", "会计学", "市场营销", "金融学"},
+            {"机械系", "机械设计制造", "车辆工程"}
+    };
+    private static final int CLASSES_PER_MAJOR = 8;
+    private static final int MIN_AGE = 17;
+    private static final int MAX_AGE = 26;
+
+    private final Random random;
+    private int nextId;
+
+    StudentGenerator(long seed) {
+        this.random = new Random(seed);
+    }
+
+    /**
+     * 学号按生成顺序递增，格式为 S + 8 位序号
+     */
+    Student next() {
+        return create(String.format("S%08d", nextId++));
+    }
+
+    List<Student> next(int count) {
+        List<Student> students = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            students.add(next());
+        }
+        return students;
+    }
+
+    /**
+     * 生成指定学号的学生，其余字段随机
+     */
+    Student create(String studentId) {
+        String[] department = DEPARTMENTS[random.nextInt(DEPARTMENTS.length)];
+        String major = department[1 + random.nextInt(department.length - 1)];
+        return new Student.Builder()
+                .studentId(studentId)
+                .name(SURNAMES[random.nextInt(SURNAMES.length)] + GIVEN_NAMES[random.nextInt(GIVEN_NAMES.length)])
+                .gender(random.nextBoolean() ? "男" : "女")
+                .age(MIN_AGE + random.nextInt(MAX_AGE - MIN_AGE + 1))
+                .nativePlace(NATIVE_PLACES[random.nextInt(NATIVE_PLACES.length)])
+                .department(department[0])
+                .major(major)
+                .className(major + (1 + random.nextInt(CLASSES_PER_MAJOR)) + "班")
+                .status(randomStatus())
+                .build();
+    }
+
+    /**
+     * 大部分学生为入学状态，其余状态各占少数
+     */
+    private StudentStatus randomStatus() {
+        int roll = random.nextInt(100);
+        if (roll < 85) {
+            return StudentStatus.ENROLLED;
+        } else if (roll < 92) {
+            return StudentStatus.SUSPENDED;
+        } else if (roll < 96) {
+            return StudentStatus.REPEATED;
+        }
+        return StudentStatus.WITHDRAWN;
+    }
+}
@@ -0,0 +1,65 @@
+package com;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 年龄索引：年龄 -> 学号集合
+ * 按数值排序，除精确匹配外还支持组合查询中的年龄范围条件
+ */
+class AgeIndex implements SecondaryIndex {
+    private final NavigableMap<Integer, Set<String>> entries = new TreeMap<>();
+
+    @Override
+    public void add(Student student) {
+        entries.computeIfAbsent(student.getAge(), a -> new HashSet<>()).add(student.getStudentId());
+    }
+
+    @Override
+    public void remove(Student student) {
+        Set<String> ids = entries.get(student.getAge());
+        if (ids != null) {
+            ids.remove(student.getStudentId());
+            if (ids.isEmpty()) {
+                entries.remove(student.getAge());
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public Set<String> candidates(String keyword, MatchMode mode) {
+        if (mode != MatchMode.EXACT) {
+            return null;
+        }
+        try {
+            return entries.getOrDefault(Integer.parseInt(keyword.trim()), Collections.emptySet());
+        } catch (NumberFormatException e) {
+            return Collections.emptySet();
+        }
+    }
+
+    /**
+     * @return 年龄在 [min, max] 内的学号集合
+     */
+    Set<String> candidates(int min, int max) {
+        if (min > max) {
+            return Collections.emptySet();
+        }
+        Collection<Set<String>> matched = entries.subMap(min, true, max, true).values();
+        if (matched.size() == 1) {
+            return matched.iterator().next();
+        }
+        Set<String> union = new HashSet<>();
+        matched.forEach(union::addAll);
+        return union;
+    }
+}
@@ -0,0 +1,103 @@
+package com;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * 批量操作结果
+ * 单条记录的错误记录在结果中，不中断整批；成功的记录作为一个整体保存
+ */
+public final class BatchResult {
+    private final int succeeded;
+    private final List<Failure> failures;
+
+    /**
+     * 一条失败的记录
+     */
+    public static final class Failure {
+        private final int position;
+        private final String studentId;
+        private final String message;
+
+        private Failure(int position, String studentId, String message) {
+            this.position = position;
+            this.studentId = studentId;
+            this.message = message;
+        }
+
+        /**
+         * @return 记录在批次中的序号（从 1 开始）；从文件导入时为行号
+         */
+        public int getPosition() {
+            return position;
+        }
+
+        /**
+         * @return 学号，无法解析出学号时为 null
+         */
+        public String getStudentId() {
+            return studentId;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        @Override
+        public String toString() {
+            return "第" + position + "条" + (studentId == null ? "" : "[" + studentId + "]") + "：" + message;
+        }
+    }
+
+    private BatchResult(Builder builder) {
+        this.succeeded = builder.succeeded;
+        List<Failure> sorted = new ArrayList<>(builder.failures);
+        sorted.sort(Comparator.comparingInt(Failure::getPosition));
+        this.failures = Collections.unmodifiableList(sorted);
+    }
+
+    public int getSucceeded() {
+        return succeeded;
+    }
+
+    public int getFailed() {
+        return failures.size();
+    }
+
+    /**
+     * @return 按序号排列的失败记录
+     */
+    public List<Failure> getFailures() {
+        return failures;
+    }
+
+    public boolean isAllSucceeded() {
+        return failures.isEmpty();
+    }
+
+    @Override
+    public String toString() {
+        return "成功" + succeeded + "条，失败" + failures.size() + "条";
+    }
+
+    static class Builder {
+        private int succeeded;
+        private final List<Failure> failures = new ArrayList<>();
+
+        Builder succeeded(int succeeded) {
+            this.succeeded = succeeded;
+            return this;
+        }
+
+        Builder failure(int position, String studentId, String message) {
+            failures.add(new Failure(position, studentId, message));
+            return this;
+        }
+
+        BatchResult build() {
+            return new BatchResult(this);
+        }
+    }
+}
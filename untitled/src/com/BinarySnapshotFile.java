@@ -0,0 +1,189 @@
+package com;
+
+import java.io.IOException;
+import java.nio.BufferUnderflowException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Predicate;
+import java.util.zip.CRC32;
+
+/**
+ * 学生数据二进制快照文件
+ * 文件头：[4字节魔数 STUB][int 版本][int 记录数][int 记录区CRC32]
+ * 每条记录：字符串为 [unsigned short 字节数][UTF-8 字节]，年龄占 1 字节，学籍状态存枚举序号（1 字节）
+ * 字段顺序：学号、姓名、性别、年龄、籍贯、系别、专业、班级、学籍状态
+ */
+final class BinarySnapshotFile {
+    private static final int MAGIC = 0x53545542; // "STUB"
+    private static final int VERSION = 1;
+    private static final int HEADER_SIZE = 16;
+    private static final int BUFFER_SIZE = 128 * 1024; // 需容纳最长的单个字段
+    private static final int MAX_FIELD_BYTES = 0xFFFF;
+
+    private BinarySnapshotFile() {
+    }
+
+    static void write(Path dataFilePath, Iterable<Student> students, boolean force) {
+        try {
+            Files.createDirectories(dataFilePath.getParent());
+            Path tempFile = Files.createTempFile(dataFilePath.getParent(), "student_", ".tmp");
+
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+                CRC32 crc = new CRC32();
+                int recordCount = 0;
+                // 先跳过文件头，记录写完后再回填记录数和校验和
+                channel.position(HEADER_SIZE);
+
+                for (Student student : students) {
+                    putString(channel, buffer, crc, student.getStudentId());
+                    putString(channel, buffer, crc, student.getName());
+                    putString(channel, buffer, crc, student.getGender());
+                    ensureCapacity(channel, buffer, crc, 1);
+                    buffer.put((byte) student.getAge());
+                    putString(channel, buffer, crc, student.getNativePlace());
+                    putString(channel, buffer, crc, student.getDepartment());
+                    putString(channel, buffer, crc, student.getMajor());
+                    putString(channel, buffer, crc, student.getClassName());
+                    ensureCapacity(channel, buffer, crc, 1);
+                    buffer.put((byte) student.getStatus().ordinal());
+                    recordCount++;
+                }
+                drain(channel, buffer, crc);
+
+                ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                header.putInt(MAGIC).putInt(VERSION).putInt(recordCount).putInt((int) crc.getValue());
+                header.flip();
+                channel.position(0);
+                while (header.hasRemaining()) {
+                    channel.write(header);
+                }
+                if (force) {
+                    channel.force(true);
+                }
+            }
+
+            // 原子性地替换文件
+            Files.move(tempFile, dataFilePath, StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException e) {
+            throw new StudentManagementException("保存学生数据失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 读取快照文件。文件头或校验和不符时整个文件视为损坏并抛出异常；
+     * 单条记录验证失败时输出警告后跳过
+     *
+     * @param sink 接收解析出的学生，返回 false 表示学号重复
+     * @return 被 sink 接受的记录条数
+     */
+    static int read(Path dataFilePath, Predicate<Student> sink) {
+        try (FileChannel channel = FileChannel.open(dataFilePath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_SIZE) {
+                throw new StudentManagementException("快照文件不完整");
+            }
+            if (size > Integer.MAX_VALUE) {
+                throw new StudentManagementException("快照文件超过2GB，无法读取");
+            }
+            // 整个文件读入堆内缓冲区而不做内存映射：映射在 GC 回收前一直占用文件，
+            // Windows 上随后保存时 Files.move 无法替换该文件
+            ByteBuffer buffer = ByteBuffer.allocate((int) size);
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer) < 0) {
+                    throw new StudentManagementException("快照文件不完整");
+                }
+            }
+            buffer.flip();
+            if (buffer.getInt() != MAGIC) {
+                throw new StudentManagementException("不是有效的二进制快照文件");
+            }
+            int version = buffer.getInt();
+            if (version != VERSION) {
+                throw new StudentManagementException("不支持的快照版本：" + version);
+            }
+            int recordCount = buffer.getInt();
+            int checksum = buffer.getInt();
+
+            CRC32 crc = new CRC32();
+            crc.update(buffer.duplicate());
+            if ((int) crc.getValue() != checksum) {
+                throw new StudentManagementException("快照文件校验失败，数据可能已损坏");
+            }
+
+            byte[] scratch = new byte[256];
+            int loaded = 0;
+            for (int record = 1; record <= recordCount; record++) {
+                Student.Builder builder = new Student.Builder();
+                builder.studentId(getString(buffer, scratch))
+                        .name(getString(buffer, scratch))
+                        .gender(getString(buffer, scratch))
+                        .age(buffer.get())
+                        .nativePlace(getString(buffer, scratch))
+                        .department(getString(buffer, scratch))
+                        .major(getString(buffer, scratch))
+                        .className(getString(buffer, scratch));
+                int ordinal = buffer.get();
+                try {
+                    Student student = builder.status(StudentStatus.fromOrdinal(ordinal)).build();
+                    if (sink.test(student)) {
+                        loaded++;
+                    } else {
+                        System.err.println("警告：第" + record + "条记录学号 [" + student.getStudentId() + "] 重复，已跳过");
+                    }
+                } catch (StudentManagementException e) {
+                    System.err.println("警告：第" + record + "条记录数据验证失败：" + e.getMessage());
+                }
+            }
+            if (buffer.hasRemaining()) {
+                throw new StudentManagementException("快照文件记录数与文件头不符");
+            }
+            return loaded;
+        } catch (BufferUnderflowException e) {
+            throw new StudentManagementException("快照文件记录数与文件头不符", e);
+        } catch (IOException e) {
+            throw new StudentManagementException("加载学生数据失败: " + e.getMessage(), e);
+        }
+    }
+
+    private static void putString(FileChannel channel, ByteBuffer buffer, CRC32 crc, String value)
+            throws IOException {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_FIELD_BYTES) {
+            throw new StudentManagementException("字段过长，无法写入快照：" + value.substring(0, 16) + "...");
+        }
+        ensureCapacity(channel, buffer, crc, 2 + bytes.length);
+        buffer.putShort((short) bytes.length);
+        buffer.put(bytes);
+    }
+
+    private static void ensureCapacity(FileChannel channel, ByteBuffer buffer, CRC32 crc, int required)
+            throws IOException {
+        if (buffer.remaining() < required) {
+            drain(channel, buffer, crc);
+        }
+    }
+
+    private static void drain(FileChannel channel, ByteBuffer buffer, CRC32 crc) throws IOException {
+        buffer.flip();
+        crc.update(buffer.duplicate());
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    private static String getString(ByteBuffer buffer, byte[] scratch) {
+        int length = Short.toUnsignedInt(buffer.getShort());
+        if (length > scratch.length) {
+            scratch = new byte[length];
+        }
+        buffer.get(scratch, 0, length);
+        return new String(scratch, 0, length, StandardCharsets.UTF_8);
+    }
+}
@@ -0,0 +1,486 @@
+package com;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 带查询结果缓存的 StuService 装饰器
+ * 以（查询类型、关键词、匹配方式）为键缓存 queryStudents 的结果，按 LRU 淘汰并设有过期时间；
+ * queryPage 的各页从同一份缓存结果中按学号截取，翻页不再重复查询。
+ * 增删改经由本类转发，修改前后的学生记录会使所有与之匹配的缓存项失效，其余缓存项不受影响；
+ * 查询计算期间如有修改发生，结果不写入缓存，保证缓存中不会出现过期数据。
+ * 缓存命中时返回的列表不可修改
+ */
+public class CachingStuService implements StuService {
+    private static final int STRIPE_COUNT = 64;
+
+    private final StuService delegate;
+    private final int maxEntries;
+    private final long ttlNanos;
+    // accessOrder = true，按访问顺序排列，最久未访问的在最前
+    private final LinkedHashMap<Key, Entry> cache;
+    private final Object cacheLock = new Object();
+    // 每次修改生效后递增，查询结果只在计算期间没有修改时写入缓存
+    private long version;
+    // 按学号分段，保证修改前读取的旧记录就是被替换的那条
+    private final Lock[] stripes = new Lock[STRIPE_COUNT];
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+    private final LongAdder invalidations = new LongAdder();
+
+    private static final class Key {
+        private final QueryType type;
+        private final String keyword;
+        private final MatchMode mode;
+
+        private Key(QueryType type, String keyword, MatchMode mode) {
+            this.type = type;
+            this.keyword = keyword;
+            this.mode = mode;
+        }
+
+        private boolean matches(Student student) {
+            return student != null && type.matches(student, keyword, mode);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key other = (Key) o;
+            return type == other.type && mode == other.mode && keyword.equals(other.keyword);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, keyword, mode);
+        }
+    }
+
+    private static final class Entry {
+        private final List<Student> results;
+        private final long expiresAt;
+        // 按学号升序的副本，第一次分页查询时生成
+        private volatile List<Student> byStudentId;
+
+        private Entry(List<Student> results, long expiresAt) {
+            this.results = results;
+            this.expiresAt = expiresAt;
+        }
+
+        private List<Student> byStudentId() {
+            List<Student> sorted = byStudentId;
+            if (sorted == null) {
+                sorted = new ArrayList<>(results);
+                sorted.sort(Comparator.comparing(Student::getStudentId));
+                byStudentId = sorted;
+            }
+            return sorted;
+        }
+    }
+
+    /**
+     * @param maxEntries 最多缓存的查询条数
+     * @param ttl        缓存项的存活时间
+     */
+    public CachingStuService(StuService delegate, int maxEntries, Duration ttl) {
+        if (delegate == null) {
+            throw new StudentManagementException("被缓存的服务不能为空");
+        }
+        if (maxEntries <= 0) {
+            throw new StudentManagementException("缓存条数必须大于0");
+        }
+        if (ttl == null || ttl.isNegative() || ttl.isZero()) {
+            throw new StudentManagementException("缓存存活时间必须大于0");
+        }
+        this.delegate = delegate;
+        this.maxEntries = maxEntries;
+        this.ttlNanos = ttl.toNanos();
+        this.cache = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > CachingStuService.this.maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        // 服务撤销落盘失败的修改（含批量修改）时，撤销前后的记录同样使相关缓存失效
+        delegate.addUndoListener((undone, restored) -> {
+            List<Student> changed = new ArrayList<>(2);
+            if (undone != null) {
+                changed.add(undone);
+            }
+            if (restored != null) {
+                changed.add(restored);
+            }
+            invalidate(changed);
+        });
+    }
+
+    @Override
+    public List<Student> queryStudents(String keyword, QueryType type, MatchMode mode) {
+        if (keyword == null || type == null || mode == null) {
+            return delegate.queryStudents(keyword, type, mode);
+        }
+        List<Student> results = lookup(new Key(type, keyword, mode)).results;
+        if (results.isEmpty()) {
+            System.out.println("未找到匹配的学生记录");
+        }
+        return results;
+    }
+
+    @Override
+    public StudentPage queryPage(String keyword, QueryType type, MatchMode mode, String afterStudentId, int pageSize) {
+        StudentPage.checkPageSize(pageSize);
+        if (keyword == null || type == null || mode == null) {
+            return delegate.queryPage(keyword, type, mode, afterStudentId, pageSize);
+        }
+        List<Student> sorted = lookup(new Key(type, keyword, mode)).byStudentId();
+        int from = 0;
+        if (afterStudentId != null) {
+            // 二分查找第一个学号大于游标的位置
+            int low = 0;
+            int high = sorted.size();
+            while (low < high) {
+                int mid = (low + high) >>> 1;
+                if (sorted.get(mid).getStudentId().compareTo(afterStudentId) > 0) {
+                    high = mid;
+                } else {
+                    low = mid + 1;
+                }
+            }
+            from = low;
+        }
+        int to = (int) Math.min(sorted.size(), from + pageSize + 1L);
+        return StudentPage.of(new ArrayList<>(sorted.subList(from, to)), pageSize);
+    }
+
+    /**
+     * 命中时直接返回缓存项；未命中或已过期时查询被装饰的服务，计算期间没有修改才写入缓存
+     */
+    private Entry lookup(Key key) {
+        long startVersion;
+        synchronized (cacheLock) {
+            Entry entry = cache.get(key);
+            if (entry != null && entry.expiresAt - System.nanoTime() > 0) {
+                hits.increment();
+                return entry;
+            }
+            if (entry != null) {
+                cache.remove(key);
+                evictions.increment();
+            }
+            misses.increment();
+            startVersion = version;
+        }
+
+        List<Student> results = delegate.streamStudents(key.keyword, key.type, key.mode).collect(Collectors.toList());
+        Entry entry = new Entry(Collections.unmodifiableList(results), System.nanoTime() + ttlNanos);
+        synchronized (cacheLock) {
+            if (version == startVersion) {
+                cache.put(key, entry);
+            }
+        }
+        return entry;
+    }
+
+    @Override
+    public void addStudent(Student student) {
+        addStudentAsync(student);
+    }
+
+    @Override
+    public void updateStudent(String studentId, Student student) {
+        updateStudentAsync(studentId, student);
+    }
+
+    @Override
+    public void deleteStudent(String studentId) {
+        deleteStudentAsync(studentId);
+    }
+
+    /**
+     * 修改抛出异常时服务可能已部分生效，因此无论成功与否都使相关缓存失效；
+     * 异步落盘失败的修改由服务撤销时通过撤销监听器使相关缓存失效
+     */
+    @Override
+    public CompletableFuture<Void> addStudentAsync(Student student) {
+        String studentId = student.getStudentId();
+        lock(studentId, studentId);
+        try {
+            return delegate.addStudentAsync(student);
+        } finally {
+            invalidate(List.of(student));
+            unlock(studentId, studentId);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> updateStudentAsync(String studentId, Student student) {
+        if (studentId == null || student == null) {
+            return delegate.updateStudentAsync(studentId, student);
+        }
+        lock(studentId, student.getStudentId());
+        List<Student> changed = new ArrayList<>(2);
+        try {
+            delegate.findById(studentId).ifPresent(changed::add);
+            changed.add(student);
+            return delegate.updateStudentAsync(studentId, student);
+        } finally {
+            invalidate(changed);
+            unlock(studentId, student.getStudentId());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteStudentAsync(String studentId) {
+        if (studentId == null) {
+            return delegate.deleteStudentAsync(null);
+        }
+        lock(studentId, studentId);
+        List<Student> changed = new ArrayList<>(1);
+        try {
+            delegate.findById(studentId).ifPresent(changed::add);
+            return delegate.deleteStudentAsync(studentId);
+        } finally {
+            invalidate(changed);
+            unlock(studentId, studentId);
+        }
+    }
+
+    @Override
+    public BatchResult addStudents(Collection<Student> students) {
+        lockAll();
+        try {
+            return delegate.addStudents(students);
+        } finally {
+            invalidate(students);
+            unlockAll();
+        }
+    }
+
+    @Override
+    public BatchResult updateStudents(Map<String, Student> updates) {
+        lockAll();
+        List<Student> changed = new ArrayList<>();
+        try {
+            for (Map.Entry<String, Student> update : updates.entrySet()) {
+                if (update.getKey() != null) {
+                    delegate.findById(update.getKey()).ifPresent(changed::add);
+                }
+                changed.add(update.getValue());
+            }
+            return delegate.updateStudents(updates);
+        } finally {
+            invalidate(changed);
+            unlockAll();
+        }
+    }
+
+    @Override
+    public BatchResult deleteStudents(Collection<String> studentIds) {
+        lockAll();
+        List<Student> changed = new ArrayList<>();
+        try {
+            for (String studentId : studentIds) {
+                if (studentId != null) {
+                    delegate.findById(studentId).ifPresent(changed::add);
+                }
+            }
+            return delegate.deleteStudents(studentIds);
+        } finally {
+            invalidate(changed);
+            unlockAll();
+        }
+    }
+
+    @Override
+    public Optional<Student> findById(String studentId) {
+        return delegate.findById(studentId);
+    }
+
+    @Override
+    public Stream<Student> streamStudents(String keyword, QueryType type, MatchMode mode) {
+        return delegate.streamStudents(keyword, type, mode);
+    }
+
+    /**
+     * 全量列表不经过缓存，避免任何一次修改都使一份全表大小的缓存项失效
+     */
+    @Override
+    public StudentPage listStudents(String afterStudentId, int pageSize) {
+        return delegate.listStudents(afterStudentId, pageSize);
+    }
+
+    @Override
+    public List<Student> query(StudentQuery query) {
+        return delegate.query(query);
+    }
+
+    /**
+     * 统计由被装饰的服务增量维护，直接转发
+     */
+    @Override
+    public Map<String, Long> countBy(QueryType field) {
+        return delegate.countBy(field);
+    }
+
+    @Override
+    public Map<String, Map<String, Long>> countBy(QueryType field, QueryType subField) {
+        return delegate.countBy(field, subField);
+    }
+
+    @Override
+    public StudentSnapshot snapshot() {
+        return delegate.snapshot();
+    }
+
+    @Override
+    public void saveToFile() {
+        delegate.saveToFile();
+    }
+
+    @Override
+    public void addUndoListener(StudentUndoListener listener) {
+        delegate.addUndoListener(listener);
+    }
+
+    @Override
+    public void loadFromFile() {
+        lockAll();
+        try {
+            delegate.loadFromFile();
+        } finally {
+            synchronized (cacheLock) {
+                invalidations.add(cache.size());
+                cache.clear();
+                version++;
+            }
+            unlockAll();
+        }
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    @Override
+    public void OutDate() {
+        delegate.OutDate();
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    /**
+     * @return 因超出容量或过期而被淘汰的缓存项数
+     */
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    /**
+     * @return 因学生记录修改而失效的缓存项数
+     */
+    public long getInvalidationCount() {
+        return invalidations.sum();
+    }
+
+    public int getSize() {
+        synchronized (cacheLock) {
+            return cache.size();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "查询缓存：" + getSize() + "/" + maxEntries + "项，命中" + getHitCount() + "次，未命中" + getMissCount()
+                + "次，淘汰" + getEvictionCount() + "项，失效" + getInvalidationCount() + "项";
+    }
+
+    /**
+     * 移除与任一修改前后的学生记录匹配的缓存项
+     */
+    private void invalidate(Collection<Student> changed) {
+        synchronized (cacheLock) {
+            version++;
+            Iterator<Map.Entry<Key, Entry>> it = cache.entrySet().iterator();
+            while (it.hasNext()) {
+                Key key = it.next().getKey();
+                for (Student student : changed) {
+                    if (key.matches(student)) {
+                        it.remove();
+                        invalidations.increment();
+                        break;
+                    }
+                }
+            }
+        }
+    }
+
+    private void lock(String firstId, String secondId) {
+        int first = stripeIndex(firstId);
+        int second = stripeIndex(secondId);
+        stripes[Math.min(first, second)].lock();
+        if (first != second) {
+            stripes[Math.max(first, second)].lock();
+        }
+    }
+
+    private void unlock(String firstId, String secondId) {
+        int first = stripeIndex(firstId);
+        int second = stripeIndex(secondId);
+        if (first != second) {
+            stripes[Math.max(first, second)].unlock();
+        }
+        stripes[Math.min(first, second)].unlock();
+    }
+
+    private void lockAll() {
+        for (Lock stripe : stripes) {
+            stripe.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = STRIPE_COUNT - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+
+    private static int stripeIndex(String studentId) {
+        return Math.floorMod(studentId.hashCode(), STRIPE_COUNT);
+    }
+}
@@ -0,0 +1,388 @@
+package com;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.stream.Stream;
+
+/**
+ * 发布变更事件的 StuService 装饰器
+ * 经由本类的每次成功的增删改向 StudentChangeFeed 发布一条事件（修改带修改前后的学生记录），
+ * 下游系统订阅事件流即可得知变化，无需反复读取并比对数据文件。
+ * 与 CachingStuService 相同按学号分段加锁，修改前读取的旧记录就是被替换的那条，同一学号的事件顺序与修改顺序一致；
+ * 批量操作锁住全部分段，成功的各条按批内顺序发布为连续的事件。
+ * 事件反映内存中的修改：ASYNC 模式下在修改生效时发布；落盘失败的修改被服务撤销时（见 addUndoListener）
+ * 补发一条反向的事件：撤销注册补发删除，撤销删除补发注册，撤销修改补发一条改回原记录的修改
+ */
+public class ChangeEventStuService implements StuService {
+    private static final int STRIPE_COUNT = 64;
+
+    private final StuService delegate;
+    private final StudentChangeFeed feed;
+    private final Lock[] stripes = new Lock[STRIPE_COUNT];
+
+    /**
+     * @param capacity 事件缓冲容量，即可补发的最大范围
+     * @param maxBatch 每次回调订阅方最多推送的事件数
+     */
+    public ChangeEventStuService(StuService delegate, int capacity, int maxBatch) {
+        if (delegate == null) {
+            throw new StudentManagementException("被装饰的服务不能为空");
+        }
+        this.delegate = delegate;
+        this.feed = new StudentChangeFeed(capacity, maxBatch);
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        delegate.addUndoListener(this::compensate);
+    }
+
+    public StudentChangeFeed getFeed() {
+        return feed;
+    }
+
+    public StudentChangeFeed.Subscription subscribe(StudentChangeListener listener) {
+        return feed.subscribe(listener);
+    }
+
+    public StudentChangeFeed.Subscription subscribe(StudentChangeListener listener, long afterSequence) {
+        return feed.subscribe(listener, afterSequence);
+    }
+
+    @Override
+    public void addStudent(Student student) {
+        if (student == null) {
+            delegate.addStudent(null);
+            return;
+        }
+        String studentId = student.getStudentId();
+        lock(studentId, studentId);
+        try {
+            delegate.addStudent(student);
+            publish(new StudentChangeEvent(ChangeType.ADDED, studentId, null, student));
+        } finally {
+            unlock(studentId, studentId);
+        }
+    }
+
+    @Override
+    public void updateStudent(String studentId, Student student) {
+        if (studentId == null || student == null) {
+            delegate.updateStudent(studentId, student);
+            return;
+        }
+        lock(studentId, student.getStudentId());
+        try {
+            Student before = delegate.findById(studentId).orElse(null);
+            delegate.updateStudent(studentId, student);
+            publish(updated(studentId, before, student));
+        } finally {
+            unlock(studentId, student.getStudentId());
+        }
+    }
+
+    @Override
+    public void deleteStudent(String studentId) {
+        if (studentId == null) {
+            delegate.deleteStudent(null);
+            return;
+        }
+        lock(studentId, studentId);
+        try {
+            Student before = delegate.findById(studentId).orElse(null);
+            delegate.deleteStudent(studentId);
+            publish(new StudentChangeEvent(ChangeType.DELETED, studentId, before, null));
+        } finally {
+            unlock(studentId, studentId);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> addStudentAsync(Student student) {
+        if (student == null) {
+            return delegate.addStudentAsync(null);
+        }
+        String studentId = student.getStudentId();
+        lock(studentId, studentId);
+        try {
+            CompletableFuture<Void> durable = delegate.addStudentAsync(student);
+            publish(new StudentChangeEvent(ChangeType.ADDED, studentId, null, student));
+            return durable;
+        } finally {
+            unlock(studentId, studentId);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> updateStudentAsync(String studentId, Student student) {
+        if (studentId == null || student == null) {
+            return delegate.updateStudentAsync(studentId, student);
+        }
+        lock(studentId, student.getStudentId());
+        try {
+            Student before = delegate.findById(studentId).orElse(null);
+            CompletableFuture<Void> durable = delegate.updateStudentAsync(studentId, student);
+            publish(updated(studentId, before, student));
+            return durable;
+        } finally {
+            unlock(studentId, student.getStudentId());
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteStudentAsync(String studentId) {
+        if (studentId == null) {
+            return delegate.deleteStudentAsync(null);
+        }
+        lock(studentId, studentId);
+        try {
+            Student before = delegate.findById(studentId).orElse(null);
+            CompletableFuture<Void> durable = delegate.deleteStudentAsync(studentId);
+            publish(new StudentChangeEvent(ChangeType.DELETED, studentId, before, null));
+            return durable;
+        } finally {
+            unlock(studentId, studentId);
+        }
+    }
+
+    @Override
+    public BatchResult addStudents(Collection<Student> students) {
+        lockAll();
+        try {
+            BatchResult result = delegate.addStudents(students);
+            Set<Integer> failed = failedPositions(result);
+            List<StudentChangeEvent> events = new ArrayList<>(result.getSucceeded());
+            int position = 0;
+            for (Student student : students) {
+                position++;
+                if (student != null && !failed.contains(position)) {
+                    events.add(new StudentChangeEvent(ChangeType.ADDED, student.getStudentId(), null, student));
+                }
+            }
+            feed.publish(events);
+            return result;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * 批内后面的修改能看到前面修改的结果，因此按批内顺序推演每条修改前的记录
+     */
+    @Override
+    public BatchResult updateStudents(Map<String, Student> updates) {
+        lockAll();
+        try {
+            Map<String, Student> current = new HashMap<>();
+            for (Map.Entry<String, Student> update : updates.entrySet()) {
+                remember(current, update.getKey());
+                if (update.getValue() != null) {
+                    remember(current, update.getValue().getStudentId());
+                }
+            }
+            BatchResult result = delegate.updateStudents(updates);
+            Set<Integer> failed = failedPositions(result);
+            List<StudentChangeEvent> events = new ArrayList<>(result.getSucceeded());
+            int position = 0;
+            for (Map.Entry<String, Student> update : updates.entrySet()) {
+                position++;
+                if (failed.contains(position)) {
+                    continue;
+                }
+                String studentId = update.getKey();
+                Student student = update.getValue();
+                events.add(updated(studentId, current.get(studentId), student));
+                current.put(studentId, null);
+                current.put(student.getStudentId(), student);
+            }
+            feed.publish(events);
+            return result;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public BatchResult deleteStudents(Collection<String> studentIds) {
+        lockAll();
+        try {
+            Map<String, Student> current = new HashMap<>();
+            for (String studentId : studentIds) {
+                remember(current, studentId);
+            }
+            BatchResult result = delegate.deleteStudents(studentIds);
+            Set<Integer> failed = failedPositions(result);
+            List<StudentChangeEvent> events = new ArrayList<>(result.getSucceeded());
+            int position = 0;
+            for (String studentId : studentIds) {
+                position++;
+                if (!failed.contains(position)) {
+                    events.add(new StudentChangeEvent(ChangeType.DELETED, studentId, current.get(studentId), null));
+                    current.put(studentId, null);
+                }
+            }
+            feed.publish(events);
+            return result;
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public Optional<Student> findById(String studentId) {
+        return delegate.findById(studentId);
+    }
+
+    @Override
+    public List<Student> queryStudents(String keyword, QueryType type, MatchMode mode) {
+        return delegate.queryStudents(keyword, type, mode);
+    }
+
+    @Override
+    public List<Student> query(StudentQuery query) {
+        return delegate.query(query);
+    }
+
+    @Override
+    public Stream<Student> streamStudents(String keyword, QueryType type, MatchMode mode) {
+        return delegate.streamStudents(keyword, type, mode);
+    }
+
+    @Override
+    public StudentPage queryPage(String keyword, QueryType type, MatchMode mode, String afterStudentId, int pageSize) {
+        return delegate.queryPage(keyword, type, mode, afterStudentId, pageSize);
+    }
+
+    @Override
+    public StudentPage listStudents(String afterStudentId, int pageSize) {
+        return delegate.listStudents(afterStudentId, pageSize);
+    }
+
+    @Override
+    public Map<String, Long> countBy(QueryType field) {
+        return delegate.countBy(field);
+    }
+
+    @Override
+    public Map<String, Map<String, Long>> countBy(QueryType field, QueryType subField) {
+        return delegate.countBy(field, subField);
+    }
+
+    @Override
+    public StudentSnapshot snapshot() {
+        return delegate.snapshot();
+    }
+
+    @Override
+    public void addUndoListener(StudentUndoListener listener) {
+        delegate.addUndoListener(listener);
+    }
+
+    @Override
+    public void saveToFile() {
+        delegate.saveToFile();
+    }
+
+    /**
+     * 重新加载替换了全部数据，发布一条 RELOADED 事件通知订阅方重新全量同步
+     */
+    @Override
+    public void loadFromFile() {
+        lockAll();
+        try {
+            delegate.loadFromFile();
+            publish(new StudentChangeEvent(ChangeType.RELOADED, null, null, null));
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    @Override
+    public void OutDate() {
+        delegate.OutDate();
+    }
+
+    /**
+     * 服务撤销了一条已发布的修改，补发把它改回去的事件
+     */
+    private void compensate(Student undone, Student restored) {
+        if (restored == null) {
+            publish(new StudentChangeEvent(ChangeType.DELETED, undone.getStudentId(), undone, null));
+        } else if (undone == null) {
+            publish(new StudentChangeEvent(ChangeType.ADDED, restored.getStudentId(), null, restored));
+        } else {
+            publish(updated(undone.getStudentId(), undone, restored));
+        }
+    }
+
+    private static StudentChangeEvent updated(String studentId, Student before, Student after) {
+        boolean statusChanged = before != null && before.getStatus() != after.getStatus();
+        return new StudentChangeEvent(statusChanged ? ChangeType.STATUS_CHANGED : ChangeType.UPDATED,
+                studentId, before, after);
+    }
+
+    private void remember(Map<String, Student> current, String studentId) {
+        if (studentId != null && !current.containsKey(studentId)) {
+            current.put(studentId, delegate.findById(studentId).orElse(null));
+        }
+    }
+
+    private static Set<Integer> failedPositions(BatchResult result) {
+        Set<Integer> positions = new HashSet<>();
+        for (BatchResult.Failure failure : result.getFailures()) {
+            positions.add(failure.getPosition());
+        }
+        return positions;
+    }
+
+    private void publish(StudentChangeEvent event) {
+        feed.publish(List.of(event));
+    }
+
+    private void lock(String firstId, String secondId) {
+        int first = stripeIndex(firstId);
+        int second = stripeIndex(secondId);
+        stripes[Math.min(first, second)].lock();
+        if (first != second) {
+            stripes[Math.max(first, second)].lock();
+        }
+    }
+
+    private void unlock(String firstId, String secondId) {
+        int first = stripeIndex(firstId);
+        int second = stripeIndex(secondId);
+        if (first != second) {
+            stripes[Math.max(first, second)].unlock();
+        }
+        stripes[Math.min(first, second)].unlock();
+    }
+
+    private void lockAll() {
+        for (Lock stripe : stripes) {
+            stripe.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = STRIPE_COUNT - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+
+    private static int stripeIndex(String studentId) {
+        return (studentId.hashCode() & 0x7fffffff) % STRIPE_COUNT;
+    }
+}
@@ -0,0 +1,24 @@
+package com;
+
+/**
+ * 学生变更事件类型枚举
+ */
+public enum ChangeType {
+    ADDED("注册"),
+    UPDATED("修改"),
+    // 学籍状态发生变化的修改（如入学→休学），其余与 UPDATED 相同
+    STATUS_CHANGED("学籍变更"),
+    DELETED("删除"),
+    // 重新从文件加载了全部数据，此前的增量已无法衔接，订阅方应重新全量同步
+    RELOADED("重新加载");
+
+    private final String label;
+
+    ChangeType(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+}
@@ -0,0 +1,442 @@
+package com;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+/**
+ * 列式存储的学生学籍业务实现类
+ * 学生按列保存在 StudentColumns 中，不为每名学生常驻一个对象，内存占用约为 StuServiceImpl 的三分之一；
+ * 按学籍状态、系别等字段筛选是对单个基本类型数组的顺序扫描，不需要额外的二级索引。
+ * 查询、分页结果中的 Student 对象按需创建，同一学生两次取出的是不同的对象。
+ * 持久化与 StuServiceImpl 相同；ASYNC 模式按 JOURNAL 模式处理。非线程安全
+ */
+public class ColumnarStuServiceImpl implements StuService {
+    private final StudentColumns columns = new StudentColumns();
+    // 组合查询规划时由列扫描给出各条件的候选集
+    private final QueryCondition.IndexLookup indexLookup = new QueryCondition.IndexLookup() {
+        @Override
+        public Set<String> candidates(String keyword, QueryType type, MatchMode mode) {
+            return columns.rowSet(columns.matchingRows(type, keyword, mode));
+        }
+
+        @Override
+        public Set<String> ageCandidates(int min, int max) {
+            return columns.rowSet(columns.ageRows(min, max));
+        }
+    };
+    private final StuServiceOptions options;
+    private final Path dataFilePath;
+    private final StudentJournal journal; // 仅 JOURNAL、ASYNC、SEGMENTED 模式下非空
+    private final StudentSegments segments; // 仅 SEGMENTED 模式下非空
+
+    public ColumnarStuServiceImpl() {
+        this(StuServiceOptions.defaults());
+    }
+
+    public ColumnarStuServiceImpl(StuServiceOptions options) {
+        this.options = options;
+        this.dataFilePath = options.getDataFilePath();
+        // 确保目录存在
+        try {
+            Files.createDirectories(options.getDataDir());
+        } catch (IOException e) {
+            throw new StudentManagementException("无法创建数据目录: " + e.getMessage());
+        }
+        this.journal = options.getPersistenceMode() != PersistenceMode.SNAPSHOT
+                ? new StudentJournal(options.getJournalFilePath(), options.getSyncPolicy(), options.getSyncInterval())
+                : null;
+        this.segments = options.getPersistenceMode() == PersistenceMode.SEGMENTED ? new StudentSegments(options) : null;
+        loadFromFile();
+    }
+
+    @Override
+    public void addStudent(Student student) {
+        // 检查学号是否已存在
+        if (!columns.add(student)) {
+            throw new StudentManagementException("学号 [" + student.getStudentId() + "] 已存在");
+        }
+
+        try {
+            persist(j -> j.appendAdd(student));
+        } catch (StudentManagementException e) {
+            columns.remove(student.getStudentId());
+            throw e;
+        }
+        System.out.println("学生[" + student.getStudentId() + "] 注册成功");
+    }
+
+    @Override
+    public void updateStudent(String studentId, Student newStudent) {
+        if (studentId == null || studentId.trim().isEmpty()) {
+            throw new StudentManagementException("学号不能为空");
+        }
+
+        // 如果新学号与旧学号不同，检查新学号是否已存在
+        if (!studentId.equals(newStudent.getStudentId()) && columns.rowOf(newStudent.getStudentId()) >= 0) {
+            throw new StudentManagementException("新学号 [" + newStudent.getStudentId() + "] 已存在");
+        }
+
+        if (columns.rowOf(studentId) < 0) {
+            throw new StudentManagementException("未找到学号为 [" + studentId + "] 的学生");
+        }
+
+        replaceStudent(studentId, newStudent);
+        persist(j -> j.appendUpdate(studentId, newStudent));
+        System.out.println("学生[" + studentId + "] 信息更新成功");
+    }
+
+    @Override
+    public void deleteStudent(String studentId) {
+        if (studentId == null || studentId.trim().isEmpty()) {
+            throw new StudentManagementException("学号不能为空");
+        }
+
+        if (columns.remove(studentId) == null) {
+            throw new StudentManagementException("未找到学号为 [" + studentId + "] 的学生");
+        }
+
+        persist(j -> j.appendDelete(studentId));
+        System.out.println("学生[" + studentId + "] 信息删除成功");
+    }
+
+    /**
+     * 与 StuServiceImpl 相同，整批校验后只保存一次，保存失败时撤销本批全部修改
+     */
+    @Override
+    public BatchResult addStudents(Collection<Student> students) {
+        BatchResult.Builder result = new BatchResult.Builder();
+        StudentJournal.Batch batch = new StudentJournal.Batch();
+        List<Runnable> undo = new ArrayList<>();
+        int position = 0;
+        for (Student student : students) {
+            position++;
+            if (student == null) {
+                result.failure(position, null, "学生信息不能为空");
+            } else if (!columns.add(student)) {
+                // 与已有记录或本批前面的记录重复
+                result.failure(position, student.getStudentId(), "学号 [" + student.getStudentId() + "] 已存在");
+            } else {
+                undo.add(() -> columns.remove(student.getStudentId()));
+                batch.add(student);
+            }
+        }
+
+        commitBatch(batch, undo);
+        System.out.println("批量注册完成：成功" + batch.size() + "条，失败" + (position - batch.size()) + "条");
+        return result.succeeded(batch.size()).build();
+    }
+
+    @Override
+    public BatchResult updateStudents(Map<String, Student> updates) {
+        BatchResult.Builder result = new BatchResult.Builder();
+        StudentJournal.Batch batch = new StudentJournal.Batch();
+        List<Runnable> undo = new ArrayList<>();
+        int position = 0;
+        for (Map.Entry<String, Student> update : updates.entrySet()) {
+            position++;
+            String studentId = update.getKey();
+            Student newStudent = update.getValue();
+            if (studentId == null || studentId.trim().isEmpty()) {
+                result.failure(position, studentId, "学号不能为空");
+            } else if (newStudent == null) {
+                result.failure(position, studentId, "学生信息不能为空");
+            } else if (!studentId.equals(newStudent.getStudentId()) && columns.rowOf(newStudent.getStudentId()) >= 0) {
+                result.failure(position, studentId, "新学号 [" + newStudent.getStudentId() + "] 已存在");
+            } else if (columns.rowOf(studentId) < 0) {
+                result.failure(position, studentId, "未找到学号为 [" + studentId + "] 的学生");
+            } else {
+                Student previous = columns.get(columns.rowOf(studentId));
+                replaceStudent(studentId, newStudent);
+                undo.add(() -> replaceStudent(newStudent.getStudentId(), previous));
+                batch.update(studentId, newStudent);
+            }
+        }
+
+        commitBatch(batch, undo);
+        System.out.println("批量修改完成：成功" + batch.size() + "条，失败" + (position - batch.size()) + "条");
+        return result.succeeded(batch.size()).build();
+    }
+
+    @Override
+    public BatchResult deleteStudents(Collection<String> studentIds) {
+        BatchResult.Builder result = new BatchResult.Builder();
+        StudentJournal.Batch batch = new StudentJournal.Batch();
+        List<Runnable> undo = new ArrayList<>();
+        int position = 0;
+        for (String studentId : studentIds) {
+            position++;
+            if (studentId == null || studentId.trim().isEmpty()) {
+                result.failure(position, studentId, "学号不能为空");
+                continue;
+            }
+            Student removed = columns.remove(studentId);
+            if (removed == null) {
+                result.failure(position, studentId, "未找到学号为 [" + studentId + "] 的学生");
+            } else {
+                undo.add(() -> columns.add(removed));
+                batch.delete(studentId);
+            }
+        }
+
+        commitBatch(batch, undo);
+        System.out.println("批量删除完成：成功" + batch.size() + "条，失败" + (position - batch.size()) + "条");
+        return result.succeeded(batch.size()).build();
+    }
+
+    /**
+     * 把整批修改作为一次持久化提交，失败时按相反顺序撤销内存中的修改
+     */
+    private void commitBatch(StudentJournal.Batch batch, List<Runnable> undo) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            persist(j -> j.appendBatch(batch));
+        } catch (StudentManagementException e) {
+            for (int i = undo.size() - 1; i >= 0; i--) {
+                undo.get(i).run();
+            }
+            throw e;
+        }
+    }
+
+    private void replaceStudent(String studentId, Student newStudent) {
+        if (studentId.equals(newStudent.getStudentId())) {
+            // 同一学号原位替换，保持原有顺序
+            columns.set(columns.rowOf(studentId), newStudent);
+        } else {
+            // 学号变更视为重新登记，记录移动到列表末尾
+            columns.remove(studentId);
+            columns.add(newStudent);
+        }
+    }
+
+    /**
+     * 持久化一次修改：SNAPSHOT 模式重写数据文件；JOURNAL 模式追加一条日志，累计到阈值时写检查点。
+     * 与 StuServiceImpl 相同，只有保存或追加日志失败时抛出异常；修改记入日志后检查点失败只报告错误
+     */
+    private void persist(Consumer<StudentJournal> record) {
+        if (journal == null) {
+            saveToFile();
+            return;
+        }
+        record.accept(journal);
+        if (journal.getRecordCount() >= options.getCheckpointThreshold()) {
+            try {
+                saveToFile();
+            } catch (StudentManagementException e) {
+                System.err.println("检查点写入失败，修改已记入日志: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public Optional<Student> findById(String studentId) {
+        if (studentId == null) {
+            return Optional.empty();
+        }
+        int row = columns.rowOf(studentId.trim());
+        return row < 0 ? Optional.empty() : Optional.of(columns.get(row));
+    }
+
+    /**
+     * 先扫描对应的列得到匹配的行号，只为匹配的行创建学生对象
+     */
+    @Override
+    public List<Student> queryStudents(String keyword, QueryType type, MatchMode mode) {
+        List<Student> results = streamStudents(keyword, type, mode).collect(Collectors.toList());
+
+        if (results.isEmpty()) {
+            System.out.println("未找到匹配的学生记录");
+        }
+
+        return results;
+    }
+
+    /**
+     * 调用时即完成列扫描，学生对象在消费时逐个创建；须在下一次修改前消费完毕
+     */
+    @Override
+    public Stream<Student> streamStudents(String keyword, QueryType type, MatchMode mode) {
+        if (keyword == null || type == null || mode == null) {
+            throw new StudentManagementException("搜索关键词、类型和匹配方式不能为空");
+        }
+        return Arrays.stream(columns.matchingRows(type, keyword, mode)).mapToObj(columns::get);
+    }
+
+    /**
+     * 组合查询：条件树给出候选行号（AND 取最小的候选集），只为候选行创建学生对象再复核条件
+     */
+    @Override
+    public List<Student> query(StudentQuery query) {
+        Set<String> ids = query.getCondition() == null ? null : query.getCondition().candidates(indexLookup);
+        if (ids == null) {
+            return query.execute(allRows().mapToObj(columns::get));
+        }
+        int[] rows;
+        if (ids instanceof StudentColumns.RowSet) {
+            rows = ((StudentColumns.RowSet) ids).rows();
+        } else {
+            // OR 合并后的候选集只有学号，按行号排序即恢复注册顺序
+            rows = ids.stream().mapToInt(columns::rowOf).toArray();
+            Arrays.sort(rows);
+        }
+        return query.execute(Arrays.stream(rows).mapToObj(columns::get));
+    }
+
+    /**
+     * 扫描得到匹配行后，沿按学号排序的学号数组从游标处向后取，凑满一页即停止
+     */
+    @Override
+    public StudentPage queryPage(String keyword, QueryType type, MatchMode mode, String afterStudentId, int pageSize) {
+        if (keyword == null || type == null || mode == null) {
+            throw new StudentManagementException("搜索关键词、类型和匹配方式不能为空");
+        }
+        StudentPage.checkPageSize(pageSize);
+        BitSet matched = new BitSet(columns.rowCount());
+        for (int row : columns.matchingRows(type, keyword, mode)) {
+            matched.set(row);
+        }
+        return page(afterStudentId, pageSize, matched);
+    }
+
+    @Override
+    public StudentPage listStudents(String afterStudentId, int pageSize) {
+        StudentPage.checkPageSize(pageSize);
+        return page(afterStudentId, pageSize, null);
+    }
+
+    /**
+     * @param matched 满足条件的行号，为 null 时不过滤
+     */
+    private StudentPage page(String afterStudentId, int pageSize, BitSet matched) {
+        String[] sortedIds = columns.sortedIds();
+        int from = 0;
+        if (afterStudentId != null) {
+            int found = Arrays.binarySearch(sortedIds, afterStudentId);
+            from = found >= 0 ? found + 1 : -found - 1;
+        }
+        List<Student> fetched = new ArrayList<>(Math.min(pageSize + 1, sortedIds.length - from));
+        for (int i = from; i < sortedIds.length && fetched.size() <= pageSize; i++) {
+            int row = columns.rowOf(sortedIds[i]);
+            if (matched == null || matched.get(row)) {
+                fetched.add(columns.get(row));
+            }
+        }
+        return StudentPage.of(fetched, pageSize);
+    }
+
+    private IntStream allRows() {
+        return IntStream.range(0, columns.rowCount()).filter(columns::isLive);
+    }
+
+    @Override
+    public Map<String, Long> countBy(QueryType field) {
+        return StudentStatistics.supports(field) ? columns.statistics().countBy(field) : StuService.super.countBy(field);
+    }
+
+    @Override
+    public Map<String, Map<String, Long>> countBy(QueryType field, QueryType subField) {
+        return StudentStatistics.supports(field) && StudentStatistics.supports(subField)
+                ? columns.statistics().countBy(field, subField)
+                : StuService.super.countBy(field, subField);
+    }
+
+    @Override
+    public void saveToFile() {
+        if (segments != null) {
+            segments.checkpoint(journal);
+            return;
+        }
+        // JOURNAL 模式下检查点必须先落盘，才能清空日志
+        options.getSnapshotFormat().write(dataFilePath, columns.students(), journal != null);
+        if (journal != null) {
+            journal.reset();
+        }
+    }
+
+    @Override
+    public void loadFromFile() {
+        columns.clear();
+        boolean loaded = segments != null ? segments.load(columns::add) : SnapshotFormat.load(options, columns::add);
+        if (loaded) {
+            System.out.println("成功加载" + columns.size() + "条学生记录");
+        }
+        if (journal != null) {
+            replayJournal();
+        }
+    }
+
+    /**
+     * 在快照之上回放日志，与 StuServiceImpl 相同按幂等方式处理
+     */
+    private void replayJournal() {
+        int replayed = journal.replay(new StudentJournal.Visitor() {
+            @Override
+            public void onAdd(Student student) {
+                put(student);
+            }
+
+            @Override
+            public void onUpdate(String studentId, Student newStudent) {
+                if (!studentId.equals(newStudent.getStudentId())) {
+                    columns.remove(studentId);
+                }
+                put(newStudent);
+            }
+
+            @Override
+            public void onDelete(String studentId) {
+                columns.remove(studentId);
+            }
+
+            private void put(Student student) {
+                int row = columns.rowOf(student.getStudentId());
+                if (row >= 0) {
+                    columns.set(row, student);
+                } else {
+                    columns.add(student);
+                }
+            }
+        });
+        if (replayed > 0) {
+            System.out.println("已回放" + replayed + "条日志记录，当前共" + columns.size() + "条学生记录");
+        }
+    }
+
+    /**
+     * 关闭日志文件和后台线程，不写检查点；未写入数据文件的修改保留在日志中，下次打开时回放
+     */
+    @Override
+    public void close() {
+        if (segments != null) {
+            segments.close();
+        }
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Override
+    public void OutDate() {
+        if (columns.size() == 0) {
+            System.out.println("没有学生记录");
+            return;
+        }
+
+        columns.students().forEach(System.out::println);
+    }
+}
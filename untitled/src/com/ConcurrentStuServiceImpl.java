@@ -0,0 +1,638 @@
+package com;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 线程安全的学生学籍业务实现类
+ * 读操作（查询、列出）不加锁，基于并发容器的弱一致性遍历并行执行；
+ * 写操作按学号分段加锁，同一学号的修改串行化，不同分段互不阻塞；
+ * 按注册顺序的数据保存为多版本（见 StudentVersions），snapshot 不等待写操作也不拷贝数据，
+ * 只包含创建前已结束的写操作；saveToFile、queryStudents、OutDate 都在快照上遍历，期间写操作照常进行
+ */
+public class ConcurrentStuServiceImpl implements StuService {
+    private static final int STRIPE_COUNT = 64;
+
+    // 学号 -> 记录，按学号排序以支持分页；记录中保存注册序号以便按注册顺序列出
+    private final ConcurrentNavigableMap<String, Entry> studentsById = new ConcurrentSkipListMap<>();
+    // 注册序号 -> 学生的多版本存储，供按注册顺序遍历和快照使用
+    private final StudentVersions studentsByOrder = new StudentVersions();
+    private final AtomicLong nextSequence = new AtomicLong();
+    // 分组人数统计，随 link/unlink 维护
+    private final StudentStatistics statistics = new StudentStatistics();
+    private final Lock[] stripes = new Lock[STRIPE_COUNT];
+    // 写操作持有读锁（彼此共享），批量操作、加载数据和写检查点时持有写锁；读操作和快照不使用该锁
+    private final ReentrantReadWriteLock snapshotLock = new ReentrantReadWriteLock();
+    // 保证快照按拷贝顺序写入文件，避免旧快照覆盖新快照
+    private final Lock saveLock = new ReentrantLock();
+    private final StuServiceOptions options;
+    private final Path dataFilePath;
+    private final StudentJournal journal; // 仅 JOURNAL、ASYNC、SEGMENTED 模式下非空
+    private final StudentSegments segments; // 仅 SEGMENTED 模式下非空
+
+    private static final class Entry {
+        private final long sequence;
+        private final Student student;
+
+        private Entry(long sequence, Student student) {
+            this.sequence = sequence;
+            this.student = student;
+        }
+    }
+
+    public ConcurrentStuServiceImpl() {
+        this(StuServiceOptions.defaults());
+    }
+
+    public ConcurrentStuServiceImpl(StuServiceOptions options) {
+        this.options = options;
+        this.dataFilePath = options.getDataFilePath();
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        // 确保目录存在
+        try {
+            Files.createDirectories(options.getDataDir());
+        } catch (IOException e) {
+            throw new StudentManagementException("无法创建数据目录: " + e.getMessage());
+        }
+        // 写操作已按分段并行，ASYNC 模式按 JOURNAL 模式处理
+        this.journal = options.getPersistenceMode() != PersistenceMode.SNAPSHOT
+                ? new StudentJournal(options.getJournalFilePath(), options.getSyncPolicy(), options.getSyncInterval())
+                : null;
+        this.segments = options.getPersistenceMode() == PersistenceMode.SEGMENTED ? new StudentSegments(options) : null;
+        loadFromFile();
+    }
+
+    @Override
+    public void addStudent(Student student) {
+        String studentId = student.getStudentId();
+        StudentVersions.Write write = lockForWrite(studentId, studentId);
+        try {
+            // 检查学号是否已存在
+            if (studentsById.containsKey(studentId)) {
+                throw new StudentManagementException("学号 [" + studentId + "] 已存在");
+            }
+            link(write, new Entry(nextSequence.getAndIncrement(), student));
+            if (journal != null) {
+                try {
+                    journal.appendAdd(student);
+                } catch (StudentManagementException e) {
+                    unlink(write, studentId);
+                    throw e;
+                }
+            }
+        } finally {
+            unlockForWrite(write, studentId, studentId);
+        }
+
+        try {
+            persist();
+        } catch (StudentManagementException e) {
+            // 只有 SNAPSHOT 模式会在这里失败，JOURNAL 模式下注册已记入日志
+            rollbackAdd(student);
+            throw e;
+        }
+        System.out.println("学生[" + studentId + "] 注册成功");
+    }
+
+    @Override
+    public void updateStudent(String studentId, Student newStudent) {
+        if (studentId == null || studentId.trim().isEmpty()) {
+            throw new StudentManagementException("学号不能为空");
+        }
+
+        String newStudentId = newStudent.getStudentId();
+        StudentVersions.Write write = lockForWrite(studentId, newStudentId);
+        try {
+            // 如果新学号与旧学号不同，检查新学号是否已存在
+            if (!studentId.equals(newStudentId) && studentsById.containsKey(newStudentId)) {
+                throw new StudentManagementException("新学号 [" + newStudentId + "] 已存在");
+            }
+            Entry current = studentsById.get(studentId);
+            if (current == null) {
+                throw new StudentManagementException("未找到学号为 [" + studentId + "] 的学生");
+            }
+
+            if (studentId.equals(newStudentId)) {
+                // 同一学号原位替换，保持原有顺序
+                link(write, new Entry(current.sequence, newStudent));
+            } else {
+                // 学号变更视为重新登记，记录移动到列表末尾
+                unlink(write, studentId);
+                link(write, new Entry(nextSequence.getAndIncrement(), newStudent));
+            }
+            if (journal != null) {
+                journal.appendUpdate(studentId, newStudent);
+            }
+        } finally {
+            unlockForWrite(write, studentId, newStudentId);
+        }
+
+        persist();
+        System.out.println("学生[" + studentId + "] 信息更新成功");
+    }
+
+    @Override
+    public void deleteStudent(String studentId) {
+        if (studentId == null || studentId.trim().isEmpty()) {
+            throw new StudentManagementException("学号不能为空");
+        }
+
+        StudentVersions.Write write = lockForWrite(studentId, studentId);
+        try {
+            if (unlink(write, studentId) == null) {
+                throw new StudentManagementException("未找到学号为 [" + studentId + "] 的学生");
+            }
+            if (journal != null) {
+                journal.appendDelete(studentId);
+            }
+        } finally {
+            unlockForWrite(write, studentId, studentId);
+        }
+
+        persist();
+        System.out.println("学生[" + studentId + "] 信息删除成功");
+    }
+
+    /**
+     * 批量操作持有写锁，整批修改期间阻塞其他写操作，日志中整批作为一条记录追加；
+     * 读操作不加锁，可能看到执行到一半的批次，快照则整批要么都看到要么都看不到。
+     * SNAPSHOT 模式下与单条操作相同，保存失败时只撤销本批注册的学生
+     */
+    @Override
+    public BatchResult addStudents(Collection<Student> students) {
+        BatchResult.Builder result = new BatchResult.Builder();
+        StudentJournal.Batch batch = new StudentJournal.Batch();
+        List<Student> added = new ArrayList<>();
+        List<Runnable> undo = new ArrayList<>();
+        int position = 0;
+        StudentVersions.Write write = lockExclusive();
+        try {
+            for (Student student : students) {
+                position++;
+                if (student == null) {
+                    result.failure(position, null, "学生信息不能为空");
+                } else if (studentsById.containsKey(student.getStudentId())) {
+                    result.failure(position, student.getStudentId(), "学号 [" + student.getStudentId() + "] 已存在");
+                } else {
+                    link(write, new Entry(nextSequence.getAndIncrement(), student));
+                    added.add(student);
+                    undo.add(() -> unlink(write, student.getStudentId()));
+                    batch.add(student);
+                }
+            }
+            appendBatch(batch, undo);
+        } finally {
+            unlockExclusive(write);
+        }
+
+        if (!batch.isEmpty()) {
+            try {
+                persist();
+            } catch (StudentManagementException e) {
+                added.forEach(this::rollbackAdd);
+                throw e;
+            }
+        }
+        System.out.println("批量注册完成：成功" + added.size() + "条，失败" + (position - added.size()) + "条");
+        return result.succeeded(added.size()).build();
+    }
+
+    @Override
+    public BatchResult updateStudents(Map<String, Student> updates) {
+        BatchResult.Builder result = new BatchResult.Builder();
+        StudentJournal.Batch batch = new StudentJournal.Batch();
+        List<Runnable> undo = new ArrayList<>();
+        int position = 0;
+        StudentVersions.Write write = lockExclusive();
+        try {
+            for (Map.Entry<String, Student> update : updates.entrySet()) {
+                position++;
+                String studentId = update.getKey();
+                Student newStudent = update.getValue();
+                Entry current = studentId == null ? null : studentsById.get(studentId);
+                if (studentId == null || studentId.trim().isEmpty()) {
+                    result.failure(position, studentId, "学号不能为空");
+                } else if (newStudent == null) {
+                    result.failure(position, studentId, "学生信息不能为空");
+                } else if (!studentId.equals(newStudent.getStudentId()) && studentsById.containsKey(newStudent.getStudentId())) {
+                    result.failure(position, studentId, "新学号 [" + newStudent.getStudentId() + "] 已存在");
+                } else if (current == null) {
+                    result.failure(position, studentId, "未找到学号为 [" + studentId + "] 的学生");
+                } else {
+                    if (studentId.equals(newStudent.getStudentId())) {
+                        link(write, new Entry(current.sequence, newStudent));
+                    } else {
+                        unlink(write, studentId);
+                        link(write, new Entry(nextSequence.getAndIncrement(), newStudent));
+                    }
+                    undo.add(() -> {
+                        unlink(write, newStudent.getStudentId());
+                        link(write, current);
+                    });
+                    batch.update(studentId, newStudent);
+                }
+            }
+            appendBatch(batch, undo);
+        } finally {
+            unlockExclusive(write);
+        }
+
+        if (!batch.isEmpty()) {
+            persist();
+        }
+        System.out.println("批量修改完成：成功" + batch.size() + "条，失败" + (position - batch.size()) + "条");
+        return result.succeeded(batch.size()).build();
+    }
+
+    @Override
+    public BatchResult deleteStudents(Collection<String> studentIds) {
+        BatchResult.Builder result = new BatchResult.Builder();
+        StudentJournal.Batch batch = new StudentJournal.Batch();
+        List<Runnable> undo = new ArrayList<>();
+        int position = 0;
+        StudentVersions.Write write = lockExclusive();
+        try {
+            for (String studentId : studentIds) {
+                position++;
+                if (studentId == null || studentId.trim().isEmpty()) {
+                    result.failure(position, studentId, "学号不能为空");
+                    continue;
+                }
+                Entry removed = unlink(write, studentId);
+                if (removed == null) {
+                    result.failure(position, studentId, "未找到学号为 [" + studentId + "] 的学生");
+                } else {
+                    undo.add(() -> link(write, removed));
+                    batch.delete(studentId);
+                }
+            }
+            appendBatch(batch, undo);
+        } finally {
+            unlockExclusive(write);
+        }
+
+        if (!batch.isEmpty()) {
+            persist();
+        }
+        System.out.println("批量删除完成：成功" + batch.size() + "条，失败" + (position - batch.size()) + "条");
+        return result.succeeded(batch.size()).build();
+    }
+
+    /**
+     * 持有写锁时调用：整批追加为一条日志记录，失败时按相反顺序撤销本批的内存修改
+     */
+    private void appendBatch(StudentJournal.Batch batch, List<Runnable> undo) {
+        if (journal == null || batch.isEmpty()) {
+            return;
+        }
+        try {
+            journal.appendBatch(batch);
+        } catch (StudentManagementException e) {
+            for (int i = undo.size() - 1; i >= 0; i--) {
+                undo.get(i).run();
+            }
+            throw e;
+        }
+    }
+
+    @Override
+    public Optional<Student> findById(String studentId) {
+        if (studentId == null) {
+            return Optional.empty();
+        }
+        Entry entry = studentsById.get(studentId.trim());
+        return entry == null ? Optional.empty() : Optional.of(entry.student);
+    }
+
+    /**
+     * 在快照上查询，结果是某一时刻的一致数据，不含查询期间的修改
+     */
+    @Override
+    public List<Student> queryStudents(String keyword, QueryType type, MatchMode mode) {
+        if (keyword == null || type == null || mode == null) {
+            throw new StudentManagementException("搜索关键词、类型和匹配方式不能为空");
+        }
+        List<Student> results;
+        if (type == QueryType.STUDENT_ID && mode == MatchMode.EXACT) {
+            results = findById(keyword).stream().collect(Collectors.toList());
+        } else {
+            try (StudentSnapshot snapshot = snapshot()) {
+                results = snapshot.stream()
+                        .filter(student -> type.matches(student, keyword, mode))
+                        .collect(Collectors.toList());
+            }
+        }
+
+        if (results.isEmpty()) {
+            System.out.println("未找到匹配的学生记录");
+        }
+
+        return results;
+    }
+
+    /**
+     * 基于并发容器的弱一致性遍历，消费过程中可以与写操作并行
+     */
+    @Override
+    public Stream<Student> streamStudents(String keyword, QueryType type, MatchMode mode) {
+        if (keyword == null || type == null || mode == null) {
+            throw new StudentManagementException("搜索关键词、类型和匹配方式不能为空");
+        }
+        Stream<Student> source = type == QueryType.STUDENT_ID && mode == MatchMode.EXACT
+                ? findById(keyword).stream()
+                : studentsByOrder.current();
+        return source.filter(student -> type.matches(student, keyword, mode));
+    }
+
+    /**
+     * 沿学号有序的跳表从游标处向后扫描，凑满一页即停止
+     */
+    @Override
+    public StudentPage queryPage(String keyword, QueryType type, MatchMode mode, String afterStudentId, int pageSize) {
+        if (keyword == null || type == null || mode == null) {
+            throw new StudentManagementException("搜索关键词、类型和匹配方式不能为空");
+        }
+        StudentPage.checkPageSize(pageSize);
+        Stream<Student> source = type == QueryType.STUDENT_ID && mode == MatchMode.EXACT
+                ? findById(keyword).stream()
+                        .filter(student -> afterStudentId == null || student.getStudentId().compareTo(afterStudentId) > 0)
+                : tail(afterStudentId).values().stream().map(entry -> entry.student);
+        return StudentPage.of(source
+                .filter(student -> type.matches(student, keyword, mode))
+                .limit(pageSize + 1L)
+                .collect(Collectors.toList()), pageSize);
+    }
+
+    @Override
+    public StudentPage listStudents(String afterStudentId, int pageSize) {
+        StudentPage.checkPageSize(pageSize);
+        return StudentPage.of(tail(afterStudentId).values().stream()
+                .map(entry -> entry.student)
+                .limit(pageSize + 1L)
+                .collect(Collectors.toList()), pageSize);
+    }
+
+    private ConcurrentNavigableMap<String, Entry> tail(String afterStudentId) {
+        return afterStudentId == null ? studentsById : studentsById.tailMap(afterStudentId, false);
+    }
+
+    @Override
+    public Map<String, Long> countBy(QueryType field) {
+        return StudentStatistics.supports(field) ? statistics.countBy(field) : StuService.super.countBy(field);
+    }
+
+    @Override
+    public Map<String, Map<String, Long>> countBy(QueryType field, QueryType subField) {
+        return StudentStatistics.supports(field) && StudentStatistics.supports(subField)
+                ? statistics.countBy(field, subField)
+                : StuService.super.countBy(field, subField);
+    }
+
+    /**
+     * 不加锁、不等待进行中的写操作，也不拷贝数据；进行中的写操作对快照不可见
+     */
+    @Override
+    public StudentSnapshot snapshot() {
+        return studentsByOrder.snapshot();
+    }
+
+    @Override
+    public void saveToFile() {
+        saveLock.lock();
+        try {
+            if (segments != null) {
+                // 增量段由日志折叠而来，无需读取内存快照
+                segments.checkpoint(journal);
+                return;
+            }
+            StudentSnapshot snapshot;
+            StudentJournal.Mark mark = null;
+            // 持有写锁使快照与日志位置对应：标记之前的日志记录都已包含在快照中
+            snapshotLock.writeLock().lock();
+            try {
+                snapshot = studentsByOrder.snapshot();
+                if (journal != null) {
+                    mark = journal.mark();
+                }
+            } finally {
+                snapshotLock.writeLock().unlock();
+            }
+
+            // JOURNAL 模式下检查点必须先落盘，才能丢弃日志；创建快照之后追加的日志保留
+            try (snapshot) {
+                options.getSnapshotFormat().write(dataFilePath, snapshot.stream()::iterator, journal != null);
+            }
+            if (journal != null) {
+                journal.discardBefore(mark);
+            }
+        } finally {
+            saveLock.unlock();
+        }
+    }
+
+    /**
+     * 加载期间阻塞写操作；读操作不加锁，可能看到加载到一半的数据，应在对外服务前调用。
+     * 加载结束前创建的快照仍读取加载前的数据
+     */
+    @Override
+    public void loadFromFile() {
+        StudentVersions.Write write = lockExclusive();
+        try {
+            studentsById.clear();
+            studentsByOrder.clear(write);
+            statistics.clear();
+            Predicate<Student> sink = student -> {
+                if (studentsById.containsKey(student.getStudentId())) {
+                    return false;
+                }
+                link(write, new Entry(nextSequence.getAndIncrement(), student));
+                return true;
+            };
+            boolean loaded = segments != null ? segments.load(sink) : SnapshotFormat.load(options, sink);
+            if (loaded) {
+                System.out.println("成功加载" + studentsById.size() + "条学生记录");
+            }
+            if (journal != null) {
+                replayJournal(write);
+            }
+        } finally {
+            unlockExclusive(write);
+        }
+    }
+
+    /**
+     * 关闭日志文件和后台线程，不写检查点；未写入数据文件的修改保留在日志中，下次打开时回放
+     */
+    @Override
+    public void close() {
+        if (segments != null) {
+            segments.close();
+        }
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    /**
+     * 在快照上逐条输出，输出期间的修改不会使结果前后不一致
+     */
+    @Override
+    public void OutDate() {
+        try (StudentSnapshot snapshot = snapshot()) {
+            Iterator<Student> students = snapshot.stream().iterator();
+            if (!students.hasNext()) {
+                System.out.println("没有学生记录");
+                return;
+            }
+            students.forEachRemaining(System.out::println);
+        }
+    }
+
+    /**
+     * 与 StuServiceImpl 相同，检查点写完快照后、截断日志前崩溃时，日志记录会被重复应用，按幂等方式处理
+     */
+    private void replayJournal(StudentVersions.Write write) {
+        int replayed = journal.replay(new StudentJournal.Visitor() {
+            @Override
+            public void onAdd(Student student) {
+                put(student);
+            }
+
+            @Override
+            public void onUpdate(String studentId, Student newStudent) {
+                if (!studentId.equals(newStudent.getStudentId())) {
+                    unlink(write, studentId);
+                }
+                put(newStudent);
+            }
+
+            @Override
+            public void onDelete(String studentId) {
+                unlink(write, studentId);
+            }
+
+            private void put(Student student) {
+                Entry current = studentsById.get(student.getStudentId());
+                long sequence = current == null ? nextSequence.getAndIncrement() : current.sequence;
+                link(write, new Entry(sequence, student));
+            }
+        });
+        if (replayed > 0) {
+            System.out.println("已回放" + replayed + "条日志记录，当前共" + studentsById.size() + "条学生记录");
+        }
+    }
+
+    private void link(StudentVersions.Write write, Entry entry) {
+        Entry previous = studentsById.put(entry.student.getStudentId(), entry);
+        write.put(entry.sequence, entry.student);
+        if (previous != null) {
+            statistics.remove(previous.student);
+        }
+        statistics.add(entry.student);
+    }
+
+    private Entry unlink(StudentVersions.Write write, String studentId) {
+        Entry removed = studentsById.remove(studentId);
+        if (removed != null) {
+            write.remove(removed.sequence);
+            statistics.remove(removed.student);
+        }
+        return removed;
+    }
+
+    /**
+     * SNAPSHOT 模式保存失败时撤销注册；期间若该学号已被其他线程修改则不再撤销
+     */
+    private void rollbackAdd(Student student) {
+        String studentId = student.getStudentId();
+        StudentVersions.Write write = lockForWrite(studentId, studentId);
+        try {
+            Entry current = studentsById.get(studentId);
+            if (current != null && current.student == student) {
+                unlink(write, studentId);
+            }
+        } finally {
+            unlockForWrite(write, studentId, studentId);
+        }
+    }
+
+    /**
+     * SNAPSHOT 模式下每次修改重写数据文件，失败时抛出异常；JOURNAL 模式下日志已在锁内追加，累计到阈值时写检查点。
+     * 修改记入日志后即已生效，重启后也会由日志回放，检查点失败只报告错误，日志保留到下一次检查点
+     */
+    private void persist() {
+        if (journal == null) {
+            saveToFile();
+        } else if (journal.getRecordCount() >= options.getCheckpointThreshold() && saveLock.tryLock()) {
+            // 已有线程在写检查点时不再重复触发
+            try {
+                saveToFile();
+            } catch (StudentManagementException e) {
+                System.err.println("检查点写入失败，修改已记入日志: " + e.getMessage());
+            } finally {
+                saveLock.unlock();
+            }
+        }
+    }
+
+    /**
+     * 按分段下标从小到大加锁，涉及两个学号的修改也不会死锁；加锁后才开始修改，
+     * 同一注册序号上后加锁的修改版本号更大
+     */
+    private StudentVersions.Write lockForWrite(String firstId, String secondId) {
+        snapshotLock.readLock().lock();
+        int first = stripeIndex(firstId);
+        int second = stripeIndex(secondId);
+        stripes[Math.min(first, second)].lock();
+        if (first != second) {
+            stripes[Math.max(first, second)].lock();
+        }
+        return studentsByOrder.begin();
+    }
+
+    private void unlockForWrite(StudentVersions.Write write, String firstId, String secondId) {
+        studentsByOrder.end(write);
+        int first = stripeIndex(firstId);
+        int second = stripeIndex(secondId);
+        if (first != second) {
+            stripes[Math.max(first, second)].unlock();
+        }
+        stripes[Math.min(first, second)].unlock();
+        snapshotLock.readLock().unlock();
+    }
+
+    /**
+     * 阻塞其他写操作，整批修改作为一次修改对快照可见
+     */
+    private StudentVersions.Write lockExclusive() {
+        snapshotLock.writeLock().lock();
+        return studentsByOrder.begin();
+    }
+
+    private void unlockExclusive(StudentVersions.Write write) {
+        studentsByOrder.end(write);
+        snapshotLock.writeLock().unlock();
+    }
+
+    private static int stripeIndex(String studentId) {
+        return Math.floorMod(studentId.hashCode(), STRIPE_COUNT);
+    }
+}
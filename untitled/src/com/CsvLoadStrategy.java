@@ -0,0 +1,50 @@
+package com;
+
+import java.nio.file.Path;
+import java.util.function.Predicate;
+
+/**
+ * 文本数据文件加载策略枚举
+ */
+public enum CsvLoadStrategy {
+    READER("逐条读取", "按字符流读入复用的缓冲，逐条拆分记录和字段") {
+        @Override
+        int read(Path dataFilePath, Predicate<Student> sink) {
+            return StudentDataFile.read(dataFilePath, sink);
+        }
+    },
+    MAPPED("内存映射", "映射文件后直接在字节上解析字段，分配更少，适合大文件") {
+        @Override
+        int read(Path dataFilePath, Predicate<Student> sink) {
+            return MappedStudentLoader.read(dataFilePath, sink);
+        }
+    },
+    PARALLEL("并行分块", "按换行符切块后在 ForkJoinPool 上并行解析，按文件顺序合并，适合多核服务器") {
+        @Override
+        int read(Path dataFilePath, Predicate<Student> sink) {
+            return ParallelStudentLoader.read(dataFilePath, sink);
+        }
+    };
+
+    private final String label;
+    private final String description;
+
+    CsvLoadStrategy(String label, String description) {
+        this.label = label;
+        this.description = description;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * @param sink 接收解析出的学生，返回 false 表示学号重复
+     * @return 被 sink 接受的记录条数
+     */
+    abstract int read(Path dataFilePath, Predicate<Student> sink);
+}
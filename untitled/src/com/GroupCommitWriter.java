@@ -0,0 +1,148 @@
+package com;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * 日志合并写入（group commit）后台线程
+ * 调用方提交日志记录后立即返回，后台线程把一个时间窗口内到达的记录合并为一批，
+ * 写入日志后只做一次 fsync，再统一完成各条记录的 CompletableFuture
+ */
+class GroupCommitWriter {
+    private final StudentJournal journal;
+    private final long windowNanos;
+    private final int maxBatch;
+    private final BlockingQueue<PendingWrite> queue = new LinkedBlockingQueue<>();
+    private final Thread worker;
+
+    private static final class PendingWrite {
+        private final Consumer<StudentJournal> record; // 为 null 时仅作为 flush 的屏障
+        private final CompletableFuture<Void> durable = new CompletableFuture<>();
+
+        private PendingWrite(Consumer<StudentJournal> record) {
+            this.record = record;
+        }
+    }
+
+    // 放入队列后后台线程写完此前的记录即退出
+    private static final PendingWrite STOP = new PendingWrite(null);
+
+    GroupCommitWriter(StudentJournal journal, long windowMillis, int maxBatch) {
+        this.journal = journal;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMillis);
+        this.maxBatch = maxBatch;
+        this.worker = new Thread(this::run, "student-group-commit");
+        worker.setDaemon(true);
+        worker.start();
+    }
+
+    /**
+     * 提交一条日志记录
+     *
+     * @return 记录落盘后完成的 Future；写入失败时以 StudentManagementException 异常完成
+     */
+    CompletableFuture<Void> submit(Consumer<StudentJournal> record) {
+        PendingWrite write = new PendingWrite(record);
+        queue.add(write);
+        return write.durable;
+    }
+
+    /**
+     * 阻塞等待此前提交的全部记录处理完毕（无论成功与否）
+     */
+    void flush() {
+        try {
+            submit(null).join();
+        } catch (CompletionException e) {
+            // 所在批次写入失败时屏障也会异常完成，失败已通过各条记录自己的 Future 通知
+        }
+    }
+
+    /**
+     * 写完此前提交的全部记录后停止后台线程，之后不能再提交
+     */
+    void close() {
+        queue.add(STOP);
+        try {
+            worker.join();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<PendingWrite> batch = new ArrayList<>();
+        while (true) {
+            try {
+                PendingWrite first = queue.take();
+                if (first == STOP) {
+                    return;
+                }
+                batch.add(first);
+                boolean stopping = false;
+                long deadline = System.nanoTime() + windowNanos;
+                while (batch.size() < maxBatch) {
+                    long remaining = deadline - System.nanoTime();
+                    PendingWrite next = remaining > 0
+                            ? queue.poll(remaining, TimeUnit.NANOSECONDS)
+                            : queue.poll();
+                    if (next == null) {
+                        break;
+                    }
+                    if (next == STOP) {
+                        stopping = true;
+                        break;
+                    }
+                    batch.add(next);
+                }
+                commit(batch);
+                if (stopping) {
+                    return;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    private void commit(List<PendingWrite> batch) {
+        StudentJournal.Mark mark = null;
+        try {
+            mark = journal.mark();
+            for (PendingWrite write : batch) {
+                if (write.record != null) {
+                    write.record.accept(journal);
+                }
+            }
+            journal.sync();
+        } catch (RuntimeException e) {
+            // 整批作废：回退本批已写入的记录，避免重启后出现已被撤销的修改
+            if (mark != null) {
+                try {
+                    journal.rollbackTo(mark);
+                } catch (StudentManagementException rollbackError) {
+                    e.addSuppressed(rollbackError);
+                }
+            }
+            StudentManagementException failure = e instanceof StudentManagementException
+                    ? (StudentManagementException) e
+                    : new StudentManagementException("写入日志失败: " + e.getMessage(), e);
+            for (PendingWrite write : batch) {
+                write.durable.completeExceptionally(failure);
+            }
+            return;
+        }
+        for (PendingWrite write : batch) {
+            write.durable.complete(null);
+        }
+    }
+}
@@ -0,0 +1,31 @@
+package com;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.time.Duration;
+
+/**
+ * HTTP 接口入口：java -cp untitled.jar com.HttpMain [端口]，默认端口 8080
+ * 使用线程安全的 ConcurrentStuServiceImpl，查询结果经 CachingStuService 缓存，运行指标注册到 JMX，
+ * 变更经 ChangeEventStuService 发布，可由 /students/events 拉取
+ */
+public class HttpMain {
+    private static final int DEFAULT_PORT = 8080;
+    private static final int EVENT_CAPACITY = 100_000;
+    private static final int EVENT_BATCH = 256;
+
+    public static void main(String[] args) throws IOException {
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        StuServiceOptions options = StuServiceOptions.defaults();
+        ChangeEventStuService changes = new ChangeEventStuService(
+                new CachingStuService(new ConcurrentStuServiceImpl(options), 1024, Duration.ofMinutes(5)),
+                EVENT_CAPACITY, EVENT_BATCH);
+        MetricsStuService stuService = new MetricsStuService(changes, options);
+        stuService.registerMBeans("http");
+        StudentHttpServer server = new StudentHttpServer(stuService, changes.getFeed(), new InetSocketAddress(port));
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> server.stop(1)));
+        server.start();
+        System.out.println("学生学籍 HTTP 接口已启动：http://localhost:" + server.getAddress().getPort() + "/students"
+                + (server.isUsingVirtualThreads() ? "（虚拟线程）" : "（平台线程池）"));
+    }
+}
@@ -0,0 +1,26 @@
+package com;
+
+/**
+ * 预写日志刷盘(fsync)策略
+ */
+public enum JournalSyncPolicy {
+    ALWAYS("每条刷盘", "每追加一条记录立即 fsync，掉电不丢数据"),
+    PERIODIC("定量刷盘", "每追加指定条数记录 fsync 一次，掉电最多丢失一批"),
+    NEVER("不主动刷盘", "交由操作系统回写，仅在检查点时 fsync");
+
+    private final String label;
+    private final String description;
+
+    JournalSyncPolicy(String label, String description) {
+        this.label = label;
+        this.description = description;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
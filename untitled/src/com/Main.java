@@ -1,9 +1,13 @@
 package com;
 
+import java.time.Duration;
 
 public class Main {
     public static void main(String[] args){
-        StuService stuService = new StuServiceImpl();
+        StuServiceOptions options = StuServiceOptions.defaults();
+        MetricsStuService stuService = new MetricsStuService(
+                new CachingStuService(new StuServiceImpl(options), 1024, Duration.ofMinutes(5)), options);
+        stuService.registerMBeans("default");
         StudentManagementApp app = new StudentManagementApp(stuService);
         app.start();
     }
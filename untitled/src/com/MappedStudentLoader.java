@@ -0,0 +1,435 @@
+package com;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.function.Predicate;
+
+/**
+ * 基于内存映射的文本数据文件加载器
+ * 用 FileChannel.map 分段映射数据文件，直接在字节上按 StudentCsv 的规则定位记录和字段，
+ * 带引号的字段在复用的缓冲块中原位去掉引号，不创建整行字符串和 String[]；年龄按字节解析，
+ * 学籍状态按 UTF-8 字节比对，取值有限的字段按字节内容复用上次解码的字符串。
+ * 跳过规则和警告信息与 StudentDataFile.read 保持一致
+ */
+final class MappedStudentLoader {
+    private static final int FIELD_COUNT = StudentCsv.FIELD_COUNT;
+    // 性别、籍贯、系别、专业、班级：取值有限，解码结果可以按字节内容复用
+    private static final int[] DICTIONARY_FIELDS = {2, 4, 5, 6, 7};
+    private static final long WINDOW_SIZE = 256L * 1024 * 1024; // 每次映射的最大字节数
+    private static final int BLOCK_SIZE = 64 * 1024; // 每次从映射内存批量复制的字节数
+    private static final byte[][] STATUS_BYTES = new byte[StudentStatus.values().length][];
+    private static final byte[][] HEADER_BYTES = new byte[FIELD_COUNT][];
+    private static final byte[] BOM = {(byte) 0xEF, (byte) 0xBB, (byte) 0xBF};
+
+    static {
+        for (StudentStatus status : StudentStatus.values()) {
+            STATUS_BYTES[status.ordinal()] = status.getValue().getBytes(StandardCharsets.UTF_8);
+        }
+        for (int i = 0; i < FIELD_COUNT; i++) {
+            HEADER_BYTES[i] = StudentCsv.HEADER[i].getBytes(StandardCharsets.UTF_8);
+        }
+    }
+
+    private MappedStudentLoader() {
+    }
+
+    /**
+     * @param sink 接收解析出的学生，返回 false 表示学号重复
+     * @return 被 sink 接受的记录条数
+     */
+    static int read(Path dataFilePath, Predicate<Student> sink) {
+        try (FileChannel channel = FileChannel.open(dataFilePath, StandardOpenOption.READ)) {
+            int[] loaded = {0};
+            LineParser parser = new LineParser(new LineHandler() {
+                @Override
+                public void onStudent(int lineNumber, Student student) {
+                    if (accept(sink, lineNumber, student)) {
+                        loaded[0]++;
+                    }
+                }
+
+                @Override
+                public void onSkipped(int lineNumber, String reason) {
+                    warn(lineNumber, reason);
+                }
+            }, true);
+            parseRange(channel, 0, channel.size(), parser);
+            return loaded[0];
+        } catch (IOException e) {
+            throw new StudentManagementException("加载学生数据失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 分段映射并解析文件中 [start, end) 的字节，start 须位于记录开头，end 须位于记录结尾或文件末尾
+     */
+    static void parseRange(FileChannel channel, long start, long end, LineParser parser) throws IOException {
+        parseRange(channel, start, end, parser, true);
+    }
+
+    /**
+     * @param endIsRecordEnd 为 false 时 end 只保证位于行首，末尾可能是一条跨出区间的记录（带引号的字段中含换行），
+     *                       这条记录不解析
+     * @return 已解析到的位置，即末尾未解析的记录的起点，全部解析完时为 end
+     */
+    static long parseRange(FileChannel channel, long start, long end, LineParser parser, boolean endIsRecordEnd)
+            throws IOException {
+        long position = start;
+        while (position < end) {
+            long length = Math.min(WINDOW_SIZE, end - position);
+            MappedByteBuffer window = channel.map(FileChannel.MapMode.READ_ONLY, position, length);
+            boolean lastWindow = position + length == end;
+            int consumed = parser.parseLines(window, 0, (int) length, lastWindow && endIsRecordEnd);
+            if (lastWindow && !endIsRecordEnd) {
+                return position + consumed;
+            }
+            if (consumed == 0) {
+                throw new StudentManagementException("第" + (parser.getLineNumber() + 1) + "行过长，无法加载");
+            }
+            position += consumed;
+        }
+        return position;
+    }
+
+    /**
+     * 把学生交给 sink，学号重复时输出与 StudentDataFile.read 相同的警告
+     *
+     * @return sink 是否接受
+     */
+    static boolean accept(Predicate<Student> sink, int lineNumber, Student student) {
+        if (sink.test(student)) {
+            return true;
+        }
+        System.err.println("警告：第" + lineNumber + "行学号 [" + student.getStudentId() + "] 重复，已跳过");
+        return false;
+    }
+
+    static void warn(int lineNumber, String reason) {
+        System.err.println("警告：第" + lineNumber + "行" + reason);
+    }
+
+    /**
+     * 行解析结果的回调
+     */
+    interface LineHandler {
+        void onStudent(int lineNumber, Student student);
+
+        /**
+         * @param reason 跳过原因，如“数据格式不正确，已跳过”
+         */
+        void onSkipped(int lineNumber, String reason);
+    }
+
+    /**
+     * 直接映射的解码缓存，槽位冲突时新值覆盖旧值，容量固定
+     */
+    private static final class DecodeCache {
+        private static final int SLOTS = 256;
+        private final byte[][] keys = new byte[SLOTS][];
+        private final String[] values = new String[SLOTS];
+    }
+
+    /**
+     * 逐条解析一段字节，供单线程加载和并行分块加载共用。行号从 1 起计，一条记录含换行时占多行，
+     * 报告的是记录起始的行号；并行加载时为块内行号，合并时再加上前面各块的行数
+     */
+    static final class LineParser {
+        private final LineHandler handler;
+        private final boolean atFileStart;
+        private final int[] fieldStarts = new int[FIELD_COUNT];
+        private final int[] fieldEnds = new int[FIELD_COUNT];
+        private byte[] scratch = new byte[BLOCK_SIZE];
+        private char[] chars = new char[256];
+        // 按列缓存取值有限的字段最近解码出的字符串，下标为字段序号
+        private final DecodeCache[] decodeCaches = new DecodeCache[FIELD_COUNT];
+        private int lineNumber;
+
+        /**
+         * @param atFileStart 是否从文件开头解析，是则跳过首行的 BOM 和表头
+         */
+        LineParser(LineHandler handler, boolean atFileStart) {
+            this.handler = handler;
+            this.atFileStart = atFileStart;
+            for (int index : DICTIONARY_FIELDS) {
+                decodeCaches[index] = new DecodeCache();
+            }
+        }
+
+        int getLineNumber() {
+            return lineNumber;
+        }
+
+        /**
+         * 解析 [from, to) 中的完整记录。映射内存按块批量复制到复用的字节数组后再逐字节扫描，
+         * 避免对 MappedByteBuffer 逐字节随机访问；引号内的换行不结束记录，判断规则与 StudentCsv.Reader 相同
+         *
+         * @param endIsLineEnd 为 true 时末尾没有换行符的残余内容也按一条记录处理
+         * @return 已处理的字节数（只包含完整的记录）
+         */
+        int parseLines(ByteBuffer buffer, int from, int to, boolean endIsLineEnd) {
+            int position = from;
+            while (position < to) {
+                int length = Math.min(scratch.length, to - position);
+                buffer.get(position, scratch, 0, length);
+                boolean lastBlock = position + length == to;
+
+                int lineStart = 0;
+                int fieldStart = 0;
+                int closedAt = -2;
+                boolean quoted = false;
+                for (int i = 0; i < length; i++) {
+                    byte b = scratch[i];
+                    if (b == '"') {
+                        if (quoted) {
+                            quoted = false;
+                            closedAt = i;
+                        } else if (i == fieldStart || closedAt == i - 1) {
+                            quoted = true;
+                        }
+                    } else if (!quoted) {
+                        if (b == ',') {
+                            fieldStart = i + 1;
+                        } else if (b == '\n') {
+                            parseLine(lineStart, i);
+                            lineStart = i + 1;
+                            fieldStart = lineStart;
+                        }
+                    }
+                }
+                if (lastBlock && endIsLineEnd && lineStart < length) {
+                    parseLine(lineStart, length);
+                    lineStart = length;
+                }
+
+                if (lineStart == 0 && !lastBlock) {
+                    // 一条记录比缓冲块还长，扩大缓冲块后重读
+                    scratch = new byte[scratch.length * 2];
+                    continue;
+                }
+                position += lineStart;
+                if (lastBlock) {
+                    break;
+                }
+            }
+            return position - from;
+        }
+
+        /**
+         * 解析缓冲块 scratch 中 [start, end) 的一条记录
+         */
+        private void parseLine(int start, int end) {
+            int recordLine = ++lineNumber;
+            for (int i = start; i < end; i++) {
+                if (scratch[i] == '\n') {
+                    lineNumber++;
+                }
+            }
+            if (end > start && scratch[end - 1] == '\r') {
+                end--;
+            }
+            boolean firstRecord = atFileStart && recordLine == 1;
+            if (firstRecord && end - start >= BOM.length && Arrays.equals(scratch, start, start + BOM.length, BOM, 0, BOM.length)) {
+                start += BOM.length;
+            }
+
+            if (split(start, end) != FIELD_COUNT) {
+                handler.onSkipped(recordLine, "数据格式不正确，已跳过");
+                return;
+            }
+            if (firstRecord && isHeader()) {
+                return;
+            }
+
+            try {
+                Student student = new Student.Builder()
+                        .studentId(field(0))
+                        .name(field(1))
+                        .gender(cachedField(2))
+                        .age(parseAge())
+                        .nativePlace(cachedField(4))
+                        .department(cachedField(5))
+                        .major(cachedField(6))
+                        .className(cachedField(7))
+                        .status(parseStatus())
+                        .build();
+                handler.onStudent(recordLine, student);
+            } catch (NumberFormatException e) {
+                handler.onSkipped(recordLine, "年龄格式不正确，已跳过");
+            } catch (StudentManagementException e) {
+                handler.onSkipped(recordLine, "数据验证失败：" + e.getMessage());
+            }
+        }
+
+        /**
+         * 按 StudentCsv.Reader 的规则拆分字段，带引号的字段原位去掉引号，只记录前 FIELD_COUNT 个字段的位置
+         *
+         * @return 不含末尾空字段的字段数，格式错误时为 0
+         */
+        private int split(int start, int end) {
+            int fields = 0;
+            int effective = 0;
+            int i = start;
+            while (true) {
+                int fieldStart = i;
+                int fieldEnd;
+                boolean quoted = i < end && scratch[i] == '"';
+                if (quoted) {
+                    int out = i;
+                    i++;
+                    boolean closed = false;
+                    while (i < end) {
+                        byte b = scratch[i++];
+                        if (b != '"') {
+                            scratch[out++] = b;
+                        } else if (i < end && scratch[i] == '"') {
+                            scratch[out++] = '"';
+                            i++;
+                        } else {
+                            closed = true;
+                            break;
+                        }
+                    }
+                    if (!closed || (i < end && scratch[i] != ',')) {
+                        return 0;
+                    }
+                    fieldEnd = out;
+                } else {
+                    while (i < end && scratch[i] != ',') {
+                        i++;
+                    }
+                    fieldEnd = i;
+                }
+                if (fields < FIELD_COUNT) {
+                    fieldStarts[fields] = fieldStart;
+                    fieldEnds[fields] = fieldEnd;
+                }
+                fields++;
+                if (quoted || fieldEnd > fieldStart) {
+                    effective = fields;
+                }
+                if (i >= end) {
+                    return effective;
+                }
+                i++; // 跳过逗号
+            }
+        }
+
+        private boolean isHeader() {
+            for (int i = 0; i < FIELD_COUNT; i++) {
+                if (!Arrays.equals(scratch, fieldStarts[i], fieldEnds[i], HEADER_BYTES[i], 0, HEADER_BYTES[i].length)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 把字段字节解码为字符串。常见的 1~3 字节 UTF-8 序列直接解码到复用的字符缓冲，
+         * 避免 new String(byte[], UTF_8) 为中文内容按最坏情况分配的中间数组；
+         * 遇到 4 字节序列或非法编码时退回 JDK 解码
+         */
+        private String field(int index) {
+            int start = fieldStarts[index];
+            int end = fieldEnds[index];
+            if (chars.length < end - start) {
+                chars = new char[Math.max(end - start, chars.length * 2)];
+            }
+            int count = 0;
+            int i = start;
+            while (i < end) {
+                int b = scratch[i];
+                if (b >= 0) {
+                    chars[count++] = (char) b;
+                    i++;
+                } else if ((b & 0xE0) == 0xC0 && i + 1 < end && isContinuation(scratch[i + 1])) {
+                    chars[count++] = (char) (((b & 0x1F) << 6) | (scratch[i + 1] & 0x3F));
+                    i += 2;
+                } else if ((b & 0xF0) == 0xE0 && i + 2 < end
+                        && isContinuation(scratch[i + 1]) && isContinuation(scratch[i + 2])) {
+                    chars[count++] = (char) (((b & 0x0F) << 12) | ((scratch[i + 1] & 0x3F) << 6) | (scratch[i + 2] & 0x3F));
+                    i += 3;
+                } else {
+                    return new String(scratch, start, end - start, StandardCharsets.UTF_8);
+                }
+            }
+            return new String(chars, 0, count);
+        }
+
+        /**
+         * 字节内容与缓存中的相同时直接复用上次解码的字符串，不再解码和创建对象
+         */
+        private String cachedField(int index) {
+            int start = fieldStarts[index];
+            int end = fieldEnds[index];
+            int hash = 1;
+            for (int i = start; i < end; i++) {
+                hash = 31 * hash + scratch[i];
+            }
+            DecodeCache cache = decodeCaches[index];
+            int slot = (hash ^ (hash >>> 16)) & (DecodeCache.SLOTS - 1);
+            byte[] key = cache.keys[slot];
+            if (key != null && Arrays.equals(key, 0, key.length, scratch, start, end)) {
+                return cache.values[slot];
+            }
+            String value = field(index);
+            cache.keys[slot] = Arrays.copyOfRange(scratch, start, end);
+            cache.values[slot] = value;
+            return value;
+        }
+
+        private static boolean isContinuation(byte b) {
+            return (b & 0xC0) == 0x80;
+        }
+
+        /**
+         * 按 Integer.parseInt 的规则解析年龄字段，不创建字符串
+         */
+        private int parseAge() {
+            int start = fieldStarts[3];
+            int end = fieldEnds[3];
+            boolean negative = false;
+            if (start < end && (scratch[start] == '-' || scratch[start] == '+')) {
+                negative = scratch[start] == '-';
+                start++;
+            }
+            if (start == end) {
+                throw new NumberFormatException();
+            }
+            long value = 0;
+            for (int i = start; i < end; i++) {
+                int digit = scratch[i] - '0';
+                if (digit < 0 || digit > 9) {
+                    throw new NumberFormatException();
+                }
+                value = value * 10 + digit;
+                if (value > (long) Integer.MAX_VALUE + 1) {
+                    throw new NumberFormatException();
+                }
+            }
+            value = negative ? -value : value;
+            if (value > Integer.MAX_VALUE) {
+                throw new NumberFormatException();
+            }
+            return (int) value;
+        }
+
+        private StudentStatus parseStatus() {
+            int start = fieldStarts[8];
+            int length = fieldEnds[8] - start;
+            for (int ordinal = 0; ordinal < STATUS_BYTES.length; ordinal++) {
+                byte[] expected = STATUS_BYTES[ordinal];
+                if (expected.length == length && Arrays.equals(scratch, start, start + length, expected, 0, length)) {
+                    return StudentStatus.fromOrdinal(ordinal);
+                }
+            }
+            // 非法状态交给 fromString 生成与原加载器相同的错误信息
+            return StudentStatus.fromString(field(8));
+        }
+    }
+}
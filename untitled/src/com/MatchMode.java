@@ -0,0 +1,57 @@
+package com;
+
+/**
+ * 查询匹配方式枚举
+ */
+public enum MatchMode {
+    EXACT("精确匹配") {
+        @Override
+        public boolean test(String fieldValue, String keyword) {
+            return fieldValue.equals(keyword);
+        }
+    },
+    CONTAINS("包含匹配") {
+        @Override
+        public boolean test(String fieldValue, String keyword) {
+            return fieldValue.contains(keyword);
+        }
+    },
+    PREFIX("前缀匹配") {
+        @Override
+        public boolean test(String fieldValue, String keyword) {
+            return fieldValue.startsWith(keyword);
+        }
+    };
+
+    private final String label;
+
+    MatchMode(String label) {
+        this.label = label;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public abstract boolean test(String fieldValue, String keyword);
+
+    public static MatchMode fromMenuChoice(int choice) {
+        if (choice < 1 || choice > values().length) {
+            throw new StudentManagementException(
+                String.format("无效的匹配方式选择：%d。请选择 1-%d 之间的数字",
+                choice,
+                values().length)
+            );
+        }
+        return values()[choice - 1];
+    }
+
+    public static String getMenuDisplay() {
+        StringBuilder menu = new StringBuilder("匹配方式：\n");
+        MatchMode[] modes = values();
+        for (int i = 0; i < modes.length; i++) {
+            menu.append(String.format("%d.%s ", i + 1, modes[i].getLabel()));
+        }
+        return menu.toString();
+    }
+}
@@ -0,0 +1,476 @@
+package com;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+import java.util.stream.Stream;
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+
+/**
+ * 记录运行指标的 StuService 装饰器
+ * 每个操作记录调用次数、出错次数和耗时分布（LatencyHistogram），出错按异常类型和错误类别分别计数，
+ * 批量操作中单条记录的失败也按类别计入；另统计文件写入字节数和加载的记录数。
+ * 指标可通过 dump() 输出为文本，也可通过 registerMBeans 注册到 JMX。
+ * 异步增删改的耗时计到返回的 Future 完成（即落盘）为止；streamStudents 只计创建流的耗时，snapshot 只计创建快照的耗时。
+ * 文件写入字节数按每次修改、保存后数据文件和日志文件的大小变化统计，每次修改多一次读取文件大小的开销
+ */
+public class MetricsStuService implements StuService, MetricsStuServiceMXBean {
+    private static final String ADD = "addStudent";
+    private static final String UPDATE = "updateStudent";
+    private static final String DELETE = "deleteStudent";
+    private static final String ADD_BATCH = "addStudents";
+    private static final String UPDATE_BATCH = "updateStudents";
+    private static final String DELETE_BATCH = "deleteStudents";
+    private static final String IMPORT = "importStudents";
+    private static final String EXPORT = "exportStudents";
+    private static final String FIND = "findById";
+    private static final String QUERY = "queryStudents";
+    private static final String COMPOSITE_QUERY = "query";
+    private static final String STREAM = "streamStudents";
+    private static final String QUERY_PAGE = "queryPage";
+    private static final String LIST = "listStudents";
+    private static final String COUNT = "countBy";
+    private static final String SNAPSHOT = "snapshot";
+    private static final String SAVE = "saveToFile";
+    private static final String LOAD = "loadFromFile";
+    private static final String PRINT = "OutDate";
+    private static final String BATCH_FAILURE = "批量失败";
+
+    private final StuService delegate;
+    private final PersistenceMode persistenceMode;
+    private final Path dataFilePath;
+    private final Path journalFilePath;
+    // 按 dump 输出的顺序排列
+    private final Map<String, OperationMetrics> operations = new LinkedHashMap<>();
+    private final ConcurrentHashMap<String, LongAdder> errorCounts = new ConcurrentHashMap<>();
+    private final LongAdder recordsLoaded = new LongAdder();
+    private final Object fileLock = new Object();
+    private long fileBytesWritten; // 由 fileLock 保护
+    private long lastJournalSize; // 由 fileLock 保护
+    private final List<ObjectName> registeredNames = new ArrayList<>();
+
+    /**
+     * 错误类别，按异常原因和消息归类
+     */
+    enum ErrorCategory {
+        IO("文件读写"),
+        CORRUPTED("数据损坏", "快照文件", "不是有效的"),
+        DUPLICATE("学号重复", "已存在"),
+        NOT_FOUND("记录不存在", "未找到"),
+        VALIDATION("参数校验", "不能为空", "必须", "无效", "过长", "不能为负数"),
+        OTHER("其他");
+
+        private final String label;
+        private final String[] keywords;
+
+        ErrorCategory(String label, String... keywords) {
+            this.label = label;
+            this.keywords = keywords;
+        }
+
+        public String getLabel() {
+            return label;
+        }
+
+        static ErrorCategory of(Throwable error) {
+            for (Throwable cause = error; cause != null; cause = cause.getCause()) {
+                if (cause instanceof IOException || cause instanceof UncheckedIOException) {
+                    return IO;
+                }
+            }
+            return of(error.getMessage());
+        }
+
+        static ErrorCategory of(String message) {
+            if (message != null) {
+                for (ErrorCategory category : values()) {
+                    for (String keyword : category.keywords) {
+                        if (message.contains(keyword)) {
+                            return category;
+                        }
+                    }
+                }
+            }
+            return OTHER;
+        }
+    }
+
+    /**
+     * @param options 被装饰的服务使用的配置，用于找到数据文件和日志文件
+     */
+    public MetricsStuService(StuService delegate, StuServiceOptions options) {
+        if (delegate == null) {
+            throw new StudentManagementException("被统计的服务不能为空");
+        }
+        this.delegate = delegate;
+        this.persistenceMode = options.getPersistenceMode();
+        this.dataFilePath = options.getDataFilePath();
+        this.journalFilePath = options.getJournalFilePath();
+        for (String operation : List.of(ADD, UPDATE, DELETE, ADD_BATCH, UPDATE_BATCH, DELETE_BATCH, IMPORT, EXPORT, FIND,
+                QUERY, COMPOSITE_QUERY, STREAM, QUERY_PAGE, LIST, COUNT, SNAPSHOT, SAVE, LOAD, PRINT)) {
+            operations.put(operation, new OperationMetrics(operation));
+        }
+        this.lastJournalSize = journalSize();
+    }
+
+    @Override
+    public void addStudent(Student student) {
+        timed(ADD, () -> delegate.addStudent(student));
+        accountFileWrites(false);
+    }
+
+    @Override
+    public void updateStudent(String studentId, Student student) {
+        timed(UPDATE, () -> delegate.updateStudent(studentId, student));
+        accountFileWrites(false);
+    }
+
+    @Override
+    public void deleteStudent(String studentId) {
+        timed(DELETE, () -> delegate.deleteStudent(studentId));
+        accountFileWrites(false);
+    }
+
+    @Override
+    public CompletableFuture<Void> addStudentAsync(Student student) {
+        return timedAsync(ADD, () -> delegate.addStudentAsync(student));
+    }
+
+    @Override
+    public CompletableFuture<Void> updateStudentAsync(String studentId, Student student) {
+        return timedAsync(UPDATE, () -> delegate.updateStudentAsync(studentId, student));
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteStudentAsync(String studentId) {
+        return timedAsync(DELETE, () -> delegate.deleteStudentAsync(studentId));
+    }
+
+    @Override
+    public BatchResult addStudents(Collection<Student> students) {
+        return batch(ADD_BATCH, () -> delegate.addStudents(students));
+    }
+
+    @Override
+    public BatchResult updateStudents(Map<String, Student> updates) {
+        return batch(UPDATE_BATCH, () -> delegate.updateStudents(updates));
+    }
+
+    @Override
+    public BatchResult deleteStudents(Collection<String> studentIds) {
+        return batch(DELETE_BATCH, () -> delegate.deleteStudents(studentIds));
+    }
+
+    @Override
+    public BatchResult importStudents(Path csvFile) {
+        return batch(IMPORT, () -> delegate.importStudents(csvFile));
+    }
+
+    @Override
+    public int exportStudents(Path csvFile) {
+        return timed(EXPORT, () -> delegate.exportStudents(csvFile));
+    }
+
+    @Override
+    public Optional<Student> findById(String studentId) {
+        return timed(FIND, () -> delegate.findById(studentId));
+    }
+
+    @Override
+    public List<Student> queryStudents(String keyword, QueryType type, MatchMode mode) {
+        return timed(QUERY, () -> delegate.queryStudents(keyword, type, mode));
+    }
+
+    @Override
+    public List<Student> query(StudentQuery query) {
+        return timed(COMPOSITE_QUERY, () -> delegate.query(query));
+    }
+
+    @Override
+    public Stream<Student> streamStudents(String keyword, QueryType type, MatchMode mode) {
+        return timed(STREAM, () -> delegate.streamStudents(keyword, type, mode));
+    }
+
+    @Override
+    public StudentPage queryPage(String keyword, QueryType type, MatchMode mode, String afterStudentId, int pageSize) {
+        return timed(QUERY_PAGE, () -> delegate.queryPage(keyword, type, mode, afterStudentId, pageSize));
+    }
+
+    @Override
+    public StudentPage listStudents(String afterStudentId, int pageSize) {
+        return timed(LIST, () -> delegate.listStudents(afterStudentId, pageSize));
+    }
+
+    @Override
+    public Map<String, Long> countBy(QueryType field) {
+        return timed(COUNT, () -> delegate.countBy(field));
+    }
+
+    @Override
+    public Map<String, Map<String, Long>> countBy(QueryType field, QueryType subField) {
+        return timed(COUNT, () -> delegate.countBy(field, subField));
+    }
+
+    @Override
+    public StudentSnapshot snapshot() {
+        return timed(SNAPSHOT, delegate::snapshot);
+    }
+
+    @Override
+    public void addUndoListener(StudentUndoListener listener) {
+        delegate.addUndoListener(listener);
+    }
+
+    @Override
+    public void saveToFile() {
+        timed(SAVE, delegate::saveToFile);
+        accountFileWrites(true);
+    }
+
+    /**
+     * 加载后再扫描一遍统计记录数，耗时不计入 loadFromFile
+     */
+    @Override
+    public void loadFromFile() {
+        timed(LOAD, delegate::loadFromFile);
+        recordsLoaded.add(delegate.streamStudents("", QueryType.STUDENT_ID, MatchMode.CONTAINS).count());
+        synchronized (fileLock) {
+            lastJournalSize = journalSize();
+        }
+    }
+
+    @Override
+    public void close() {
+        delegate.close();
+    }
+
+    @Override
+    public void OutDate() {
+        timed(PRINT, delegate::OutDate);
+    }
+
+    /**
+     * @return 操作名对应的指标，操作名与 StuService 的方法名相同；异步增删改计入对应的同步操作
+     */
+    public OperationMetrics getOperation(String operation) {
+        OperationMetrics metrics = operations.get(operation);
+        if (metrics == null) {
+            throw new StudentManagementException("没有名为 " + operation + " 的操作");
+        }
+        return metrics;
+    }
+
+    @Override
+    public long getFileBytesWritten() {
+        synchronized (fileLock) {
+            return fileBytesWritten;
+        }
+    }
+
+    @Override
+    public long getRecordsLoaded() {
+        return recordsLoaded.sum();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errorCounts.values().stream().mapToLong(LongAdder::sum).sum();
+    }
+
+    @Override
+    public Map<String, Long> getErrorCounts() {
+        Map<String, Long> counts = new TreeMap<>();
+        errorCounts.forEach((key, count) -> counts.put(key, count.sum()));
+        return Collections.unmodifiableMap(counts);
+    }
+
+    @Override
+    public String dump() {
+        StringBuilder text = new StringBuilder("=== 运行指标（耗时单位：毫秒）===\n");
+        // 每个汉字占两列，中文表头的宽度相应减去字数
+        text.append(String.format("%-14s %6s %4s %8s %10s %10s %10s %10s %8s%n",
+                "操作", "次数", "错误", "平均", "p50", "p90", "p99", "p99.9", "最大"));
+        for (OperationMetrics metrics : operations.values()) {
+            if (metrics.getCount() > 0) {
+                text.append(metrics).append('\n');
+            }
+        }
+        text.append("文件写入：").append(getFileBytesWritten()).append("字节\n");
+        text.append("加载记录：").append(getRecordsLoaded()).append("条\n");
+        Map<String, Long> errors = getErrorCounts();
+        if (errors.isEmpty()) {
+            text.append("错误：无\n");
+        } else {
+            text.append("错误：\n");
+            errors.forEach((key, count) -> text.append("  ").append(key).append("：").append(count).append('\n'));
+        }
+        return text.toString();
+    }
+
+    @Override
+    public void reset() {
+        operations.values().forEach(OperationMetrics::reset);
+        errorCounts.clear();
+        recordsLoaded.reset();
+        synchronized (fileLock) {
+            fileBytesWritten = 0;
+        }
+    }
+
+    /**
+     * 注册到平台 MBeanServer：com:type=StuService,name=名称 为汇总指标，
+     * 各操作另注册为 com:type=StuService,name=名称,operation=操作名
+     *
+     * @param name 区分同一进程内的多个服务
+     */
+    public synchronized void registerMBeans(String name) {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        String prefix = "com:type=StuService,name=" + ObjectName.quote(name);
+        try {
+            register(server, new ObjectName(prefix), this);
+            for (OperationMetrics metrics : operations.values()) {
+                register(server, new ObjectName(prefix + ",operation=" + metrics.getOperation()), metrics);
+            }
+        } catch (JMException e) {
+            unregisterMBeans();
+            throw new StudentManagementException("注册 JMX 指标失败: " + e.getMessage(), e);
+        }
+    }
+
+    public synchronized void unregisterMBeans() {
+        MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+        for (ObjectName name : registeredNames) {
+            try {
+                server.unregisterMBean(name);
+            } catch (JMException ignored) {
+                // 已被其他途径注销
+            }
+        }
+        registeredNames.clear();
+    }
+
+    private void register(MBeanServer server, ObjectName name, Object mbean) throws JMException {
+        server.registerMBean(mbean, name);
+        registeredNames.add(name);
+    }
+
+    private void timed(String operation, Runnable call) {
+        timed(operation, () -> {
+            call.run();
+            return null;
+        });
+    }
+
+    private <T> T timed(String operation, Supplier<T> call) {
+        OperationMetrics metrics = operations.get(operation);
+        long start = System.nanoTime();
+        try {
+            return call.get();
+        } catch (RuntimeException e) {
+            recordError(metrics, e);
+            throw e;
+        } finally {
+            metrics.record(System.nanoTime() - start);
+        }
+    }
+
+    private CompletableFuture<Void> timedAsync(String operation, Supplier<CompletableFuture<Void>> call) {
+        OperationMetrics metrics = operations.get(operation);
+        long start = System.nanoTime();
+        CompletableFuture<Void> future;
+        try {
+            future = call.get();
+        } catch (RuntimeException e) {
+            metrics.record(System.nanoTime() - start);
+            recordError(metrics, e);
+            throw e;
+        }
+        return future.whenComplete((ignored, e) -> {
+            metrics.record(System.nanoTime() - start);
+            if (e != null) {
+                recordError(metrics, e.getCause() != null ? e.getCause() : e);
+            } else {
+                accountFileWrites(false);
+            }
+        });
+    }
+
+    /**
+     * 批量操作中单条记录的失败不抛出异常，按失败消息分类计入错误
+     */
+    private BatchResult batch(String operation, Supplier<BatchResult> call) {
+        BatchResult result = timed(operation, call);
+        OperationMetrics metrics = operations.get(operation);
+        for (BatchResult.Failure failure : result.getFailures()) {
+            metrics.recordError();
+            countError(BATCH_FAILURE + "/" + ErrorCategory.of(failure.getMessage()).getLabel());
+        }
+        if (result.getSucceeded() > 0) {
+            accountFileWrites(false);
+        }
+        return result;
+    }
+
+    private void recordError(OperationMetrics metrics, Throwable error) {
+        metrics.recordError();
+        countError(error.getClass().getSimpleName() + "/" + ErrorCategory.of(error).getLabel());
+    }
+
+    private void countError(String key) {
+        errorCounts.computeIfAbsent(key, k -> new LongAdder()).increment();
+    }
+
+    /**
+     * 按文件大小的变化累计写入字节数：日志文件变大的部分为追加的日志；
+     * 日志文件变小说明写了检查点，此时数据文件整个重写一遍（SEGMENTED 模式下只写一个增量段，
+     * 后台合并的写入不计入）。SNAPSHOT 模式下每次修改都重写数据文件
+     *
+     * @param snapshotWritten 本次操作是否重写了数据文件
+     */
+    private void accountFileWrites(boolean snapshotWritten) {
+        synchronized (fileLock) {
+            boolean rewritten = snapshotWritten || persistenceMode == PersistenceMode.SNAPSHOT;
+            long journalSize = journalSize();
+            if (journalSize < lastJournalSize) {
+                rewritten = true;
+                fileBytesWritten += journalSize;
+            } else {
+                fileBytesWritten += journalSize - lastJournalSize;
+            }
+            lastJournalSize = journalSize;
+            if (rewritten) {
+                fileBytesWritten += persistenceMode == PersistenceMode.SEGMENTED
+                        ? StudentSegments.newestDeltaSize(dataFilePath)
+                        : sizeOf(dataFilePath);
+            }
+        }
+    }
+
+    private long journalSize() {
+        return persistenceMode == PersistenceMode.SNAPSHOT ? 0 : sizeOf(journalFilePath);
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+}
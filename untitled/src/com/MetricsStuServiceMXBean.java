@@ -0,0 +1,32 @@
+package com;
+
+import java.util.Map;
+
+/**
+ * MetricsStuService 的 JMX 接口；各操作的耗时分布另行注册为 OperationMetricsMXBean
+ */
+public interface MetricsStuServiceMXBean {
+    /**
+     * @return 数据文件和日志文件累计写入的字节数
+     */
+    long getFileBytesWritten();
+
+    /**
+     * @return 经 loadFromFile 累计加载的学生记录数
+     */
+    long getRecordsLoaded();
+
+    long getErrorCount();
+
+    /**
+     * @return 异常类型/错误类别 -> 次数
+     */
+    Map<String, Long> getErrorCounts();
+
+    /**
+     * @return 与菜单中“运行指标”相同的文本
+     */
+    String dump();
+
+    void reset();
+}
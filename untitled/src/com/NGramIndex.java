@@ -0,0 +1,111 @@
+package com;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 单个查询字段上的 n-gram 倒排索引
+ * 为字段值中所有长度 1..n 的子串建立 子串 -> 学号集合 的倒排表，
+ * 中文姓名、系别、班级用 n=2（二元组）效果较好
+ */
+class NGramIndex implements SecondaryIndex {
+    private final QueryType field;
+    private final int gramSize;
+    private final Map<String, Set<String>> postings = new HashMap<>();
+
+    NGramIndex(QueryType field, int gramSize) {
+        if (gramSize < 1) {
+            throw new StudentManagementException("n-gram 长度必须大于0");
+        }
+        this.field = field;
+        this.gramSize = gramSize;
+    }
+
+    @Override
+    public void add(Student student) {
+        String value = field.getFieldValue(student);
+        if (value == null) {
+            return;
+        }
+        for (String gram : grams(value)) {
+            postings.computeIfAbsent(gram, g -> new HashSet<>()).add(student.getStudentId());
+        }
+    }
+
+    @Override
+    public void remove(Student student) {
+        String value = field.getFieldValue(student);
+        if (value == null) {
+            return;
+        }
+        for (String gram : grams(value)) {
+            Set<String> ids = postings.get(gram);
+            if (ids != null) {
+                ids.remove(student.getStudentId());
+                if (ids.isEmpty()) {
+                    postings.remove(gram);
+                }
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        postings.clear();
+    }
+
+    /**
+     * 返回字段值包含 keyword 的候选学号集合，精确和前缀匹配的结果同样落在其中。
+     * keyword 长度不超过 n 时结果精确，否则调用方仍需复核。
+     * keyword 为空串时无法缩小范围，返回 null 表示需全表扫描
+     */
+    @Override
+    public Set<String> candidates(String keyword, MatchMode mode) {
+        if (keyword.isEmpty()) {
+            return null;
+        }
+        if (keyword.length() <= gramSize) {
+            return postings.getOrDefault(keyword, Collections.emptySet());
+        }
+
+        // 从最短的倒排表开始求交集
+        Set<String> smallest = null;
+        Set<String> keywordGrams = new HashSet<>();
+        for (int i = 0; i + gramSize <= keyword.length(); i++) {
+            String gram = keyword.substring(i, i + gramSize);
+            keywordGrams.add(gram);
+            Set<String> ids = postings.get(gram);
+            if (ids == null) {
+                return Collections.emptySet();
+            }
+            if (smallest == null || ids.size() < smallest.size()) {
+                smallest = ids;
+            }
+        }
+
+        Set<String> result = new HashSet<>(smallest);
+        for (String gram : keywordGrams) {
+            Set<String> ids = postings.get(gram);
+            if (ids != smallest) {
+                result.retainAll(ids);
+                if (result.isEmpty()) {
+                    break;
+                }
+            }
+        }
+        return result;
+    }
+
+    private Set<String> grams(String value) {
+        Set<String> grams = new HashSet<>();
+        for (int length = 1; length <= gramSize; length++) {
+            for (int i = 0; i + length <= value.length(); i++) {
+                grams.add(value.substring(i, i + length));
+            }
+        }
+        return grams;
+    }
+}
@@ -0,0 +1,373 @@
+package com;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 堆外存储的学生学籍业务实现类
+ * 学生序列化后保存在 OffHeapStudentStore 的直接内存分段中，堆上只有学号散列表和注册顺序表两组基本类型数组，
+ * 适合数百万条记录的花名册：堆占用每条约 34 字节，GC 停顿不随记录数增长。
+ * 查询在堆外字节上比对，只为匹配的记录创建 Student 对象，同一学生两次取出的是不同的对象。
+ * 持久化与 StuServiceImpl 相同；ASYNC 模式按 JOURNAL 模式处理。非线程安全
+ */
+public class OffHeapStuServiceImpl implements StuService {
+    private final OffHeapStudentStore store = new OffHeapStudentStore();
+    private final StuServiceOptions options;
+    private final Path dataFilePath;
+    private final StudentJournal journal; // 仅 JOURNAL、ASYNC、SEGMENTED 模式下非空
+    private final StudentSegments segments; // 仅 SEGMENTED 模式下非空
+
+    public OffHeapStuServiceImpl() {
+        this(StuServiceOptions.defaults());
+    }
+
+    public OffHeapStuServiceImpl(StuServiceOptions options) {
+        this.options = options;
+        this.dataFilePath = options.getDataFilePath();
+        // 确保目录存在
+        try {
+            Files.createDirectories(options.getDataDir());
+        } catch (IOException e) {
+            throw new StudentManagementException("无法创建数据目录: " + e.getMessage());
+        }
+        this.journal = options.getPersistenceMode() != PersistenceMode.SNAPSHOT
+                ? new StudentJournal(options.getJournalFilePath(), options.getSyncPolicy(), options.getSyncInterval())
+                : null;
+        this.segments = options.getPersistenceMode() == PersistenceMode.SEGMENTED ? new StudentSegments(options) : null;
+        loadFromFile();
+    }
+
+    @Override
+    public void addStudent(Student student) {
+        // 检查学号是否已存在
+        if (!store.add(student)) {
+            throw new StudentManagementException("学号 [" + student.getStudentId() + "] 已存在");
+        }
+
+        try {
+            persist(j -> j.appendAdd(student));
+        } catch (StudentManagementException e) {
+            store.remove(student.getStudentId());
+            throw e;
+        }
+        System.out.println("学生[" + student.getStudentId() + "] 注册成功");
+    }
+
+    @Override
+    public void updateStudent(String studentId, Student newStudent) {
+        if (studentId == null || studentId.trim().isEmpty()) {
+            throw new StudentManagementException("学号不能为空");
+        }
+
+        // 如果新学号与旧学号不同，检查新学号是否已存在
+        if (!studentId.equals(newStudent.getStudentId()) && store.contains(newStudent.getStudentId())) {
+            throw new StudentManagementException("新学号 [" + newStudent.getStudentId() + "] 已存在");
+        }
+
+        if (!store.contains(studentId)) {
+            throw new StudentManagementException("未找到学号为 [" + studentId + "] 的学生");
+        }
+
+        replaceStudent(studentId, newStudent);
+        persist(j -> j.appendUpdate(studentId, newStudent));
+        System.out.println("学生[" + studentId + "] 信息更新成功");
+    }
+
+    @Override
+    public void deleteStudent(String studentId) {
+        if (studentId == null || studentId.trim().isEmpty()) {
+            throw new StudentManagementException("学号不能为空");
+        }
+
+        if (store.remove(studentId) == null) {
+            throw new StudentManagementException("未找到学号为 [" + studentId + "] 的学生");
+        }
+
+        persist(j -> j.appendDelete(studentId));
+        System.out.println("学生[" + studentId + "] 信息删除成功");
+    }
+
+    /**
+     * 与 StuServiceImpl 相同，整批校验后只保存一次，保存失败时撤销本批全部修改
+     */
+    @Override
+    public BatchResult addStudents(Collection<Student> students) {
+        BatchResult.Builder result = new BatchResult.Builder();
+        StudentJournal.Batch batch = new StudentJournal.Batch();
+        List<Runnable> undo = new ArrayList<>();
+        int position = 0;
+        for (Student student : students) {
+            position++;
+            if (student == null) {
+                result.failure(position, null, "学生信息不能为空");
+            } else if (!store.add(student)) {
+                // 与已有记录或本批前面的记录重复
+                result.failure(position, student.getStudentId(), "学号 [" + student.getStudentId() + "] 已存在");
+            } else {
+                undo.add(() -> store.remove(student.getStudentId()));
+                batch.add(student);
+            }
+        }
+
+        commitBatch(batch, undo);
+        System.out.println("批量注册完成：成功" + batch.size() + "条，失败" + (position - batch.size()) + "条");
+        return result.succeeded(batch.size()).build();
+    }
+
+    @Override
+    public BatchResult updateStudents(Map<String, Student> updates) {
+        BatchResult.Builder result = new BatchResult.Builder();
+        StudentJournal.Batch batch = new StudentJournal.Batch();
+        List<Runnable> undo = new ArrayList<>();
+        int position = 0;
+        for (Map.Entry<String, Student> update : updates.entrySet()) {
+            position++;
+            String studentId = update.getKey();
+            Student newStudent = update.getValue();
+            if (studentId == null || studentId.trim().isEmpty()) {
+                result.failure(position, studentId, "学号不能为空");
+            } else if (newStudent == null) {
+                result.failure(position, studentId, "学生信息不能为空");
+            } else if (!studentId.equals(newStudent.getStudentId()) && store.contains(newStudent.getStudentId())) {
+                result.failure(position, studentId, "新学号 [" + newStudent.getStudentId() + "] 已存在");
+            } else {
+                Student previous = store.get(studentId);
+                if (previous == null) {
+                    result.failure(position, studentId, "未找到学号为 [" + studentId + "] 的学生");
+                    continue;
+                }
+                replaceStudent(studentId, newStudent);
+                undo.add(() -> replaceStudent(newStudent.getStudentId(), previous));
+                batch.update(studentId, newStudent);
+            }
+        }
+
+        commitBatch(batch, undo);
+        System.out.println("批量修改完成：成功" + batch.size() + "条，失败" + (position - batch.size()) + "条");
+        return result.succeeded(batch.size()).build();
+    }
+
+    @Override
+    public BatchResult deleteStudents(Collection<String> studentIds) {
+        BatchResult.Builder result = new BatchResult.Builder();
+        StudentJournal.Batch batch = new StudentJournal.Batch();
+        List<Runnable> undo = new ArrayList<>();
+        int position = 0;
+        for (String studentId : studentIds) {
+            position++;
+            if (studentId == null || studentId.trim().isEmpty()) {
+                result.failure(position, studentId, "学号不能为空");
+                continue;
+            }
+            Student removed = store.remove(studentId);
+            if (removed == null) {
+                result.failure(position, studentId, "未找到学号为 [" + studentId + "] 的学生");
+            } else {
+                undo.add(() -> store.add(removed));
+                batch.delete(studentId);
+            }
+        }
+
+        commitBatch(batch, undo);
+        System.out.println("批量删除完成：成功" + batch.size() + "条，失败" + (position - batch.size()) + "条");
+        return result.succeeded(batch.size()).build();
+    }
+
+    /**
+     * 把整批修改作为一次持久化提交，失败时按相反顺序撤销内存中的修改
+     */
+    private void commitBatch(StudentJournal.Batch batch, List<Runnable> undo) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        try {
+            persist(j -> j.appendBatch(batch));
+        } catch (StudentManagementException e) {
+            for (int i = undo.size() - 1; i >= 0; i--) {
+                undo.get(i).run();
+            }
+            throw e;
+        }
+    }
+
+    private void replaceStudent(String studentId, Student newStudent) {
+        if (studentId.equals(newStudent.getStudentId())) {
+            // 同一学号原位替换，保持原有顺序
+            store.replace(newStudent);
+        } else {
+            // 学号变更视为重新登记，记录移动到列表末尾
+            store.remove(studentId);
+            store.add(newStudent);
+        }
+    }
+
+    /**
+     * 持久化一次修改：SNAPSHOT 模式重写数据文件；JOURNAL 模式追加一条日志，累计到阈值时写检查点。
+     * 与 StuServiceImpl 相同，只有保存或追加日志失败时抛出异常；修改记入日志后检查点失败只报告错误
+     */
+    private void persist(Consumer<StudentJournal> record) {
+        if (journal == null) {
+            saveToFile();
+            return;
+        }
+        record.accept(journal);
+        if (journal.getRecordCount() >= options.getCheckpointThreshold()) {
+            try {
+                saveToFile();
+            } catch (StudentManagementException e) {
+                System.err.println("检查点写入失败，修改已记入日志: " + e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public Optional<Student> findById(String studentId) {
+        if (studentId == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(store.get(studentId.trim()));
+    }
+
+    @Override
+    public List<Student> queryStudents(String keyword, QueryType type, MatchMode mode) {
+        List<Student> results = streamStudents(keyword, type, mode).collect(Collectors.toList());
+
+        if (results.isEmpty()) {
+            System.out.println("未找到匹配的学生记录");
+        }
+
+        return results;
+    }
+
+    /**
+     * 惰性扫描堆外记录，学生对象在消费时逐个创建；须在下一次修改前消费完毕
+     */
+    @Override
+    public Stream<Student> streamStudents(String keyword, QueryType type, MatchMode mode) {
+        if (keyword == null || type == null || mode == null) {
+            throw new StudentManagementException("搜索关键词、类型和匹配方式不能为空");
+        }
+        return store.stream(type, keyword, mode);
+    }
+
+    /**
+     * 一次扫描取出学号在游标之后的前 pageSize + 1 条匹配记录，不为整个结果集排序
+     */
+    @Override
+    public StudentPage queryPage(String keyword, QueryType type, MatchMode mode, String afterStudentId, int pageSize) {
+        if (keyword == null || type == null || mode == null) {
+            throw new StudentManagementException("搜索关键词、类型和匹配方式不能为空");
+        }
+        StudentPage.checkPageSize(pageSize);
+        return StudentPage.of(store.firstAfter(type, keyword, mode, afterStudentId, pageSize + 1), pageSize);
+    }
+
+    @Override
+    public StudentPage listStudents(String afterStudentId, int pageSize) {
+        StudentPage.checkPageSize(pageSize);
+        return StudentPage.of(store.firstAfter(null, null, null, afterStudentId, pageSize + 1), pageSize);
+    }
+
+    @Override
+    public Map<String, Long> countBy(QueryType field) {
+        return StudentStatistics.supports(field) ? store.statistics().countBy(field) : StuService.super.countBy(field);
+    }
+
+    @Override
+    public Map<String, Map<String, Long>> countBy(QueryType field, QueryType subField) {
+        return StudentStatistics.supports(field) && StudentStatistics.supports(subField)
+                ? store.statistics().countBy(field, subField)
+                : StuService.super.countBy(field, subField);
+    }
+
+    @Override
+    public void saveToFile() {
+        if (segments != null) {
+            segments.checkpoint(journal);
+            return;
+        }
+        // JOURNAL 模式下检查点必须先落盘，才能清空日志
+        options.getSnapshotFormat().write(dataFilePath, store.students(), journal != null);
+        if (journal != null) {
+            journal.reset();
+        }
+    }
+
+    @Override
+    public void loadFromFile() {
+        store.clear();
+        boolean loaded = segments != null ? segments.load(store::add) : SnapshotFormat.load(options, store::add);
+        if (loaded) {
+            System.out.println("成功加载" + store.size() + "条学生记录");
+        }
+        if (journal != null) {
+            replayJournal();
+        }
+    }
+
+    /**
+     * 在快照之上回放日志，与 StuServiceImpl 相同按幂等方式处理
+     */
+    private void replayJournal() {
+        int replayed = journal.replay(new StudentJournal.Visitor() {
+            @Override
+            public void onAdd(Student student) {
+                put(student);
+            }
+
+            @Override
+            public void onUpdate(String studentId, Student newStudent) {
+                if (!studentId.equals(newStudent.getStudentId())) {
+                    store.remove(studentId);
+                }
+                put(newStudent);
+            }
+
+            @Override
+            public void onDelete(String studentId) {
+                store.remove(studentId);
+            }
+
+            private void put(Student student) {
+                if (!store.add(student)) {
+                    store.replace(student);
+                }
+            }
+        });
+        if (replayed > 0) {
+            System.out.println("已回放" + replayed + "条日志记录，当前共" + store.size() + "条学生记录");
+        }
+    }
+
+    /**
+     * 关闭日志文件和后台线程，不写检查点；未写入数据文件的修改保留在日志中，下次打开时回放
+     */
+    @Override
+    public void close() {
+        if (segments != null) {
+            segments.close();
+        }
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    @Override
+    public void OutDate() {
+        if (store.size() == 0) {
+            System.out.println("没有学生记录");
+            return;
+        }
+
+        store.students().forEach(System.out::println);
+    }
+}
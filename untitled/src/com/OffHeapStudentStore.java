@@ -0,0 +1,694 @@
+package com;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.PriorityQueue;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.TreeMap;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+
+/**
+ * 堆外学生存储，供 OffHeapStuServiceImpl 使用
+ * 学生序列化后保存在直接内存（ByteBuffer.allocateDirect）的分段中，堆上只有几个基本类型数组：
+ * 学号散列表（记录地址与学号散列值）和注册顺序表（记录地址）。堆上对象数与记录数无关，
+ * 基本类型数组也无须 GC 逐个追踪引用，因此堆占用和 GC 停顿基本不随记录数增长。
+ * 记录格式：[int 槽容量][int 注册序位]，之后与二进制快照的记录相同：学号、姓名、性别
+ * （字符串为 [unsigned short 字节数][UTF-8 字节]）、年龄（1 字节）、籍贯、系别、专业、班级、学籍状态序号（1 字节）。
+ * 查询直接在堆外字节上比对，只为匹配的记录创建 Student 对象。
+ * 删除和放不下的修改留下空闲槽，按容量登记供之后复用；空闲空间超过有效数据时整体压缩。
+ * 非线程安全
+ */
+final class OffHeapStudentStore {
+    private static final int SEGMENT_BITS = 24;
+    private static final int SEGMENT_SIZE = 1 << SEGMENT_BITS; // 每段 16MB
+    private static final int HEADER_SIZE = 8;
+    private static final int ALIGNMENT = 8;
+    private static final int MAX_FIELD_BYTES = 0xFFFF;
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final long COMPACT_MIN_FREE_BYTES = 1 << 20;
+    private static final long DELETED = -1;
+    private static final String[] GENDERS = {"男", "女"};
+    private static final byte FEMALE_LEAD_BYTE = GENDERS[1].getBytes(StandardCharsets.UTF_8)[0];
+    private static final StudentStatus[] STATUSES = StudentStatus.values();
+
+    // 记录中各字段的序号，与数据文件的列顺序相同
+    private static final int ID = 0;
+    private static final int NAME = 1;
+    private static final int GENDER = 2;
+    private static final int AGE = 3;
+    private static final int NATIVE_PLACE = 4;
+    private static final int DEPARTMENT = 5;
+    private static final int MAJOR = 6;
+    private static final int CLASS = 7;
+    private static final int STATUS = 8;
+
+    private final List<ByteBuffer> segments = new ArrayList<>();
+    private int tail = SEGMENT_SIZE; // 最后一段已使用的字节数，尚无分段时视为已满
+    // 槽容量 -> 该容量的空闲槽地址
+    private final TreeMap<Integer, LongStack> freeSlots = new TreeMap<>();
+    private long usedBytes; // 有效记录占用的槽容量之和
+    private long freeBytes; // 空闲槽及各段末尾无法使用的字节数
+
+    // 学号散列表（线性探测）：addresses 存记录地址 + 1，0 表示空槽；hashes 存学号散列值，探测时先比较散列值
+    private long[] addresses = new long[INITIAL_CAPACITY * 2];
+    private int[] hashes = new int[INITIAL_CAPACITY * 2];
+    // 注册顺序表：第 i 位为注册序位 i 的记录地址，已删除为 DELETED
+    private long[] order = new long[INITIAL_CAPACITY];
+    private int orderCount;
+    private int size;
+    // 分组人数统计，随增删改维护
+    private final StudentStatistics statistics = new StudentStatistics();
+
+    // 序列化和比对时复用的堆上缓冲
+    private byte[] scratch = new byte[1024];
+    private byte[] fieldBytes = new byte[256];
+    private final byte[] idBytes = new byte[MAX_FIELD_BYTES];
+    private final byte[] otherIdBytes = new byte[MAX_FIELD_BYTES];
+
+    /**
+     * 基本类型的地址栈，登记同一容量的空闲槽
+     */
+    private static final class LongStack {
+        private long[] values = new long[16];
+        private int count;
+
+        private void push(long value) {
+            if (count == values.length) {
+                values = Arrays.copyOf(values, count * 2);
+            }
+            values[count++] = value;
+        }
+
+        private long pop() {
+            return values[--count];
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return 已分配的堆外内存字节数
+     */
+    long allocatedBytes() {
+        return (long) segments.size() * SEGMENT_SIZE;
+    }
+
+    long usedBytes() {
+        return usedBytes;
+    }
+
+    boolean contains(String studentId) {
+        return find(studentId) >= 0;
+    }
+
+    /**
+     * @return 学号对应的学生，不存在时返回 null
+     */
+    Student get(String studentId) {
+        int slot = find(studentId);
+        return slot < 0 ? null : decode(addresses[slot] - 1);
+    }
+
+    /**
+     * 追加一条记录，注册序位排在最后
+     *
+     * @return 学号已存在时返回 false
+     */
+    boolean add(Student student) {
+        int length = encode(student);
+        int hash = hash(scratch, HEADER_SIZE + 2, Short.toUnsignedInt(shortAt(scratch, HEADER_SIZE)));
+        if (find(hash, scratch, HEADER_SIZE + 2, Short.toUnsignedInt(shortAt(scratch, HEADER_SIZE))) >= 0) {
+            return false;
+        }
+        if (orderCount == order.length) {
+            order = Arrays.copyOf(order, orderCount * 2);
+        }
+        long address = write(length, orderCount);
+        order[orderCount++] = address;
+        size++;
+        statistics.add(student);
+        if ((size + 1) * 2 > addresses.length) {
+            rebuildIndex(addresses.length * 2);
+        } else {
+            indexPut(hash, address);
+        }
+        return true;
+    }
+
+    /**
+     * 替换学号相同的记录，保持注册序位；新记录放得下时原地覆盖，否则移到新槽
+     */
+    void replace(Student student) {
+        int slot = find(student.getStudentId());
+        if (slot < 0) {
+            throw new StudentManagementException("未找到学号为 [" + student.getStudentId() + "] 的学生");
+        }
+        long address = addresses[slot] - 1;
+        Student previous = decode(address);
+        ByteBuffer segment = segmentOf(address);
+        int position = positionOf(address);
+        int capacity = segment.getInt(position);
+        int orderIndex = segment.getInt(position + 4);
+        int length = encode(student);
+        statistics.remove(previous);
+        statistics.add(student);
+        if (align(length) <= capacity) {
+            // 保留原槽容量，只覆盖记录内容
+            putInt(scratch, 0, capacity);
+            putInt(scratch, 4, orderIndex);
+            segment.put(position, scratch, 0, length);
+            return;
+        }
+        long moved = write(length, orderIndex);
+        release(address, capacity);
+        addresses[slot] = moved + 1;
+        order[orderIndex] = moved;
+        compactIfNeeded();
+    }
+
+    /**
+     * @return 被删除的学生；学号不存在时返回 null
+     */
+    Student remove(String studentId) {
+        int slot = find(studentId);
+        if (slot < 0) {
+            return null;
+        }
+        long address = addresses[slot] - 1;
+        Student removed = decode(address);
+        statistics.remove(removed);
+        ByteBuffer segment = segmentOf(address);
+        int position = positionOf(address);
+        order[segment.getInt(position + 4)] = DELETED;
+        release(address, segment.getInt(position));
+        indexRemove(slot);
+        size--;
+        compactIfNeeded();
+        return removed;
+    }
+
+    void clear() {
+        segments.clear();
+        tail = SEGMENT_SIZE;
+        freeSlots.clear();
+        usedBytes = 0;
+        freeBytes = 0;
+        addresses = new long[INITIAL_CAPACITY * 2];
+        hashes = new int[INITIAL_CAPACITY * 2];
+        order = new long[INITIAL_CAPACITY];
+        orderCount = 0;
+        size = 0;
+        statistics.clear();
+    }
+
+    StudentStatistics statistics() {
+        return statistics;
+    }
+
+    /**
+     * 按注册顺序逐条解码全部学生
+     */
+    Iterable<Student> students() {
+        return () -> matching(null);
+    }
+
+    /**
+     * 按注册顺序惰性返回匹配的学生；须在下一次修改前消费完毕
+     */
+    Stream<Student> stream(QueryType type, String keyword, MatchMode mode) {
+        if (type == QueryType.STUDENT_ID && mode == MatchMode.EXACT) {
+            Student student = get(keyword);
+            return student == null ? Stream.empty() : Stream.of(student);
+        }
+        Iterator<Student> matches = matching(new RecordMatcher(type, keyword, mode));
+        return StreamSupport.stream(Spliterators.spliteratorUnknownSize(matches, Spliterator.ORDERED), false);
+    }
+
+    /**
+     * 按学号升序取出学号大于游标的前 limit 个匹配记录。
+     * 扫描时用容量为 limit 的大顶堆保留目前最小的学号，学号在堆外比较，只解码最终入选的记录
+     *
+     * @param type 为 null 时不过滤
+     */
+    List<Student> firstAfter(QueryType type, String keyword, MatchMode mode, String afterStudentId, int limit) {
+        RecordMatcher matcher = type == null ? null : new RecordMatcher(type, keyword, mode);
+        byte[] cursor = afterStudentId == null ? null : afterStudentId.getBytes(StandardCharsets.UTF_8);
+        PriorityQueue<Long> smallest = new PriorityQueue<>(limit + 1, (a, b) -> compareIds(b, a));
+        for (int i = 0; i < orderCount; i++) {
+            long address = order[i];
+            if (address == DELETED || (cursor != null && compareId(address, cursor) <= 0)
+                    || (matcher != null && !matcher.test(address))) {
+                continue;
+            }
+            if (smallest.size() < limit) {
+                smallest.add(address);
+            } else if (compareIds(address, smallest.peek()) < 0) {
+                smallest.poll();
+                smallest.add(address);
+            }
+        }
+        Student[] sorted = new Student[smallest.size()];
+        for (int i = sorted.length - 1; i >= 0; i--) {
+            sorted[i] = decode(smallest.poll());
+        }
+        return new ArrayList<>(Arrays.asList(sorted));
+    }
+
+    private int compareIds(long a, long b) {
+        int aLength = readId(a, idBytes);
+        int bLength = readId(b, otherIdBytes);
+        return compareIdBytes(idBytes, aLength, otherIdBytes, bLength);
+    }
+
+    private int compareId(long address, byte[] id) {
+        int length = readId(address, idBytes);
+        return compareIdBytes(idBytes, length, id, id.length);
+    }
+
+    /**
+     * @param buffer 容量不小于字段最大字节数的缓冲
+     * @return 学号的字节数
+     */
+    private int readId(long address, byte[] buffer) {
+        ByteBuffer segment = segmentOf(address);
+        int position = positionOf(address) + HEADER_SIZE;
+        int length = Short.toUnsignedInt(segment.getShort(position));
+        segment.get(position + 2, buffer, 0, length);
+        return length;
+    }
+
+    /**
+     * 与 String.compareTo 的顺序一致：UTF-8 字节按无符号比较即码点顺序，只在含 U+E000 以上字符
+     * （首字节不小于 0xEE）时与 UTF-16 顺序可能不同，此时解码后比较
+     */
+    private static int compareIdBytes(byte[] a, int aLength, byte[] b, int bLength) {
+        if (hasHighCharacters(a, aLength) || hasHighCharacters(b, bLength)) {
+            return new String(a, 0, aLength, StandardCharsets.UTF_8)
+                    .compareTo(new String(b, 0, bLength, StandardCharsets.UTF_8));
+        }
+        return Arrays.compareUnsigned(a, 0, aLength, b, 0, bLength);
+    }
+
+    private static boolean hasHighCharacters(byte[] bytes, int length) {
+        for (int i = 0; i < length; i++) {
+            if ((bytes[i] & 0xFF) >= 0xEE) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * @param matcher 为 null 时返回全部学生
+     */
+    private Iterator<Student> matching(RecordMatcher matcher) {
+        return new Iterator<>() {
+            private int next = advance(0);
+
+            @Override
+            public boolean hasNext() {
+                return next < orderCount;
+            }
+
+            @Override
+            public Student next() {
+                if (next >= orderCount) {
+                    throw new NoSuchElementException();
+                }
+                Student student = decode(order[next]);
+                next = advance(next + 1);
+                return student;
+            }
+
+            private int advance(int from) {
+                int i = from;
+                while (i < orderCount && (order[i] == DELETED || (matcher != null && !matcher.test(order[i])))) {
+                    i++;
+                }
+                return i;
+            }
+        };
+    }
+
+    /**
+     * 在堆外字节上判断记录是否匹配，不解码字符串。
+     * 字符串按 UTF-8 字节比较：精确匹配比较全部字节，前缀匹配比较开头的字节，
+     * 包含匹配查找字节子串（UTF-8 中一个字符的编码不会出现在另一个字符编码的中间，字节子串即字符子串）；
+     * 年龄、学籍状态先对每种取值判断一次，比对时按字节查表
+     */
+    private final class RecordMatcher {
+        private final int field;
+        private final MatchMode mode;
+        private final byte[] keyword;
+        private final boolean[] accepted; // 年龄、学籍状态字段按字节值查表
+
+        private RecordMatcher(QueryType type, String keyword, MatchMode mode) {
+            this.mode = mode;
+            this.keyword = keyword.getBytes(StandardCharsets.UTF_8);
+            this.field = switch (type) {
+                case STUDENT_ID -> ID;
+                case NAME -> NAME;
+                case GENDER -> GENDER;
+                case AGE -> AGE;
+                case NATIVE_PLACE -> NATIVE_PLACE;
+                case DEPARTMENT -> DEPARTMENT;
+                case MAJOR -> MAJOR;
+                case CLASS -> CLASS;
+                case STATUS -> STATUS;
+            };
+            if (field == AGE) {
+                accepted = new boolean[Byte.MAX_VALUE + 1];
+                for (int age = 0; age < accepted.length; age++) {
+                    accepted[age] = mode.test(String.valueOf(age), keyword);
+                }
+            } else if (field == STATUS) {
+                accepted = new boolean[STATUSES.length];
+                for (StudentStatus status : STATUSES) {
+                    accepted[status.ordinal()] = mode.test(status.getValue(), keyword);
+                }
+            } else {
+                accepted = null;
+            }
+        }
+
+        private boolean test(long address) {
+            ByteBuffer segment = segmentOf(address);
+            int position = fieldPosition(segment, positionOf(address), field);
+            if (accepted != null) {
+                int value = segment.get(position);
+                return value >= 0 && value < accepted.length && accepted[value];
+            }
+            int length = Short.toUnsignedInt(segment.getShort(position));
+            if (length < keyword.length) {
+                return false;
+            }
+            if (mode == MatchMode.EXACT && length != keyword.length) {
+                return false;
+            }
+            int compared = mode == MatchMode.CONTAINS ? length : keyword.length;
+            if (fieldBytes.length < compared) {
+                fieldBytes = new byte[Math.max(compared, fieldBytes.length * 2)];
+            }
+            segment.get(position + 2, fieldBytes, 0, compared);
+            if (mode != MatchMode.CONTAINS) {
+                return Arrays.equals(fieldBytes, 0, compared, keyword, 0, keyword.length);
+            }
+            for (int start = 0; start + keyword.length <= length; start++) {
+                if (Arrays.equals(fieldBytes, start, start + keyword.length, keyword, 0, keyword.length)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+    }
+
+    /**
+     * 把学生序列化到 scratch，槽容量和注册序位留待写入时填写
+     *
+     * @return 记录字节数（含记录头）
+     */
+    private int encode(Student student) {
+        int position = HEADER_SIZE;
+        position = putString(position, student.getStudentId());
+        position = putString(position, student.getName());
+        position = putString(position, student.getGender());
+        ensureScratch(position + 1);
+        scratch[position++] = (byte) student.getAge();
+        position = putString(position, student.getNativePlace());
+        position = putString(position, student.getDepartment());
+        position = putString(position, student.getMajor());
+        position = putString(position, student.getClassName());
+        ensureScratch(position + 1);
+        scratch[position++] = (byte) student.getStatus().ordinal();
+        return position;
+    }
+
+    private int putString(int position, String value) {
+        byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+        if (bytes.length > MAX_FIELD_BYTES) {
+            throw new StudentManagementException("字段过长，无法保存：" + value.substring(0, 16) + "...");
+        }
+        ensureScratch(position + 2 + bytes.length);
+        scratch[position] = (byte) (bytes.length >>> 8);
+        scratch[position + 1] = (byte) bytes.length;
+        System.arraycopy(bytes, 0, scratch, position + 2, bytes.length);
+        return position + 2 + bytes.length;
+    }
+
+    private void ensureScratch(int required) {
+        if (scratch.length < required) {
+            scratch = Arrays.copyOf(scratch, Math.max(required, scratch.length * 2));
+        }
+    }
+
+    private Student decode(long address) {
+        ByteBuffer segment = segmentOf(address);
+        int position = positionOf(address) + HEADER_SIZE;
+        String studentId = getString(segment, position);
+        position += 2 + Short.toUnsignedInt(segment.getShort(position));
+        String name = getString(segment, position);
+        position += 2 + Short.toUnsignedInt(segment.getShort(position));
+        // 性别写入时已校验为“男”或“女”，两者 UTF-8 编码的首字节不同，按首字节取常量，不创建字符串
+        String gender = segment.get(position + 2) == FEMALE_LEAD_BYTE ? GENDERS[1] : GENDERS[0];
+        position += 2 + Short.toUnsignedInt(segment.getShort(position));
+        int age = segment.get(position++);
+        String nativePlace = getString(segment, position);
+        position += 2 + Short.toUnsignedInt(segment.getShort(position));
+        String department = getString(segment, position);
+        position += 2 + Short.toUnsignedInt(segment.getShort(position));
+        String major = getString(segment, position);
+        position += 2 + Short.toUnsignedInt(segment.getShort(position));
+        String className = getString(segment, position);
+        position += 2 + Short.toUnsignedInt(segment.getShort(position));
+        // 写入时已由 Student 校验过，直接构造
+        return new Student(studentId, name, gender, age, nativePlace, department, major, className,
+                STATUSES[segment.get(position)]);
+    }
+
+    private String getString(ByteBuffer segment, int position) {
+        int length = Short.toUnsignedInt(segment.getShort(position));
+        if (fieldBytes.length < length) {
+            fieldBytes = new byte[Math.max(length, fieldBytes.length * 2)];
+        }
+        segment.get(position + 2, fieldBytes, 0, length);
+        return new String(fieldBytes, 0, length, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * @return 记录中第 field 个字段的起始位置
+     */
+    private static int fieldPosition(ByteBuffer segment, int recordPosition, int field) {
+        int position = recordPosition + HEADER_SIZE;
+        for (int i = 0; i < field; i++) {
+            position += i == AGE ? 1 : 2 + Short.toUnsignedInt(segment.getShort(position));
+        }
+        return position;
+    }
+
+    /**
+     * 把 scratch 中的记录写入一个空闲槽或追加到末尾
+     *
+     * @return 记录地址
+     */
+    private long write(int length, int orderIndex) {
+        long address = allocate(align(length));
+        ByteBuffer segment = segmentOf(address);
+        int position = positionOf(address);
+        // 复用的空闲槽可能比需要的大，记录头沿用槽上已有的容量
+        putInt(scratch, 0, segment.getInt(position));
+        putInt(scratch, 4, orderIndex);
+        segment.put(position, scratch, 0, length);
+        return address;
+    }
+
+    /**
+     * 优先复用容量相近（不超过所需的 1.25 倍）的空闲槽，否则追加到最后一段末尾。
+     * 返回的槽的记录头中已写有槽容量
+     */
+    private long allocate(int capacity) {
+        Map.Entry<Integer, LongStack> free = freeSlots.ceilingEntry(capacity);
+        if (free != null && free.getKey() <= capacity + capacity / 4) {
+            LongStack slots = free.getValue();
+            long address = slots.pop();
+            if (slots.count == 0) {
+                freeSlots.remove(free.getKey());
+            }
+            freeBytes -= free.getKey();
+            usedBytes += free.getKey();
+            return address;
+        }
+        if (capacity > SEGMENT_SIZE) {
+            throw new StudentManagementException("学生记录过长，无法保存");
+        }
+        if (tail + capacity > SEGMENT_SIZE) {
+            if (!segments.isEmpty()) {
+                // 段末放不下的剩余空间不再使用，压缩时回收
+                freeBytes += SEGMENT_SIZE - tail;
+            }
+            segments.add(ByteBuffer.allocateDirect(SEGMENT_SIZE));
+            tail = 0;
+        }
+        long address = ((long) (segments.size() - 1) << SEGMENT_BITS) | tail;
+        segments.get(segments.size() - 1).putInt(tail, capacity);
+        tail += capacity;
+        usedBytes += capacity;
+        return address;
+    }
+
+    private void release(long address, int capacity) {
+        freeSlots.computeIfAbsent(capacity, c -> new LongStack()).push(address);
+        usedBytes -= capacity;
+        freeBytes += capacity;
+    }
+
+    /**
+     * 空闲空间超过有效数据时，按注册顺序把有效记录复制到新的分段，同时去掉注册顺序表中已删除的位置；
+     * 旧分段的直接内存在缓冲区对象被回收时释放
+     */
+    private void compactIfNeeded() {
+        if (freeBytes < COMPACT_MIN_FREE_BYTES || freeBytes < usedBytes) {
+            return;
+        }
+        List<ByteBuffer> oldSegments = new ArrayList<>(segments);
+        segments.clear();
+        tail = SEGMENT_SIZE;
+        freeSlots.clear();
+        usedBytes = 0;
+        freeBytes = 0;
+
+        int live = 0;
+        for (int i = 0; i < orderCount; i++) {
+            long address = order[i];
+            if (address == DELETED) {
+                continue;
+            }
+            ByteBuffer source = oldSegments.get((int) (address >>> SEGMENT_BITS));
+            int position = positionOf(address);
+            int length = fieldPosition(source, position, STATUS) + 1 - position;
+            long moved = allocate(align(length));
+            ByteBuffer target = segmentOf(moved);
+            int targetPosition = positionOf(moved);
+            target.put(targetPosition, source, position, length);
+            target.putInt(targetPosition, align(length));
+            target.putInt(targetPosition + 4, live);
+            order[live++] = moved;
+        }
+        orderCount = live;
+        rebuildIndex(addresses.length);
+    }
+
+    private static int align(int length) {
+        return (length + ALIGNMENT - 1) & -ALIGNMENT;
+    }
+
+    private ByteBuffer segmentOf(long address) {
+        return segments.get((int) (address >>> SEGMENT_BITS));
+    }
+
+    private static int positionOf(long address) {
+        return (int) (address & (SEGMENT_SIZE - 1));
+    }
+
+    private static void putInt(byte[] bytes, int position, int value) {
+        bytes[position] = (byte) (value >>> 24);
+        bytes[position + 1] = (byte) (value >>> 16);
+        bytes[position + 2] = (byte) (value >>> 8);
+        bytes[position + 3] = (byte) value;
+    }
+
+    private static short shortAt(byte[] bytes, int position) {
+        return (short) (((bytes[position] & 0xFF) << 8) | (bytes[position + 1] & 0xFF));
+    }
+
+    /**
+     * 学号 UTF-8 字节的散列值，查找时不必解码堆外的学号
+     */
+    private static int hash(byte[] bytes, int offset, int length) {
+        int h = 1;
+        for (int i = offset; i < offset + length; i++) {
+            h = 31 * h + bytes[i];
+        }
+        return h ^ (h >>> 16);
+    }
+
+    /**
+     * @return 学号在散列表中的槽位，不存在时返回 -1
+     */
+    private int find(String studentId) {
+        byte[] id = studentId.getBytes(StandardCharsets.UTF_8);
+        return find(hash(id, 0, id.length), id, 0, id.length);
+    }
+
+    private int find(int hash, byte[] id, int offset, int length) {
+        int mask = addresses.length - 1;
+        for (int slot = hash & mask; addresses[slot] != 0; slot = (slot + 1) & mask) {
+            if (hashes[slot] == hash && idEquals(addresses[slot] - 1, id, offset, length)) {
+                return slot;
+            }
+        }
+        return -1;
+    }
+
+    private boolean idEquals(long address, byte[] id, int offset, int length) {
+        ByteBuffer segment = segmentOf(address);
+        int position = positionOf(address) + HEADER_SIZE;
+        if (Short.toUnsignedInt(segment.getShort(position)) != length) {
+            return false;
+        }
+        segment.get(position + 2, idBytes, 0, length);
+        return Arrays.equals(idBytes, 0, length, id, offset, offset + length);
+    }
+
+    private void indexPut(int hash, long address) {
+        int mask = addresses.length - 1;
+        int slot = hash & mask;
+        while (addresses[slot] != 0) {
+            slot = (slot + 1) & mask;
+        }
+        addresses[slot] = address + 1;
+        hashes[slot] = hash;
+    }
+
+    /**
+     * 线性探测下的删除：空出的槽之后同一探测链上的记录依次前移，保证查找不会提前遇到空槽
+     */
+    private void indexRemove(int slot) {
+        int mask = addresses.length - 1;
+        int hole = slot;
+        addresses[hole] = 0;
+        for (int j = (hole + 1) & mask; addresses[j] != 0; j = (j + 1) & mask) {
+            int home = hashes[j] & mask;
+            // home 不在 (hole, j] 区间内（按环形计）时，j 上的记录可以移到 hole
+            boolean movable = hole <= j ? (home <= hole || home > j) : (home <= hole && home > j);
+            if (movable) {
+                addresses[hole] = addresses[j];
+                hashes[hole] = hashes[j];
+                addresses[j] = 0;
+                hole = j;
+            }
+        }
+    }
+
+    private void rebuildIndex(int capacity) {
+        addresses = new long[capacity];
+        hashes = new int[capacity];
+        for (int i = 0; i < orderCount; i++) {
+            long address = order[i];
+            if (address == DELETED) {
+                continue;
+            }
+            int length = readId(address, idBytes);
+            indexPut(hash(idBytes, 0, length), address);
+        }
+    }
+}
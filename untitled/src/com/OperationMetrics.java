@@ -0,0 +1,86 @@
+package com;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 单个 StuService 操作的调用次数、出错次数和耗时分布，由 MetricsStuService 记录
+ */
+public final class OperationMetrics implements OperationMetricsMXBean {
+    private static final double NANOS_PER_MILLI = 1_000_000.0;
+
+    private final String operation;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final LongAdder errors = new LongAdder();
+
+    OperationMetrics(String operation) {
+        this.operation = operation;
+    }
+
+    /**
+     * 记录一次调用的耗时，出错的调用同样计入
+     */
+    void record(long nanos) {
+        latencies.record(nanos);
+    }
+
+    void recordError() {
+        errors.increment();
+    }
+
+    void reset() {
+        latencies.reset();
+        errors.reset();
+    }
+
+    @Override
+    public String getOperation() {
+        return operation;
+    }
+
+    @Override
+    public long getCount() {
+        return latencies.getCount();
+    }
+
+    @Override
+    public long getErrorCount() {
+        return errors.sum();
+    }
+
+    @Override
+    public double getMeanMillis() {
+        return latencies.getMean() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP50Millis() {
+        return latencies.getPercentile(0.50) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP90Millis() {
+        return latencies.getPercentile(0.90) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP99Millis() {
+        return latencies.getPercentile(0.99) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getP999Millis() {
+        return latencies.getPercentile(0.999) / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public double getMaxMillis() {
+        return latencies.getMax() / NANOS_PER_MILLI;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("%-16s %8d %6d %10.3f %10.3f %10.3f %10.3f %10.3f %10.3f", operation, getCount(),
+                getErrorCount(), getMeanMillis(), getP50Millis(), getP90Millis(), getP99Millis(), getP999Millis(),
+                getMaxMillis());
+    }
+}
@@ -0,0 +1,24 @@
+package com;
+
+/**
+ * 单个 StuService 操作的 JMX 接口，耗时以毫秒为单位
+ */
+public interface OperationMetricsMXBean {
+    String getOperation();
+
+    long getCount();
+
+    long getErrorCount();
+
+    double getMeanMillis();
+
+    double getP50Millis();
+
+    double getP90Millis();
+
+    double getP99Millis();
+
+    double getP999Millis();
+
+    double getMaxMillis();
+}
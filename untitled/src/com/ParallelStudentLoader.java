@@ -0,0 +1,203 @@
+package com;
+
+import java.io.IOException;
+import java.io.Serial;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.RecursiveTask;
+import java.util.function.Predicate;
+
+/**
+ * 文本数据文件并行加载器
+ * 按换行符边界把文件切成若干字节区间，在 ForkJoinPool 公共池上并行解析和验证各区间，
+ * 再由调用线程按文件顺序合并：块内行号加上前面各块的行数还原为全局行号，
+ * 学号去重统一交给 sink 判断，因此跨块的重复学号与单线程加载一样保留先出现的记录。
+ * 切块时不知道换行符是否位于带引号的字段中：某块末尾的记录跨到下一块时，从这条记录起改为单线程解析到文件末尾，
+ * 后面各块的并行结果作废；字段中没有换行的文件不受影响。
+ * 跳过规则和警告信息与 StudentDataFile.read 保持一致
+ */
+final class ParallelStudentLoader {
+    private static final long MIN_CHUNK_SIZE = 1024 * 1024; // 小于该大小的文件不拆分
+    private static final int CHUNKS_PER_THREAD = 4; // 多切几块，平衡各线程的负载
+    private static final int SCAN_BUFFER_SIZE = 8 * 1024;
+
+    private ParallelStudentLoader() {
+    }
+
+    /**
+     * @param sink 接收解析出的学生，返回 false 表示学号重复；只在调用线程上按文件顺序调用
+     * @return 被 sink 接受的记录条数
+     */
+    static int read(Path dataFilePath, Predicate<Student> sink) {
+        try (FileChannel channel = FileChannel.open(dataFilePath, StandardOpenOption.READ)) {
+            long size = channel.size();
+            long[] bounds = split(channel, ForkJoinPool.getCommonPoolParallelism());
+            List<ChunkTask> tasks = new ArrayList<>(bounds.length - 1);
+            for (int i = 0; i + 1 < bounds.length; i++) {
+                ChunkTask task = new ChunkTask(channel, bounds[i], bounds[i + 1], size);
+                task.fork();
+                tasks.add(task);
+            }
+
+            // 按顺序合并，前面的块合并时后面的块仍在解析
+            int loaded = 0;
+            int lineOffset = 0;
+            for (int i = 0; i < tasks.size(); i++) {
+                ChunkResult result = tasks.get(i).join();
+                tasks.set(i, null); // 尽早释放已合并块的中间结果
+                loaded += result.merge(sink, lineOffset);
+                lineOffset += result.lineCount;
+                if (result.resumeAt < bounds[i + 1]) {
+                    // 后面各块的起点可能落在引号内，作废后从跨块的记录起单线程解析
+                    for (int j = i + 1; j < tasks.size(); j++) {
+                        tasks.get(j).cancel(false);
+                    }
+                    ChunkResult rest = new ChunkTask(channel, result.resumeAt, size, size).compute();
+                    return loaded + rest.merge(sink, lineOffset);
+                }
+            }
+            return loaded;
+        } catch (IOException e) {
+            throw new StudentManagementException("加载学生数据失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 计算各块的起止位置，除文件末尾外每个边界都紧跟在换行符之后
+     *
+     * @return 升序的边界数组，首元素为 0，末元素为文件大小
+     */
+    private static long[] split(FileChannel channel, int parallelism) throws IOException {
+        long size = channel.size();
+        long chunkCount = Math.max(1, Math.min(size / MIN_CHUNK_SIZE, (long) parallelism * CHUNKS_PER_THREAD));
+        long chunkSize = size / chunkCount;
+
+        long[] bounds = new long[(int) chunkCount + 1];
+        int count = 1;
+        for (int i = 1; i < chunkCount; i++) {
+            long bound = nextLineStart(channel, Math.max(chunkSize * i, bounds[count - 1]), size);
+            if (bound >= size) {
+                break;
+            }
+            if (bound > bounds[count - 1]) {
+                bounds[count++] = bound;
+            }
+        }
+        bounds[count++] = size;
+        return Arrays.copyOf(bounds, count);
+    }
+
+    /**
+     * @return position 处或之后第一个换行符的下一个位置，找不到时返回文件大小
+     */
+    private static long nextLineStart(FileChannel channel, long position, long size) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(SCAN_BUFFER_SIZE);
+        while (position < size) {
+            buffer.clear();
+            int read = channel.read(buffer, position);
+            if (read <= 0) {
+                break;
+            }
+            for (int i = 0; i < read; i++) {
+                if (buffer.get(i) == '\n') {
+                    return position + i + 1;
+                }
+            }
+            position += read;
+        }
+        return size;
+    }
+
+    /**
+     * 解析一个字节区间，只收集结果，不触碰共享状态
+     */
+    private static final class ChunkTask extends RecursiveTask<ChunkResult> {
+        @Serial
+        private static final long serialVersionUID = 1L;
+
+        private final FileChannel channel;
+        private final long start;
+        private final long end;
+        private final long size;
+
+        private ChunkTask(FileChannel channel, long start, long end, long size) {
+            this.channel = channel;
+            this.start = start;
+            this.end = end;
+            this.size = size;
+        }
+
+        @Override
+        protected ChunkResult compute() {
+            ChunkResult result = new ChunkResult();
+            MappedStudentLoader.LineParser parser = new MappedStudentLoader.LineParser(result, start == 0);
+            try {
+                result.resumeAt = MappedStudentLoader.parseRange(channel, start, end, parser, end == size);
+            } catch (IOException e) {
+                throw new StudentManagementException("加载学生数据失败: " + e.getMessage(), e);
+            }
+            result.lineCount = parser.getLineNumber();
+            return result;
+        }
+    }
+
+    /**
+     * 一个块的解析结果，学生和跳过的行各自按块内行号升序排列
+     */
+    private static final class ChunkResult implements MappedStudentLoader.LineHandler {
+        private final List<Student> students = new ArrayList<>();
+        private int[] studentLines = new int[256];
+        private final List<String> skippedReasons = new ArrayList<>();
+        private int[] skippedLines = new int[16];
+        private int lineCount;
+        private long resumeAt; // 解析到的位置，小于块的终点说明末尾的记录跨到了下一块
+
+        @Override
+        public void onStudent(int lineNumber, Student student) {
+            if (students.size() == studentLines.length) {
+                studentLines = Arrays.copyOf(studentLines, studentLines.length * 2);
+            }
+            studentLines[students.size()] = lineNumber;
+            students.add(student);
+        }
+
+        @Override
+        public void onSkipped(int lineNumber, String reason) {
+            if (skippedReasons.size() == skippedLines.length) {
+                skippedLines = Arrays.copyOf(skippedLines, skippedLines.length * 2);
+            }
+            skippedLines[skippedReasons.size()] = lineNumber;
+            skippedReasons.add(reason);
+        }
+
+        /**
+         * 按行号顺序把学生交给 sink、输出警告，使输出顺序与单线程加载相同
+         *
+         * @return 被 sink 接受的记录条数
+         */
+        private int merge(Predicate<Student> sink, int lineOffset) {
+            int loaded = 0;
+            int skipped = 0;
+            for (int i = 0; i < students.size(); i++) {
+                while (skipped < skippedReasons.size() && skippedLines[skipped] < studentLines[i]) {
+                    MappedStudentLoader.warn(lineOffset + skippedLines[skipped], skippedReasons.get(skipped));
+                    skipped++;
+                }
+                if (MappedStudentLoader.accept(sink, lineOffset + studentLines[i], students.get(i))) {
+                    loaded++;
+                }
+            }
+            for (; skipped < skippedReasons.size(); skipped++) {
+                MappedStudentLoader.warn(lineOffset + skippedLines[skipped], skippedReasons.get(skipped));
+            }
+            return loaded;
+        }
+    }
+}
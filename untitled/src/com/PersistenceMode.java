@@ -0,0 +1,27 @@
+package com;
+
+/**
+ * 持久化模式枚举
+ */
+public enum PersistenceMode {
+    SNAPSHOT("快照", "每次修改都整体重写数据文件"),
+    JOURNAL("日志", "修改追加到预写日志，检查点时才重写数据文件"),
+    ASYNC("异步日志", "修改由后台线程在时间窗口内合并写入日志，每批只刷盘一次"),
+    SEGMENTED("增量段", "修改追加到预写日志，检查点只把变化的学生写成增量段，后台定期合并进数据文件");
+
+    private final String label;
+    private final String description;
+
+    PersistenceMode(String label, String description) {
+        this.label = label;
+        this.description = description;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
@@ -0,0 +1,229 @@
+package com;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+/**
+ * 组合查询条件：字段条件、年龄范围及其 AND / OR 组合
+ * 每个条件既能逐条判断学生是否满足，也能借助索引给出候选学号集合，供查询规划选择访问路径
+ */
+public abstract class QueryCondition {
+
+    /**
+     * 查询规划时访问索引的入口，由支持索引的 StuService 实现提供
+     */
+    interface IndexLookup {
+        /**
+         * @return 候选学号集合；该字段、匹配方式下没有可用索引时返回 null
+         */
+        Set<String> candidates(String keyword, QueryType type, MatchMode mode);
+
+        /**
+         * @return 年龄在 [min, max] 内的候选学号集合；没有年龄索引时返回 null
+         */
+        Set<String> ageCandidates(int min, int max);
+    }
+
+    QueryCondition() {
+    }
+
+    public abstract boolean test(Student student);
+
+    /**
+     * 返回满足条件的学号的超集，调用方仍需用 test 复核，且不得修改返回的集合
+     *
+     * @return 候选学号集合；无法利用索引时返回 null，表示需要全表扫描
+     */
+    abstract Set<String> candidates(IndexLookup indexes);
+
+    public static QueryCondition field(QueryType field, MatchMode mode, String keyword) {
+        if (field == null || mode == null || keyword == null) {
+            throw new StudentManagementException("查询字段、匹配方式和关键词不能为空");
+        }
+        return new FieldCondition(field, mode, keyword);
+    }
+
+    public static QueryCondition equalTo(QueryType field, String value) {
+        return field(field, MatchMode.EXACT, value);
+    }
+
+    public static QueryCondition gender(String gender) {
+        return equalTo(QueryType.GENDER, gender);
+    }
+
+    public static QueryCondition status(StudentStatus status) {
+        return equalTo(QueryType.STATUS, status.getValue());
+    }
+
+    /**
+     * 年龄在 [min, max] 之间（含两端）
+     */
+    public static QueryCondition ageBetween(int min, int max) {
+        return new AgeRange(min, max);
+    }
+
+    public static QueryCondition and(QueryCondition... conditions) {
+        return new And(toList(conditions));
+    }
+
+    public static QueryCondition or(QueryCondition... conditions) {
+        return new Or(toList(conditions));
+    }
+
+    public QueryCondition and(QueryCondition other) {
+        return and(this, other);
+    }
+
+    public QueryCondition or(QueryCondition other) {
+        return or(this, other);
+    }
+
+    private static List<QueryCondition> toList(QueryCondition[] conditions) {
+        if (conditions.length == 0 || Arrays.stream(conditions).anyMatch(condition -> condition == null)) {
+            throw new StudentManagementException("组合条件不能为空");
+        }
+        return List.of(conditions);
+    }
+
+    private static final class FieldCondition extends QueryCondition {
+        private final QueryType field;
+        private final MatchMode mode;
+        private final String keyword;
+
+        private FieldCondition(QueryType field, MatchMode mode, String keyword) {
+            this.field = field;
+            this.mode = mode;
+            this.keyword = keyword;
+        }
+
+        @Override
+        public boolean test(Student student) {
+            return field.matches(student, keyword, mode);
+        }
+
+        @Override
+        Set<String> candidates(IndexLookup indexes) {
+            return indexes.candidates(keyword, field, mode);
+        }
+
+        @Override
+        public String toString() {
+            return field.getLabel() + " " + mode.getLabel() + " '" + keyword + "'";
+        }
+    }
+
+    private static final class AgeRange extends QueryCondition {
+        private final int min;
+        private final int max;
+
+        private AgeRange(int min, int max) {
+            this.min = min;
+            this.max = max;
+        }
+
+        @Override
+        public boolean test(Student student) {
+            return student.getAge() >= min && student.getAge() <= max;
+        }
+
+        @Override
+        Set<String> candidates(IndexLookup indexes) {
+            return indexes.ageCandidates(min, max);
+        }
+
+        @Override
+        public String toString() {
+            return "年龄 " + min + "~" + max;
+        }
+    }
+
+    /**
+     * 任一子条件的候选集都是结果的超集，取其中最小的一个
+     */
+    private static final class And extends QueryCondition {
+        private final List<QueryCondition> conditions;
+
+        private And(List<QueryCondition> conditions) {
+            this.conditions = conditions;
+        }
+
+        @Override
+        public boolean test(Student student) {
+            for (QueryCondition condition : conditions) {
+                if (!condition.test(student)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        @Override
+        Set<String> candidates(IndexLookup indexes) {
+            Set<String> smallest = null;
+            for (QueryCondition condition : conditions) {
+                Set<String> found = condition.candidates(indexes);
+                if (found != null && (smallest == null || found.size() < smallest.size())) {
+                    smallest = found;
+                }
+            }
+            return smallest;
+        }
+
+        @Override
+        public String toString() {
+            return conditions.stream().map(Object::toString).collect(Collectors.joining(" 且 ", "(", ")"));
+        }
+    }
+
+    /**
+     * 只有每个子条件都能利用索引时才能合并候选集，否则只能全表扫描
+     */
+    private static final class Or extends QueryCondition {
+        private final List<QueryCondition> conditions;
+
+        private Or(List<QueryCondition> conditions) {
+            this.conditions = conditions;
+        }
+
+        @Override
+        public boolean test(Student student) {
+            for (QueryCondition condition : conditions) {
+                if (condition.test(student)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        Set<String> candidates(IndexLookup indexes) {
+            Set<String> union = null;
+            boolean copied = false;
+            for (QueryCondition condition : conditions) {
+                Set<String> found = condition.candidates(indexes);
+                if (found == null) {
+                    return null;
+                }
+                if (union == null) {
+                    union = found;
+                } else {
+                    if (!copied) {
+                        // 第一个子条件的集合可能是索引内部的集合，合并前先复制
+                        union = new HashSet<>(union);
+                        copied = true;
+                    }
+                    union.addAll(found);
+                }
+            }
+            return union;
+        }
+
+        @Override
+        public String toString() {
+            return conditions.stream().map(Object::toString).collect(Collectors.joining(" 或 ", "(", ")"));
+        }
+    }
+}
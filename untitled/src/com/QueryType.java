@@ -1,21 +1,37 @@
 package com;
 
+import java.util.Comparator;
+import java.util.function.Function;
+
 /**
  * 查询类型枚举
  */
 public enum QueryType {
-    STUDENT_ID("学号", "按学号查询", Student::getStudentId),
-    NAME("姓名", "按姓名查询", Student::getName),
-    STATUS("学籍状态", "按学籍状态查询", student -> student.getStatus().getValue()),
-    DEPARTMENT("系别", "按系别查询", Student::getDepartment),
-    CLASS("班级", "按班级查询", Student::getClassName);
+    // 学号的精确匹配直接走主键索引，无需声明二级索引
+    STUDENT_ID("学号", "按学号查询", Student::getStudentId, null),
+    NAME("姓名", "按姓名查询", Student::getName, null),
+    STATUS("学籍状态", "按学籍状态查询", student -> student.getStatus().getValue(), type -> new StatusIndex()),
+    DEPARTMENT("系别", "按系别查询", Student::getDepartment, ValueIndex::new),
+    CLASS("班级", "按班级查询", Student::getClassName, ValueIndex::new),
+    GENDER("性别", "按性别查询", Student::getGender, null),
+    AGE("年龄", "按年龄查询", student -> String.valueOf(student.getAge()), type -> new AgeIndex()) {
+        @Override
+        public Comparator<Student> comparator() {
+            return Comparator.comparingInt(Student::getAge);
+        }
+    },
+    NATIVE_PLACE("籍贯", "按籍贯查询", Student::getNativePlace, null),
+    MAJOR("专业", "按专业查询", Student::getMajor, ValueIndex::new);
 
     private final String label;
     private final StudentFieldGetter fieldGetter;
+    private final Function<QueryType, SecondaryIndex> exactIndexFactory;
 
-    QueryType(String label, String ignoredDescription, StudentFieldGetter fieldGetter) {
+    QueryType(String label, String ignoredDescription, StudentFieldGetter fieldGetter,
+              Function<QueryType, SecondaryIndex> exactIndexFactory) {
         this.label = label;
         this.fieldGetter = fieldGetter;
+        this.exactIndexFactory = exactIndexFactory;
     }
 
     public String getLabel() {
@@ -25,12 +41,32 @@ public enum QueryType {
         return fieldGetter.getField(student);
     }
 
+    /**
+     * 创建该字段声明的精确匹配索引
+     *
+     * @return 索引实例；未声明索引的字段返回 null
+     */
+    SecondaryIndex createExactIndex() {
+        return exactIndexFactory == null ? null : exactIndexFactory.apply(this);
+    }
+
+    /**
+     * 排序时使用的比较器，默认按字段的字符串值比较
+     */
+    public Comparator<Student> comparator() {
+        return Comparator.comparing(this::getFieldValue);
+    }
+
     public boolean matches(Student student, String keyword) {
-        if (keyword == null || student == null) {
+        return matches(student, keyword, MatchMode.CONTAINS);
+    }
+
+    public boolean matches(Student student, String keyword, MatchMode mode) {
+        if (keyword == null || student == null || mode == null) {
             return false;
         }
         String fieldValue = getFieldValue(student);
-        return fieldValue != null && fieldValue.contains(keyword);
+        return fieldValue != null && mode.test(fieldValue, keyword);
     }
 
     public static QueryType fromMenuChoice(int choice) {
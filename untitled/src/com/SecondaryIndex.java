@@ -0,0 +1,21 @@
+package com;
+
+import java.util.Set;
+
+/**
+ * 查询字段上的二级索引，随学生集合的每次修改增量维护
+ */
+interface SecondaryIndex {
+    void add(Student student);
+
+    void remove(Student student);
+
+    void clear();
+
+    /**
+     * 返回可能满足条件的学号集合，必须是真实结果的超集，调用方负责最终复核且不得修改返回的集合
+     *
+     * @return 候选学号集合；该匹配方式下无法利用索引时返回 null
+     */
+    Set<String> candidates(String keyword, MatchMode mode);
+}
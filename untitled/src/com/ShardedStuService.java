@@ -0,0 +1,1024 @@
+package com;
+
+import java.io.IOException;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 分片的学生学籍服务
+ * 学生按系别（每个系别一个分片）或学号哈希（固定个数的分片）分布到多个分片，每个分片是一个独立的 StuService，
+ * 在数据目录的 shards/分片名 子目录下有自己的数据文件和日志；打开、加载和保存时各分片并行执行。
+ * 按系别分片时系别条件只访问匹配的分片，两种方式下按学号精确查询都只访问一个分片，其他查询依次访问各分片。
+ * 按系别分片时维护学号到分片的映射，保证学号在各分片间唯一；修改了系别的学生先在新分片注册再从原分片删除，
+ * 两步之间崩溃时由 StudentMoveLog 在打开时补完。数据目录中已有未分片的数据文件时，首次打开自动导入各分片。
+ * 本类按学号分段加锁，同一学号的修改串行化，分片实现为 ConcurrentStuServiceImpl 时可多线程并发使用。
+ * 跨分片的查询结果依次拼接各分片（按分片名排序）的结果，分片内保持注册顺序；分页结果仍按学号全局有序
+ */
+public class ShardedStuService implements StuService {
+    private static final int STRIPE_COUNT = 64;
+    private static final String SHARDS_DIR = "shards";
+    private static final String MANIFEST_FILE = "shards.manifest";
+    private static final String MOVE_LOG_FILE = "moves.log";
+    private static final String DEPARTMENT_PREFIX = "dept-";
+    private static final String HASH_PREFIX = "hash-";
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final StuServiceOptions options;
+    private final ShardingStrategy strategy;
+    private final int shardCount; // 仅按学号哈希分片时使用
+    private final Function<StuServiceOptions, StuService> shardFactory;
+    private final Path shardsDir;
+    private final StudentMoveLog moveLog;
+    // 分片键（系别或哈希桶编号）-> 分片；按系别分片时，新系别的第一个学生注册时创建分片
+    private final ConcurrentNavigableMap<String, Shard> shards = new ConcurrentSkipListMap<>();
+    // 学号 -> 所在分片，仅按系别分片时维护
+    private final Map<String, Shard> locations = new ConcurrentHashMap<>();
+    private final List<StudentUndoListener> undoListeners = new CopyOnWriteArrayList<>();
+    private final Lock[] stripes = new Lock[STRIPE_COUNT];
+    private final ExecutorService io = Executors.newCachedThreadPool(task -> {
+        Thread thread = new Thread(task, "student-shard-io-" + THREAD_COUNT.incrementAndGet());
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final QueryCondition.IndexLookup shardLookup = new ShardLookup();
+
+    private static final class Shard {
+        private final String key;
+        private final String name;
+        private final StuService service;
+
+        private Shard(String key, String name, StuService service) {
+            this.key = key;
+            this.name = name;
+            this.service = service;
+        }
+    }
+
+    /**
+     * 批量操作中落到同一分片的部分
+     */
+    private static final class Group<T> {
+        private final Shard shard;
+        private final List<Integer> positions = new ArrayList<>();
+        private final List<T> items = new ArrayList<>();
+        private BatchResult result;
+
+        private Group(Shard shard) {
+            this.shard = shard;
+        }
+    }
+
+    /**
+     * 批量操作中失败的一条，汇总后按位置排序写入 BatchResult
+     */
+    private static final class Failed {
+        private final int position;
+        private final String studentId;
+        private final String message;
+
+        private Failed(int position, String studentId, String message) {
+            this.position = position;
+            this.studentId = studentId;
+            this.message = message;
+        }
+    }
+
+    /**
+     * 按系别分片
+     *
+     * @param shardFactory 用各分片的配置（数据目录为分片子目录，其余同 options）创建分片
+     */
+    public static ShardedStuService byDepartment(StuServiceOptions options,
+                                                 Function<StuServiceOptions, StuService> shardFactory) {
+        return new ShardedStuService(options, ShardingStrategy.DEPARTMENT, 0, shardFactory);
+    }
+
+    /**
+     * 按学号哈希分片；分片个数写入数据目录，之后打开时必须相同
+     */
+    public static ShardedStuService byStudentIdHash(StuServiceOptions options, int shardCount,
+                                                    Function<StuServiceOptions, StuService> shardFactory) {
+        if (shardCount < 1) {
+            throw new StudentManagementException("分片个数必须大于0");
+        }
+        return new ShardedStuService(options, ShardingStrategy.STUDENT_ID_HASH, shardCount, shardFactory);
+    }
+
+    private ShardedStuService(StuServiceOptions options, ShardingStrategy strategy, int shardCount,
+                              Function<StuServiceOptions, StuService> shardFactory) {
+        if (shardFactory == null) {
+            throw new StudentManagementException("分片实现不能为空");
+        }
+        this.options = options;
+        this.strategy = strategy;
+        this.shardCount = shardCount;
+        this.shardFactory = shardFactory;
+        this.shardsDir = options.getDataDir().resolve(SHARDS_DIR);
+        this.moveLog = new StudentMoveLog(shardsDir.resolve(MOVE_LOG_FILE), options.getSyncPolicy());
+        for (int i = 0; i < STRIPE_COUNT; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+        try {
+            Files.createDirectories(shardsDir);
+        } catch (IOException e) {
+            throw new StudentManagementException("无法创建数据目录: " + e.getMessage());
+        }
+
+        Path manifestPath = shardsDir.resolve(MANIFEST_FILE);
+        boolean created = !Files.exists(manifestPath);
+        if (!created) {
+            checkManifest(manifestPath);
+        }
+        List<String> keys = new ArrayList<>();
+        if (strategy == ShardingStrategy.DEPARTMENT) {
+            keys.addAll(existingDepartments());
+        } else {
+            for (int i = 0; i < shardCount; i++) {
+                keys.add(hashKey(i));
+            }
+        }
+        inParallel(keys, this::shardName, "打开", key -> shards.put(key, openShard(key)));
+        recoverMoves();
+        indexLocations();
+        if (created) {
+            importUnsharded();
+            writeManifest(manifestPath);
+        }
+    }
+
+    @Override
+    public void addStudent(Student student) {
+        checkStudent(student);
+        String studentId = student.getStudentId();
+        lock(studentId, studentId);
+        try {
+            checkAbsent(studentId);
+            Shard shard = shardFor(student);
+            shard.service.addStudent(student);
+            relocate(null, studentId, shard);
+        } finally {
+            unlock(studentId, studentId);
+        }
+    }
+
+    @Override
+    public void updateStudent(String studentId, Student student) {
+        checkUpdate(studentId, student);
+        String newStudentId = student.getStudentId();
+        lock(studentId, newStudentId);
+        try {
+            Shard source = checkMovable(studentId, student);
+            Shard target = shardFor(student);
+            if (source != target) {
+                move(source, target, studentId, student);
+                return;
+            }
+            source.service.updateStudent(studentId, student);
+            relocate(studentId, newStudentId, target);
+        } finally {
+            unlock(studentId, newStudentId);
+        }
+    }
+
+    @Override
+    public void deleteStudent(String studentId) {
+        checkStudentId(studentId);
+        lock(studentId, studentId);
+        try {
+            Shard shard = checkPresent(studentId);
+            shard.service.deleteStudent(studentId);
+            relocate(studentId, null, shard);
+        } finally {
+            unlock(studentId, studentId);
+        }
+    }
+
+    /**
+     * 返回所在分片的 Future；分片撤销落盘失败的增删改时通过撤销监听器恢复学号映射（见 onShardUndone）
+     */
+    @Override
+    public CompletableFuture<Void> addStudentAsync(Student student) {
+        checkStudent(student);
+        String studentId = student.getStudentId();
+        lock(studentId, studentId);
+        try {
+            checkAbsent(studentId);
+            Shard shard = shardFor(student);
+            CompletableFuture<Void> durable = shard.service.addStudentAsync(student);
+            relocate(null, studentId, shard);
+            return durable;
+        } finally {
+            unlock(studentId, studentId);
+        }
+    }
+
+    /**
+     * 在分片间移动的修改同步完成，返回已完成的 Future
+     */
+    @Override
+    public CompletableFuture<Void> updateStudentAsync(String studentId, Student student) {
+        checkUpdate(studentId, student);
+        String newStudentId = student.getStudentId();
+        lock(studentId, newStudentId);
+        try {
+            Shard source = checkMovable(studentId, student);
+            Shard target = shardFor(student);
+            if (source != target) {
+                move(source, target, studentId, student);
+                return CompletableFuture.completedFuture(null);
+            }
+            CompletableFuture<Void> durable = source.service.updateStudentAsync(studentId, student);
+            relocate(studentId, newStudentId, target);
+            return durable;
+        } finally {
+            unlock(studentId, newStudentId);
+        }
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteStudentAsync(String studentId) {
+        checkStudentId(studentId);
+        lock(studentId, studentId);
+        try {
+            Shard shard = checkPresent(studentId);
+            CompletableFuture<Void> durable = shard.service.deleteStudentAsync(studentId);
+            relocate(studentId, null, shard);
+            return durable;
+        } finally {
+            unlock(studentId, studentId);
+        }
+    }
+
+    /**
+     * 整批检查学号唯一后按分片拆分，各分片的部分并行注册；结果中的序号仍是在整批中的位置
+     */
+    @Override
+    public BatchResult addStudents(Collection<Student> students) {
+        List<Failed> failures = new ArrayList<>();
+        Map<Shard, Group<Student>> groups = new LinkedHashMap<>();
+        lockAll();
+        try {
+            Set<String> seen = new HashSet<>();
+            int position = 0;
+            for (Student student : students) {
+                position++;
+                if (student == null) {
+                    failures.add(new Failed(position, null, "学生信息不能为空"));
+                } else if (!seen.add(student.getStudentId()) || locate(student.getStudentId()) != null) {
+                    failures.add(new Failed(position, student.getStudentId(),
+                            "学号 [" + student.getStudentId() + "] 已存在"));
+                } else {
+                    Group<Student> group = groups.computeIfAbsent(shardFor(student), Group::new);
+                    group.positions.add(position);
+                    group.items.add(student);
+                }
+            }
+            try {
+                inParallel(groups.values(), group -> group.shard.name, "批量注册",
+                        group -> group.result = group.shard.service.addStudents(group.items));
+            } finally {
+                // 部分分片失败时，已成功的分片仍要登记学号
+                for (Group<Student> group : groups.values()) {
+                    forEachSucceeded(group, student -> relocate(null, student.getStudentId(), group.shard));
+                }
+            }
+        } finally {
+            unlockAll();
+        }
+        return merge(failures, groups.values());
+    }
+
+    /**
+     * 批内后面的修改依赖前面修改的结果，且可能在分片间移动，逐条执行；整批期间阻塞其他修改
+     */
+    @Override
+    public BatchResult updateStudents(Map<String, Student> updates) {
+        lockAll();
+        try {
+            return StuService.super.updateStudents(updates);
+        } finally {
+            unlockAll();
+        }
+    }
+
+    @Override
+    public BatchResult deleteStudents(Collection<String> studentIds) {
+        List<Failed> failures = new ArrayList<>();
+        Map<Shard, Group<String>> groups = new LinkedHashMap<>();
+        lockAll();
+        try {
+            Set<String> seen = new HashSet<>();
+            int position = 0;
+            for (String studentId : studentIds) {
+                position++;
+                Shard shard = studentId == null || studentId.trim().isEmpty() ? null : locate(studentId);
+                if (studentId == null || studentId.trim().isEmpty()) {
+                    failures.add(new Failed(position, studentId, "学号不能为空"));
+                } else if (shard == null || !seen.add(studentId)) {
+                    failures.add(new Failed(position, studentId, "未找到学号为 [" + studentId + "] 的学生"));
+                } else {
+                    Group<String> group = groups.computeIfAbsent(shard, Group::new);
+                    group.positions.add(position);
+                    group.items.add(studentId);
+                }
+            }
+            try {
+                inParallel(groups.values(), group -> group.shard.name, "批量删除",
+                        group -> group.result = group.shard.service.deleteStudents(group.items));
+            } finally {
+                for (Group<String> group : groups.values()) {
+                    forEachSucceeded(group, studentId -> relocate(studentId, null, group.shard));
+                }
+            }
+        } finally {
+            unlockAll();
+        }
+        return merge(failures, groups.values());
+    }
+
+    @Override
+    public Optional<Student> findById(String studentId) {
+        if (studentId == null) {
+            return Optional.empty();
+        }
+        String trimmed = studentId.trim();
+        Shard shard = strategy == ShardingStrategy.DEPARTMENT ? locations.get(trimmed) : shards.get(hashKey(trimmed));
+        return shard == null ? Optional.empty() : shard.service.findById(trimmed);
+    }
+
+    @Override
+    public List<Student> queryStudents(String keyword, QueryType type, MatchMode mode) {
+        List<Student> results = streamStudents(keyword, type, mode).collect(Collectors.toList());
+
+        if (results.isEmpty()) {
+            System.out.println("未找到匹配的学生记录");
+        }
+
+        return results;
+    }
+
+    /**
+     * 条件中的系别或学号条件决定访问哪些分片；各分片按同一查询取出结果后再统一排序、截取
+     */
+    @Override
+    public List<Student> query(StudentQuery query) {
+        Set<String> keys = query.getCondition() == null ? null : query.getCondition().candidates(shardLookup);
+        return query.execute(select(keys).stream().flatMap(shard -> shard.service.query(query).stream()));
+    }
+
+    @Override
+    public Stream<Student> streamStudents(String keyword, QueryType type, MatchMode mode) {
+        checkQuery(keyword, type, mode);
+        return select(shardLookup.candidates(keyword, type, mode)).stream()
+                .flatMap(shard -> shard.service.streamStudents(keyword, type, mode));
+    }
+
+    /**
+     * 各分片各取一页，按学号归并后取前 pageSize 条
+     */
+    @Override
+    public StudentPage queryPage(String keyword, QueryType type, MatchMode mode, String afterStudentId, int pageSize) {
+        checkQuery(keyword, type, mode);
+        StudentPage.checkPageSize(pageSize);
+        return mergePages(select(shardLookup.candidates(keyword, type, mode)),
+                shard -> shard.service.queryPage(keyword, type, mode, afterStudentId, pageSize), pageSize);
+    }
+
+    @Override
+    public StudentPage listStudents(String afterStudentId, int pageSize) {
+        StudentPage.checkPageSize(pageSize);
+        return mergePages(shards.values(), shard -> shard.service.listStudents(afterStudentId, pageSize), pageSize);
+    }
+
+    @Override
+    public Map<String, Long> countBy(QueryType field) {
+        StudentStatistics.checkField(field);
+        return StudentStatistics.merge(field, shards.values().stream()
+                .map(shard -> shard.service.countBy(field))
+                .collect(Collectors.toList()));
+    }
+
+    @Override
+    public Map<String, Map<String, Long>> countBy(QueryType field, QueryType subField) {
+        StudentStatistics.checkFields(field, subField);
+        return StudentStatistics.merge(field, subField, shards.values().stream()
+                .map(shard -> shard.service.countBy(field, subField))
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * 锁住全部分段后依次获取各分片的快照，期间没有进行中的修改，各分片的快照属于同一时间点；
+     * 分片本身创建快照不拷贝数据时，阻塞修改的时间只与分片数有关
+     */
+    @Override
+    public StudentSnapshot snapshot() {
+        List<StudentSnapshot> parts = new ArrayList<>(shards.size());
+        lockAll();
+        try {
+            for (Shard shard : shards.values()) {
+                parts.add(shard.service.snapshot());
+            }
+        } catch (RuntimeException e) {
+            parts.forEach(StudentSnapshot::close);
+            throw e;
+        } finally {
+            unlockAll();
+        }
+        return new StudentSnapshot() {
+            @Override
+            public Stream<Student> stream() {
+                return parts.stream().flatMap(StudentSnapshot::stream);
+            }
+
+            @Override
+            public void close() {
+                parts.forEach(StudentSnapshot::close);
+            }
+        };
+    }
+
+    /**
+     * 各分片撤销修改时都会通知，包括之后新建的分片
+     */
+    @Override
+    public void addUndoListener(StudentUndoListener listener) {
+        undoListeners.add(listener);
+    }
+
+    /**
+     * 各分片并行保存；全部成功后，保存开始前的分片移动都已落盘，丢弃对应的移动日志
+     */
+    @Override
+    public void saveToFile() {
+        long mark;
+        lockAll();
+        try {
+            mark = moveLog.mark();
+        } finally {
+            unlockAll();
+        }
+        inParallel(shards.values(), shard -> shard.name, "保存", shard -> shard.service.saveToFile());
+        moveLog.discardBefore(mark);
+    }
+
+    /**
+     * 各分片并行重新加载，加载期间阻塞修改
+     */
+    @Override
+    public void loadFromFile() {
+        lockAll();
+        try {
+            inParallel(shards.values(), shard -> shard.name, "加载", shard -> shard.service.loadFromFile());
+            recoverMoves();
+            indexLocations();
+        } finally {
+            unlockAll();
+        }
+    }
+
+    /**
+     * 关闭全部分片和并行执行用的线程池，不保存数据
+     */
+    @Override
+    public void close() {
+        lockAll();
+        try {
+            inParallel(shards.values(), shard -> shard.name, "关闭", shard -> shard.service.close());
+        } finally {
+            unlockAll();
+            io.shutdown();
+        }
+    }
+
+    /**
+     * 依次输出各分片，不锁分段也不创建快照，与各分片的查询一样是弱一致性遍历
+     */
+    @Override
+    public void OutDate() {
+        boolean[] printed = {false};
+        for (Shard shard : shards.values()) {
+            shard.service.streamStudents("", QueryType.STUDENT_ID, MatchMode.CONTAINS).forEach(student -> {
+                System.out.println(student);
+                printed[0] = true;
+            });
+        }
+        if (!printed[0]) {
+            System.out.println("没有学生记录");
+        }
+    }
+
+    /**
+     * 先在目标分片注册并等待落盘，再从原分片删除；移动日志先于两步写入，崩溃后据此补做删除
+     */
+    private void move(Shard source, Shard target, String studentId, Student student) {
+        Student before = source.service.findById(studentId)
+                .orElseThrow(() -> new StudentManagementException("未找到学号为 [" + studentId + "] 的学生"));
+        moveLog.append(before, student);
+        await(target.service.addStudentAsync(student));
+        try {
+            await(source.service.deleteStudentAsync(studentId));
+        } catch (RuntimeException e) {
+            // 撤销后目标分片没有新记录，打开时不会按移动日志补做删除
+            try {
+                target.service.deleteStudent(student.getStudentId());
+            } catch (RuntimeException undo) {
+                e.addSuppressed(undo);
+            }
+            throw e;
+        }
+        relocate(studentId, student.getStudentId(), target);
+        System.out.println("学生[" + studentId + "] 已从分片 [" + source.name + "] 移动到分片 [" + target.name + "]");
+    }
+
+    /**
+     * 补完崩溃时进行到一半的移动：目标分片已有新记录、原分片仍有与日志相同的旧记录时删除旧记录。
+     * 从最新的日志往前处理，学号已被较新的移动涉及时跳过较旧的记录；处理后保存全部分片并清空移动日志
+     */
+    private void recoverMoves() {
+        List<StudentMoveLog.Move> moves = moveLog.read();
+        if (moves.isEmpty()) {
+            return;
+        }
+        Set<String> decided = new HashSet<>();
+        int repaired = 0;
+        for (int i = moves.size() - 1; i >= 0; i--) {
+            Student before = moves.get(i).getBefore();
+            Student after = moves.get(i).getAfter();
+            boolean latest = !decided.contains(before.getStudentId()) && !decided.contains(after.getStudentId());
+            decided.add(before.getStudentId());
+            decided.add(after.getStudentId());
+            Shard source = shards.get(shardKey(before));
+            Shard target = shards.get(shardKey(after));
+            if (!latest || source == null || target == null || source == target) {
+                continue;
+            }
+            Student left = source.service.findById(before.getStudentId()).orElse(null);
+            if (left != null && target.service.findById(after.getStudentId()).isPresent()
+                    && StudentCsv.format(left).equals(StudentCsv.format(before))) {
+                source.service.deleteStudent(before.getStudentId());
+                repaired++;
+            }
+        }
+        if (repaired > 0) {
+            System.out.println("已补完" + repaired + "次中断的分片间移动");
+        }
+        long mark = moveLog.mark();
+        inParallel(shards.values(), shard -> shard.name, "保存", shard -> shard.service.saveToFile());
+        moveLog.discardBefore(mark);
+    }
+
+    private void indexLocations() {
+        if (strategy != ShardingStrategy.DEPARTMENT) {
+            return;
+        }
+        locations.clear();
+        inParallel(shards.values(), shard -> shard.name, "建立学号映射", shard ->
+                shard.service.streamStudents("", QueryType.STUDENT_ID, MatchMode.CONTAINS).forEach(student -> {
+                    Shard existing = locations.putIfAbsent(student.getStudentId(), shard);
+                    if (existing != null) {
+                        System.err.println("警告：学号 [" + student.getStudentId() + "] 同时存在于分片 ["
+                                + existing.name + "] 和 [" + shard.name + "]，只访问前者");
+                    }
+                }));
+    }
+
+    /**
+     * 首次打开时，把数据目录中未分片的数据（数据文件及其日志）导入各分片，原文件保留不动
+     */
+    private void importUnsharded() {
+        if (!Files.exists(options.getDataFilePath()) && !Files.exists(options.getCsvFilePath())
+                && !Files.exists(options.getJournalFilePath())) {
+            return;
+        }
+        // 只用于读出未分片的数据，读完即关闭，释放其日志文件和后台线程
+        List<Student> students;
+        StuService unsharded = shardFactory.apply(options);
+        try {
+            students = unsharded.streamStudents("", QueryType.STUDENT_ID, MatchMode.CONTAINS)
+                    .collect(Collectors.toList());
+        } finally {
+            unsharded.close();
+        }
+        if (students.isEmpty()) {
+            return;
+        }
+        BatchResult result = addStudents(students);
+        saveToFile();
+        System.out.println("已将未分片的" + result.getSucceeded() + "条学生记录导入" + shards.size() + "个分片，原数据文件保留");
+    }
+
+    private void checkManifest(Path manifestPath) {
+        Map<String, String> manifest = new HashMap<>();
+        try {
+            for (String line : Files.readAllLines(manifestPath, StandardCharsets.UTF_8)) {
+                int separator = line.indexOf('=');
+                if (separator > 0) {
+                    manifest.put(line.substring(0, separator).trim(), line.substring(separator + 1).trim());
+                }
+            }
+        } catch (IOException e) {
+            throw new StudentManagementException("读取分片清单失败: " + e.getMessage(), e);
+        }
+        String expectedCount = String.valueOf(shardCount);
+        if (!strategy.name().equals(manifest.get("strategy"))
+                || strategy == ShardingStrategy.STUDENT_ID_HASH && !expectedCount.equals(manifest.get("shardCount"))) {
+            throw new StudentManagementException("数据目录 [" + shardsDir + "] 的分片方式为 " + manifest.get("strategy")
+                    + (manifest.containsKey("shardCount") ? "（" + manifest.get("shardCount") + " 个分片）" : "")
+                    + "，与当前配置的" + strategy.getLabel()
+                    + (strategy == ShardingStrategy.STUDENT_ID_HASH ? "（" + shardCount + " 个分片）" : "") + "不符");
+        }
+    }
+
+    private void writeManifest(Path manifestPath) {
+        StringBuilder content = new StringBuilder("strategy=").append(strategy.name()).append('\n');
+        if (strategy == ShardingStrategy.STUDENT_ID_HASH) {
+            content.append("shardCount=").append(shardCount).append('\n');
+        }
+        try {
+            Files.write(manifestPath, content.toString().getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new StudentManagementException("写入分片清单失败: " + e.getMessage(), e);
+        }
+    }
+
+    private List<String> existingDepartments() {
+        List<String> departments = new ArrayList<>();
+        try (DirectoryStream<Path> dirs = Files.newDirectoryStream(shardsDir, DEPARTMENT_PREFIX + "*")) {
+            for (Path dir : dirs) {
+                if (Files.isDirectory(dir)) {
+                    departments.add(unescape(dir.getFileName().toString().substring(DEPARTMENT_PREFIX.length())));
+                }
+            }
+        } catch (IOException e) {
+            throw new StudentManagementException("读取分片目录失败: " + e.getMessage(), e);
+        }
+        return departments;
+    }
+
+    private Shard openShard(String key) {
+        String name = shardName(key);
+        Shard shard = new Shard(key, name, shardFactory.apply(options.toBuilder().dataDir(shardsDir.resolve(name)).build()));
+        shard.service.addUndoListener((undone, restored) -> onShardUndone(shard, undone, restored));
+        return shard;
+    }
+
+    /**
+     * 分片撤销了落盘失败的修改：撤销注册或学号变更时移除新学号的映射，撤销删除或修改时恢复原学号的映射，
+     * 再通知本服务的撤销监听器。只改动仍指向该分片的映射，学号此后已在其他分片注册时保留其他分片
+     */
+    private void onShardUndone(Shard shard, Student undone, Student restored) {
+        if (strategy == ShardingStrategy.DEPARTMENT) {
+            if (undone != null && (restored == null || !restored.getStudentId().equals(undone.getStudentId()))) {
+                locations.remove(undone.getStudentId(), shard);
+            }
+            if (restored != null) {
+                locations.putIfAbsent(restored.getStudentId(), shard);
+            }
+        }
+        for (StudentUndoListener listener : undoListeners) {
+            listener.onUndone(undone, restored);
+        }
+    }
+
+    /**
+     * 按系别分片时，新系别的分片在此创建
+     */
+    private Shard shardFor(Student student) {
+        String key = shardKey(student);
+        Shard shard = shards.get(key);
+        if (shard != null) {
+            return shard;
+        }
+        synchronized (shards) {
+            shard = shards.get(key);
+            if (shard == null) {
+                shard = openShard(key);
+                shards.put(key, shard);
+            }
+            return shard;
+        }
+    }
+
+    /**
+     * @return 学生所在的分片，学号不存在时返回 null
+     */
+    private Shard locate(String studentId) {
+        if (strategy == ShardingStrategy.DEPARTMENT) {
+            return locations.get(studentId);
+        }
+        Shard shard = shards.get(hashKey(studentId));
+        return shard.service.findById(studentId).isPresent() ? shard : null;
+    }
+
+    /**
+     * 持锁调用：更新学号到分片的映射，oldId 或 newId 为 null 表示注册或删除
+     *
+     * @param shard newId 所在的分片
+     */
+    private void relocate(String oldId, String newId, Shard shard) {
+        if (strategy != ShardingStrategy.DEPARTMENT) {
+            return;
+        }
+        if (oldId != null) {
+            locations.remove(oldId);
+        }
+        if (newId != null) {
+            locations.put(newId, shard);
+        }
+    }
+
+    private String shardKey(Student student) {
+        return strategy == ShardingStrategy.DEPARTMENT ? student.getDepartment() : hashKey(student.getStudentId());
+    }
+
+    private String hashKey(String studentId) {
+        return hashKey(Math.floorMod(studentId.hashCode(), shardCount));
+    }
+
+    private static String hashKey(int bucket) {
+        return String.format("%03d", bucket);
+    }
+
+    private String shardName(String key) {
+        return strategy == ShardingStrategy.DEPARTMENT ? DEPARTMENT_PREFIX + escape(key) : HASH_PREFIX + key;
+    }
+
+    /**
+     * 系别转为目录名：ASCII 小写字母和数字原样保留，其他字符（含汉字）按 UTF-8 字节写成 %XX。
+     * 目录名只含 ASCII 字符，不受文件名编码影响，在不区分大小写的文件系统上也不会冲突，且可以还原
+     */
+    static String escape(String department) {
+        StringBuilder name = new StringBuilder(department.length() * 3);
+        for (byte b : department.getBytes(StandardCharsets.UTF_8)) {
+            if (b >= 'a' && b <= 'z' || b >= '0' && b <= '9') {
+                name.append((char) b);
+            } else {
+                name.append('%').append(String.format("%02X", b & 0xff));
+            }
+        }
+        return name.toString();
+    }
+
+    static String unescape(String name) {
+        return URLDecoder.decode(name, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * 没有可用条件时返回全部分片
+     *
+     * @param keys 分片键集合，为 null 表示全部
+     */
+    private Collection<Shard> select(Set<String> keys) {
+        if (keys == null) {
+            return shards.values();
+        }
+        List<Shard> selected = new ArrayList<>(keys.size());
+        for (Shard shard : shards.values()) {
+            if (keys.contains(shard.key)) {
+                selected.add(shard);
+            }
+        }
+        return selected;
+    }
+
+    /**
+     * 把查询条件映射为可能包含结果的分片键，复用 QueryCondition 为索引做的候选集推导
+     */
+    private final class ShardLookup implements QueryCondition.IndexLookup {
+        @Override
+        public Set<String> candidates(String keyword, QueryType type, MatchMode mode) {
+            if (type == QueryType.DEPARTMENT && strategy == ShardingStrategy.DEPARTMENT) {
+                return shards.keySet().stream().filter(key -> mode.test(key, keyword)).collect(Collectors.toSet());
+            }
+            if (type == QueryType.STUDENT_ID && mode == MatchMode.EXACT) {
+                if (strategy == ShardingStrategy.STUDENT_ID_HASH) {
+                    return Set.of(hashKey(keyword));
+                }
+                Shard shard = locations.get(keyword);
+                return shard == null ? Set.of() : Set.of(shard.key);
+            }
+            return null;
+        }
+
+        @Override
+        public Set<String> ageCandidates(int min, int max) {
+            return null;
+        }
+    }
+
+    private static StudentPage mergePages(Collection<Shard> targets, Function<Shard, StudentPage> fetch, int pageSize) {
+        return StudentPage.of(targets.stream()
+                .flatMap(shard -> fetch.apply(shard).getStudents().stream())
+                .sorted(Comparator.comparing(Student::getStudentId))
+                .limit(pageSize + 1L)
+                .collect(Collectors.toList()), pageSize);
+    }
+
+    /**
+     * 在 io 线程中对每一项并行执行任务，等待全部结束；失败的项汇总为一个异常
+     */
+    private <T> void inParallel(Collection<T> items, Function<T, String> nameOf, String action, Consumer<T> task) {
+        List<T> list = new ArrayList<>(items);
+        if (list.size() == 1) {
+            runShardTask(list.get(0), nameOf, action, task);
+            return;
+        }
+        List<CompletableFuture<Void>> futures = new ArrayList<>(list.size());
+        for (T item : list) {
+            futures.add(CompletableFuture.runAsync(() -> task.accept(item), io));
+        }
+        StudentManagementException failure = null;
+        for (int i = 0; i < list.size(); i++) {
+            try {
+                futures.get(i).join();
+            } catch (CompletionException e) {
+                StudentManagementException shardFailure = new StudentManagementException(
+                        "分片 [" + nameOf.apply(list.get(i)) + "] " + action + "失败: " + e.getCause().getMessage(),
+                        e.getCause());
+                if (failure == null) {
+                    failure = shardFailure;
+                } else {
+                    failure.addSuppressed(shardFailure);
+                }
+            }
+        }
+        if (failure != null) {
+            throw failure;
+        }
+    }
+
+    private static <T> void runShardTask(T item, Function<T, String> nameOf, String action, Consumer<T> task) {
+        try {
+            task.accept(item);
+        } catch (RuntimeException e) {
+            throw new StudentManagementException("分片 [" + nameOf.apply(item) + "] " + action + "失败: " + e.getMessage(), e);
+        }
+    }
+
+    private static <T> void forEachSucceeded(Group<T> group, Consumer<T> action) {
+        if (group.result == null) {
+            return;
+        }
+        Set<Integer> failed = new HashSet<>();
+        for (BatchResult.Failure failure : group.result.getFailures()) {
+            failed.add(failure.getPosition());
+        }
+        for (int i = 0; i < group.items.size(); i++) {
+            if (!failed.contains(i + 1)) {
+                action.accept(group.items.get(i));
+            }
+        }
+    }
+
+    /**
+     * 合并整批检查和各分片的结果，分片内的序号换算为整批中的位置
+     */
+    private static <T> BatchResult merge(List<Failed> failures, Collection<Group<T>> groups) {
+        List<Failed> all = new ArrayList<>(failures);
+        int succeeded = 0;
+        for (Group<T> group : groups) {
+            succeeded += group.result.getSucceeded();
+            for (BatchResult.Failure failure : group.result.getFailures()) {
+                all.add(new Failed(group.positions.get(failure.getPosition() - 1),
+                        failure.getStudentId(), failure.getMessage()));
+            }
+        }
+        all.sort(Comparator.comparingInt(failed -> failed.position));
+        BatchResult.Builder result = new BatchResult.Builder();
+        for (Failed failed : all) {
+            result.failure(failed.position, failed.studentId, failed.message);
+        }
+        return result.succeeded(succeeded).build();
+    }
+
+    private static void await(CompletableFuture<Void> future) {
+        try {
+            future.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException) {
+                throw (RuntimeException) e.getCause();
+            }
+            throw e;
+        }
+    }
+
+    private static void checkStudent(Student student) {
+        if (student == null) {
+            throw new StudentManagementException("学生信息不能为空");
+        }
+    }
+
+    private static void checkStudentId(String studentId) {
+        if (studentId == null || studentId.trim().isEmpty()) {
+            throw new StudentManagementException("学号不能为空");
+        }
+    }
+
+    private static void checkUpdate(String studentId, Student student) {
+        checkStudentId(studentId);
+        checkStudent(student);
+    }
+
+    private static void checkQuery(String keyword, QueryType type, MatchMode mode) {
+        if (keyword == null || type == null || mode == null) {
+            throw new StudentManagementException("搜索关键词、类型和匹配方式不能为空");
+        }
+    }
+
+    /**
+     * 持锁调用
+     */
+    private void checkAbsent(String studentId) {
+        if (locate(studentId) != null) {
+            throw new StudentManagementException("学号 [" + studentId + "] 已存在");
+        }
+    }
+
+    /**
+     * 持锁调用
+     *
+     * @return 学生所在的分片
+     */
+    private Shard checkPresent(String studentId) {
+        Shard shard = locate(studentId);
+        if (shard == null) {
+            throw new StudentManagementException("未找到学号为 [" + studentId + "] 的学生");
+        }
+        return shard;
+    }
+
+    /**
+     * 持锁调用：检查新学号未被占用且原学号存在
+     *
+     * @return 学生当前所在的分片
+     */
+    private Shard checkMovable(String studentId, Student student) {
+        String newStudentId = student.getStudentId();
+        if (!studentId.equals(newStudentId) && locate(newStudentId) != null) {
+            throw new StudentManagementException("新学号 [" + newStudentId + "] 已存在");
+        }
+        return checkPresent(studentId);
+    }
+
+    private void lock(String firstId, String secondId) {
+        int first = stripeIndex(firstId);
+        int second = stripeIndex(secondId);
+        stripes[Math.min(first, second)].lock();
+        if (first != second) {
+            stripes[Math.max(first, second)].lock();
+        }
+    }
+
+    private void unlock(String firstId, String secondId) {
+        int first = stripeIndex(firstId);
+        int second = stripeIndex(secondId);
+        if (first != second) {
+            stripes[Math.max(first, second)].unlock();
+        }
+        stripes[Math.min(first, second)].unlock();
+    }
+
+    private void lockAll() {
+        for (Lock stripe : stripes) {
+            stripe.lock();
+        }
+    }
+
+    private void unlockAll() {
+        for (int i = STRIPE_COUNT - 1; i >= 0; i--) {
+            stripes[i].unlock();
+        }
+    }
+
+    private static int stripeIndex(String studentId) {
+        return Math.floorMod(studentId.hashCode(), STRIPE_COUNT);
+    }
+}
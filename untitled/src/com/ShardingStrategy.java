@@ -0,0 +1,25 @@
+package com;
+
+/**
+ * 分片方式枚举，见 ShardedStuService
+ */
+public enum ShardingStrategy {
+    DEPARTMENT("按系别", "每个系别一个分片，按系别查询只访问对应分片，修改系别时学生在分片间移动"),
+    STUDENT_ID_HASH("按学号哈希", "按学号的哈希值分到固定个数的分片，各分片大小均匀，按学号查询只访问一个分片");
+
+    private final String label;
+    private final String description;
+
+    ShardingStrategy(String label, String description) {
+        this.label = label;
+        this.description = description;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public String getDescription() {
+        return description;
+    }
+}
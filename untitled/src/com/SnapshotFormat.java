@@ -0,0 +1,89 @@
+package com;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.function.Predicate;
+
+/**
+ * 数据快照文件格式枚举
+ */
+public enum SnapshotFormat {
+    CSV("文本", StuServiceOptions.DEFAULT_DATA_FILE) {
+        @Override
+        void write(Path dataFilePath, Iterable<Student> students, boolean force) {
+            StudentDataFile.write(dataFilePath, students, force);
+        }
+
+        @Override
+        int read(Path dataFilePath, Predicate<Student> sink) {
+            return StudentDataFile.read(dataFilePath, sink);
+        }
+    },
+    BINARY("二进制", StuServiceOptions.DEFAULT_BINARY_DATA_FILE) {
+        @Override
+        void write(Path dataFilePath, Iterable<Student> students, boolean force) {
+            BinarySnapshotFile.write(dataFilePath, students, force);
+        }
+
+        @Override
+        int read(Path dataFilePath, Predicate<Student> sink) {
+            return BinarySnapshotFile.read(dataFilePath, sink);
+        }
+    };
+
+    private final String label;
+    private final String defaultFileName;
+
+    SnapshotFormat(String label, String defaultFileName) {
+        this.label = label;
+        this.defaultFileName = defaultFileName;
+    }
+
+    public String getLabel() {
+        return label;
+    }
+
+    public String getDefaultFileName() {
+        return defaultFileName;
+    }
+
+    /**
+     * 写入快照，先写临时文件再原子替换
+     *
+     * @param force 替换前是否强制落盘，写检查点时必须为 true
+     */
+    abstract void write(Path dataFilePath, Iterable<Student> students, boolean force);
+
+    /**
+     * 读取快照
+     *
+     * @param sink 接收解析出的学生，返回 false 表示学号重复
+     * @return 被 sink 接受的记录条数
+     */
+    abstract int read(Path dataFilePath, Predicate<Student> sink);
+
+    /**
+     * 按配置加载快照，文本文件按配置的加载策略读取。
+     * 二进制快照尚不存在但有文本数据文件时，从文本文件迁移，下次保存即写为二进制
+     *
+     * @return 是否找到了可加载的数据文件
+     */
+    static boolean load(StuServiceOptions options, Predicate<Student> sink) {
+        Path dataFilePath = options.getDataFilePath();
+        SnapshotFormat format = options.getSnapshotFormat();
+        if (Files.exists(dataFilePath)) {
+            if (format == CSV) {
+                options.getCsvLoadStrategy().read(dataFilePath, sink);
+            } else {
+                format.read(dataFilePath, sink);
+            }
+            return true;
+        }
+        if (format != CSV && Files.exists(options.getCsvFilePath())) {
+            System.out.println("未找到" + format.getLabel() + "快照，从文本数据文件导入");
+            options.getCsvLoadStrategy().read(options.getCsvFilePath(), sink);
+            return true;
+        }
+        return false;
+    }
+}
@@ -0,0 +1,51 @@
+package com;
+
+import java.util.EnumMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 学籍状态索引：StudentStatus -> 学号集合
+ * 状态只有少数几种取值，任何匹配方式都只需检查各枚举值
+ */
+class StatusIndex implements SecondaryIndex {
+    private final Map<StudentStatus, Set<String>> entries = new EnumMap<>(StudentStatus.class);
+
+    @Override
+    public void add(Student student) {
+        entries.computeIfAbsent(student.getStatus(), s -> new HashSet<>()).add(student.getStudentId());
+    }
+
+    @Override
+    public void remove(Student student) {
+        Set<String> ids = entries.get(student.getStatus());
+        if (ids != null) {
+            ids.remove(student.getStudentId());
+        }
+    }
+
+    @Override
+    public void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public Set<String> candidates(String keyword, MatchMode mode) {
+        Set<String> matched = null;
+        for (Map.Entry<StudentStatus, Set<String>> entry : entries.entrySet()) {
+            if (!mode.test(entry.getKey().getValue(), keyword)) {
+                continue;
+            }
+            if (matched == null) {
+                // 通常只命中一个状态，直接返回其集合避免复制
+                matched = entry.getValue();
+            } else {
+                Set<String> union = new HashSet<>(matched);
+                union.addAll(entry.getValue());
+                matched = union;
+            }
+        }
+        return matched == null ? new HashSet<>() : matched;
+    }
+}
@@ -0,0 +1,45 @@
+package com;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 字符串字典（字典编码）
+ * 系别、专业、班级、籍贯等字段取值有限，但每加载一条记录都会解码出新的字符串。
+ * 字典为每种取值保留一个规范实例，学生对象只引用规范实例，重复的字符串随即可被回收；
+ * 引用与整数编码同样只占 4 字节（压缩指针下），又不必改变 Student 的字段类型和取值方式。
+ * 取值种类超过容量后新的取值不再收录，原样返回，避免取值不受限的字段使字典无限增长
+ */
+final class StringDictionary {
+    private final String name;
+    private final int capacity;
+    private final ConcurrentHashMap<String, String> values = new ConcurrentHashMap<>();
+
+    StringDictionary(String name, int capacity) {
+        this.name = name;
+        this.capacity = capacity;
+    }
+
+    /**
+     * @return 与 value 内容相同的规范实例；字典已满且未收录该取值时返回 value 本身
+     */
+    String canonical(String value) {
+        String existing = values.get(value);
+        if (existing != null) {
+            return existing;
+        }
+        if (values.size() >= capacity) {
+            return value;
+        }
+        existing = values.putIfAbsent(value, value);
+        return existing == null ? value : existing;
+    }
+
+    int size() {
+        return values.size();
+    }
+
+    @Override
+    public String toString() {
+        return name + "字典：" + values.size() + "/" + capacity + "项";
+    }
+}
@@ -1,15 +1,217 @@
 package com;
 
 
+import java.nio.file.Path;
+import java.util.Collection;
+import java.util.Comparator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
-public interface StuService {
+public interface StuService extends AutoCloseable {
     void addStudent(Student student);
     void updateStudent(String userid,Student student);
     void deleteStudent(String userid);
-    List<Student> queryStudents(String keyword, QueryType type);
+
+    /**
+     * 异步版本的增删改：返回的 Future 在修改落盘后完成。
+     * 默认实现同步执行，支持异步持久化的实现可覆盖
+     */
+    default CompletableFuture<Void> addStudentAsync(Student student) {
+        addStudent(student);
+        return CompletableFuture.completedFuture(null);
+    }
+    default CompletableFuture<Void> updateStudentAsync(String userid, Student student) {
+        updateStudent(userid, student);
+        return CompletableFuture.completedFuture(null);
+    }
+    default CompletableFuture<Void> deleteStudentAsync(String userid) {
+        deleteStudent(userid);
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * 批量注册：在整批范围内校验并检查学号重复，合格的记录作为一个整体保存，
+     * 单条记录的错误记录在结果中，不中断整批。
+     * 默认实现逐条调用 addStudent，每条各自保存；支持原子批量保存的实现应覆盖
+     */
+    default BatchResult addStudents(Collection<Student> students) {
+        BatchResult.Builder result = new BatchResult.Builder();
+        int position = 0;
+        int succeeded = 0;
+        for (Student student : students) {
+            position++;
+            if (student == null) {
+                result.failure(position, null, "学生信息不能为空");
+                continue;
+            }
+            try {
+                addStudent(student);
+                succeeded++;
+            } catch (StudentManagementException e) {
+                result.failure(position, student.getStudentId(), e.getMessage());
+            }
+        }
+        return result.succeeded(succeeded).build();
+    }
+
+    /**
+     * 批量修改，键为原学号，值为新的学生信息；按迭代顺序依次校验，后面的修改能看到前面修改的结果
+     */
+    default BatchResult updateStudents(Map<String, Student> updates) {
+        BatchResult.Builder result = new BatchResult.Builder();
+        int position = 0;
+        int succeeded = 0;
+        for (Map.Entry<String, Student> update : updates.entrySet()) {
+            position++;
+            if (update.getValue() == null) {
+                result.failure(position, update.getKey(), "学生信息不能为空");
+                continue;
+            }
+            try {
+                updateStudent(update.getKey(), update.getValue());
+                succeeded++;
+            } catch (StudentManagementException e) {
+                result.failure(position, update.getKey(), e.getMessage());
+            }
+        }
+        return result.succeeded(succeeded).build();
+    }
+
+    default BatchResult deleteStudents(Collection<String> userids) {
+        BatchResult.Builder result = new BatchResult.Builder();
+        int position = 0;
+        int succeeded = 0;
+        for (String userid : userids) {
+            position++;
+            try {
+                deleteStudent(userid);
+                succeeded++;
+            } catch (StudentManagementException e) {
+                result.failure(position, userid, e.getMessage());
+            }
+        }
+        return result.succeeded(succeeded).build();
+    }
+
+    /**
+     * 从与数据文件格式相同的 CSV 文件批量导入，解析失败的行与注册失败的记录都按行号记录在结果中。
+     * 边解析边分批注册（每批 StudentImporter.BATCH_SIZE 条），文件可以比内存大
+     */
+    default BatchResult importStudents(Path csvFile) {
+        return StudentImporter.importCsv(this, csvFile);
+    }
+
+    /**
+     * 把全部学生导出为与数据文件格式相同的 CSV 文件（带表头），可再用 importStudents 导入。
+     * 在快照上逐条写出，导出期间的修改不影响导出内容；先写临时文件再替换目标文件
+     *
+     * @return 导出的记录条数
+     */
+    default int exportStudents(Path csvFile) {
+        try (StudentSnapshot snapshot = snapshot()) {
+            return StudentDataFile.write(csvFile.toAbsolutePath(), snapshot.stream()::iterator, false);
+        }
+    }
+
+    Optional<Student> findById(String userid);
+    default List<Student> queryStudents(String keyword, QueryType type) {
+        return queryStudents(keyword, type, MatchMode.CONTAINS);
+    }
+    List<Student> queryStudents(String keyword, QueryType type, MatchMode mode);
+
+    /**
+     * 组合查询。默认实现对全部学生扫描一遍；有索引的实现应按条件选择索引
+     */
+    default List<Student> query(StudentQuery query) {
+        return query.execute(streamStudents("", QueryType.STUDENT_ID, MatchMode.CONTAINS));
+    }
+
+    /**
+     * 按注册顺序惰性返回匹配的学生，调用方可用 skip/limit 做偏移分页而不物化全部结果。
+     * 非线程安全的实现要求在下一次修改前消费完毕
+     */
+    default Stream<Student> streamStudents(String keyword, QueryType type, MatchMode mode) {
+        return queryStudents(keyword, type, mode).stream();
+    }
+
+    /**
+     * 按学号升序分页查询
+     *
+     * @param afterStudentId 上一页的游标（StudentPage.getNextCursor()），查询第一页时为 null
+     */
+    default StudentPage queryPage(String keyword, QueryType type, MatchMode mode, String afterStudentId, int pageSize) {
+        StudentPage.checkPageSize(pageSize);
+        return page(streamStudents(keyword, type, mode), afterStudentId, pageSize);
+    }
+
+    /**
+     * 按学号升序分页列出全部学生
+     */
+    default StudentPage listStudents(String afterStudentId, int pageSize) {
+        return queryPage("", QueryType.STUDENT_ID, MatchMode.CONTAINS, afterStudentId, pageSize);
+    }
+
+    /**
+     * 默认分页实现：需要对全部匹配结果排序，内存占用与匹配数成正比，实现类应覆盖
+     */
+    private static StudentPage page(Stream<Student> matches, String afterStudentId, int pageSize) {
+        return StudentPage.of(matches
+                .filter(student -> afterStudentId == null || student.getStudentId().compareTo(afterStudentId) > 0)
+                .sorted(Comparator.comparing(Student::getStudentId))
+                .limit(pageSize + 1L)
+                .collect(Collectors.toList()), pageSize);
+    }
+
+    /**
+     * 按字段分组统计人数，如各学籍状态的人数。
+     * 默认实现扫描全部学生；维护了统计计数的实现对常用字段直接返回计数，不扫描学生
+     *
+     * @return 字段取值 -> 人数，按取值排序（年龄按数值），不含人数为 0 的取值
+     */
+    default Map<String, Long> countBy(QueryType field) {
+        return StudentStatistics.countBy(streamStudents("", QueryType.STUDENT_ID, MatchMode.CONTAINS), field);
+    }
+
+    /**
+     * 按两个字段分组统计人数，如各系别中各学籍状态的人数、各班级的年龄分布
+     *
+     * @return 第一个字段的取值 -> (第二个字段的取值 -> 人数)
+     */
+    default Map<String, Map<String, Long>> countBy(QueryType field, QueryType subField) {
+        return StudentStatistics.countBy(streamStudents("", QueryType.STUDENT_ID, MatchMode.CONTAINS),
+                field, subField);
+    }
+
+    /**
+     * 获取全部学生的时间点快照，持有期间其他线程的修改不影响快照内容，用完必须关闭。
+     * 默认实现拷贝全部学生，非线程安全的实现要求拷贝期间没有修改；
+     * 支持多版本存储的实现创建快照不拷贝数据，开销与学生数无关
+     */
+    default StudentSnapshot snapshot() {
+        return StudentSnapshot.of(streamStudents("", QueryType.STUDENT_ID, MatchMode.CONTAINS)
+                .collect(Collectors.toList()));
+    }
+
+    /**
+     * 注册撤销监听器，每撤销一条已生效的修改回调一次。
+     * 默认实现不会撤销已生效的修改，忽略监听器；装饰器应转发给被装饰的服务
+     */
+    default void addUndoListener(StudentUndoListener listener) {
+    }
+
     void saveToFile();
 
     void loadFromFile();
     void OutDate();
+
+    /**
+     * 释放日志文件、后台线程等资源，不保存数据，之后不能再使用本服务；默认实现没有需要释放的资源
+     */
+    @Override
+    default void close() {
+    }
 }
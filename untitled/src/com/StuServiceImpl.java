@@ -1,106 +1,508 @@
 package com;
 
-import java.io.*;
+import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.Paths;
-import java.nio.file.StandardCopyOption;
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 /**
  * 学生学籍业务实现类
+ * 支持三种持久化模式：SNAPSHOT 每次修改整体重写数据文件；
+ * JOURNAL 修改追加到预写日志，仅在检查点时重写数据文件；
+ * ASYNC 修改交给后台线程合并写入日志，调用方可选择不等待或通过 CompletableFuture 等待落盘
  */
 public class StuServiceImpl implements StuService {
-    private static final String DATA_DIR = "D:\\StudentManagement";
-    private static final String DATA_FILE = "student_data.txt";
-    private final List<Student> studentList = new ArrayList<>();
+    // 学号主键索引，LinkedHashMap 保留注册顺序供 OutDate() 列出
+    private final Map<String, Student> studentMap = new LinkedHashMap<>();
+    // 按学号排序的主键索引，供按学号分页
+    private final NavigableMap<String, Student> sortedStudents = new TreeMap<>();
+    // 学号 -> 注册序号，用于索引命中后按注册顺序返回结果
+    private final Map<String, Long> insertionOrder = new HashMap<>();
+    // 各查询字段上的二级索引（精确匹配索引、n-gram 索引），随每次修改增量维护
+    private final Map<QueryType, List<SecondaryIndex>> fieldIndexes = new EnumMap<>(QueryType.class);
+    private final List<SecondaryIndex> allIndexes = new ArrayList<>();
+    // 分组人数统计，与二级索引一同维护
+    private final StudentStatistics statistics = new StudentStatistics();
+    private long nextSequence;
+    // 组合查询规划时通过它访问各字段的索引
+    private final QueryCondition.IndexLookup indexLookup = new QueryCondition.IndexLookup() {
+        @Override
+        public Set<String> candidates(String keyword, QueryType type, MatchMode mode) {
+            return indexCandidates(keyword, type, mode);
+        }
+
+        @Override
+        public Set<String> ageCandidates(int min, int max) {
+            for (SecondaryIndex index : fieldIndexes.getOrDefault(QueryType.AGE, Collections.emptyList())) {
+                if (index instanceof AgeIndex) {
+                    return ((AgeIndex) index).candidates(min, max);
+                }
+            }
+            return null;
+        }
+    };
+    private final StuServiceOptions options;
     private final Path dataFilePath;
+    private final StudentJournal journal; // 仅 JOURNAL、ASYNC、SEGMENTED 模式下非空
+    private final GroupCommitWriter groupCommit; // 仅 ASYNC 模式下非空
+    private final StudentSegments segments; // 仅 SEGMENTED 模式下非空
+    // ASYNC 模式下落盘失败、等待撤销的修改，由后台线程按提交顺序放入，在调用方线程上撤销
+    private final Queue<FailedChange> failedChanges = new ConcurrentLinkedQueue<>();
+    // 已取出但暂不能撤销的修改：之后的修改覆盖了它，要等之后的修改先撤销（仅调用方线程访问）
+    private final List<FailedChange> pendingUndo = new ArrayList<>();
+    private final List<StudentUndoListener> undoListeners = new CopyOnWriteArrayList<>();
+
+    /**
+     * 一次落盘失败的修改：注册时 before 为 null，删除时 after 为 null
+     */
+    private static final class FailedChange {
+        private final String action;
+        private final Student before;
+        private final Student after;
+
+        private FailedChange(String action, Student before, Student after) {
+            this.action = action;
+            this.before = before;
+            this.after = after;
+        }
+    }
 
     public StuServiceImpl() {
-        this.dataFilePath = Paths.get(DATA_DIR, DATA_FILE);
+        this(StuServiceOptions.defaults());
+    }
+
+    public StuServiceImpl(StuServiceOptions options) {
+        this.options = options;
+        this.dataFilePath = options.getDataFilePath();
         // 确保目录存在
         try {
-            Files.createDirectories(Paths.get(DATA_DIR));
+            Files.createDirectories(options.getDataDir());
         } catch (IOException e) {
             throw new StudentManagementException("无法创建数据目录: " + e.getMessage());
         }
+        switch (options.getPersistenceMode()) {
+            case JOURNAL, SEGMENTED -> {
+                this.journal = new StudentJournal(options.getJournalFilePath(),
+                        options.getSyncPolicy(), options.getSyncInterval());
+                this.groupCommit = null;
+            }
+            case ASYNC -> {
+                // 由后台线程每批刷盘一次，日志自身不再逐条刷盘
+                this.journal = new StudentJournal(options.getJournalFilePath(),
+                        JournalSyncPolicy.NEVER, options.getSyncInterval());
+                this.groupCommit = new GroupCommitWriter(journal,
+                        options.getGroupCommitWindowMillis(), options.getGroupCommitMaxBatch());
+            }
+            default -> {
+                this.journal = null;
+                this.groupCommit = null;
+            }
+        }
+        this.segments = options.getPersistenceMode() == PersistenceMode.SEGMENTED ? new StudentSegments(options) : null;
+        for (QueryType field : QueryType.values()) {
+            registerIndex(field, field.createExactIndex());
+        }
+        for (QueryType field : options.getNgramIndexedFields()) {
+            registerIndex(field, new NGramIndex(field, options.getNgramSize()));
+        }
+        allIndexes.add(statistics);
         loadFromFile();
     }
 
+    private void registerIndex(QueryType field, SecondaryIndex index) {
+        if (index != null) {
+            fieldIndexes.computeIfAbsent(field, f -> new ArrayList<>()).add(index);
+            allIndexes.add(index);
+        }
+    }
+
     @Override
     public void addStudent(Student student) {
+        addStudentAsync(student);
+    }
+
+    @Override
+    public void updateStudent(String studentId, Student newStudent) {
+        updateStudentAsync(studentId, newStudent);
+    }
+
+    @Override
+    public void deleteStudent(String studentId) {
+        deleteStudentAsync(studentId);
+    }
+
+    /**
+     * ASYNC 模式下增删改在内存生效后立即返回，返回的 Future 在落盘后完成；
+     * 落盘失败时该修改会被撤销（在下一次增删改或保存开始时生效，此前查询仍能看到它），Future 以异常完成，
+     * 撤销时通知 addUndoListener 注册的监听器。
+     * 撤销的修改若已被之后的修改覆盖，要等之后的修改也失败并撤销后才恢复，之后的修改成功落盘则不再撤销；
+     * 撤销删除或学号变更时记录移到列表末尾。其他模式下同步落盘，返回已完成的 Future
+     */
+    @Override
+    public CompletableFuture<Void> addStudentAsync(Student student) {
+        applyFailedChanges();
         // 检查学号是否已存在
-        if (studentList.stream().anyMatch(s -> s.getStudentId().equals(student.getStudentId()))) {
+        if (!insertStudent(student)) {
             throw new StudentManagementException("学号 [" + student.getStudentId() + "] 已存在");
         }
 
-        studentList.add(student);
+        CompletableFuture<Void> durable;
         try {
-            saveToFile();
+            durable = persist(j -> j.appendAdd(student));
             System.out.println("学生[" + student.getStudentId() + "] 注册成功");
         } catch (StudentManagementException e) {
-            studentList.remove(student);
+            removeStudent(student.getStudentId());
             throw e;
         }
+        return undoOnFailure(durable, new FailedChange("注册", null, student));
     }
 
     @Override
-    public void updateStudent(String studentId, Student newStudent) {
+    public CompletableFuture<Void> updateStudentAsync(String studentId, Student newStudent) {
+        applyFailedChanges();
         if (studentId == null || studentId.trim().isEmpty()) {
             throw new StudentManagementException("学号不能为空");
         }
 
         // 如果新学号与旧学号不同，检查新学号是否已存在
         if (!studentId.equals(newStudent.getStudentId()) &&
-            studentList.stream().anyMatch(s -> s.getStudentId().equals(newStudent.getStudentId()))) {
+            studentMap.containsKey(newStudent.getStudentId())) {
             throw new StudentManagementException("新学号 [" + newStudent.getStudentId() + "] 已存在");
         }
 
-        boolean found = false;
-        for (int i = 0; i < studentList.size(); i++) {
-            if (studentList.get(i).getStudentId().equals(studentId)) {
-                studentList.set(i, newStudent);
-                found = true;
-                break;
-            }
-        }
-
-        if (!found) {
+        if (!studentMap.containsKey(studentId)) {
             throw new StudentManagementException("未找到学号为 [" + studentId + "] 的学生");
         }
 
-        saveToFile();
+        Student previous = studentMap.get(studentId);
+        replaceStudent(studentId, newStudent);
+        CompletableFuture<Void> durable = persist(j -> j.appendUpdate(studentId, newStudent));
         System.out.println("学生[" + studentId + "] 信息更新成功");
+        return undoOnFailure(durable, new FailedChange("修改", previous, newStudent));
     }
 
     @Override
-    public void deleteStudent(String studentId) {
+    public CompletableFuture<Void> deleteStudentAsync(String studentId) {
+        applyFailedChanges();
         if (studentId == null || studentId.trim().isEmpty()) {
             throw new StudentManagementException("学号不能为空");
         }
 
-        int originalSize = studentList.size();
-        studentList.removeIf(s -> s.getStudentId().equals(studentId));
-
-        if (studentList.size() == originalSize) {
+        Student removed = removeStudent(studentId);
+        if (removed == null) {
             throw new StudentManagementException("未找到学号为 [" + studentId + "] 的学生");
         }
 
-        saveToFile();
+        CompletableFuture<Void> durable = persist(j -> j.appendDelete(studentId));
         System.out.println("学生[" + studentId + "] 信息删除成功");
+        return undoOnFailure(durable, new FailedChange("删除", removed, null));
+    }
+
+    /**
+     * 整批校验后只保存一次：SNAPSHOT 模式重写一次数据文件，JOURNAL、ASYNC 模式追加一条批量日志记录。
+     * 保存失败时撤销本批全部修改并抛出异常
+     */
+    @Override
+    public BatchResult addStudents(Collection<Student> students) {
+        applyFailedChanges();
+        BatchResult.Builder result = new BatchResult.Builder();
+        StudentJournal.Batch batch = new StudentJournal.Batch();
+        List<Student> added = new ArrayList<>();
+        List<FailedChange> changes = new ArrayList<>();
+        List<Runnable> undo = new ArrayList<>();
+        int position = 0;
+        for (Student student : students) {
+            position++;
+            if (student == null) {
+                result.failure(position, null, "学生信息不能为空");
+            } else if (!insertStudent(student)) {
+                // 与已有记录或本批前面的记录重复
+                result.failure(position, student.getStudentId(), "学号 [" + student.getStudentId() + "] 已存在");
+            } else {
+                added.add(student);
+                changes.add(new FailedChange("注册", null, student));
+                undo.add(() -> removeStudent(student.getStudentId()));
+                batch.add(student);
+            }
+        }
+
+        commitBatch(batch, undo, changes);
+        System.out.println("批量注册完成：成功" + added.size() + "条，失败" + (position - added.size()) + "条");
+        return result.succeeded(added.size()).build();
+    }
+
+    @Override
+    public BatchResult updateStudents(Map<String, Student> updates) {
+        applyFailedChanges();
+        BatchResult.Builder result = new BatchResult.Builder();
+        StudentJournal.Batch batch = new StudentJournal.Batch();
+        List<FailedChange> changes = new ArrayList<>();
+        List<Runnable> undo = new ArrayList<>();
+        int position = 0;
+        for (Map.Entry<String, Student> update : updates.entrySet()) {
+            position++;
+            String studentId = update.getKey();
+            Student newStudent = update.getValue();
+            if (studentId == null || studentId.trim().isEmpty()) {
+                result.failure(position, studentId, "学号不能为空");
+            } else if (newStudent == null) {
+                result.failure(position, studentId, "学生信息不能为空");
+            } else if (!studentId.equals(newStudent.getStudentId()) && studentMap.containsKey(newStudent.getStudentId())) {
+                result.failure(position, studentId, "新学号 [" + newStudent.getStudentId() + "] 已存在");
+            } else if (!studentMap.containsKey(studentId)) {
+                result.failure(position, studentId, "未找到学号为 [" + studentId + "] 的学生");
+            } else {
+                Student previous = studentMap.get(studentId);
+                replaceStudent(studentId, newStudent);
+                changes.add(new FailedChange("修改", previous, newStudent));
+                undo.add(() -> replaceStudent(newStudent.getStudentId(), previous));
+                batch.update(studentId, newStudent);
+            }
+        }
+
+        commitBatch(batch, undo, changes);
+        System.out.println("批量修改完成：成功" + batch.size() + "条，失败" + (position - batch.size()) + "条");
+        return result.succeeded(batch.size()).build();
     }
 
     @Override
-    public List<Student> queryStudents(String keyword, QueryType type) {
-        if (keyword == null || type == null) {
-            throw new StudentManagementException("搜索关键词和类型不能为空");
+    public BatchResult deleteStudents(Collection<String> studentIds) {
+        applyFailedChanges();
+        BatchResult.Builder result = new BatchResult.Builder();
+        StudentJournal.Batch batch = new StudentJournal.Batch();
+        List<FailedChange> changes = new ArrayList<>();
+        List<Runnable> undo = new ArrayList<>();
+        int position = 0;
+        for (String studentId : studentIds) {
+            position++;
+            if (studentId == null || studentId.trim().isEmpty()) {
+                result.failure(position, studentId, "学号不能为空");
+                continue;
+            }
+            Student removed = removeStudent(studentId);
+            if (removed == null) {
+                result.failure(position, studentId, "未找到学号为 [" + studentId + "] 的学生");
+            } else {
+                changes.add(new FailedChange("删除", removed, null));
+                undo.add(() -> insertStudent(removed));
+                batch.delete(studentId);
+            }
+        }
+
+        commitBatch(batch, undo, changes);
+        System.out.println("批量删除完成：成功" + batch.size() + "条，失败" + (position - batch.size()) + "条");
+        return result.succeeded(batch.size()).build();
+    }
+
+    /**
+     * 把整批修改作为一次持久化提交，失败时按相反顺序撤销内存中的修改；
+     * ASYNC 模式下落盘失败的批次与单条修改一样稍后撤销。
+     * 撤销后被删除或变更过学号的记录会移到列表末尾
+     */
+    private void commitBatch(StudentJournal.Batch batch, List<Runnable> undo, List<FailedChange> changes) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        CompletableFuture<Void> durable;
+        try {
+            durable = persist(j -> j.appendBatch(batch));
+        } catch (StudentManagementException e) {
+            for (int i = undo.size() - 1; i >= 0; i--) {
+                undo.get(i).run();
+            }
+            throw e;
+        }
+        durable.whenComplete((ignored, e) -> {
+            if (e != null) {
+                failedChanges.addAll(changes);
+            }
+        });
+    }
+
+    private void replaceStudent(String studentId, Student newStudent) {
+        if (!studentId.equals(newStudent.getStudentId())) {
+            // 学号变更视为重新登记，记录移动到列表末尾
+            removeStudent(studentId);
+        }
+        putStudent(newStudent);
+    }
+
+    /**
+     * 以下方法是修改学生集合的唯一入口，负责同步维护注册序号和各类索引
+     */
+    private boolean insertStudent(Student student) {
+        if (studentMap.containsKey(student.getStudentId())) {
+            return false;
         }
+        putStudent(student);
+        return true;
+    }
 
-        List<Student> results = studentList.stream()
-                .filter(student -> type.matches(student, keyword))
-                .collect(Collectors.toList());
+    private void putStudent(Student student) {
+        // 同一学号原位替换，保持原有顺序
+        Student previous = studentMap.put(student.getStudentId(), student);
+        sortedStudents.put(student.getStudentId(), student);
+        if (previous != null) {
+            unindex(previous);
+        } else {
+            insertionOrder.put(student.getStudentId(), nextSequence++);
+        }
+        for (SecondaryIndex index : allIndexes) {
+            index.add(student);
+        }
+    }
+
+    private Student removeStudent(String studentId) {
+        Student removed = studentMap.remove(studentId);
+        if (removed != null) {
+            sortedStudents.remove(studentId);
+            insertionOrder.remove(studentId);
+            unindex(removed);
+        }
+        return removed;
+    }
+
+    private void unindex(Student student) {
+        for (SecondaryIndex index : allIndexes) {
+            index.remove(student);
+        }
+    }
+
+    private void clearStudents() {
+        studentMap.clear();
+        sortedStudents.clear();
+        insertionOrder.clear();
+        nextSequence = 0;
+        for (SecondaryIndex index : allIndexes) {
+            index.clear();
+        }
+    }
+
+    /**
+     * 持久化一次修改：SNAPSHOT 模式重写数据文件；JOURNAL、SEGMENTED 模式追加一条日志；
+     * ASYNC 模式交给后台线程合并写入。日志累计到阈值时写检查点。
+     * 只有保存或追加日志失败时抛出异常，调用方据此撤销内存中的修改
+     *
+     * @return 修改落盘后完成的 Future
+     */
+    private CompletableFuture<Void> persist(Consumer<StudentJournal> record) {
+        if (journal == null) {
+            saveToFile();
+            return CompletableFuture.completedFuture(null);
+        }
+        CompletableFuture<Void> durable;
+        if (groupCommit != null) {
+            durable = groupCommit.submit(record);
+        } else {
+            record.accept(journal);
+            durable = CompletableFuture.completedFuture(null);
+        }
+        if (journal.getRecordCount() >= options.getCheckpointThreshold()) {
+            checkpoint();
+        }
+        return durable;
+    }
+
+    /**
+     * 修改已记入日志后触发的检查点。此时修改已经生效，重启后也会由日志回放，
+     * 检查点失败不能再撤销修改，只报告错误；日志保留，下一次检查点重试
+     */
+    private void checkpoint() {
+        try {
+            saveToFile();
+        } catch (StudentManagementException e) {
+            System.err.println("检查点写入失败，修改已记入日志: " + e.getMessage());
+        }
+    }
+
+    private CompletableFuture<Void> undoOnFailure(CompletableFuture<Void> durable, FailedChange change) {
+        return durable.whenComplete((ignored, e) -> {
+            if (e != null) {
+                failedChanges.add(change);
+            }
+        });
+    }
+
+    /**
+     * 撤销 ASYNC 模式下落盘失败的修改，只在增删改和保存开始时调用，查询始终只读。
+     * 从最新的修改开始逐条撤销，只有内存中仍是该修改的结果时才恢复修改前的记录；
+     * 已被之后的修改覆盖的暂时保留，之后的修改也失败并撤销后再处理
+     */
+    private void applyFailedChanges() {
+        FailedChange failed;
+        while ((failed = failedChanges.poll()) != null) {
+            pendingUndo.add(failed);
+        }
+        for (int i = pendingUndo.size() - 1; i >= 0; i--) {
+            FailedChange change = pendingUndo.get(i);
+            if (undo(change)) {
+                pendingUndo.remove(i);
+                Student student = change.after != null ? change.after : change.before;
+                System.err.println("学生[" + student.getStudentId() + "] " + change.action + "未能保存，已撤销");
+                for (StudentUndoListener listener : undoListeners) {
+                    listener.onUndone(change.after, change.before);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return 内存中仍是该修改的结果、已恢复修改前的记录时返回 true
+     */
+    private boolean undo(FailedChange change) {
+        String beforeId = change.before == null ? null : change.before.getStudentId();
+        String afterId = change.after == null ? null : change.after.getStudentId();
+        if (change.after == null ? studentMap.containsKey(beforeId) : studentMap.get(afterId) != change.after) {
+            return false;
+        }
+        if (change.before == null) {
+            removeStudent(afterId);
+        } else if (beforeId.equals(afterId)) {
+            putStudent(change.before);
+        } else {
+            if (studentMap.containsKey(beforeId)) {
+                return false;
+            }
+            if (afterId != null) {
+                removeStudent(afterId);
+            }
+            insertStudent(change.before);
+        }
+        return true;
+    }
+
+    @Override
+    public Optional<Student> findById(String studentId) {
+        if (studentId == null) {
+            return Optional.empty();
+        }
+        return Optional.ofNullable(studentMap.get(studentId.trim()));
+    }
+
+    @Override
+    public List<Student> queryStudents(String keyword, QueryType type, MatchMode mode) {
+        List<Student> results = streamStudents(keyword, type, mode).collect(Collectors.toList());
 
         if (results.isEmpty()) {
             System.out.println("未找到匹配的学生记录");
@@ -109,91 +511,243 @@ public class StuServiceImpl implements StuService {
         return results;
     }
 
+    /**
+     * 查询规划：由条件树给出可利用的最小候选集（AND 取子条件中最小的，OR 要求每个子条件都有索引），
+     * 候选集超过总数四分之一时按注册顺序排列候选的代价已不低于扫描，改为全表扫描一遍
+     */
     @Override
-    public void saveToFile() {
-        try {
-            // 确保父目录存在
-            Files.createDirectories(dataFilePath.getParent());
-            
-            // 创建临时文件
-            Path tempFile = Files.createTempFile(dataFilePath.getParent(), "student_", ".tmp");
-            
-            try (BufferedWriter bw = Files.newBufferedWriter(tempFile)) {
-                for (Student student : studentList) {
-                    String line = String.join(",",
-                            student.getStudentId(),
-                            student.getName(),
-                            student.getGender(),
-                            String.valueOf(student.getAge()),
-                            student.getNativePlace(),
-                            student.getDepartment(),
-                            student.getMajor(),
-                            student.getClassName(),
-                            student.getStatus().getValue()
-                    );
-                    bw.write(line);
-                    bw.newLine();
-                }
-                bw.flush();
-                
-                // 原子性地替换文件
-                Files.move(tempFile, dataFilePath, StandardCopyOption.REPLACE_EXISTING);
+    public List<Student> query(StudentQuery query) {
+        Set<String> ids = query.getCondition() == null ? null : query.getCondition().candidates(indexLookup);
+        if (ids == null || ids.size() > studentMap.size() / 4) {
+            return query.execute(studentMap.values().stream());
+        }
+        return query.execute(inInsertionOrder(ids));
+    }
+
+    /**
+     * 结果不经过中间列表；全表扫描时完全惰性，命中索引时只对候选学号排序
+     */
+    @Override
+    public Stream<Student> streamStudents(String keyword, QueryType type, MatchMode mode) {
+        if (keyword == null || type == null || mode == null) {
+            throw new StudentManagementException("搜索关键词、类型和匹配方式不能为空");
+        }
+        return candidates(keyword, type, mode)
+                .filter(student -> type.matches(student, keyword, mode));
+    }
+
+    /**
+     * 没有可用索引时沿学号有序索引从游标处向后扫描，凑满一页即停止；
+     * 命中索引时在候选学号中用容量为 pageSize + 1 的堆选出游标之后最小的若干个。
+     * 两种方式的内存占用都只与页大小有关
+     */
+    @Override
+    public StudentPage queryPage(String keyword, QueryType type, MatchMode mode, String afterStudentId, int pageSize) {
+        if (keyword == null || type == null || mode == null) {
+            throw new StudentManagementException("搜索关键词、类型和匹配方式不能为空");
+        }
+        StudentPage.checkPageSize(pageSize);
+
+        Set<String> ids = indexCandidates(keyword, type, mode);
+        if (ids == null) {
+            return StudentPage.of(tail(afterStudentId).values().stream()
+                    .filter(student -> type.matches(student, keyword, mode))
+                    .limit(pageSize + 1L)
+                    .collect(Collectors.toList()), pageSize);
+        }
+
+        // 大顶堆保留目前满足条件的最小的 pageSize + 1 个学号
+        PriorityQueue<String> smallest = new PriorityQueue<>(Comparator.reverseOrder());
+        for (String id : ids) {
+            if ((afterStudentId != null && id.compareTo(afterStudentId) <= 0)
+                    || !type.matches(studentMap.get(id), keyword, mode)) {
+                continue;
             }
-        } catch (IOException e) {
-            throw new StudentManagementException("保存学生数据失败: " + e.getMessage(), e);
+            if (smallest.size() <= pageSize) {
+                smallest.add(id);
+            } else if (id.compareTo(smallest.peek()) < 0) {
+                smallest.poll();
+                smallest.add(id);
+            }
+        }
+        List<Student> fetched = new ArrayList<>(smallest.size());
+        while (!smallest.isEmpty()) {
+            fetched.add(studentMap.get(smallest.poll()));
         }
+        Collections.reverse(fetched);
+        return StudentPage.of(fetched, pageSize);
     }
 
     @Override
-    public void loadFromFile() {
-        studentList.clear();
-        if (!Files.exists(dataFilePath)) {
+    public StudentPage listStudents(String afterStudentId, int pageSize) {
+        StudentPage.checkPageSize(pageSize);
+        return StudentPage.of(tail(afterStudentId).values().stream()
+                .limit(pageSize + 1L)
+                .collect(Collectors.toList()), pageSize);
+    }
+
+    private NavigableMap<String, Student> tail(String afterStudentId) {
+        return afterStudentId == null ? sortedStudents : sortedStudents.tailMap(afterStudentId, false);
+    }
+
+    /**
+     * 在该字段可用的索引中选候选集最小的一个，按注册顺序取出候选学生；没有可用索引时全表扫描。
+     * 候选集是结果的超集，最终仍由 QueryType.matches 复核，保证与扫描语义一致
+     */
+    private Stream<Student> candidates(String keyword, QueryType type, MatchMode mode) {
+        Set<String> ids = indexCandidates(keyword, type, mode);
+        if (ids == null) {
+            return studentMap.values().stream();
+        }
+        return inInsertionOrder(ids);
+    }
+
+    /**
+     * 按注册顺序取出候选学生；每个学号只查一次注册序号，避免在比较器中反复查表
+     */
+    private Stream<Student> inInsertionOrder(Set<String> ids) {
+        Candidate[] sorted = new Candidate[ids.size()];
+        int i = 0;
+        for (String id : ids) {
+            sorted[i++] = new Candidate(insertionOrder.get(id), studentMap.get(id));
+        }
+        Arrays.sort(sorted, Comparator.comparingLong(candidate -> candidate.sequence));
+        return Arrays.stream(sorted).map(candidate -> candidate.student);
+    }
+
+    private static final class Candidate {
+        private final long sequence;
+        private final Student student;
+
+        private Candidate(long sequence, Student student) {
+            this.sequence = sequence;
+            this.student = student;
+        }
+    }
+
+    /**
+     * @return 候选集最小的索引给出的候选学号；没有可用索引时返回 null
+     */
+    private Set<String> indexCandidates(String keyword, QueryType type, MatchMode mode) {
+        if (type == QueryType.STUDENT_ID && mode == MatchMode.EXACT) {
+            return studentMap.containsKey(keyword) ? Set.of(keyword) : Set.of();
+        }
+
+        Set<String> ids = null;
+        for (SecondaryIndex index : fieldIndexes.getOrDefault(type, Collections.emptyList())) {
+            Set<String> found = index.candidates(keyword, mode);
+            if (found != null && (ids == null || found.size() < ids.size())) {
+                ids = found;
+            }
+        }
+        return ids;
+    }
+
+    @Override
+    public Map<String, Long> countBy(QueryType field) {
+        return StudentStatistics.supports(field) ? statistics.countBy(field) : StuService.super.countBy(field);
+    }
+
+    @Override
+    public Map<String, Map<String, Long>> countBy(QueryType field, QueryType subField) {
+        return StudentStatistics.supports(field) && StudentStatistics.supports(subField)
+                ? statistics.countBy(field, subField)
+                : StuService.super.countBy(field, subField);
+    }
+
+    @Override
+    public void addUndoListener(StudentUndoListener listener) {
+        undoListeners.add(listener);
+    }
+
+    @Override
+    public void saveToFile() {
+        if (groupCommit != null) {
+            // 先等后台线程写完已提交的记录，检查点才能覆盖它们
+            groupCommit.flush();
+            applyFailedChanges();
+            // 此时全部失败都已取出，剩下的已被之后成功落盘的修改覆盖，不再撤销
+            pendingUndo.clear();
+        }
+        if (segments != null) {
+            segments.checkpoint(journal);
             return;
         }
+        // JOURNAL、ASYNC 模式下检查点必须先落盘，才能清空日志
+        options.getSnapshotFormat().write(dataFilePath, studentMap.values(), journal != null);
+        if (journal != null) {
+            journal.reset();
+        }
+    }
 
-        try (BufferedReader br = Files.newBufferedReader(dataFilePath)) {
-            String line;
-            int lineNumber = 0;
-            while ((line = br.readLine()) != null) {
-                lineNumber++;
-                try {
-                    String[] data = line.split(",");
-                    if (data.length != 9) {
-                        System.err.println("警告：第" + lineNumber + "行数据格式不正确，已跳过");
-                        continue;
-                    }
-
-                    Student student = new Student.Builder()
-                            .studentId(data[0])
-                            .name(data[1])
-                            .gender(data[2])
-                            .age(Integer.parseInt(data[3]))
-                            .nativePlace(data[4])
-                            .department(data[5])
-                            .major(data[6])
-                            .className(data[7])
-                            .status(data[8])
-                            .build();
-                    studentList.add(student);
-                } catch (NumberFormatException e) {
-                    System.err.println("警告：第" + lineNumber + "行年龄格式不正确，已跳过");
-                } catch (StudentManagementException e) {
-                    System.err.println("警告：第" + lineNumber + "行数据验证失败：" + e.getMessage());
-                }
+    @Override
+    public void loadFromFile() {
+        if (groupCommit != null) {
+            groupCommit.flush();
+            failedChanges.clear();
+            pendingUndo.clear();
+        }
+        clearStudents();
+        boolean loaded = segments != null
+                ? segments.load(this::insertStudent)
+                : SnapshotFormat.load(options, this::insertStudent);
+        if (loaded) {
+            System.out.println("成功加载" + studentMap.size() + "条学生记录");
+        }
+        if (journal != null) {
+            replayJournal();
+        }
+    }
+
+    /**
+     * 在快照之上回放日志。检查点写完快照后、清空日志前崩溃时，
+     * 日志中的修改会被重复应用，因此这里的操作都按幂等方式处理
+     */
+    private void replayJournal() {
+        int replayed = journal.replay(new StudentJournal.Visitor() {
+            @Override
+            public void onAdd(Student student) {
+                putStudent(student);
             }
-            System.out.println("成功加载" + studentList.size() + "条学生记录");
-        } catch (IOException e) {
-            throw new StudentManagementException("加载学生数据失败: " + e.getMessage(), e);
+
+            @Override
+            public void onUpdate(String studentId, Student newStudent) {
+                replaceStudent(studentId, newStudent);
+            }
+
+            @Override
+            public void onDelete(String studentId) {
+                removeStudent(studentId);
+            }
+        });
+        if (replayed > 0) {
+            System.out.println("已回放" + replayed + "条日志记录，当前共" + studentMap.size() + "条学生记录");
+        }
+    }
+
+    /**
+     * 关闭日志文件和后台线程，不写检查点；未写入数据文件的修改保留在日志中，下次打开时回放
+     */
+    @Override
+    public void close() {
+        if (groupCommit != null) {
+            groupCommit.close();
+        }
+        if (segments != null) {
+            segments.close();
+        }
+        if (journal != null) {
+            journal.close();
         }
     }
 
     @Override
     public void OutDate() {
-        if (studentList.isEmpty()) {
+        if (studentMap.isEmpty()) {
             System.out.println("没有学生记录");
             return;
         }
         
-        studentList.forEach(System.out::println);
+        studentMap.values().forEach(System.out::println);
     }
 }
\ No newline at end of file
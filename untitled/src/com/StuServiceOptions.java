@@ -0,0 +1,277 @@
+package com;
+
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Collections;
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * 学生业务服务配置
+ * 通过Builder构建，未设置的项使用默认值
+ */
+public class StuServiceOptions {
+    public static final String DEFAULT_DATA_DIR = "D:\\StudentManagement";
+    public static final String DEFAULT_DATA_FILE = "student_data.txt";
+    public static final String DEFAULT_BINARY_DATA_FILE = "student_data.bin";
+    public static final String DEFAULT_JOURNAL_FILE = "student_data.journal";
+
+    private final Path dataDir;
+    private final String dataFileName;
+    private final String journalFileName;
+    private final SnapshotFormat snapshotFormat;
+    private final CsvLoadStrategy csvLoadStrategy;
+    private final PersistenceMode persistenceMode;
+    private final JournalSyncPolicy syncPolicy;
+    private final int syncInterval;
+    private final int checkpointThreshold;
+    private final Set<QueryType> ngramIndexedFields;
+    private final int ngramSize;
+    private final long groupCommitWindowMillis;
+    private final int groupCommitMaxBatch;
+    private final int compactionMaxDeltas;
+    private final double compactionRatio;
+
+    private StuServiceOptions(Builder builder) {
+        if (builder.dataFileName != null && builder.dataFileName.trim().isEmpty()) {
+            throw new StudentManagementException("数据文件名不能为空");
+        }
+        if (builder.journalFileName == null || builder.journalFileName.trim().isEmpty()) {
+            throw new StudentManagementException("日志文件名不能为空");
+        }
+        if (builder.syncInterval < 1) {
+            throw new StudentManagementException("刷盘间隔必须大于0");
+        }
+        if (builder.checkpointThreshold < 1) {
+            throw new StudentManagementException("检查点阈值必须大于0");
+        }
+        if (builder.ngramSize < 1) {
+            throw new StudentManagementException("n-gram 长度必须大于0");
+        }
+        if (builder.groupCommitWindowMillis < 0) {
+            throw new StudentManagementException("合并写入窗口不能为负数");
+        }
+        if (builder.groupCommitMaxBatch < 1) {
+            throw new StudentManagementException("每批合并写入条数必须大于0");
+        }
+        if (builder.compactionMaxDeltas < 1) {
+            throw new StudentManagementException("触发合并的增量段个数必须大于0");
+        }
+        if (!(builder.compactionRatio > 0)) {
+            throw new StudentManagementException("触发合并的增量段大小比例必须大于0");
+        }
+
+        this.dataDir = builder.dataDir == null ? Paths.get(DEFAULT_DATA_DIR) : builder.dataDir;
+        this.snapshotFormat = builder.snapshotFormat == null ? SnapshotFormat.CSV : builder.snapshotFormat;
+        this.csvLoadStrategy = builder.csvLoadStrategy == null ? CsvLoadStrategy.READER : builder.csvLoadStrategy;
+        // 未指定数据文件名时按快照格式取默认文件名
+        this.dataFileName = builder.dataFileName == null
+                ? snapshotFormat.getDefaultFileName()
+                : builder.dataFileName.trim();
+        this.journalFileName = builder.journalFileName.trim();
+        this.persistenceMode = builder.persistenceMode == null ? PersistenceMode.SNAPSHOT : builder.persistenceMode;
+        this.syncPolicy = builder.syncPolicy == null ? JournalSyncPolicy.ALWAYS : builder.syncPolicy;
+        this.syncInterval = builder.syncInterval;
+        this.checkpointThreshold = builder.checkpointThreshold;
+        this.ngramIndexedFields = Collections.unmodifiableSet(EnumSet.copyOf(builder.ngramIndexedFields));
+        this.ngramSize = builder.ngramSize;
+        this.groupCommitWindowMillis = builder.groupCommitWindowMillis;
+        this.groupCommitMaxBatch = builder.groupCommitMaxBatch;
+        this.compactionMaxDeltas = builder.compactionMaxDeltas;
+        this.compactionRatio = builder.compactionRatio;
+    }
+
+    public static StuServiceOptions defaults() {
+        return new Builder().build();
+    }
+
+    /**
+     * @return 以当前配置为初始值的 Builder，用于派生只改动个别项的配置，如各分片使用各自的数据目录
+     */
+    public Builder toBuilder() {
+        Builder builder = new Builder()
+                .dataDir(dataDir)
+                .dataFileName(dataFileName)
+                .journalFileName(journalFileName)
+                .snapshotFormat(snapshotFormat)
+                .csvLoadStrategy(csvLoadStrategy)
+                .persistenceMode(persistenceMode)
+                .syncPolicy(syncPolicy)
+                .syncInterval(syncInterval)
+                .checkpointThreshold(checkpointThreshold)
+                .ngramSize(ngramSize)
+                .groupCommitWindowMillis(groupCommitWindowMillis)
+                .groupCommitMaxBatch(groupCommitMaxBatch)
+                .compactionMaxDeltas(compactionMaxDeltas)
+                .compactionRatio(compactionRatio);
+        builder.ngramIndexedFields.addAll(ngramIndexedFields);
+        return builder;
+    }
+
+    public static class Builder {
+        private Path dataDir;
+        private String dataFileName;
+        private String journalFileName = DEFAULT_JOURNAL_FILE;
+        private SnapshotFormat snapshotFormat = SnapshotFormat.CSV;
+        private CsvLoadStrategy csvLoadStrategy = CsvLoadStrategy.READER;
+        private PersistenceMode persistenceMode = PersistenceMode.SNAPSHOT;
+        private JournalSyncPolicy syncPolicy = JournalSyncPolicy.ALWAYS;
+        private int syncInterval = 64; // PERIODIC 策略下每多少条记录刷盘一次
+        private int checkpointThreshold = 10_000; // 日志累计多少条记录后自动写检查点
+        private final Set<QueryType> ngramIndexedFields = EnumSet.noneOf(QueryType.class);
+        private int ngramSize = 2; // 二元组适合中文姓名、系别和班级
+        private long groupCommitWindowMillis = 10; // ASYNC 模式下一批写入最多等待的毫秒数
+        private int groupCommitMaxBatch = 1024; // ASYNC 模式下每批最多合并的记录数
+        private int compactionMaxDeltas = 16; // SEGMENTED 模式下累计多少个增量段后合并
+        private double compactionRatio = 0.5; // SEGMENTED 模式下增量段总大小达到数据文件的多少倍时合并
+
+        public Builder dataDir(Path dataDir) {
+            this.dataDir = dataDir;
+            return this;
+        }
+
+        public Builder dataFileName(String dataFileName) {
+            this.dataFileName = dataFileName;
+            return this;
+        }
+
+        public Builder journalFileName(String journalFileName) {
+            this.journalFileName = journalFileName;
+            return this;
+        }
+
+        public Builder snapshotFormat(SnapshotFormat snapshotFormat) {
+            this.snapshotFormat = snapshotFormat;
+            return this;
+        }
+
+        public Builder csvLoadStrategy(CsvLoadStrategy csvLoadStrategy) {
+            this.csvLoadStrategy = csvLoadStrategy;
+            return this;
+        }
+
+        public Builder persistenceMode(PersistenceMode persistenceMode) {
+            this.persistenceMode = persistenceMode;
+            return this;
+        }
+
+        public Builder syncPolicy(JournalSyncPolicy syncPolicy) {
+            this.syncPolicy = syncPolicy;
+            return this;
+        }
+
+        public Builder syncInterval(int syncInterval) {
+            this.syncInterval = syncInterval;
+            return this;
+        }
+
+        public Builder checkpointThreshold(int checkpointThreshold) {
+            this.checkpointThreshold = checkpointThreshold;
+            return this;
+        }
+
+        /**
+         * 为指定查询字段建立 n-gram 倒排索引，加速包含匹配查询
+         */
+        public Builder ngramIndex(QueryType... fields) {
+            Collections.addAll(this.ngramIndexedFields, fields);
+            return this;
+        }
+
+        public Builder ngramSize(int ngramSize) {
+            this.ngramSize = ngramSize;
+            return this;
+        }
+
+        public Builder groupCommitWindowMillis(long groupCommitWindowMillis) {
+            this.groupCommitWindowMillis = groupCommitWindowMillis;
+            return this;
+        }
+
+        public Builder groupCommitMaxBatch(int groupCommitMaxBatch) {
+            this.groupCommitMaxBatch = groupCommitMaxBatch;
+            return this;
+        }
+
+        public Builder compactionMaxDeltas(int compactionMaxDeltas) {
+            this.compactionMaxDeltas = compactionMaxDeltas;
+            return this;
+        }
+
+        public Builder compactionRatio(double compactionRatio) {
+            this.compactionRatio = compactionRatio;
+            return this;
+        }
+
+        public StuServiceOptions build() {
+            return new StuServiceOptions(this);
+        }
+    }
+
+    public Path getDataDir() {
+        return dataDir;
+    }
+
+    public Path getDataFilePath() {
+        return dataDir.resolve(dataFileName);
+    }
+
+    /**
+     * 文本格式数据文件路径，二进制快照不存在时从这里迁移数据
+     */
+    public Path getCsvFilePath() {
+        return dataDir.resolve(DEFAULT_DATA_FILE);
+    }
+
+    public Path getJournalFilePath() {
+        return dataDir.resolve(journalFileName);
+    }
+
+    public SnapshotFormat getSnapshotFormat() {
+        return snapshotFormat;
+    }
+
+    public CsvLoadStrategy getCsvLoadStrategy() {
+        return csvLoadStrategy;
+    }
+
+    public PersistenceMode getPersistenceMode() {
+        return persistenceMode;
+    }
+
+    public JournalSyncPolicy getSyncPolicy() {
+        return syncPolicy;
+    }
+
+    public int getSyncInterval() {
+        return syncInterval;
+    }
+
+    public int getCheckpointThreshold() {
+        return checkpointThreshold;
+    }
+
+    public Set<QueryType> getNgramIndexedFields() {
+        return ngramIndexedFields;
+    }
+
+    public int getNgramSize() {
+        return ngramSize;
+    }
+
+    public long getGroupCommitWindowMillis() {
+        return groupCommitWindowMillis;
+    }
+
+    public int getGroupCommitMaxBatch() {
+        return groupCommitMaxBatch;
+    }
+
+    public int getCompactionMaxDeltas() {
+        return compactionMaxDeltas;
+    }
+
+    public double getCompactionRatio() {
+        return compactionRatio;
+    }
+}
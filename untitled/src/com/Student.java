@@ -12,6 +12,14 @@ public class Student implements Serializable {
     private static final long serialVersionUID = 1L;
     private static final int MIN_AGE = 15;
     private static final int MAX_AGE = 50;
+    private static final String MALE = "男";
+    private static final String FEMALE = "女";
+
+    // 取值有限的字段经字典归并为规范实例，大量学生共享同一个字符串
+    private static final StringDictionary NATIVE_PLACES = new StringDictionary("籍贯", 4096);
+    private static final StringDictionary DEPARTMENTS = new StringDictionary("系别", 4096);
+    private static final StringDictionary MAJORS = new StringDictionary("专业", 4096);
+    private static final StringDictionary CLASS_NAMES = new StringDictionary("班级", 65536);
 
     private final String studentId; // 学号（唯一标识）
     private final String name; // 姓名
@@ -31,7 +39,8 @@ public class Student implements Serializable {
         if (builder.name == null || builder.name.trim().isEmpty()) {
             throw new StudentManagementException("姓名不能为空");
         }
-        if (builder.gender == null || !builder.gender.matches("[男女]")) {
+        // 直接比较而非正则匹配，避免加载大量记录时每条都编译一次正则
+        if (!MALE.equals(builder.gender) && !FEMALE.equals(builder.gender)) {
             throw new StudentManagementException("性别必须是'男'或'女'");
         }
         if (builder.age < MIN_AGE || builder.age > MAX_AGE) {
@@ -46,18 +55,37 @@ public class Student implements Serializable {
         if (builder.className == null || builder.className.trim().isEmpty()) {
             throw new StudentManagementException("班级不能为空");
         }
+        if (builder.status == null) {
+            throw new StudentManagementException("学籍状态不能为空");
+        }
 
         this.studentId = builder.studentId.trim();
         this.name = builder.name.trim();
-        this.gender = builder.gender;
+        this.gender = MALE.equals(builder.gender) ? MALE : FEMALE;
         this.age = builder.age;
-        this.nativePlace = builder.nativePlace == null ? "" : builder.nativePlace.trim();
-        this.department = builder.department.trim();
-        this.major = builder.major.trim();
-        this.className = builder.className.trim();
+        this.nativePlace = builder.nativePlace == null ? "" : NATIVE_PLACES.canonical(builder.nativePlace.trim());
+        this.department = DEPARTMENTS.canonical(builder.department.trim());
+        this.major = MAJORS.canonical(builder.major.trim());
+        this.className = CLASS_NAMES.canonical(builder.className.trim());
         this.status = builder.status;
     }
 
+    /**
+     * 由已经校验过的字段直接构造，不再重复校验，供按列存储的实现重新组装学生
+     */
+    Student(String studentId, String name, String gender, int age, String nativePlace,
+            String department, String major, String className, StudentStatus status) {
+        this.studentId = studentId;
+        this.name = name;
+        this.gender = gender;
+        this.age = age;
+        this.nativePlace = nativePlace;
+        this.department = department;
+        this.major = major;
+        this.className = className;
+        this.status = status;
+    }
+
     public static class Builder {
         private String studentId;
         private String name;
@@ -114,6 +142,11 @@ public class Student implements Serializable {
             return this;
         }
 
+        public Builder status(StudentStatus status) {
+            this.status = status;
+            return this;
+        }
+
         public Student build() {
             return new Student(this);
         }
@@ -0,0 +1,71 @@
+package com;
+
+/**
+ * 一次学生变更
+ * 注册时 before 为 null，删除时 after 为 null；修改学号时 studentId 为原学号，新学号见 after。
+ * RELOADED 事件的 studentId、before、after 均为 null
+ */
+public final class StudentChangeEvent {
+    private final long sequence;
+    private final ChangeType type;
+    private final String studentId;
+    private final Student before;
+    private final Student after;
+    private final long timestamp;
+
+    /**
+     * 创建尚未分配序号的事件，由 StudentChangeFeed 发布时分配
+     */
+    StudentChangeEvent(ChangeType type, String studentId, Student before, Student after) {
+        this(0, type, studentId, before, after, 0);
+    }
+
+    private StudentChangeEvent(long sequence, ChangeType type, String studentId, Student before, Student after,
+                       long timestamp) {
+        this.sequence = sequence;
+        this.type = type;
+        this.studentId = studentId;
+        this.before = before;
+        this.after = after;
+        this.timestamp = timestamp;
+    }
+
+    StudentChangeEvent withSequence(long sequence, long timestamp) {
+        return new StudentChangeEvent(sequence, type, studentId, before, after, timestamp);
+    }
+
+    /**
+     * @return 从 1 开始连续递增的序号，断线重连时据此从上次处理到的位置继续
+     */
+    public long getSequence() {
+        return sequence;
+    }
+
+    public ChangeType getType() {
+        return type;
+    }
+
+    public String getStudentId() {
+        return studentId;
+    }
+
+    public Student getBefore() {
+        return before;
+    }
+
+    public Student getAfter() {
+        return after;
+    }
+
+    /**
+     * @return 发布时间，自 1970-01-01 起的毫秒数
+     */
+    public long getTimestamp() {
+        return timestamp;
+    }
+
+    @Override
+    public String toString() {
+        return "#" + sequence + " " + type.getLabel() + (studentId == null ? "" : "[" + studentId + "]");
+    }
+}
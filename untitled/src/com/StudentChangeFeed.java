@@ -0,0 +1,217 @@
+package com;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 学生变更事件流
+ * 事件按序号保存在固定容量的环形缓冲中。发布只是写入缓冲并唤醒订阅线程，从不等待订阅方，
+ * 订阅方再慢也不会拖慢增删改；每个订阅有自己的后台线程和读取位置，每次取出至多 maxBatch 条连续事件回调。
+ * 订阅方落后超过缓冲容量时，被覆盖的事件通过 onEventsLost 告知，之后从缓冲中最早的事件继续。
+ * 订阅时可指定从某个序号之后开始，缓冲中仍保留的事件先补发，断线重连的订阅方据此续传。
+ * 事件只保存在内存中，进程重启后序号从 1 重新开始
+ */
+public class StudentChangeFeed {
+    private static final AtomicInteger THREAD_COUNT = new AtomicInteger();
+
+    private final StudentChangeEvent[] ring;
+    private final int maxBatch;
+    private final Lock lock = new ReentrantLock();
+    private final Condition published = lock.newCondition();
+    private long lastSequence; // 受 lock 保护
+
+    /**
+     * @param capacity 缓冲中保留的事件数，也是可补发的最大范围
+     * @param maxBatch 每次回调最多推送的事件数
+     */
+    public StudentChangeFeed(int capacity, int maxBatch) {
+        if (capacity < 1) {
+            throw new StudentManagementException("事件缓冲容量必须大于0");
+        }
+        if (maxBatch < 1) {
+            throw new StudentManagementException("每批推送条数必须大于0");
+        }
+        this.ring = new StudentChangeEvent[capacity];
+        this.maxBatch = maxBatch;
+    }
+
+    /**
+     * 订阅此后发布的事件
+     */
+    public Subscription subscribe(StudentChangeListener listener) {
+        return subscribe(listener, getLastSequence());
+    }
+
+    /**
+     * 订阅序号大于 afterSequence 的事件，缓冲中仍保留的先补发，已被覆盖的以 onEventsLost 告知
+     *
+     * @param afterSequence 订阅方已处理到的序号，从头订阅时为 0
+     */
+    public Subscription subscribe(StudentChangeListener listener, long afterSequence) {
+        if (listener == null) {
+            throw new StudentManagementException("订阅方不能为空");
+        }
+        long last = getLastSequence();
+        if (afterSequence < 0 || afterSequence > last) {
+            throw new StudentManagementException("无效的事件序号：" + afterSequence + "，当前最新序号为 " + last);
+        }
+        Subscription subscription = new Subscription(listener, afterSequence);
+        subscription.thread.start();
+        return subscription;
+    }
+
+    /**
+     * 直接读取序号大于 afterSequence 的事件，供拉取方式的订阅方（如 HTTP 接口）使用。
+     * 返回的第一条序号大于 afterSequence + 1 说明中间的事件已被覆盖
+     *
+     * @return 至多 max 条连续事件，没有新事件时为空列表
+     */
+    public List<StudentChangeEvent> read(long afterSequence, int max) {
+        lock.lock();
+        try {
+            long from = Math.max(afterSequence + 1, oldestSequence());
+            long to = Math.min(lastSequence, from + max - 1);
+            List<StudentChangeEvent> events = new ArrayList<>((int) Math.max(0, to - from + 1));
+            for (long sequence = from; sequence <= to; sequence++) {
+                events.add(ring[indexOf(sequence)]);
+            }
+            return events;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return 最新事件的序号，尚无事件时为 0
+     */
+    public long getLastSequence() {
+        lock.lock();
+        try {
+            return lastSequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * @return 缓冲中最早事件的序号，尚无事件时为 1
+     */
+    public long getOldestSequence() {
+        lock.lock();
+        try {
+            return oldestSequence();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * 依次发布一组事件，分配连续的序号，期间其他发布者的事件不会插入其中
+     *
+     * @param changes 序号尚未分配的事件
+     */
+    void publish(List<StudentChangeEvent> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        lock.lock();
+        try {
+            for (StudentChangeEvent change : changes) {
+                lastSequence++;
+                ring[indexOf(lastSequence)] = change.withSequence(lastSequence, now);
+            }
+            published.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private long oldestSequence() {
+        return Math.max(1, lastSequence - ring.length + 1);
+    }
+
+    private int indexOf(long sequence) {
+        return (int) (sequence % ring.length);
+    }
+
+    /**
+     * 一个推送式订阅，关闭后后台线程在当前回调结束后退出
+     */
+    public final class Subscription implements AutoCloseable {
+        private final StudentChangeListener listener;
+        private final Thread thread;
+        private volatile long deliveredSequence;
+        private volatile boolean closed;
+
+        private Subscription(StudentChangeListener listener, long afterSequence) {
+            this.listener = listener;
+            this.deliveredSequence = afterSequence;
+            this.thread = new Thread(this::run, "student-change-listener-" + THREAD_COUNT.incrementAndGet());
+            thread.setDaemon(true);
+        }
+
+        /**
+         * @return 已回调给订阅方的最后一条事件的序号
+         */
+        public long getDeliveredSequence() {
+            return deliveredSequence;
+        }
+
+        @Override
+        public void close() {
+            closed = true;
+            lock.lock();
+            try {
+                published.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+
+        private void run() {
+            while (!closed) {
+                long from = deliveredSequence + 1;
+                long lostTo = 0;
+                List<StudentChangeEvent> batch;
+                lock.lock();
+                try {
+                    while (!closed && deliveredSequence >= lastSequence) {
+                        published.awaitUninterruptibly();
+                    }
+                    if (closed) {
+                        return;
+                    }
+                    long oldest = oldestSequence();
+                    if (from < oldest) {
+                        lostTo = oldest - 1;
+                    }
+                    long start = Math.max(from, oldest);
+                    long end = Math.min(lastSequence, start + maxBatch - 1);
+                    batch = new ArrayList<>((int) (end - start + 1));
+                    for (long sequence = start; sequence <= end; sequence++) {
+                        batch.add(ring[indexOf(sequence)]);
+                    }
+                } finally {
+                    lock.unlock();
+                }
+
+                try {
+                    if (lostTo > 0) {
+                        listener.onEventsLost(from, lostTo);
+                    }
+                    listener.onEvents(Collections.unmodifiableList(batch));
+                } catch (RuntimeException e) {
+                    // 订阅方的异常不影响后续推送，这批事件视为已送达
+                    System.err.println("警告：变更事件订阅方处理失败：" + e.getMessage());
+                }
+                deliveredSequence = batch.get(batch.size() - 1).getSequence();
+            }
+        }
+    }
+}
@@ -0,0 +1,22 @@
+package com;
+
+import java.util.List;
+
+/**
+ * 学生变更事件的订阅方，由 StudentChangeFeed 为每个订阅单独开一个后台线程按批回调
+ */
+@FunctionalInterface
+public interface StudentChangeListener {
+    /**
+     * @param events 按序号连续排列的一批事件，至少一条
+     */
+    void onEvents(List<StudentChangeEvent> events);
+
+    /**
+     * 处理过慢，序号 [fromSequence, toSequence] 的事件在送达前已被新事件覆盖，之后从 toSequence + 1 继续推送。
+     * 订阅方应重新全量同步；默认只输出警告
+     */
+    default void onEventsLost(long fromSequence, long toSequence) {
+        System.err.println("警告：变更事件 #" + fromSequence + " 至 #" + toSequence + " 未能送达，需要重新全量同步");
+    }
+}
@@ -0,0 +1,486 @@
+package com;
+
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NoSuchElementException;
+
+/**
+ * 按列存储的学生集合，供 ColumnarStuServiceImpl 使用
+ * 每个字段一个数组，同一下标（行号）上的各列组成一名学生：年龄、性别、学籍状态存为 byte，
+ * 籍贯、系别、专业、班级经字典编码存为 int，学号和姓名取值各不相同，仍保存字符串。
+ * 行号即注册顺序：新学生追加到末尾，删除只把该行的学号置空（墓碑），墓碑超过一半时压缩。
+ * 按字段筛选是对单个基本类型数组的顺序扫描，Student 对象只在取出结果时按需创建。
+ * 非线程安全
+ */
+final class StudentColumns {
+    private static final int INITIAL_CAPACITY = 1024;
+    private static final byte MALE = 0;
+    private static final byte FEMALE = 1;
+    private static final String[] GENDERS = {"男", "女"};
+    private static final StudentStatus[] STATUSES = StudentStatus.values();
+
+    private String[] studentIds = new String[INITIAL_CAPACITY]; // 为 null 表示该行已删除
+    private String[] names = new String[INITIAL_CAPACITY];
+    private byte[] genders = new byte[INITIAL_CAPACITY];
+    private byte[] ages = new byte[INITIAL_CAPACITY];
+    private byte[] statuses = new byte[INITIAL_CAPACITY]; // StudentStatus 的序号
+    private final CodedColumn nativePlaces = new CodedColumn();
+    private final CodedColumn departments = new CodedColumn();
+    private final CodedColumn majors = new CodedColumn();
+    private final CodedColumn classNames = new CodedColumn();
+    private final CodedColumn[] codedColumns = {nativePlaces, departments, majors, classNames};
+    private int rowCount; // 已使用的行数，含墓碑
+    private int size; // 有效行数
+
+    // 学号 -> 行号的开放寻址散列表（线性探测），槽中存行号 + 1，0 表示空槽
+    private int[] slots = new int[INITIAL_CAPACITY * 2];
+    // 按学号排序的有效学号，增删后置空，分页时按需重建
+    private String[] sortedIds;
+    // 分组人数统计，随增删改维护
+    private final StudentStatistics statistics = new StudentStatistics();
+
+    /**
+     * 字典编码的列：每种取值分配一个整数编码，各行只保存编码。
+     * 编码一经分配不再回收，字典大小等于该列出现过的不同取值数
+     */
+    private static final class CodedColumn {
+        private int[] codes = new int[INITIAL_CAPACITY];
+        private final List<String> values = new ArrayList<>();
+        private final Map<String, Integer> codeOf = new HashMap<>();
+
+        private void set(int row, String value) {
+            Integer code = codeOf.get(value);
+            if (code == null) {
+                code = values.size();
+                values.add(value);
+                codeOf.put(value, code);
+            }
+            codes[row] = code;
+        }
+
+        private String get(int row) {
+            return values.get(codes[row]);
+        }
+
+        /**
+         * 对字典中每种取值各判断一次，扫描时按编码查表即可
+         */
+        private boolean[] matching(String keyword, MatchMode mode) {
+            boolean[] accepted = new boolean[values.size()];
+            for (int code = 0; code < accepted.length; code++) {
+                accepted[code] = mode.test(values.get(code), keyword);
+            }
+            return accepted;
+        }
+    }
+
+    /**
+     * 由列扫描得到的候选学号集合，按行号升序保存，组合查询时可直接取回行号而不必逐个查找学号
+     */
+    final class RowSet extends AbstractSet<String> {
+        private final int[] rows;
+
+        private RowSet(int[] rows) {
+            this.rows = rows;
+        }
+
+        int[] rows() {
+            return rows;
+        }
+
+        @Override
+        public Iterator<String> iterator() {
+            return new Iterator<>() {
+                private int next;
+
+                @Override
+                public boolean hasNext() {
+                    return next < rows.length;
+                }
+
+                @Override
+                public String next() {
+                    if (next >= rows.length) {
+                        throw new NoSuchElementException();
+                    }
+                    return studentIds[rows[next++]];
+                }
+            };
+        }
+
+        @Override
+        public boolean contains(Object o) {
+            if (!(o instanceof String)) {
+                return false;
+            }
+            int row = rowOf((String) o);
+            return row >= 0 && Arrays.binarySearch(rows, row) >= 0;
+        }
+
+        @Override
+        public int size() {
+            return rows.length;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    int rowCount() {
+        return rowCount;
+    }
+
+    boolean isLive(int row) {
+        return studentIds[row] != null;
+    }
+
+    /**
+     * @return 学号所在的行号，不存在时返回 -1
+     */
+    int rowOf(String studentId) {
+        int mask = slots.length - 1;
+        for (int i = hash(studentId) & mask; slots[i] != 0; i = (i + 1) & mask) {
+            int row = slots[i] - 1;
+            if (studentIds[row].equals(studentId)) {
+                return row;
+            }
+        }
+        return -1;
+    }
+
+    /**
+     * 由各列重新组装出学生对象；各列的值在写入时已由 Student 校验过，不再经过 Builder
+     */
+    Student get(int row) {
+        return new Student(studentIds[row], names[row], GENDERS[genders[row]], ages[row],
+                nativePlaces.get(row), departments.get(row), majors.get(row), classNames.get(row),
+                STATUSES[statuses[row]]);
+    }
+
+    /**
+     * 追加到末尾
+     *
+     * @return 学号已存在时返回 false
+     */
+    boolean add(Student student) {
+        if (rowOf(student.getStudentId()) >= 0) {
+            return false;
+        }
+        if (rowCount == studentIds.length) {
+            grow();
+        }
+        int row = rowCount++;
+        write(row, student);
+        statistics.add(student);
+        size++;
+        if ((size + 1) * 2 > slots.length) {
+            rebuildIndex(slots.length * 2);
+        } else {
+            indexPut(row);
+        }
+        sortedIds = null;
+        return true;
+    }
+
+    /**
+     * 原位替换，学号必须与该行原学号相同
+     */
+    void set(int row, Student student) {
+        statistics.remove(get(row));
+        write(row, student);
+        statistics.add(student);
+    }
+
+    private void write(int row, Student student) {
+        studentIds[row] = student.getStudentId();
+        names[row] = student.getName();
+        genders[row] = "男".equals(student.getGender()) ? MALE : FEMALE;
+        ages[row] = (byte) student.getAge();
+        statuses[row] = (byte) student.getStatus().ordinal();
+        nativePlaces.set(row, student.getNativePlace());
+        departments.set(row, student.getDepartment());
+        majors.set(row, student.getMajor());
+        classNames.set(row, student.getClassName());
+    }
+
+    /**
+     * @return 被删除的学生；学号不存在时返回 null
+     */
+    Student remove(String studentId) {
+        int row = rowOf(studentId);
+        if (row < 0) {
+            return null;
+        }
+        Student removed = get(row);
+        statistics.remove(removed);
+        indexRemove(studentId);
+        studentIds[row] = null;
+        names[row] = null;
+        size--;
+        sortedIds = null;
+        if (rowCount >= INITIAL_CAPACITY && size < rowCount / 2) {
+            compact();
+        }
+        return removed;
+    }
+
+    void clear() {
+        Arrays.fill(studentIds, 0, rowCount, null);
+        Arrays.fill(names, 0, rowCount, null);
+        Arrays.fill(slots, 0);
+        rowCount = 0;
+        size = 0;
+        sortedIds = null;
+        statistics.clear();
+    }
+
+    StudentStatistics statistics() {
+        return statistics;
+    }
+
+    /**
+     * 按行号（注册顺序）依次创建学生对象
+     */
+    Iterable<Student> students() {
+        return () -> new Iterator<>() {
+            private int row = nextLive(0);
+
+            @Override
+            public boolean hasNext() {
+                return row < rowCount;
+            }
+
+            @Override
+            public Student next() {
+                if (row >= rowCount) {
+                    throw new NoSuchElementException();
+                }
+                Student student = get(row);
+                row = nextLive(row + 1);
+                return student;
+            }
+        };
+    }
+
+    private int nextLive(int from) {
+        int row = from;
+        while (row < rowCount && studentIds[row] == null) {
+            row++;
+        }
+        return row;
+    }
+
+    /**
+     * @return 按学号升序排列的全部有效学号
+     */
+    String[] sortedIds() {
+        if (sortedIds == null) {
+            String[] ids = new String[size];
+            int i = 0;
+            for (int row = 0; row < rowCount; row++) {
+                if (studentIds[row] != null) {
+                    ids[i++] = studentIds[row];
+                }
+            }
+            Arrays.sort(ids);
+            sortedIds = ids;
+        }
+        return sortedIds;
+    }
+
+    RowSet rowSet(int[] rows) {
+        return new RowSet(rows);
+    }
+
+    /**
+     * 按字段扫描，返回匹配的行号，按行号升序。
+     * 取值有限的字段先对每种取值求出是否匹配，扫描时只按 byte 或编码查表
+     */
+    int[] matchingRows(QueryType type, String keyword, MatchMode mode) {
+        return switch (type) {
+            case STUDENT_ID -> {
+                if (mode != MatchMode.EXACT) {
+                    yield scanStrings(studentIds, keyword, mode);
+                }
+                int row = rowOf(keyword);
+                yield row < 0 ? new int[0] : new int[]{row};
+            }
+            case NAME -> scanStrings(names, keyword, mode);
+            case GENDER -> scanBytes(genders, accepted(GENDERS, keyword, mode));
+            case AGE -> {
+                boolean[] accepted = new boolean[Byte.MAX_VALUE + 1];
+                for (int age = 0; age < accepted.length; age++) {
+                    accepted[age] = mode.test(String.valueOf(age), keyword);
+                }
+                yield scanBytes(ages, accepted);
+            }
+            case STATUS -> scanBytes(statuses, accepted(StudentStatus.getValidStatusValues(), keyword, mode));
+            case NATIVE_PLACE -> scanCodes(nativePlaces, keyword, mode);
+            case DEPARTMENT -> scanCodes(departments, keyword, mode);
+            case MAJOR -> scanCodes(majors, keyword, mode);
+            case CLASS -> scanCodes(classNames, keyword, mode);
+        };
+    }
+
+    /**
+     * @param values 按 byte 取值排列的字段值
+     */
+    private static boolean[] accepted(String[] values, String keyword, MatchMode mode) {
+        boolean[] accepted = new boolean[values.length];
+        for (int i = 0; i < values.length; i++) {
+            accepted[i] = mode.test(values[i], keyword);
+        }
+        return accepted;
+    }
+
+    /**
+     * @return 年龄在 [min, max] 内的行号，按行号升序
+     */
+    int[] ageRows(int min, int max) {
+        boolean[] accepted = new boolean[Byte.MAX_VALUE + 1];
+        for (int age = Math.max(min, 0); age <= Math.min(max, Byte.MAX_VALUE); age++) {
+            accepted[age] = true;
+        }
+        return scanBytes(ages, accepted);
+    }
+
+    private int[] scanBytes(byte[] column, boolean[] accepted) {
+        RowCollector rows = new RowCollector();
+        for (int row = 0; row < rowCount; row++) {
+            if (accepted[column[row]] && studentIds[row] != null) {
+                rows.add(row);
+            }
+        }
+        return rows.toArray();
+    }
+
+    private int[] scanCodes(CodedColumn column, String keyword, MatchMode mode) {
+        boolean[] accepted = column.matching(keyword, mode);
+        int[] codes = column.codes;
+        RowCollector rows = new RowCollector();
+        for (int row = 0; row < rowCount; row++) {
+            if (accepted[codes[row]] && studentIds[row] != null) {
+                rows.add(row);
+            }
+        }
+        return rows.toArray();
+    }
+
+    private int[] scanStrings(String[] column, String keyword, MatchMode mode) {
+        RowCollector rows = new RowCollector();
+        for (int row = 0; row < rowCount; row++) {
+            String value = column[row];
+            // 已删除行的学号和姓名都已置空
+            if (value != null && mode.test(value, keyword)) {
+                rows.add(row);
+            }
+        }
+        return rows.toArray();
+    }
+
+    private static final class RowCollector {
+        private int[] rows = new int[16];
+        private int count;
+
+        private void add(int row) {
+            if (count == rows.length) {
+                rows = Arrays.copyOf(rows, count * 2);
+            }
+            rows[count++] = row;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(rows, count);
+        }
+    }
+
+    private void grow() {
+        int capacity = studentIds.length * 2;
+        studentIds = Arrays.copyOf(studentIds, capacity);
+        names = Arrays.copyOf(names, capacity);
+        genders = Arrays.copyOf(genders, capacity);
+        ages = Arrays.copyOf(ages, capacity);
+        statuses = Arrays.copyOf(statuses, capacity);
+        for (CodedColumn column : codedColumns) {
+            column.codes = Arrays.copyOf(column.codes, capacity);
+        }
+    }
+
+    /**
+     * 把有效行依次前移覆盖墓碑，保持注册顺序，行号随之改变
+     */
+    private void compact() {
+        int target = 0;
+        for (int row = 0; row < rowCount; row++) {
+            if (studentIds[row] == null) {
+                continue;
+            }
+            if (target != row) {
+                studentIds[target] = studentIds[row];
+                names[target] = names[row];
+                genders[target] = genders[row];
+                ages[target] = ages[row];
+                statuses[target] = statuses[row];
+                for (CodedColumn column : codedColumns) {
+                    column.codes[target] = column.codes[row];
+                }
+            }
+            target++;
+        }
+        Arrays.fill(studentIds, target, rowCount, null);
+        Arrays.fill(names, target, rowCount, null);
+        rowCount = target;
+        rebuildIndex(slots.length);
+    }
+
+    private static int hash(String studentId) {
+        int h = studentId.hashCode();
+        return h ^ (h >>> 16);
+    }
+
+    private void indexPut(int row) {
+        int mask = slots.length - 1;
+        int i = hash(studentIds[row]) & mask;
+        while (slots[i] != 0) {
+            i = (i + 1) & mask;
+        }
+        slots[i] = row + 1;
+    }
+
+    /**
+     * 线性探测下的删除：空出的槽之后同一探测链上的记录依次前移，保证查找不会提前遇到空槽
+     */
+    private void indexRemove(String studentId) {
+        int mask = slots.length - 1;
+        int i = hash(studentId) & mask;
+        while (!studentIds[slots[i] - 1].equals(studentId)) {
+            i = (i + 1) & mask;
+        }
+        slots[i] = 0;
+        for (int j = (i + 1) & mask; slots[j] != 0; j = (j + 1) & mask) {
+            int home = hash(studentIds[slots[j] - 1]) & mask;
+            // home 不在 (i, j] 区间内（按环形计）时，j 上的记录可以移到 i
+            boolean movable = i <= j ? (home <= i || home > j) : (home <= i && home > j);
+            if (movable) {
+                slots[i] = slots[j];
+                slots[j] = 0;
+                i = j;
+            }
+        }
+    }
+
+    private void rebuildIndex(int capacity) {
+        slots = new int[capacity];
+        for (int row = 0; row < rowCount; row++) {
+            if (studentIds[row] != null) {
+                indexPut(row);
+            }
+        }
+    }
+}
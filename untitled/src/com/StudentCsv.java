@@ -0,0 +1,436 @@
+package com;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.CharBuffer;
+import java.util.Arrays;
+
+/**
+ * 学生记录的 CSV 编解码（RFC 4180）
+ * 每条记录 9 个字段，顺序同 HEADER；含逗号、双引号或换行的字段用双引号括起，字段内的双引号写为两个，
+ * 记录以 CRLF 结尾，读取时也接受单独的 LF。文件首行为表头，读取时首行与表头相同则跳过，没有表头的旧文件照常读取。
+ * 只有位于字段开头的双引号才开始一个带引号的字段，字段中间的双引号按普通字符处理，旧文件中的这类字段不受影响。
+ * Writer 直接把字符编码为 UTF-8 写入复用的字节缓冲，Reader 在复用的字符缓冲中定位并原位还原字段，
+ * 读写都不创建整行字符串和 String[]，内存占用与文件大小无关
+ */
+final class StudentCsv {
+    static final int FIELD_COUNT = 9;
+    static final String[] HEADER = {"学号", "姓名", "性别", "年龄", "籍贯", "系别", "专业", "班级", "学籍状态"};
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private StudentCsv() {
+    }
+
+    /**
+     * @return 一条记录，不含换行符；两条记录以逗号相连即为一条 18 个字段的记录
+     */
+    static String format(Student student) {
+        StringBuilder record = new StringBuilder(64);
+        appendField(record, student.getStudentId());
+        record.append(',');
+        appendField(record, student.getName());
+        record.append(',');
+        appendField(record, student.getGender());
+        record.append(',').append(student.getAge()).append(',');
+        appendField(record, student.getNativePlace());
+        record.append(',');
+        appendField(record, student.getDepartment());
+        record.append(',');
+        appendField(record, student.getMajor());
+        record.append(',');
+        appendField(record, student.getClassName());
+        record.append(',');
+        appendField(record, student.getStatus().getValue());
+        return record.toString();
+    }
+
+    private static void appendField(StringBuilder record, String value) {
+        if (!needsQuoting(value)) {
+            record.append(value);
+            return;
+        }
+        record.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == '"') {
+                record.append('"');
+            }
+            record.append(c);
+        }
+        record.append('"');
+    }
+
+    private static boolean needsQuoting(String value) {
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            if (c == ',' || c == '"' || c == '\n' || c == '\r') {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 按字节写出记录，缓冲满时整块写入输出流；不负责落盘，关闭时写出剩余内容并关闭输出流
+     */
+    static final class Writer implements Closeable {
+        private final OutputStream out;
+        private final byte[] buffer = new byte[BUFFER_SIZE];
+        private int count;
+        private boolean recordStart = true;
+
+        Writer(OutputStream out) {
+            this.out = out;
+        }
+
+        void writeHeader() throws IOException {
+            for (String name : HEADER) {
+                field(name);
+            }
+            endRecord();
+        }
+
+        void write(Student student) throws IOException {
+            writeFields(student);
+            endRecord();
+        }
+
+        /**
+         * 写出学生的 9 个字段，不结束记录，可接着写入其他字段
+         */
+        void writeFields(Student student) throws IOException {
+            field(student.getStudentId());
+            field(student.getName());
+            field(student.getGender());
+            field(student.getAge());
+            field(student.getNativePlace());
+            field(student.getDepartment());
+            field(student.getMajor());
+            field(student.getClassName());
+            field(student.getStatus().getValue());
+        }
+
+        void endRecord() throws IOException {
+            ensureCapacity(2);
+            buffer[count++] = '\r';
+            buffer[count++] = '\n';
+            recordStart = true;
+        }
+
+        private void field(String value) throws IOException {
+            separate();
+            if (!needsQuoting(value)) {
+                encode(value);
+                return;
+            }
+            ensureCapacity(1);
+            buffer[count++] = '"';
+            for (int i = 0; i < value.length(); i++) {
+                char c = value.charAt(i);
+                if (c == '"') {
+                    ensureCapacity(1);
+                    buffer[count++] = '"';
+                }
+                i = encode(value, i);
+            }
+            ensureCapacity(1);
+            buffer[count++] = '"';
+        }
+
+        private void field(int value) throws IOException {
+            separate();
+            encode(Integer.toString(value));
+        }
+
+        private void separate() throws IOException {
+            if (!recordStart) {
+                ensureCapacity(1);
+                buffer[count++] = ',';
+            }
+            recordStart = false;
+        }
+
+        private void encode(String value) throws IOException {
+            for (int i = 0; i < value.length(); i++) {
+                i = encode(value, i);
+            }
+        }
+
+        /**
+         * 把 value 中下标 i 处的字符编码为 UTF-8，代理对合为一个 4 字节序列，落单的代理字符写为 '?'，与 JDK 编码器一致
+         *
+         * @return 已编码的最后一个字符的下标
+         */
+        private int encode(String value, int i) throws IOException {
+            ensureCapacity(4);
+            char c = value.charAt(i);
+            if (c < 0x80) {
+                buffer[count++] = (byte) c;
+            } else if (c < 0x800) {
+                buffer[count++] = (byte) (0xC0 | (c >> 6));
+                buffer[count++] = (byte) (0x80 | (c & 0x3F));
+            } else if (Character.isHighSurrogate(c) && i + 1 < value.length()
+                    && Character.isLowSurrogate(value.charAt(i + 1))) {
+                int codePoint = Character.toCodePoint(c, value.charAt(i + 1));
+                buffer[count++] = (byte) (0xF0 | (codePoint >> 18));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 12) & 0x3F));
+                buffer[count++] = (byte) (0x80 | ((codePoint >> 6) & 0x3F));
+                buffer[count++] = (byte) (0x80 | (codePoint & 0x3F));
+                return i + 1;
+            } else if (Character.isSurrogate(c)) {
+                buffer[count++] = '?';
+            } else {
+                buffer[count++] = (byte) (0xE0 | (c >> 12));
+                buffer[count++] = (byte) (0x80 | ((c >> 6) & 0x3F));
+                buffer[count++] = (byte) (0x80 | (c & 0x3F));
+            }
+            return i;
+        }
+
+        private void ensureCapacity(int bytes) throws IOException {
+            if (count + bytes > buffer.length) {
+                flushBuffer();
+            }
+        }
+
+        private void flushBuffer() throws IOException {
+            out.write(buffer, 0, count);
+            count = 0;
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flushBuffer();
+            } finally {
+                out.close();
+            }
+        }
+    }
+
+    /**
+     * 逐条读取记录。字符流按块读入复用的缓冲，记录跨块时把剩余部分移到缓冲开头再读，
+     * 单条记录超过缓冲时缓冲加倍；字段以起止下标表示，带引号的字段在缓冲中原位去掉引号
+     */
+    static final class Reader implements Closeable {
+        private final java.io.Reader in;
+        private char[] buffer = new char[BUFFER_SIZE];
+        private CharBuffer view = CharBuffer.wrap(buffer);
+        private int position; // 下一条记录的起点
+        private int limit; // 缓冲中有效字符的末尾
+        private boolean eof;
+        private boolean started;
+        private int[] starts = new int[FIELD_COUNT];
+        private int[] ends = new int[FIELD_COUNT];
+        private int fieldCount;
+        private int lineNumber; // 已读记录占用的行数
+        private int recordLine;
+
+        Reader(java.io.Reader in) {
+            this.in = in;
+        }
+
+        /**
+         * 读取下一条记录，之前记录的字段随之失效
+         *
+         * @return 没有更多记录时返回 false
+         */
+        boolean next() throws IOException {
+            if (!started) {
+                started = true;
+                fill();
+                if (limit > 0 && buffer[0] == '\uFEFF') {
+                    position = 1; // 跳过 Excel 等工具写入的 BOM
+                }
+            }
+            int end;
+            while ((end = findRecordEnd()) < 0) {
+                if (eof) {
+                    if (position == limit) {
+                        return false;
+                    }
+                    end = limit;
+                    break;
+                }
+                fill();
+            }
+
+            recordLine = lineNumber + 1;
+            lineNumber++;
+            for (int i = position; i < end; i++) {
+                if (buffer[i] == '\n') {
+                    lineNumber++;
+                }
+            }
+            int recordEnd = end > position && buffer[end - 1] == '\r' ? end - 1 : end;
+            fieldCount = split(position, recordEnd);
+            position = end < limit ? end + 1 : end;
+            return true;
+        }
+
+        /**
+         * @return 当前记录起始的行号，从 1 起计，含表头
+         */
+        int getLineNumber() {
+            return recordLine;
+        }
+
+        /**
+         * 与 String.split(",") 一致，末尾的空字段不计入
+         *
+         * @return 当前记录的字段数，引号不匹配等格式错误时为 0
+         */
+        int getFieldCount() {
+            return fieldCount;
+        }
+
+        String field(int index) {
+            return new String(buffer, starts[index], ends[index] - starts[index]);
+        }
+
+        boolean isHeader() {
+            if (fieldCount != FIELD_COUNT) {
+                return false;
+            }
+            for (int i = 0; i < FIELD_COUNT; i++) {
+                if (ends[i] - starts[i] != HEADER[i].length()) {
+                    return false;
+                }
+                for (int j = 0; j < HEADER[i].length(); j++) {
+                    if (buffer[starts[i] + j] != HEADER[i].charAt(j)) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 由从 first 开始的 9 个字段构造学生
+         *
+         * @throws NumberFormatException      年龄不是整数
+         * @throws StudentManagementException 字段验证失败
+         */
+        Student toStudent(int first) {
+            return new Student.Builder()
+                    .studentId(field(first))
+                    .name(field(first + 1))
+                    .gender(field(first + 2))
+                    .age(Integer.parseInt(view, starts[first + 3], ends[first + 3], 10))
+                    .nativePlace(field(first + 4))
+                    .department(field(first + 5))
+                    .major(field(first + 6))
+                    .className(field(first + 7))
+                    .status(field(first + 8))
+                    .build();
+        }
+
+        /**
+         * @return 引号外第一个换行符的下标，缓冲中没有完整记录时返回 -1
+         */
+        private int findRecordEnd() {
+            boolean quoted = false;
+            int fieldStart = position;
+            int closedAt = position - 2;
+            for (int i = position; i < limit; i++) {
+                char c = buffer[i];
+                if (c == '"') {
+                    if (quoted) {
+                        quoted = false;
+                        closedAt = i;
+                    } else if (i == fieldStart || closedAt == i - 1) {
+                        quoted = true;
+                    }
+                } else if (!quoted) {
+                    if (c == ',') {
+                        fieldStart = i + 1;
+                    } else if (c == '\n') {
+                        return i;
+                    }
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * 拆分 [start, end) 中的一条记录
+         *
+         * @return 不含末尾空字段的字段数，格式错误时为 0
+         */
+        private int split(int start, int end) {
+            int fields = 0;
+            int effective = 0;
+            int i = start;
+            while (true) {
+                int fieldStart = i;
+                int fieldEnd;
+                boolean quoted = i < end && buffer[i] == '"';
+                if (quoted) {
+                    int out = i;
+                    i++;
+                    boolean closed = false;
+                    while (i < end) {
+                        char c = buffer[i++];
+                        if (c != '"') {
+                            buffer[out++] = c;
+                        } else if (i < end && buffer[i] == '"') {
+                            buffer[out++] = '"';
+                            i++;
+                        } else {
+                            closed = true;
+                            break;
+                        }
+                    }
+                    if (!closed || (i < end && buffer[i] != ',')) {
+                        return 0;
+                    }
+                    fieldEnd = out;
+                } else {
+                    while (i < end && buffer[i] != ',') {
+                        i++;
+                    }
+                    fieldEnd = i;
+                }
+                if (fields == starts.length) {
+                    starts = Arrays.copyOf(starts, fields * 2);
+                    ends = Arrays.copyOf(ends, fields * 2);
+                }
+                starts[fields] = fieldStart;
+                ends[fields] = fieldEnd;
+                fields++;
+                if (quoted || fieldEnd > fieldStart) {
+                    effective = fields;
+                }
+                if (i >= end) {
+                    return effective;
+                }
+                i++; // 跳过逗号
+            }
+        }
+
+        private void fill() throws IOException {
+            if (position > 0) {
+                System.arraycopy(buffer, position, buffer, 0, limit - position);
+                limit -= position;
+                position = 0;
+            }
+            if (limit == buffer.length) {
+                buffer = Arrays.copyOf(buffer, buffer.length * 2);
+                view = CharBuffer.wrap(buffer);
+            }
+            int read = in.read(buffer, limit, buffer.length - limit);
+            if (read < 0) {
+                eof = true;
+            } else {
+                limit += read;
+            }
+        }
+
+        @Override
+        public void close() throws IOException {
+            in.close();
+        }
+    }
+}
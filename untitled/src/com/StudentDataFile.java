@@ -0,0 +1,95 @@
+package com;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Predicate;
+
+/**
+ * 学生数据文件的读写，文件为带表头的 CSV（编解码见 StudentCsv）
+ * 供各 StuService 实现共用，也用于导出
+ */
+final class StudentDataFile {
+
+    private StudentDataFile() {
+    }
+
+    /**
+     * 先写临时文件再原子替换，保证数据文件始终完整；逐条编码写出，不在内存中汇总
+     *
+     * @param force 替换前是否强制落盘，写检查点时必须为 true
+     * @return 写出的记录条数
+     */
+    static int write(Path dataFilePath, Iterable<Student> students, boolean force) {
+        try {
+            // 确保父目录存在
+            Files.createDirectories(dataFilePath.getParent());
+
+            // 创建临时文件
+            Path tempFile = Files.createTempFile(dataFilePath.getParent(), "student_", ".tmp");
+
+            int written = 0;
+            try (StudentCsv.Writer writer = new StudentCsv.Writer(Files.newOutputStream(tempFile))) {
+                writer.writeHeader();
+                for (Student student : students) {
+                    writer.write(student);
+                    written++;
+                }
+            }
+            if (force) {
+                try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                    channel.force(true);
+                }
+            }
+
+            // 原子性地替换文件
+            Files.move(tempFile, dataFilePath, StandardCopyOption.REPLACE_EXISTING);
+            return written;
+        } catch (IOException e) {
+            throw new StudentManagementException("保存学生数据失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 逐条解析数据文件，格式错误或验证失败的记录输出警告后跳过；首行为表头时跳过
+     *
+     * @param sink 接收解析出的学生，返回 false 表示学号重复
+     * @return 被 sink 接受的记录条数
+     */
+    static int read(Path dataFilePath, Predicate<Student> sink) {
+        int loaded = 0;
+        try (StudentCsv.Reader reader = new StudentCsv.Reader(
+                new InputStreamReader(Files.newInputStream(dataFilePath), StandardCharsets.UTF_8))) {
+            while (reader.next()) {
+                int lineNumber = reader.getLineNumber();
+                if (lineNumber == 1 && reader.isHeader()) {
+                    continue;
+                }
+                if (reader.getFieldCount() != StudentCsv.FIELD_COUNT) {
+                    System.err.println("警告：第" + lineNumber + "行数据格式不正确，已跳过");
+                    continue;
+                }
+                try {
+                    Student student = reader.toStudent(0);
+                    if (sink.test(student)) {
+                        loaded++;
+                    } else {
+                        System.err.println("警告：第" + lineNumber + "行学号 [" + student.getStudentId() + "] 重复，已跳过");
+                    }
+                } catch (NumberFormatException e) {
+                    System.err.println("警告：第" + lineNumber + "行年龄格式不正确，已跳过");
+                } catch (StudentManagementException e) {
+                    System.err.println("警告：第" + lineNumber + "行数据验证失败：" + e.getMessage());
+                }
+            }
+        } catch (IOException e) {
+            throw new StudentManagementException("加载学生数据失败: " + e.getMessage(), e);
+        }
+        return loaded;
+    }
+}
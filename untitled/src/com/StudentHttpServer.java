@@ -0,0 +1,320 @@
+package com;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * 学生学籍 HTTP/JSON 接口
+ * 基于 JDK 自带的 com.sun.net.httpserver，每个请求在单独的虚拟线程中处理（JDK 21 及以上）；
+ * 运行在 JDK 17 上时退回固定大小的平台线程池。StuService 须为线程安全的实现。
+ * <pre>
+ * GET    /students?after=&amp;size=                              按学号分页列出
+ * GET    /students/search?type=&amp;keyword=&amp;mode=&amp;after=&amp;size=  按字段分页查询，type、mode 取枚举名
+ * GET    /students/stats?field=&amp;subField=                       按一个或两个字段分组统计人数，取 QueryType 枚举名
+ * GET    /students/events?after=&amp;size=                        拉取序号大于 after 的变更事件，须传入事件流
+ * GET    /students/{学号}                                      查询单个学生
+ * POST   /students                                            注册，请求体为学生 JSON
+ * PUT    /students/{学号}                                      修改，请求体为学生 JSON
+ * DELETE /students/{学号}                                      删除
+ * </pre>
+ * 业务校验失败返回 400 和 {"error":"..."}，路径中的学号不存在时返回 404；
+ * 拉取变更事件时 after 之后的事件已被覆盖返回 410，订阅方应重新全量同步
+ */
+public class StudentHttpServer {
+    private static final String CONTEXT = "/students";
+    private static final int DEFAULT_PAGE_SIZE = 20;
+    private static final int MAX_PAGE_SIZE = 1000;
+    private static final int MAX_BODY_BYTES = 64 * 1024;
+    // 连接请求队列长度，并发连接数较多时避免新连接被拒绝
+    private static final int BACKLOG = 4096;
+    // 没有虚拟线程时平台线程池的大小
+    private static final int FALLBACK_THREADS = Math.max(16, Runtime.getRuntime().availableProcessors() * 8);
+
+    static {
+        // JDK 的 HttpServer 先写响应头再写响应体，开启 Nagle 算法时第二次写要等客户端的延迟确认，
+        // 每个请求多出约 40ms；未显式配置时关闭 Nagle 算法。须在 HttpServer 首次创建前设置
+        if (System.getProperty("sun.net.httpserver.nodelay") == null) {
+            System.setProperty("sun.net.httpserver.nodelay", "true");
+        }
+    }
+
+    private final StuService service;
+    private final StudentChangeFeed feed;
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final boolean virtualThreads;
+
+    public StudentHttpServer(StuService service, InetSocketAddress address) throws IOException {
+        this(service, null, address);
+    }
+
+    /**
+     * @param feed 变更事件流，为 null 时不提供 /students/events
+     */
+    public StudentHttpServer(StuService service, StudentChangeFeed feed, InetSocketAddress address) throws IOException {
+        this.service = service;
+        this.feed = feed;
+        this.server = HttpServer.create(address, BACKLOG);
+        ExecutorService virtual = newVirtualThreadExecutor();
+        this.virtualThreads = virtual != null;
+        this.executor = virtual != null ? virtual : Executors.newFixedThreadPool(FALLBACK_THREADS);
+        server.setExecutor(executor);
+        server.createContext(CONTEXT, this::handle);
+    }
+
+    public void start() {
+        server.start();
+    }
+
+    /**
+     * 停止接受新请求，等待处理中的请求至多 delaySeconds 秒
+     */
+    public void stop(int delaySeconds) {
+        server.stop(delaySeconds);
+        executor.shutdown();
+    }
+
+    public InetSocketAddress getAddress() {
+        return server.getAddress();
+    }
+
+    public boolean isUsingVirtualThreads() {
+        return virtualThreads;
+    }
+
+    /**
+     * 通过反射调用 Executors.newVirtualThreadPerTaskExecutor，使代码在 JDK 17 上仍能编译运行
+     *
+     * @return 不支持虚拟线程时返回 null
+     */
+    private static ExecutorService newVirtualThreadExecutor() {
+        try {
+            return (ExecutorService) Executors.class.getMethod("newVirtualThreadPerTaskExecutor").invoke(null);
+        } catch (ReflectiveOperationException e) {
+            // JDK 19、20 上虚拟线程是预览特性，未启用预览时调用会抛出 UnsupportedOperationException
+            return null;
+        }
+    }
+
+    private void handle(HttpExchange exchange) throws IOException {
+        try (exchange) {
+            String path = exchange.getRequestURI().getRawPath();
+            if (!path.equals(CONTEXT) && !path.startsWith(CONTEXT + "/")) {
+                send(exchange, 404, StudentJson.error("路径不存在：" + path));
+                return;
+            }
+            String rest = path.length() > CONTEXT.length() ? path.substring(CONTEXT.length() + 1) : "";
+            String method = exchange.getRequestMethod();
+            try {
+                if (rest.isEmpty()) {
+                    switch (method) {
+                        case "GET" -> list(exchange);
+                        case "POST" -> add(exchange);
+                        default -> send(exchange, 405, StudentJson.error("不支持的请求方法：" + method));
+                    }
+                } else if (rest.equals("search")) {
+                    if (method.equals("GET")) {
+                        search(exchange);
+                    } else {
+                        send(exchange, 405, StudentJson.error("不支持的请求方法：" + method));
+                    }
+                } else if (rest.equals("stats")) {
+                    if (method.equals("GET")) {
+                        stats(exchange);
+                    } else {
+                        send(exchange, 405, StudentJson.error("不支持的请求方法：" + method));
+                    }
+                } else if (rest.equals("events")) {
+                    if (method.equals("GET")) {
+                        events(exchange);
+                    } else {
+                        send(exchange, 405, StudentJson.error("不支持的请求方法：" + method));
+                    }
+                } else if (rest.indexOf('/') >= 0) {
+                    send(exchange, 404, StudentJson.error("路径不存在：" + path));
+                } else {
+                    String studentId = URLDecoder.decode(rest, StandardCharsets.UTF_8);
+                    switch (method) {
+                        case "GET" -> find(exchange, studentId);
+                        case "PUT" -> update(exchange, studentId);
+                        case "DELETE" -> delete(exchange, studentId);
+                        default -> send(exchange, 405, StudentJson.error("不支持的请求方法：" + method));
+                    }
+                }
+            } catch (StudentManagementException | IllegalArgumentException e) {
+                // IllegalArgumentException 来自无法解码的 URL 转义
+                send(exchange, 400, StudentJson.error(e.getMessage()));
+            } catch (RuntimeException e) {
+                send(exchange, 500, StudentJson.error("系统错误: " + e.getMessage()));
+            }
+        }
+    }
+
+    private void list(HttpExchange exchange) throws IOException {
+        Map<String, String> query = queryParameters(exchange);
+        send(exchange, 200, StudentJson.toJson(service.listStudents(query.get("after"), pageSize(query))));
+    }
+
+    private void search(HttpExchange exchange) throws IOException {
+        Map<String, String> query = queryParameters(exchange);
+        String type = query.get("type");
+        String keyword = query.get("keyword");
+        if (type == null || keyword == null) {
+            throw new StudentManagementException("缺少查询参数 type 或 keyword");
+        }
+        String mode = query.getOrDefault("mode", MatchMode.CONTAINS.name());
+        StudentPage page = service.queryPage(keyword, enumParameter(QueryType.class, "type", type),
+                enumParameter(MatchMode.class, "mode", mode), query.get("after"), pageSize(query));
+        send(exchange, 200, StudentJson.toJson(page));
+    }
+
+    private void stats(HttpExchange exchange) throws IOException {
+        Map<String, String> query = queryParameters(exchange);
+        String field = query.get("field");
+        if (field == null) {
+            throw new StudentManagementException("缺少查询参数 field");
+        }
+        QueryType groupField = enumParameter(QueryType.class, "field", field);
+        String subField = query.get("subField");
+        if (subField == null) {
+            send(exchange, 200, StudentJson.toJson(service.countBy(groupField)));
+        } else {
+            send(exchange, 200, StudentJson.toJson(
+                    service.countBy(groupField, enumParameter(QueryType.class, "subField", subField))));
+        }
+    }
+
+    private void events(HttpExchange exchange) throws IOException {
+        if (feed == null) {
+            send(exchange, 404, StudentJson.error("未启用变更事件"));
+            return;
+        }
+        Map<String, String> query = queryParameters(exchange);
+        long after;
+        try {
+            after = Long.parseLong(query.getOrDefault("after", "0"));
+        } catch (NumberFormatException e) {
+            throw new StudentManagementException("事件序号必须是整数：" + query.get("after"));
+        }
+        if (after < 0) {
+            throw new StudentManagementException("无效的事件序号：" + after);
+        }
+        long lastSequence = feed.getLastSequence();
+        List<StudentChangeEvent> events = feed.read(after, pageSize(query));
+        if (!events.isEmpty() && events.get(0).getSequence() > after + 1) {
+            send(exchange, 410, StudentJson.error("序号 " + (after + 1) + " 至 " + (events.get(0).getSequence() - 1)
+                    + " 的变更事件已被覆盖"));
+            return;
+        }
+        if (!events.isEmpty()) {
+            lastSequence = Math.max(lastSequence, events.get(events.size() - 1).getSequence());
+        }
+        send(exchange, 200, StudentJson.toJson(events, lastSequence));
+    }
+
+    private void find(HttpExchange exchange, String studentId) throws IOException {
+        Student student = service.findById(studentId).orElse(null);
+        if (student == null) {
+            send(exchange, 404, StudentJson.error("未找到学号为 [" + studentId + "] 的学生"));
+        } else {
+            send(exchange, 200, StudentJson.toJson(student));
+        }
+    }
+
+    private void add(HttpExchange exchange) throws IOException {
+        Student student = StudentJson.parseStudent(readBody(exchange));
+        service.addStudent(student);
+        exchange.getResponseHeaders().set("Location", CONTEXT + "/" + student.getStudentId());
+        send(exchange, 201, StudentJson.toJson(student));
+    }
+
+    private void update(HttpExchange exchange, String studentId) throws IOException {
+        Student student = StudentJson.parseStudent(readBody(exchange));
+        if (service.findById(studentId).isEmpty()) {
+            send(exchange, 404, StudentJson.error("未找到学号为 [" + studentId + "] 的学生"));
+            return;
+        }
+        service.updateStudent(studentId, student);
+        send(exchange, 200, StudentJson.toJson(student));
+    }
+
+    private void delete(HttpExchange exchange, String studentId) throws IOException {
+        if (service.findById(studentId).isEmpty()) {
+            send(exchange, 404, StudentJson.error("未找到学号为 [" + studentId + "] 的学生"));
+            return;
+        }
+        // 检查之后被并发删除时由 deleteStudent 报告，返回 400
+        service.deleteStudent(studentId);
+        exchange.sendResponseHeaders(204, -1);
+    }
+
+    private static int pageSize(Map<String, String> query) {
+        String size = query.get("size");
+        if (size == null) {
+            return DEFAULT_PAGE_SIZE;
+        }
+        try {
+            int pageSize = Integer.parseInt(size);
+            StudentPage.checkPageSize(pageSize);
+            return Math.min(pageSize, MAX_PAGE_SIZE);
+        } catch (NumberFormatException e) {
+            throw new StudentManagementException("每页条数必须是整数：" + size);
+        }
+    }
+
+    private static <E extends Enum<E>> E enumParameter(Class<E> type, String name, String value) {
+        try {
+            return Enum.valueOf(type, value.toUpperCase(Locale.ROOT));
+        } catch (IllegalArgumentException e) {
+            throw new StudentManagementException("无效的查询参数 " + name + "：" + value);
+        }
+    }
+
+    private static Map<String, String> queryParameters(HttpExchange exchange) {
+        Map<String, String> parameters = new HashMap<>();
+        String query = exchange.getRequestURI().getRawQuery();
+        if (query == null || query.isEmpty()) {
+            return parameters;
+        }
+        for (String pair : query.split("&")) {
+            int separator = pair.indexOf('=');
+            String name = separator < 0 ? pair : pair.substring(0, separator);
+            String value = separator < 0 ? "" : pair.substring(separator + 1);
+            parameters.put(URLDecoder.decode(name, StandardCharsets.UTF_8),
+                    URLDecoder.decode(value, StandardCharsets.UTF_8));
+        }
+        return parameters;
+    }
+
+    private static String readBody(HttpExchange exchange) throws IOException {
+        try (InputStream body = exchange.getRequestBody()) {
+            byte[] bytes = body.readNBytes(MAX_BODY_BYTES + 1);
+            if (bytes.length > MAX_BODY_BYTES) {
+                throw new StudentManagementException("请求体超过 " + MAX_BODY_BYTES + " 字节");
+            }
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+    }
+
+    private static void send(HttpExchange exchange, int status, String json) throws IOException {
+        byte[] bytes = json.getBytes(StandardCharsets.UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream body = exchange.getResponseBody()) {
+            body.write(bytes);
+        }
+    }
+}
@@ -0,0 +1,66 @@
+package com;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * CSV 批量导入
+ * 用内存映射解析器逐条解析文件（首行为表头时跳过），每解析出 BATCH_SIZE 个学生交给 StuService.addStudents
+ * 作为一批注册，再把批内序号换算回文件行号；同时只在内存中保留一批，可导入比内存大的文件
+ */
+final class StudentImporter {
+    static final int BATCH_SIZE = 10_000;
+
+    private StudentImporter() {
+    }
+
+    static BatchResult importCsv(StuService service, Path csvFile) {
+        BatchResult.Builder result = new BatchResult.Builder();
+        List<Student> batch = new ArrayList<>(BATCH_SIZE);
+        int[] lines = new int[BATCH_SIZE]; // 批内每个学生所在的行号
+        int[] succeeded = {0};
+
+        MappedStudentLoader.LineParser parser = new MappedStudentLoader.LineParser(new MappedStudentLoader.LineHandler() {
+            @Override
+            public void onStudent(int lineNumber, Student student) {
+                lines[batch.size()] = lineNumber;
+                batch.add(student);
+                if (batch.size() == BATCH_SIZE) {
+                    succeeded[0] += register(service, batch, lines, result);
+                }
+            }
+
+            @Override
+            public void onSkipped(int lineNumber, String reason) {
+                result.failure(lineNumber, null, reason);
+            }
+        }, true);
+        try (FileChannel channel = FileChannel.open(csvFile, StandardOpenOption.READ)) {
+            MappedStudentLoader.parseRange(channel, 0, channel.size(), parser);
+        } catch (IOException e) {
+            throw new StudentManagementException("读取导入文件失败: " + e.getMessage(), e);
+        }
+        if (!batch.isEmpty()) {
+            succeeded[0] += register(service, batch, lines, result);
+        }
+        return result.succeeded(succeeded[0]).build();
+    }
+
+    /**
+     * 注册一批学生并清空批次，失败的记录按行号记入结果
+     *
+     * @return 注册成功的条数
+     */
+    private static int register(StuService service, List<Student> batch, int[] lines, BatchResult.Builder result) {
+        BatchResult added = service.addStudents(batch);
+        for (BatchResult.Failure failure : added.getFailures()) {
+            result.failure(lines[failure.getPosition() - 1], failure.getStudentId(), failure.getMessage());
+        }
+        batch.clear();
+        return added.getSucceeded();
+    }
+}
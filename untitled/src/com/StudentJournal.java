@@ -0,0 +1,469 @@
+package com;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+
+/**
+ * 学生数据预写日志（追加写）
+ * 每条记录格式：[int 负载长度][int CRC32校验][负载]，负载首字节为操作类型；
+ * 批量操作的负载为 [OP_BATCH][int 操作数][各操作]，整批共用一个校验和，回放时要么全部生效要么全部丢弃
+ * 崩溃时尾部可能出现半条记录，回放时自动截断
+ */
+class StudentJournal implements AutoCloseable {
+    private static final byte OP_ADD = 1;
+    private static final byte OP_UPDATE = 2;
+    private static final byte OP_DELETE = 3;
+    private static final byte OP_BATCH = 4;
+    private static final int HEADER_SIZE = 8;
+
+    private final Path journalPath;
+    private final JournalSyncPolicy syncPolicy;
+    private final int syncInterval;
+    private FileChannel channel;
+    private int recordCount;
+    private int unsyncedCount;
+
+    /**
+     * 日志位置标记
+     */
+    static final class Mark {
+        private final long position;
+        private final int recordCount;
+
+        private Mark(long position, int recordCount) {
+            this.position = position;
+            this.recordCount = recordCount;
+        }
+    }
+
+    /**
+     * 回放日志时的回调
+     */
+    interface Visitor {
+        void onAdd(Student student);
+
+        void onUpdate(String studentId, Student newStudent);
+
+        void onDelete(String studentId);
+    }
+
+    /**
+     * 待写入的一批操作，编码后作为一条日志记录追加
+     */
+    static final class Batch {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream(1024);
+        private final DataOutputStream out = new DataOutputStream(bytes);
+        private int size;
+
+        Batch() {
+            // 先占位，写入时回填操作数
+            writeHeader(0);
+        }
+
+        void add(Student student) {
+            write(OP_ADD, null, student);
+        }
+
+        void update(String studentId, Student newStudent) {
+            write(OP_UPDATE, studentId, newStudent);
+        }
+
+        void delete(String studentId) {
+            write(OP_DELETE, studentId, null);
+        }
+
+        int size() {
+            return size;
+        }
+
+        boolean isEmpty() {
+            return size == 0;
+        }
+
+        private byte[] toPayload() {
+            byte[] payload = bytes.toByteArray();
+            ByteBuffer.wrap(payload, 1, 4).putInt(size);
+            return payload;
+        }
+
+        private void writeHeader(int count) {
+            try {
+                out.writeByte(OP_BATCH);
+                out.writeInt(count);
+            } catch (IOException e) {
+                throw new StudentManagementException("编码日志记录失败: " + e.getMessage(), e);
+            }
+        }
+
+        private void write(byte op, String studentId, Student student) {
+            try {
+                writeOperation(out, op, studentId, student);
+                size++;
+            } catch (IOException e) {
+                throw new StudentManagementException("编码日志记录失败: " + e.getMessage(), e);
+            }
+        }
+    }
+
+    StudentJournal(Path journalPath, JournalSyncPolicy syncPolicy, int syncInterval) {
+        this.journalPath = journalPath;
+        this.syncPolicy = syncPolicy;
+        this.syncInterval = syncInterval;
+    }
+
+    /**
+     * 从头回放日志，遇到损坏或不完整的记录即停止并截断其后内容
+     *
+     * @return 成功回放的操作条数，批量记录按其中的操作数计
+     */
+    synchronized int replay(Visitor visitor) {
+        try {
+            openChannel();
+            channel.position(0);
+            long size = channel.size();
+            long validEnd = 0;
+            int replayed = 0;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+
+            while (validEnd + HEADER_SIZE <= size) {
+                header.clear();
+                readFully(header, validEnd);
+                header.flip();
+                int length = header.getInt();
+                int checksum = header.getInt();
+                if (length <= 0 || validEnd + HEADER_SIZE + length > size) {
+                    break;
+                }
+
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                readFully(payload, validEnd + HEADER_SIZE);
+                if (checksum(payload.array()) != checksum) {
+                    break;
+                }
+
+                int operations;
+                try {
+                    operations = apply(payload.array(), visitor);
+                } catch (IOException | StudentManagementException e) {
+                    System.err.println("警告：日志第" + (replayed + 1) + "条记录无法解析：" + e.getMessage());
+                    break;
+                }
+                validEnd += HEADER_SIZE + length;
+                replayed += operations;
+            }
+
+            if (validEnd < size) {
+                System.err.println("警告：日志尾部存在不完整记录，已截断" + (size - validEnd) + "字节");
+                channel.truncate(validEnd);
+                channel.force(false);
+            }
+            channel.position(validEnd);
+            recordCount = replayed;
+            unsyncedCount = 0;
+            return replayed;
+        } catch (IOException e) {
+            throw new StudentManagementException("回放日志失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 按顺序读出当前日志中的全部记录但不改变日志内容，期间阻塞追加。
+     * 配合 discardBefore 把日志折叠为增量段：读完后在锁外写增量段，再丢弃标记之前的记录
+     *
+     * @return 所读内容末尾的标记
+     */
+    synchronized Mark scan(Visitor visitor) {
+        try {
+            openChannel();
+            long end = channel.position();
+            long position = 0;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (position < end) {
+                header.clear();
+                readFully(header, position);
+                header.flip();
+                int length = header.getInt();
+                int checksum = header.getInt();
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                readFully(payload, position + HEADER_SIZE);
+                if (checksum(payload.array()) != checksum) {
+                    throw new IOException("日志记录校验失败，位置 " + position);
+                }
+                apply(payload.array(), visitor);
+                position += HEADER_SIZE + length;
+            }
+            return new Mark(end, recordCount);
+        } catch (IOException e) {
+            throw new StudentManagementException("读取日志失败: " + e.getMessage(), e);
+        }
+    }
+
+    synchronized void appendAdd(Student student) {
+        append(encode(OP_ADD, null, student), 1);
+    }
+
+    synchronized void appendUpdate(String studentId, Student newStudent) {
+        append(encode(OP_UPDATE, studentId, newStudent), 1);
+    }
+
+    synchronized void appendDelete(String studentId) {
+        append(encode(OP_DELETE, studentId, null), 1);
+    }
+
+    /**
+     * 把一批操作作为一条记录追加，记录数按操作数累计，以便检查点阈值反映实际修改量
+     */
+    synchronized void appendBatch(Batch batch) {
+        if (!batch.isEmpty()) {
+            append(batch.toPayload(), batch.size());
+        }
+    }
+
+    /**
+     * 检查点完成后清空日志
+     */
+    synchronized void reset() {
+        try {
+            openChannel();
+            channel.truncate(0);
+            channel.position(0);
+            channel.force(true);
+            recordCount = 0;
+            unsyncedCount = 0;
+        } catch (IOException e) {
+            throw new StudentManagementException("清空日志失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 记录当前日志末尾位置，配合 discardBefore 实现不阻塞写入的检查点：
+     * 在拷贝内存快照的同时取得标记，快照写完后只丢弃标记之前的记录
+     */
+    synchronized Mark mark() {
+        try {
+            openChannel();
+            return new Mark(channel.position(), recordCount);
+        } catch (IOException e) {
+            throw new StudentManagementException("读取日志位置失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 丢弃标记之前的记录（已包含在检查点快照中），保留其后新追加的记录
+     */
+    synchronized void discardBefore(Mark mark) {
+        try {
+            openChannel();
+            long size = channel.size();
+            if (mark.position >= size) {
+                reset();
+                return;
+            }
+
+            Path tempFile = Files.createTempFile(journalPath.toAbsolutePath().getParent(), "journal_", ".tmp");
+            try (FileChannel temp = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                long copied = 0;
+                while (copied < size - mark.position) {
+                    copied += channel.transferTo(mark.position + copied, size - mark.position - copied, temp);
+                }
+                temp.force(true);
+            }
+            channel.close();
+            Files.move(tempFile, journalPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            channel = null;
+            openChannel();
+            recordCount -= mark.recordCount;
+            unsyncedCount = 0;
+        } catch (IOException e) {
+            throw new StudentManagementException("截断日志失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 写入失败时把日志回退到标记位置，丢弃其后追加的记录
+     */
+    synchronized void rollbackTo(Mark mark) {
+        try {
+            openChannel();
+            if (channel.size() > mark.position) {
+                channel.truncate(mark.position);
+            }
+            channel.position(mark.position);
+            recordCount = mark.recordCount;
+        } catch (IOException e) {
+            throw new StudentManagementException("回退日志失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 将已追加的记录强制落盘
+     */
+    synchronized void sync() {
+        if (channel == null || unsyncedCount == 0) {
+            return;
+        }
+        try {
+            channel.force(false);
+            unsyncedCount = 0;
+        } catch (IOException e) {
+            throw new StudentManagementException("日志刷盘失败: " + e.getMessage(), e);
+        }
+    }
+
+    synchronized int getRecordCount() {
+        return recordCount;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (channel == null) {
+            return;
+        }
+        try {
+            channel.force(false);
+            channel.close();
+        } catch (IOException e) {
+            throw new StudentManagementException("关闭日志失败: " + e.getMessage(), e);
+        } finally {
+            channel = null;
+        }
+    }
+
+    private void append(byte[] payload, int operations) {
+        try {
+            openChannel();
+            ByteBuffer record = ByteBuffer.allocate(HEADER_SIZE + payload.length);
+            record.putInt(payload.length);
+            record.putInt(checksum(payload));
+            record.put(payload);
+            record.flip();
+
+            long start = channel.position();
+            try {
+                while (record.hasRemaining()) {
+                    channel.write(record);
+                }
+            } catch (IOException e) {
+                // 写入一半失败时回退到记录起点，避免留下半条记录
+                channel.truncate(start);
+                channel.position(start);
+                throw e;
+            }
+            recordCount += operations;
+            unsyncedCount++;
+
+            if (syncPolicy == JournalSyncPolicy.ALWAYS
+                    || (syncPolicy == JournalSyncPolicy.PERIODIC && unsyncedCount >= syncInterval)) {
+                channel.force(false);
+                unsyncedCount = 0;
+            }
+        } catch (IOException e) {
+            throw new StudentManagementException("写入日志失败: " + e.getMessage(), e);
+        }
+    }
+
+    private void openChannel() throws IOException {
+        if (channel == null || !channel.isOpen()) {
+            channel = FileChannel.open(journalPath,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            channel.position(channel.size());
+        }
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, position + buffer.position()) < 0) {
+                throw new EOFException("日志意外结束");
+            }
+        }
+    }
+
+    private static int checksum(byte[] payload) {
+        CRC32 crc = new CRC32();
+        crc.update(payload, 0, payload.length);
+        return (int) crc.getValue();
+    }
+
+    private static byte[] encode(byte op, String studentId, Student student) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(128);
+        try (DataOutputStream out = new DataOutputStream(bytes)) {
+            writeOperation(out, op, studentId, student);
+        } catch (IOException e) {
+            throw new StudentManagementException("编码日志记录失败: " + e.getMessage(), e);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static void writeOperation(DataOutputStream out, byte op, String studentId, Student student)
+            throws IOException {
+        out.writeByte(op);
+        if (op != OP_ADD) {
+            out.writeUTF(studentId);
+        }
+        if (op != OP_DELETE) {
+            out.writeUTF(student.getStudentId());
+            out.writeUTF(student.getName());
+            out.writeUTF(student.getGender());
+            out.writeByte(student.getAge());
+            out.writeUTF(student.getNativePlace());
+            out.writeUTF(student.getDepartment());
+            out.writeUTF(student.getMajor());
+            out.writeUTF(student.getClassName());
+            out.writeUTF(student.getStatus().getValue());
+        }
+    }
+
+    /**
+     * @return 记录中包含的操作数
+     */
+    private static int apply(byte[] payload, Visitor visitor) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(payload));
+        byte op = in.readByte();
+        if (op != OP_BATCH) {
+            applyOperation(op, in, visitor);
+            return 1;
+        }
+        int count = in.readInt();
+        for (int i = 0; i < count; i++) {
+            applyOperation(in.readByte(), in, visitor);
+        }
+        return count;
+    }
+
+    private static void applyOperation(byte op, DataInputStream in, Visitor visitor) throws IOException {
+        switch (op) {
+            case OP_ADD -> visitor.onAdd(readStudent(in));
+            case OP_UPDATE -> {
+                String studentId = in.readUTF();
+                visitor.onUpdate(studentId, readStudent(in));
+            }
+            case OP_DELETE -> visitor.onDelete(in.readUTF());
+            default -> throw new IOException("未知的操作类型：" + op);
+        }
+    }
+
+    private static Student readStudent(DataInputStream in) throws IOException {
+        return new Student.Builder()
+                .studentId(in.readUTF())
+                .name(in.readUTF())
+                .gender(in.readUTF())
+                .age(in.readByte())
+                .nativePlace(in.readUTF())
+                .department(in.readUTF())
+                .major(in.readUTF())
+                .className(in.readUTF())
+                .status(in.readUTF())
+                .build();
+    }
+}
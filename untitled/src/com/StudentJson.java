@@ -0,0 +1,328 @@
+package com;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 学生信息与 JSON 的相互转换，供 HTTP 接口使用
+ * 只处理接口用到的结构：学生对象、分页结果、分组统计、变更事件和错误信息；
+ * 解析只接受由字符串、整数和 null 组成的单层对象，不引入第三方 JSON 库
+ */
+final class StudentJson {
+
+    private StudentJson() {
+    }
+
+    static String toJson(Student student) {
+        StringBuilder json = new StringBuilder(256);
+        appendStudent(json, student);
+        return json.toString();
+    }
+
+    /**
+     * @return {"students":[...],"nextCursor":"..."}，已是最后一页时 nextCursor 为 null
+     */
+    static String toJson(StudentPage page) {
+        List<Student> students = page.getStudents();
+        StringBuilder json = new StringBuilder(64 + students.size() * 256);
+        json.append("{\"students\":[");
+        for (int i = 0; i < students.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            appendStudent(json, students.get(i));
+        }
+        json.append("],\"nextCursor\":");
+        appendString(json, page.getNextCursor());
+        return json.append('}').toString();
+    }
+
+    /**
+     * @param counts 分组取值 -> 人数，或分组取值 -> 下一级的分组统计
+     * @return {"取值":人数,...} 或 {"取值":{"取值":人数,...},...}
+     */
+    static String toJson(Map<String, ?> counts) {
+        StringBuilder json = new StringBuilder(16 + counts.size() * 32);
+        appendCounts(json, counts);
+        return json.toString();
+    }
+
+    /**
+     * @return {"events":[{"sequence":1,"type":"ADDED","studentId":"...","before":null,"after":{...},"timestamp":...},...],
+     * "lastSequence":N}，before、after 为学生对象或 null
+     */
+    static String toJson(List<StudentChangeEvent> events, long lastSequence) {
+        StringBuilder json = new StringBuilder(64 + events.size() * 512);
+        json.append("{\"events\":[");
+        for (int i = 0; i < events.size(); i++) {
+            if (i > 0) {
+                json.append(',');
+            }
+            StudentChangeEvent event = events.get(i);
+            json.append("{\"sequence\":").append(event.getSequence());
+            json.append(",\"type\":");
+            appendString(json, event.getType().name());
+            json.append(",\"studentId\":");
+            appendString(json, event.getStudentId());
+            json.append(",\"before\":");
+            appendNullableStudent(json, event.getBefore());
+            json.append(",\"after\":");
+            appendNullableStudent(json, event.getAfter());
+            json.append(",\"timestamp\":").append(event.getTimestamp()).append('}');
+        }
+        json.append("],\"lastSequence\":").append(lastSequence);
+        return json.append('}').toString();
+    }
+
+    static String error(String message) {
+        StringBuilder json = new StringBuilder("{\"error\":");
+        appendString(json, message);
+        return json.append('}').toString();
+    }
+
+    /**
+     * 解析学生 JSON，字段名与 Student 的属性名相同，学籍状态取中文取值（如“入学”），省略时为入学；
+     * 字段取值的校验交给 Student.Builder
+     */
+    static Student parseStudent(String json) {
+        Map<String, Object> fields = new Parser(json).parseObject();
+        Object age = fields.get("age");
+        if (age != null && !(age instanceof Integer)) {
+            throw new StudentManagementException("年龄必须是整数");
+        }
+        Student.Builder builder = new Student.Builder()
+                .studentId(string(fields, "studentId"))
+                .name(string(fields, "name"))
+                .gender(string(fields, "gender"))
+                .age(age == null ? 0 : (Integer) age)
+                .nativePlace(string(fields, "nativePlace"))
+                .department(string(fields, "department"))
+                .major(string(fields, "major"))
+                .className(string(fields, "className"));
+        // 未提供学籍状态时沿用 Builder 的默认值（入学）
+        String status = string(fields, "status");
+        if (status != null) {
+            builder.status(status);
+        }
+        return builder.build();
+    }
+
+    private static String string(Map<String, Object> fields, String name) {
+        Object value = fields.get(name);
+        if (value != null && !(value instanceof String)) {
+            throw new StudentManagementException("字段 " + name + " 必须是字符串");
+        }
+        return (String) value;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static void appendCounts(StringBuilder json, Map<String, ?> counts) {
+        json.append('{');
+        boolean first = true;
+        for (Map.Entry<String, ?> entry : counts.entrySet()) {
+            if (!first) {
+                json.append(',');
+            }
+            first = false;
+            appendString(json, entry.getKey());
+            json.append(':');
+            if (entry.getValue() instanceof Map) {
+                appendCounts(json, (Map<String, ?>) entry.getValue());
+            } else {
+                json.append(entry.getValue());
+            }
+        }
+        json.append('}');
+    }
+
+    private static void appendStudent(StringBuilder json, Student student) {
+        json.append("{\"studentId\":");
+        appendString(json, student.getStudentId());
+        json.append(",\"name\":");
+        appendString(json, student.getName());
+        json.append(",\"gender\":");
+        appendString(json, student.getGender());
+        json.append(",\"age\":").append(student.getAge());
+        json.append(",\"nativePlace\":");
+        appendString(json, student.getNativePlace());
+        json.append(",\"department\":");
+        appendString(json, student.getDepartment());
+        json.append(",\"major\":");
+        appendString(json, student.getMajor());
+        json.append(",\"className\":");
+        appendString(json, student.getClassName());
+        json.append(",\"status\":");
+        appendString(json, student.getStatus().getValue());
+        json.append('}');
+    }
+
+    private static void appendNullableStudent(StringBuilder json, Student student) {
+        if (student == null) {
+            json.append("null");
+        } else {
+            appendStudent(json, student);
+        }
+    }
+
+    private static void appendString(StringBuilder json, String value) {
+        if (value == null) {
+            json.append("null");
+            return;
+        }
+        json.append('"');
+        for (int i = 0; i < value.length(); i++) {
+            char c = value.charAt(i);
+            switch (c) {
+                case '"' -> json.append("\\\"");
+                case '\\' -> json.append("\\\\");
+                case '\n' -> json.append("\\n");
+                case '\r' -> json.append("\\r");
+                case '\t' -> json.append("\\t");
+                default -> {
+                    if (c < 0x20) {
+                        json.append(String.format("\\u%04x", (int) c));
+                    } else {
+                        json.append(c);
+                    }
+                }
+            }
+        }
+        json.append('"');
+    }
+
+    /**
+     * 单层 JSON 对象的递归下降解析器
+     */
+    private static final class Parser {
+        private final String text;
+        private int position;
+
+        private Parser(String text) {
+            this.text = text;
+        }
+
+        private Map<String, Object> parseObject() {
+            Map<String, Object> fields = new HashMap<>();
+            skipWhitespace();
+            expect('{');
+            skipWhitespace();
+            if (peek() == '}') {
+                position++;
+            } else {
+                while (true) {
+                    skipWhitespace();
+                    String name = parseString();
+                    skipWhitespace();
+                    expect(':');
+                    skipWhitespace();
+                    fields.put(name, parseValue());
+                    skipWhitespace();
+                    char next = next();
+                    if (next == '}') {
+                        break;
+                    }
+                    if (next != ',') {
+                        throw error("应为 ',' 或 '}'");
+                    }
+                }
+            }
+            skipWhitespace();
+            if (position < text.length()) {
+                throw error("对象之后有多余的内容");
+            }
+            return fields;
+        }
+
+        private Object parseValue() {
+            char c = peek();
+            if (c == '"') {
+                return parseString();
+            }
+            if (c == '-' || (c >= '0' && c <= '9')) {
+                int start = position;
+                if (c == '-') {
+                    position++;
+                }
+                while (position < text.length() && Character.isDigit(text.charAt(position))) {
+                    position++;
+                }
+                try {
+                    return Integer.parseInt(text.substring(start, position));
+                } catch (NumberFormatException e) {
+                    throw error("无效的整数");
+                }
+            }
+            if (text.startsWith("null", position)) {
+                position += 4;
+                return null;
+            }
+            throw error("只支持字符串、整数和 null");
+        }
+
+        private String parseString() {
+            expect('"');
+            StringBuilder value = new StringBuilder();
+            while (true) {
+                char c = next();
+                if (c == '"') {
+                    return value.toString();
+                }
+                if (c != '\\') {
+                    value.append(c);
+                    continue;
+                }
+                char escaped = next();
+                switch (escaped) {
+                    case '"', '\\', '/' -> value.append(escaped);
+                    case 'b' -> value.append('\b');
+                    case 'f' -> value.append('\f');
+                    case 'n' -> value.append('\n');
+                    case 'r' -> value.append('\r');
+                    case 't' -> value.append('\t');
+                    case 'u' -> {
+                        if (position + 4 > text.length()) {
+                            throw error("不完整的 \\u 转义");
+                        }
+                        try {
+                            value.append((char) Integer.parseInt(text.substring(position, position + 4), 16));
+                        } catch (NumberFormatException e) {
+                            throw error("无效的 \\u 转义");
+                        }
+                        position += 4;
+                    }
+                    default -> throw error("无效的转义字符");
+                }
+            }
+        }
+
+        private void skipWhitespace() {
+            while (position < text.length() && Character.isWhitespace(text.charAt(position))) {
+                position++;
+            }
+        }
+
+        private char peek() {
+            if (position >= text.length()) {
+                throw error("内容不完整");
+            }
+            return text.charAt(position);
+        }
+
+        private char next() {
+            char c = peek();
+            position++;
+            return c;
+        }
+
+        private void expect(char expected) {
+            if (next() != expected) {
+                throw error("应为 '" + expected + "'");
+            }
+        }
+
+        private StudentManagementException error(String reason) {
+            return new StudentManagementException("JSON 格式错误（位置 " + position + "）：" + reason);
+        }
+    }
+}
@@ -3,8 +3,8 @@ package com;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.List;
 import java.util.Scanner;
+import java.util.function.Function;
 
 /**
  * 系统入口：菜单交互
@@ -14,6 +14,7 @@ class StudentManagementApp {
     private final StuService studentService;
     private final Scanner scanner;
     private static final String INVALID_INPUT = "输入无效，请重新输入";
+    private static final int PAGE_SIZE = 20; // 列表和查询结果每页显示的条数
 
     public StudentManagementApp(StuService studentService) {
         this.studentService = studentService;
@@ -42,7 +43,7 @@ class StudentManagementApp {
             while (true) {
                 try {
                     printMenu();
-                    int choice = readIntInput("请选择操作(1-7): ", 1, 7);
+                    int choice = readIntInput("请选择操作(1-10): ", 1, 10);
                     handleChoice(choice);
                 } catch (StudentManagementException e) {
                     System.err.println("操作失败: " + e.getMessage());
@@ -64,7 +65,10 @@ class StudentManagementApp {
         System.out.println("4. 查询学籍");
         System.out.println("5. 保存到文件");
         System.out.println("6. 列出所有信息");
-        System.out.println("7. 退出系统");
+        System.out.println("7. 批量导入");
+        System.out.println("8. 批量导出");
+        System.out.println("9. 运行指标");
+        System.out.println("10. 退出系统");
     }
 
     private void handleChoice(int choice) {
@@ -77,10 +81,14 @@ class StudentManagementApp {
                 studentService.saveToFile();
                 System.out.println("数据已保存");
             }
-            case 6 -> studentService.OutDate();
-            case 7 -> {
+            case 6 -> showPages(cursor -> studentService.listStudents(cursor, PAGE_SIZE), "没有学生记录");
+            case 7 -> importStudents();
+            case 8 -> exportStudents();
+            case 9 -> showMetrics();
+            case 10 -> {
                 System.out.println("正在保存数据...");
                 studentService.saveToFile();
+                studentService.close();
                 System.out.println("系统退出");
                 System.exit(0);
             }
@@ -88,6 +96,14 @@ class StudentManagementApp {
         }
     }
 
+    private void showMetrics() {
+        if (studentService instanceof MetricsStuService) {
+            System.out.print(((MetricsStuService) studentService).dump());
+        } else {
+            System.out.println("未启用运行指标");
+        }
+    }
+
     private void registerStudent() {
         System.out.println("=== 注册学生 ===");
         try {
@@ -173,20 +189,76 @@ class StudentManagementApp {
             int typeChoice = readIntInput("请选择查询类型: ", 1, QueryType.values().length);
             QueryType type = QueryType.fromMenuChoice(typeChoice);
             
+            System.out.println(MatchMode.getMenuDisplay());
+            int modeChoice = readIntInput("请选择匹配方式: ", 1, MatchMode.values().length);
+            MatchMode mode = MatchMode.fromMenuChoice(modeChoice);
+
             String keyword = readNonEmptyInput("请输入关键词: ");
-            List<Student> result = studentService.queryStudents(keyword, type);
-            
-            if (result.isEmpty()) {
-                System.out.println("未找到匹配的学生信息");
-            } else {
-                System.out.println("找到 " + result.size() + " 条记录：");
-                result.forEach(System.out::println);
-            }
+            showPages(cursor -> studentService.queryPage(keyword, type, mode, cursor, PAGE_SIZE), "未找到匹配的学生信息");
         } catch (Exception e) {
             throw new StudentManagementException("查询失败: " + e.getMessage());
         }
     }
 
+    /**
+     * 按学号顺序分页显示，每次只取一页，避免大量结果刷屏
+     *
+     * @param fetch 根据游标取下一页
+     */
+    private void showPages(Function<String, StudentPage> fetch, String emptyMessage) {
+        String cursor = null;
+        int shown = 0;
+        while (true) {
+            StudentPage page = fetch.apply(cursor);
+            if (shown == 0 && page.getStudents().isEmpty()) {
+                System.out.println(emptyMessage);
+                return;
+            }
+            page.getStudents().forEach(System.out::println);
+            shown += page.getStudents().size();
+            if (!page.hasNext()) {
+                System.out.println("共 " + shown + " 条记录");
+                return;
+            }
+            String input = readInput("已显示 " + shown + " 条，回车查看下一页，输入 q 返回: ");
+            if ("q".equalsIgnoreCase(input)) {
+                return;
+            }
+            cursor = page.getNextCursor();
+        }
+    }
+
+    private void importStudents() {
+        System.out.println("=== 批量导入 ===");
+        try {
+            Path csvFile = Paths.get(readNonEmptyInput("请输入CSV文件路径: "));
+            if (!Files.isRegularFile(csvFile)) {
+                System.out.println("文件不存在: " + csvFile);
+                return;
+            }
+            BatchResult result = studentService.importStudents(csvFile);
+            System.out.println("导入完成：" + result);
+            for (BatchResult.Failure failure : result.getFailures()) {
+                System.out.println("第" + failure.getPosition() + "行"
+                        + (failure.getStudentId() == null ? "" : "[" + failure.getStudentId() + "]")
+                        + "：" + failure.getMessage());
+            }
+        } catch (Exception e) {
+            throw new StudentManagementException("批量导入失败: " + e.getMessage());
+        }
+    }
+
+    private void exportStudents() {
+        System.out.println("=== 批量导出 ===");
+        try {
+            Path csvFile = Paths.get(readNonEmptyInput("请输入导出的CSV文件路径: "));
+            int exported = studentService.exportStudents(csvFile);
+            System.out.println("导出完成：共" + exported + "条记录");
+        } catch (Exception e) {
+            throw new StudentManagementException("批量导出失败: " + e.getMessage());
+        }
+    }
+
     private String readInput(String prompt) {
         System.out.print(prompt);
         return scanner.nextLine().trim();
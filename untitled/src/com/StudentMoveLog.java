@@ -0,0 +1,143 @@
+package com;
+
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 分片间移动学生的日志，供 ShardedStuService 使用
+ * 移动分两步：先在目标分片注册新记录，再从原分片删除旧记录，两个分片各自落盘。
+ * 开始移动前追加一条 CSV 记录（旧记录和新记录的字段依次排列，共 18 个字段），两步之间崩溃时原分片会残留旧记录，
+ * 打开时据此补做删除。全部分片保存完成后，保存开始前的日志不再需要，随即丢弃
+ */
+final class StudentMoveLog {
+    private final Path path;
+    private final boolean force;
+
+    static final class Move {
+        private final Student before;
+        private final Student after;
+
+        private Move(Student before, Student after) {
+            this.before = before;
+            this.after = after;
+        }
+
+        Student getBefore() {
+            return before;
+        }
+
+        Student getAfter() {
+            return after;
+        }
+    }
+
+    /**
+     * @param syncPolicy 为 NEVER 时追加后不刷盘，与预写日志一致
+     */
+    StudentMoveLog(Path path, JournalSyncPolicy syncPolicy) {
+        this.path = path;
+        this.force = syncPolicy != JournalSyncPolicy.NEVER;
+    }
+
+    /**
+     * 在移动之前调用，返回后才能修改分片
+     */
+    synchronized void append(Student before, Student after) {
+        String line = StudentCsv.format(before) + ',' + StudentCsv.format(after) + '\n';
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.APPEND)) {
+            ByteBuffer buffer = ByteBuffer.wrap(line.getBytes(StandardCharsets.UTF_8));
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            if (force) {
+                channel.force(false);
+            }
+        } catch (IOException e) {
+            throw new StudentManagementException("写入分片移动日志失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return 当前日志末尾的位置，保存全部分片后传给 discardBefore
+     */
+    synchronized long mark() {
+        try {
+            return Files.exists(path) ? Files.size(path) : 0;
+        } catch (IOException e) {
+            throw new StudentManagementException("读取分片移动日志失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * @return 日志中的移动，按追加顺序；崩溃时写了一半的末条记录等无法解析的记录跳过
+     */
+    synchronized List<Move> read() {
+        List<Move> moves = new ArrayList<>();
+        if (!Files.exists(path)) {
+            return moves;
+        }
+        try (StudentCsv.Reader reader = new StudentCsv.Reader(
+                new InputStreamReader(Files.newInputStream(path), StandardCharsets.UTF_8))) {
+            while (reader.next()) {
+                try {
+                    if (reader.getFieldCount() == StudentCsv.FIELD_COUNT * 2) {
+                        moves.add(new Move(reader.toStudent(0), reader.toStudent(StudentCsv.FIELD_COUNT)));
+                        continue;
+                    }
+                } catch (NumberFormatException | StudentManagementException e) {
+                    // 与格式错误的记录一样跳过
+                }
+                System.err.println("警告：分片移动日志中有无法解析的记录，已跳过");
+            }
+        } catch (IOException e) {
+            throw new StudentManagementException("读取分片移动日志失败: " + e.getMessage(), e);
+        }
+        return moves;
+    }
+
+    /**
+     * 丢弃 mark 之前的日志，之后追加的保留
+     */
+    synchronized void discardBefore(long mark) {
+        try {
+            if (!Files.exists(path)) {
+                return;
+            }
+            long size = Files.size(path);
+            if (size <= mark) {
+                try (FileChannel channel = FileChannel.open(path, StandardOpenOption.WRITE)) {
+                    channel.truncate(0);
+                    channel.force(true);
+                }
+                return;
+            }
+            byte[] remaining;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                ByteBuffer buffer = ByteBuffer.allocate((int) (size - mark));
+                channel.position(mark);
+                while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                    // 读满为止
+                }
+                remaining = buffer.array();
+            }
+            Path tempFile = path.resolveSibling(path.getFileName() + ".tmp");
+            Files.write(tempFile, remaining);
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(tempFile, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new StudentManagementException("截断分片移动日志失败: " + e.getMessage(), e);
+        }
+    }
+}
@@ -0,0 +1,54 @@
+package com;
+
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 按学号分页（键集分页）的一页结果
+ * 下一页以本页最后一个学号为游标继续查询，翻页代价与页码无关，
+ * 翻页期间有增删时也不会重复或遗漏未被修改的记录
+ */
+public final class StudentPage {
+    private final List<Student> students;
+    private final String nextCursor;
+
+    private StudentPage(List<Student> students, String nextCursor) {
+        this.students = Collections.unmodifiableList(students);
+        this.nextCursor = nextCursor;
+    }
+
+    /**
+     * @param fetched 按学号升序取出的至多 pageSize + 1 条记录，多出的一条仅用于判断是否还有下一页
+     */
+    static StudentPage of(List<Student> fetched, int pageSize) {
+        if (fetched.size() <= pageSize) {
+            return new StudentPage(fetched, null);
+        }
+        List<Student> page = fetched.subList(0, pageSize);
+        return new StudentPage(page, page.get(pageSize - 1).getStudentId());
+    }
+
+    /**
+     * @return 本页学生，按学号升序
+     */
+    public List<Student> getStudents() {
+        return students;
+    }
+
+    /**
+     * @return 查询下一页时传入的游标；已是最后一页时为 null
+     */
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    public boolean hasNext() {
+        return nextCursor != null;
+    }
+
+    static void checkPageSize(int pageSize) {
+        if (pageSize <= 0) {
+            throw new StudentManagementException("每页条数必须大于0");
+        }
+    }
+}
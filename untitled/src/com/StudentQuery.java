@@ -0,0 +1,128 @@
+package com;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.PriorityQueue;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 组合查询：WHERE 条件 + ORDER BY + LIMIT
+ * 用法示例（某系全部休学学生按班级排序）：
+ * new StudentQuery.Builder()
+ *         .where(QueryCondition.and(QueryCondition.status(StudentStatus.SUSPENDED),
+ *                 QueryCondition.equalTo(QueryType.DEPARTMENT, "计算机系")))
+ *         .orderBy(QueryType.CLASS)
+ *         .build();
+ */
+public final class StudentQuery {
+    private final QueryCondition condition; // 为 null 时匹配全部学生
+    private final Comparator<Student> order; // 为 null 时按注册顺序
+    private final int limit; // 为 0 时不限制条数
+    private final String description;
+
+    private StudentQuery(Builder builder) {
+        this.condition = builder.condition;
+        this.order = builder.order;
+        this.limit = builder.limit;
+        this.description = (condition == null ? "全部学生" : condition.toString())
+                + (builder.orderLabels.isEmpty() ? "" : " 排序 " + String.join(", ", builder.orderLabels))
+                + (limit == 0 ? "" : " 限制 " + limit + " 条");
+    }
+
+    QueryCondition getCondition() {
+        return condition;
+    }
+
+    /**
+     * 对候选学生依次过滤、排序和截取，只遍历一次：
+     * 无排序时找到足够条数即停止；有排序和条数限制时用容量为 limit 的堆保留前若干条
+     *
+     * @param candidates 按注册顺序排列的候选学生，可以是结果的超集
+     */
+    List<Student> execute(Stream<Student> candidates) {
+        Stream<Student> matched = condition == null ? candidates : candidates.filter(condition::test);
+        if (order == null) {
+            return (limit == 0 ? matched : matched.limit(limit)).collect(Collectors.toList());
+        }
+        if (limit == 0) {
+            return matched.sorted(order).collect(Collectors.toList());
+        }
+
+        // 排序键相同时按注册顺序，与 sorted 的稳定排序结果一致
+        Comparator<Ranked> rank = Comparator.<Ranked, Student>comparing(ranked -> ranked.student, order)
+                .thenComparingLong(ranked -> ranked.sequence);
+        PriorityQueue<Ranked> top = new PriorityQueue<>(limit + 1, rank.reversed());
+        long[] sequence = {0};
+        matched.forEach(student -> {
+            top.add(new Ranked(student, sequence[0]++));
+            if (top.size() > limit) {
+                top.poll();
+            }
+        });
+        List<Ranked> ranked = new ArrayList<>(top);
+        ranked.sort(rank);
+        return ranked.stream().map(r -> r.student).collect(Collectors.toList());
+    }
+
+    @Override
+    public String toString() {
+        return description;
+    }
+
+    private static final class Ranked {
+        private final Student student;
+        private final long sequence;
+
+        private Ranked(Student student, long sequence) {
+            this.student = student;
+            this.sequence = sequence;
+        }
+    }
+
+    public static class Builder {
+        private QueryCondition condition;
+        private Comparator<Student> order;
+        private final List<String> orderLabels = new ArrayList<>();
+        private int limit;
+
+        public Builder where(QueryCondition condition) {
+            this.condition = condition;
+            return this;
+        }
+
+        /**
+         * 追加一个升序排序字段，多次调用时按调用顺序依次比较
+         */
+        public Builder orderBy(QueryType field) {
+            return orderBy(field, false);
+        }
+
+        public Builder orderByDescending(QueryType field) {
+            return orderBy(field, true);
+        }
+
+        private Builder orderBy(QueryType field, boolean descending) {
+            if (field == null) {
+                throw new StudentManagementException("排序字段不能为空");
+            }
+            Comparator<Student> comparator = descending ? field.comparator().reversed() : field.comparator();
+            order = order == null ? comparator : order.thenComparing(comparator);
+            orderLabels.add(field.getLabel() + (descending ? "降序" : "升序"));
+            return this;
+        }
+
+        public Builder limit(int limit) {
+            this.limit = limit;
+            return this;
+        }
+
+        public StudentQuery build() {
+            if (limit < 0) {
+                throw new StudentManagementException("限制条数不能为负数");
+            }
+            return new StudentQuery(this);
+        }
+    }
+}
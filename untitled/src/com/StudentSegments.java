@@ -0,0 +1,413 @@
+package com;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.SortedMap;
+import java.util.TreeMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * SEGMENTED 模式下的分段数据文件
+ * 数据文件是不可变的基础段；每次检查点把预写日志折叠为一个增量段，只包含自上次检查点以来变化的学生，
+ * 按序号命名（数据文件名.delta-序号），以带 CRC 校验的日志记录编码，先写临时文件再原子改名，改名即生效。
+ * 增量段个数或总大小相对基础段超过阈值时，由后台线程把基础段和已有增量段合并为新的数据文件。
+ * 清单文件（数据文件名.segments）记录数据文件已包含到哪个增量段；替换数据文件前先在清单中登记合并结果，
+ * 崩溃后打开时据此补完替换，保证同一个增量段不会被叠加两次
+ */
+final class StudentSegments {
+    private static final String DELTA_SUFFIX = ".delta-";
+    private static final String MANIFEST_SUFFIX = ".segments";
+    private static final String COMPACT_SUFFIX = ".compact";
+
+    private final StuServiceOptions options;
+    private final Path dataDir;
+    private final Path dataFilePath;
+    private final String deltaPrefix;
+    private final Path manifestPath;
+    private final Path compactPath;
+    private final AtomicLong nextSequence = new AtomicLong();
+    private final AtomicBoolean compacting = new AtomicBoolean();
+    private final ExecutorService compactor = Executors.newSingleThreadExecutor(task -> {
+        Thread thread = new Thread(task, "student-segment-compactor");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private long baseSequence; // 数据文件已包含的最后一个增量段序号，受 this 保护
+
+    StudentSegments(StuServiceOptions options) {
+        this.options = options;
+        this.dataDir = options.getDataDir();
+        this.dataFilePath = options.getDataFilePath();
+        String dataFileName = dataFilePath.getFileName().toString();
+        this.deltaPrefix = dataFileName + DELTA_SUFFIX;
+        this.manifestPath = dataDir.resolve(dataFileName + MANIFEST_SUFFIX);
+        this.compactPath = dataDir.resolve(dataFileName + COMPACT_SUFFIX);
+        recover();
+        SortedMap<Long, Path> deltas = deltaFiles(baseSequence);
+        nextSequence.set((deltas.isEmpty() ? baseSequence : deltas.lastKey()) + 1);
+    }
+
+    /**
+     * 加载基础段，再按序号叠加尚未合并的增量段
+     *
+     * @return 是否找到了可加载的数据
+     */
+    synchronized boolean load(Predicate<Student> sink) {
+        SortedMap<Long, Path> deltas = deltaFiles(baseSequence);
+        if (deltas.isEmpty()) {
+            return SnapshotFormat.load(options, sink);
+        }
+        Map<String, Student> students = readSegments(deltas);
+        students.values().forEach(sink::test);
+        System.out.println("已叠加" + deltas.size() + "个增量段");
+        return true;
+    }
+
+    /**
+     * 写检查点：把日志折叠为一个增量段，再丢弃已折叠的记录。读日志期间阻塞追加，写增量段时不阻塞。
+     * 增量段生效后、丢弃日志前崩溃时，重启后日志会在增量段之上再回放一次，回放是幂等的
+     */
+    void checkpoint(StudentJournal journal) {
+        DeltaBuilder delta = new DeltaBuilder();
+        StudentJournal.Mark mark = journal.scan(delta);
+        StudentJournal.Batch batch = delta.toBatch();
+        if (!batch.isEmpty()) {
+            writeDelta(batch);
+        }
+        journal.discardBefore(mark);
+        if (!batch.isEmpty()) {
+            scheduleCompaction();
+        }
+    }
+
+    /**
+     * 把基础段和当前全部增量段合并为新的数据文件，合并期间新写入的增量段留待下次合并
+     */
+    void compact() {
+        long base;
+        synchronized (this) {
+            base = baseSequence;
+        }
+        SortedMap<Long, Path> deltas = deltaFiles(base);
+        if (deltas.isEmpty()) {
+            return;
+        }
+        long through = deltas.lastKey();
+        options.getSnapshotFormat().write(compactPath, readSegments(deltas).values(), true);
+        synchronized (this) {
+            // 先登记再替换：替换后、更新清单前崩溃时，打开时不会把已合并的增量段再叠加一次
+            writeManifest(base, through);
+            install(through);
+        }
+        deleteDeltas(through);
+    }
+
+    /**
+     * @return 最新一个增量段的字节数，没有增量段时返回 0
+     */
+    static long newestDeltaSize(Path dataFilePath) {
+        String prefix = dataFilePath.getFileName().toString() + DELTA_SUFFIX;
+        SortedMap<Long, Path> deltas = listDeltas(dataFilePath.toAbsolutePath().getParent(), prefix, 0);
+        return deltas.isEmpty() ? 0 : sizeOf(deltas.get(deltas.lastKey()));
+    }
+
+    /**
+     * 等待进行中的合并结束后停止后台线程
+     */
+    void close() {
+        compactor.shutdown();
+        try {
+            compactor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void scheduleCompaction() {
+        if (needsCompaction() && compacting.compareAndSet(false, true)) {
+            compactor.execute(() -> {
+                try {
+                    compact();
+                } catch (RuntimeException e) {
+                    System.err.println("警告：合并增量段失败，下次检查点后重试：" + e.getMessage());
+                } finally {
+                    compacting.set(false);
+                }
+            });
+        }
+    }
+
+    private boolean needsCompaction() {
+        long base;
+        synchronized (this) {
+            base = baseSequence;
+        }
+        SortedMap<Long, Path> deltas = deltaFiles(base);
+        if (deltas.size() >= options.getCompactionMaxDeltas()) {
+            return true;
+        }
+        long deltaBytes = 0;
+        for (Path delta : deltas.values()) {
+            deltaBytes += sizeOf(delta);
+        }
+        return deltaBytes >= options.getCompactionRatio() * sizeOf(dataFilePath);
+    }
+
+    /**
+     * 按注册顺序读出基础段叠加增量段后的全部学生
+     */
+    private Map<String, Student> readSegments(SortedMap<Long, Path> deltas) {
+        Map<String, Student> students = new LinkedHashMap<>();
+        SnapshotFormat.load(options, student -> students.putIfAbsent(student.getStudentId(), student) == null);
+        for (Path delta : deltas.values()) {
+            overlay(delta, students);
+        }
+        return students;
+    }
+
+    /**
+     * 增量段中先是删除，再是原地修改，最后是按注册顺序排列的新增；
+     * 修改已有学号时 LinkedHashMap 保持原位置，新增的学号追加到末尾，与内存中的注册顺序一致
+     */
+    private static void overlay(Path delta, Map<String, Student> students) {
+        try (StudentJournal segment = new StudentJournal(delta, JournalSyncPolicy.NEVER, 1)) {
+            segment.replay(new StudentJournal.Visitor() {
+                @Override
+                public void onAdd(Student student) {
+                    students.put(student.getStudentId(), student);
+                }
+
+                @Override
+                public void onUpdate(String studentId, Student newStudent) {
+                    if (!studentId.equals(newStudent.getStudentId())) {
+                        students.remove(studentId);
+                    }
+                    students.put(newStudent.getStudentId(), newStudent);
+                }
+
+                @Override
+                public void onDelete(String studentId) {
+                    students.remove(studentId);
+                }
+            });
+        }
+    }
+
+    private void writeDelta(StudentJournal.Batch batch) {
+        Path target = dataDir.resolve(deltaPrefix + String.format("%010d", nextSequence.getAndIncrement()));
+        Path tempFile = null;
+        try {
+            tempFile = Files.createTempFile(dataDir, "delta_", ".tmp");
+            try (StudentJournal segment = new StudentJournal(tempFile, JournalSyncPolicy.NEVER, 1)) {
+                segment.appendBatch(batch);
+            }
+            Files.move(tempFile, target, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException | StudentManagementException e) {
+            deleteQuietly(tempFile);
+            throw new StudentManagementException("写入增量段失败: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * 打开时完成上次未完成的合并：已登记的合并结果若还在则替换数据文件，未登记的丢弃；
+     * 再删除已并入数据文件的增量段
+     */
+    private synchronized void recover() {
+        long base = 0;
+        long pending = -1;
+        try {
+            if (Files.exists(manifestPath)) {
+                for (String line : Files.readAllLines(manifestPath, StandardCharsets.UTF_8)) {
+                    int separator = line.indexOf('=');
+                    if (separator < 0) {
+                        continue;
+                    }
+                    long value = Long.parseLong(line.substring(separator + 1).trim());
+                    switch (line.substring(0, separator).trim()) {
+                        case "base" -> base = value;
+                        case "pending" -> pending = value;
+                        default -> {
+                        }
+                    }
+                }
+            }
+        } catch (IOException | NumberFormatException e) {
+            throw new StudentManagementException("读取分段清单失败: " + e.getMessage(), e);
+        }
+        baseSequence = base;
+        if (pending >= 0) {
+            System.out.println("完成上次中断的增量段合并");
+            install(pending);
+        } else {
+            deleteQuietly(compactPath);
+        }
+        deleteDeltas(baseSequence);
+    }
+
+    /**
+     * 用合并结果替换数据文件并更新清单，调用方持有 this 的锁。
+     * 合并结果已不存在说明替换已经完成，只需更新清单
+     */
+    private void install(long through) {
+        try {
+            if (Files.exists(compactPath)) {
+                Files.move(compactPath, dataFilePath, StandardCopyOption.REPLACE_EXISTING,
+                        StandardCopyOption.ATOMIC_MOVE);
+            }
+        } catch (IOException e) {
+            throw new StudentManagementException("替换数据文件失败: " + e.getMessage(), e);
+        }
+        writeManifest(through, -1);
+        baseSequence = through;
+    }
+
+    private void writeManifest(long base, long pending) {
+        StringBuilder content = new StringBuilder("base=").append(base).append('\n');
+        if (pending >= 0) {
+            content.append("pending=").append(pending).append('\n');
+        }
+        Path tempFile = manifestPath.resolveSibling(manifestPath.getFileName() + ".tmp");
+        try {
+            Files.write(tempFile, content.toString().getBytes(StandardCharsets.UTF_8));
+            try (FileChannel channel = FileChannel.open(tempFile, StandardOpenOption.WRITE)) {
+                channel.force(true);
+            }
+            Files.move(tempFile, manifestPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        } catch (IOException e) {
+            throw new StudentManagementException("写入分段清单失败: " + e.getMessage(), e);
+        }
+    }
+
+    private void deleteDeltas(long through) {
+        for (Path delta : listDeltas(dataDir, deltaPrefix, Long.MIN_VALUE).headMap(through + 1).values()) {
+            deleteQuietly(delta);
+        }
+    }
+
+    /**
+     * @return 序号大于 after 的增量段，按序号排列
+     */
+    private SortedMap<Long, Path> deltaFiles(long after) {
+        return listDeltas(dataDir, deltaPrefix, after);
+    }
+
+    private static SortedMap<Long, Path> listDeltas(Path dir, String prefix, long after) {
+        SortedMap<Long, Path> deltas = new TreeMap<>();
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, prefix + "*")) {
+            for (Path file : files) {
+                try {
+                    long sequence = Long.parseLong(file.getFileName().toString().substring(prefix.length()));
+                    if (sequence > after) {
+                        deltas.put(sequence, file);
+                    }
+                } catch (NumberFormatException e) {
+                    // 不是增量段
+                }
+            }
+        } catch (IOException e) {
+            throw new StudentManagementException("列出增量段失败: " + e.getMessage(), e);
+        }
+        return deltas;
+    }
+
+    private static long sizeOf(Path path) {
+        try {
+            return Files.size(path);
+        } catch (IOException e) {
+            return 0;
+        }
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException e) {
+            System.err.println("警告：无法删除文件 " + path + "：" + e.getMessage());
+        }
+    }
+
+    /**
+     * 把一段日志折叠为增量段：每个学号只保留最终状态。
+     * 被删除过的学号先输出删除；检查点之前已存在、只被修改过的学号原地修改；
+     * 在这段日志中注册（含删除后重新注册、修改学号）的学号按最后一次注册的先后追加
+     */
+    private static final class DeltaBuilder implements StudentJournal.Visitor {
+        private final Map<String, Change> changes = new HashMap<>();
+        private long sequence;
+
+        private static final class Change {
+            private Student student; // 为 null 表示最终已删除
+            private boolean removed;
+            private long addedAt = -1;
+        }
+
+        @Override
+        public void onAdd(Student student) {
+            Change change = changes.computeIfAbsent(student.getStudentId(), id -> new Change());
+            change.student = student;
+            change.addedAt = sequence++;
+        }
+
+        @Override
+        public void onUpdate(String studentId, Student newStudent) {
+            if (!studentId.equals(newStudent.getStudentId())) {
+                onDelete(studentId);
+                onAdd(newStudent);
+                return;
+            }
+            changes.computeIfAbsent(studentId, id -> new Change()).student = newStudent;
+        }
+
+        @Override
+        public void onDelete(String studentId) {
+            Change change = changes.computeIfAbsent(studentId, id -> new Change());
+            change.student = null;
+            change.removed = true;
+            change.addedAt = -1;
+        }
+
+        private StudentJournal.Batch toBatch() {
+            StudentJournal.Batch batch = new StudentJournal.Batch();
+            List<Change> added = new ArrayList<>();
+            changes.forEach((studentId, change) -> {
+                if (change.removed) {
+                    batch.delete(studentId);
+                }
+            });
+            changes.forEach((studentId, change) -> {
+                if (change.student != null) {
+                    if (change.addedAt < 0) {
+                        batch.update(studentId, change.student);
+                    } else {
+                        added.add(change);
+                    }
+                }
+            });
+            added.sort(Comparator.comparingLong(change -> change.addedAt));
+            for (Change change : added) {
+                batch.add(change.student);
+            }
+            return batch;
+        }
+    }
+}
@@ -0,0 +1,47 @@
+package com;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * 学生数据的时间点快照：内容固定为创建时刻的数据，此后的增删改对它不可见，
+ * 导出、列出全部学生等耗时的遍历持有快照进行，期间其他线程照常修改。
+ * 用完必须关闭（建议 try-with-resources），多版本实现在关闭后才能回收为它保留的旧版本
+ */
+public interface StudentSnapshot extends AutoCloseable {
+    /**
+     * 按注册顺序返回快照中的学生，可多次调用，每次结果相同；应在关闭前消费完毕
+     */
+    Stream<Student> stream();
+
+    /**
+     * 在快照上执行组合查询，不使用索引
+     */
+    default List<Student> query(StudentQuery query) {
+        return query.execute(stream());
+    }
+
+    @Override
+    void close();
+
+    /**
+     * 基于副本的快照，供没有多版本存储的实现使用
+     *
+     * @param students 调用方为本快照拷贝的全部学生，此后不能再修改；快照不再拷贝，只包装为只读视图
+     */
+    static StudentSnapshot of(List<Student> students) {
+        List<Student> readOnly = Collections.unmodifiableList(students);
+        return new StudentSnapshot() {
+            @Override
+            public Stream<Student> stream() {
+                return readOnly.stream();
+            }
+
+            @Override
+            public void close() {
+                // 副本随快照一起被回收
+            }
+        };
+    }
+}
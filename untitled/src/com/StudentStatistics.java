@@ -0,0 +1,199 @@
+package com;
+
+import java.util.Comparator;
+import java.util.EnumMap;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * 分组人数统计：按单个字段以及任意两个字段组合的人数计数
+ * 作为一种不参与查询的二级索引随每次增删改增量维护：修改时先按旧值减一再按新值加一，
+ * 学籍状态变更等都只改动常数个计数；统计查询只读取计数，不扫描学生，加载数据时随插入一遍重建。
+ * 只统计取值较少的字段（见 FIELDS），其他字段的统计由 StuService 的默认实现扫描得出。
+ * 计数可被多个线程并发修改；统计结果不是原子快照，并发修改期间各组人数之和可能与总人数暂时不一致。
+ * 人数减到 0 的分组保留计数器但不出现在结果中，clear 时一并清除
+ */
+class StudentStatistics implements SecondaryIndex {
+    static final Set<QueryType> FIELDS = EnumSet.of(QueryType.STATUS, QueryType.DEPARTMENT, QueryType.MAJOR,
+            QueryType.CLASS, QueryType.GENDER, QueryType.AGE);
+
+    private static final QueryType[] TRACKED = FIELDS.toArray(new QueryType[0]);
+
+    private final Map<QueryType, Map<String, LongAdder>> counts = new EnumMap<>(QueryType.class);
+    // 字段 -> 另一个字段 -> 取值 -> 另一字段取值 -> 人数；每对字段只在按枚举顺序靠前的一方登记
+    private final Map<QueryType, Map<QueryType, Map<String, Map<String, LongAdder>>>> pairCounts =
+            new EnumMap<>(QueryType.class);
+
+    StudentStatistics() {
+        for (int i = 0; i < TRACKED.length; i++) {
+            counts.put(TRACKED[i], new ConcurrentHashMap<>());
+            Map<QueryType, Map<String, Map<String, LongAdder>>> pairs = new EnumMap<>(QueryType.class);
+            for (int j = i + 1; j < TRACKED.length; j++) {
+                pairs.put(TRACKED[j], new ConcurrentHashMap<>());
+            }
+            pairCounts.put(TRACKED[i], pairs);
+        }
+    }
+
+    @Override
+    public void add(Student student) {
+        update(student, 1);
+    }
+
+    @Override
+    public void remove(Student student) {
+        update(student, -1);
+    }
+
+    @Override
+    public void clear() {
+        counts.values().forEach(Map::clear);
+        pairCounts.values().forEach(pairs -> pairs.values().forEach(Map::clear));
+    }
+
+    /**
+     * 统计计数不用于查询
+     */
+    @Override
+    public Set<String> candidates(String keyword, MatchMode mode) {
+        return null;
+    }
+
+    static boolean supports(QueryType field) {
+        return FIELDS.contains(field);
+    }
+
+    /**
+     * @return 字段取值 -> 人数，按取值排序
+     */
+    Map<String, Long> countBy(QueryType field) {
+        checkField(field);
+        return toCounts(counts.get(field), field);
+    }
+
+    /**
+     * @return 第一个字段的取值 -> (第二个字段的取值 -> 人数)，两层都按取值排序
+     */
+    Map<String, Map<String, Long>> countBy(QueryType field, QueryType subField) {
+        checkFields(field, subField);
+        Map<String, Map<String, Long>> result = new TreeMap<>(valueOrder(field));
+        if (field.ordinal() < subField.ordinal()) {
+            pairCounts.get(field).get(subField).forEach((value, subCounts) -> {
+                Map<String, Long> counted = toCounts(subCounts, subField);
+                if (!counted.isEmpty()) {
+                    result.put(value, counted);
+                }
+            });
+        } else {
+            // 只登记了反方向的计数，转置后返回
+            pairCounts.get(subField).get(field).forEach((subValue, fieldCounts) -> fieldCounts.forEach((value, count) -> {
+                long sum = count.sum();
+                if (sum > 0) {
+                    result.computeIfAbsent(value, v -> new TreeMap<>(valueOrder(subField))).put(subValue, sum);
+                }
+            }));
+        }
+        return result;
+    }
+
+    /**
+     * 扫描给定的学生统计人数，供没有维护计数的实现和不在 FIELDS 中的字段使用
+     */
+    static Map<String, Long> countBy(Stream<Student> students, QueryType field) {
+        checkField(field);
+        return students.collect(Collectors.groupingBy(field::getFieldValue,
+                () -> new TreeMap<>(valueOrder(field)), Collectors.counting()));
+    }
+
+    static Map<String, Map<String, Long>> countBy(Stream<Student> students, QueryType field, QueryType subField) {
+        checkFields(field, subField);
+        return students.collect(Collectors.groupingBy(field::getFieldValue, () -> new TreeMap<>(valueOrder(field)),
+                Collectors.groupingBy(subField::getFieldValue, () -> new TreeMap<>(valueOrder(subField)),
+                        Collectors.counting())));
+    }
+
+    /**
+     * 合并多份统计结果（如各分片的统计），相同取值的人数相加
+     */
+    static Map<String, Long> merge(QueryType field, Iterable<Map<String, Long>> parts) {
+        Map<String, Long> result = new TreeMap<>(valueOrder(field));
+        for (Map<String, Long> part : parts) {
+            part.forEach((value, count) -> result.merge(value, count, Long::sum));
+        }
+        return result;
+    }
+
+    static Map<String, Map<String, Long>> merge(QueryType field, QueryType subField,
+                                                Iterable<Map<String, Map<String, Long>>> parts) {
+        Map<String, Map<String, Long>> result = new TreeMap<>(valueOrder(field));
+        for (Map<String, Map<String, Long>> part : parts) {
+            part.forEach((value, subCounts) -> {
+                Map<String, Long> merged = result.computeIfAbsent(value, v -> new TreeMap<>(valueOrder(subField)));
+                subCounts.forEach((subValue, count) -> merged.merge(subValue, count, Long::sum));
+            });
+        }
+        return result;
+    }
+
+    static void checkField(QueryType field) {
+        if (field == null) {
+            throw new StudentManagementException("统计字段不能为空");
+        }
+    }
+
+    static void checkFields(QueryType field, QueryType subField) {
+        checkField(field);
+        checkField(subField);
+        if (field == subField) {
+            throw new StudentManagementException("两个统计字段不能相同：" + field.getLabel());
+        }
+    }
+
+    private void update(Student student, int delta) {
+        String[] values = new String[TRACKED.length];
+        for (int i = 0; i < TRACKED.length; i++) {
+            values[i] = TRACKED[i].getFieldValue(student);
+            counter(counts.get(TRACKED[i]), values[i]).add(delta);
+        }
+        for (int i = 0; i < TRACKED.length; i++) {
+            Map<QueryType, Map<String, Map<String, LongAdder>>> pairs = pairCounts.get(TRACKED[i]);
+            for (int j = i + 1; j < TRACKED.length; j++) {
+                Map<String, Map<String, LongAdder>> pairCounters = pairs.get(TRACKED[j]);
+                Map<String, LongAdder> subCounts = pairCounters.get(values[i]);
+                if (subCounts == null) {
+                    subCounts = pairCounters.computeIfAbsent(values[i], v -> new ConcurrentHashMap<>());
+                }
+                counter(subCounts, values[j]).add(delta);
+            }
+        }
+    }
+
+    private static LongAdder counter(Map<String, LongAdder> counters, String value) {
+        LongAdder counter = counters.get(value);
+        return counter != null ? counter : counters.computeIfAbsent(value, v -> new LongAdder());
+    }
+
+    private static Map<String, Long> toCounts(Map<String, LongAdder> counters, QueryType field) {
+        Map<String, Long> result = new TreeMap<>(valueOrder(field));
+        counters.forEach((value, counter) -> {
+            long count = counter.sum();
+            if (count > 0) {
+                result.put(value, count);
+            }
+        });
+        return result;
+    }
+
+    /**
+     * 年龄按数值排序，其他字段按字符串排序
+     */
+    private static Comparator<String> valueOrder(QueryType field) {
+        return field == QueryType.AGE ? Comparator.comparing(Integer::valueOf) : Comparator.naturalOrder();
+    }
+}
@@ -1,5 +1,8 @@
 package com;
 
+import java.util.HashMap;
+import java.util.Map;
+
 /**
  * 学生学籍状态枚举
  */
@@ -9,6 +12,16 @@ public enum StudentStatus {
     WITHDRAWN("退学", "已办理退学"),
     REPEATED("留级", "需要重修学年");
 
+    // 状态值 -> 枚举，避免每次解析都遍历全部枚举值
+    private static final Map<String, StudentStatus> BY_VALUE = new HashMap<>();
+    private static final StudentStatus[] VALUES = values();
+
+    static {
+        for (StudentStatus status : VALUES) {
+            BY_VALUE.put(status.value, status);
+        }
+    }
+
     private final String value;
     private final String description;
 
@@ -26,10 +39,9 @@ public enum StudentStatus {
     }
 
     public static StudentStatus fromString(String text) {
-        for (StudentStatus status : StudentStatus.values()) {
-            if (status.value.equals(text)) {
-                return status;
-            }
+        StudentStatus status = text == null ? null : BY_VALUE.get(text);
+        if (status != null) {
+            return status;
         }
         throw new StudentManagementException(
             String.format("无效的学籍状态：'%s'。有效状态为：%s", 
@@ -38,6 +50,16 @@ public enum StudentStatus {
         );
     }
 
+    /**
+     * 按序号取状态，供二进制快照解码使用
+     */
+    public static StudentStatus fromOrdinal(int ordinal) {
+        if (ordinal < 0 || ordinal >= VALUES.length) {
+            throw new StudentManagementException("无效的学籍状态序号：" + ordinal);
+        }
+        return VALUES[ordinal];
+    }
+
     public static String[] getValidStatusValues() {
         StudentStatus[] statuses = StudentStatus.values();
         String[] values = new String[statuses.length];
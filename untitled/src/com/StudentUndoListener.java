@@ -0,0 +1,16 @@
+package com;
+
+/**
+ * 修改被撤销时的回调，由 StuService.addUndoListener 注册
+ * ASYNC 模式下落盘失败的修改在之后的修改或保存开始时撤销，装饰器据此同步缓存、变更事件和分片的学号映射
+ */
+@FunctionalInterface
+public interface StudentUndoListener {
+    /**
+     * 撤销一条修改后在执行撤销的线程上回调
+     *
+     * @param undone   被撤销的修改写入的记录，撤销删除时为 null
+     * @param restored 恢复的修改前的记录，撤销注册时为 null
+     */
+    void onUndone(Student undone, Student restored);
+}
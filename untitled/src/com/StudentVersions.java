@@ -0,0 +1,275 @@
+package com;
+
+import java.lang.ref.Cleaner;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.stream.Stream;
+
+/**
+ * 按注册顺序保存学生的多版本存储，为 ConcurrentStuServiceImpl 提供时间点快照
+ * 每个注册序号对应一条版本链，最新版本在前。修改不改动旧版本，而是在链头插入带版本号的新版本，删除插入墓碑；
+ * 一次修改（见 Write）涉及的各条链使用同一版本号。快照记下创建时已结束的最大版本号：不晚于它的修改都已结束，
+ * 进行中的修改版本号都更大，因此快照只会看到完整的修改。读取时沿每条链取第一个不晚于该版本号的版本，
+ * 创建快照不拷贝数据、不等待修改，遍历不加锁。
+ * 修改结束时裁剪它涉及的链：早于最老的打开快照的版本不会再被读取，随即丢弃；更早开始的修改尚未结束时推迟到它结束后裁剪；
+ * 因快照而保留了旧版本的链在最老的快照关闭时统一裁剪。忘记关闭的快照被垃圾回收后由 Cleaner 兜底释放。
+ * 修改方负责互斥：同一注册序号的修改串行执行，先取得互斥再开始修改
+ */
+final class StudentVersions {
+    private static final Cleaner CLEANER = Cleaner.create();
+
+    private static final class Version {
+        private final Student student; // 为 null 表示已删除
+        private final long version;
+        private volatile Version older;
+
+        private Version(Student student, long version, Version older) {
+            this.student = student;
+            this.version = version;
+            this.older = older;
+        }
+    }
+
+    // 注册序号 -> 版本链
+    private final ConcurrentNavigableMap<Long, Version> chains = new ConcurrentSkipListMap<>();
+    // 保护 clock、writing，以及快照选取版本号并登记
+    private final Object clockLock = new Object();
+    private long clock;
+    // 进行中的修改的版本号
+    private final NavigableSet<Long> writing = new TreeSet<>();
+    // 已结束但因更早的修改尚未结束而推迟裁剪的修改
+    private final Queue<Write> unpruned = new ConcurrentLinkedQueue<>();
+    // 打开的快照的版本号 -> 个数
+    private final ConcurrentNavigableMap<Long, Integer> readers = new ConcurrentSkipListMap<>();
+    // 因快照而保留了旧版本的注册序号
+    private final Set<Long> retained = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 一次修改，其中的插入和删除对快照同时可见；由 begin 开始，必须调用 end 结束
+     */
+    final class Write {
+        private final long version;
+        private final List<Long> sequences = new ArrayList<>();
+
+        private Write(long version) {
+            this.version = version;
+        }
+
+        /**
+         * 插入或替换注册序号上的学生
+         */
+        void put(long sequence, Student student) {
+            push(this, sequence, student);
+        }
+
+        /**
+         * 删除注册序号上的学生，打开的快照仍能读到
+         */
+        void remove(long sequence) {
+            if (chains.containsKey(sequence)) {
+                push(this, sequence, null);
+            }
+        }
+    }
+
+    /**
+     * 开始一次修改，版本号大于此前开始的所有修改
+     */
+    Write begin() {
+        synchronized (clockLock) {
+            Write write = new Write(++clock);
+            writing.add(write.version);
+            return write;
+        }
+    }
+
+    /**
+     * 结束修改，此后创建的快照能看到它；随后裁剪它以及此前推迟裁剪的修改涉及的链
+     */
+    void end(Write write) {
+        synchronized (clockLock) {
+            writing.remove(write.version);
+        }
+        // 先排队再读取已结束的版本号：与同时结束的更早的修改之间，至少有一方会裁剪本次修改
+        unpruned.add(write);
+        long finished = finishedVersion();
+        for (Write pending : unpruned) {
+            if (pending.version <= finished && unpruned.remove(pending)) {
+                for (long sequence : pending.sequences) {
+                    Version head = chains.get(sequence);
+                    if (head != null) {
+                        prune(sequence, head);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * @return 按注册顺序的最新数据，弱一致性遍历
+     */
+    Stream<Student> current() {
+        return chains.values().stream().map(head -> head.student).filter(Objects::nonNull);
+    }
+
+    /**
+     * 在修改中删除全部学生；已打开的快照和修改结束前创建的快照仍读到删除前的数据
+     */
+    void clear(Write write) {
+        for (long sequence : chains.keySet()) {
+            write.remove(sequence);
+        }
+    }
+
+    /**
+     * 不等待进行中的修改，开销与学生数无关
+     */
+    StudentSnapshot snapshot() {
+        long version;
+        // 选取版本号和登记一并完成，裁剪时不会漏掉正在创建的快照
+        synchronized (clockLock) {
+            version = finishedVersionLocked();
+            readers.merge(version, 1, Integer::sum);
+        }
+        return new Snapshot(this, chains, version);
+    }
+
+    private void push(Write write, long sequence, Student student) {
+        chains.put(sequence, new Version(student, write.version, chains.get(sequence)));
+        write.sequences.add(sequence);
+    }
+
+    /**
+     * 只保留最老的打开快照能读到的版本及更新的版本；墓碑已无快照需要时移除整条链
+     */
+    private void prune(long sequence, Version head) {
+        long oldest = oldestReadable();
+        Version keep = head;
+        while (keep != null && keep.version > oldest) {
+            keep = keep.older;
+        }
+        if (keep != null) {
+            keep.older = null;
+            if (keep == head && head.student == null) {
+                chains.remove(sequence, head);
+            }
+        }
+        // 链头属于进行中的修改时由该修改结束时裁剪，否则是快照需要旧版本
+        if (keep != head && head.version <= finishedVersion()) {
+            retained.add(sequence);
+        }
+    }
+
+    /**
+     * 打开的快照和此后创建的快照能读到的最老版本号
+     */
+    private long oldestReadable() {
+        synchronized (clockLock) {
+            long finished = finishedVersionLocked();
+            Map.Entry<Long, Integer> first = readers.firstEntry();
+            return first == null ? finished : Math.min(finished, first.getKey());
+        }
+    }
+
+    private long finishedVersion() {
+        synchronized (clockLock) {
+            return finishedVersionLocked();
+        }
+    }
+
+    /**
+     * 不晚于它的修改都已结束的最大版本号，只增不减
+     */
+    private long finishedVersionLocked() {
+        return writing.isEmpty() ? clock : writing.first() - 1;
+    }
+
+    private void release(long version) {
+        Integer remaining = readers.computeIfPresent(version, (v, count) -> count == 1 ? null : count - 1);
+        if (remaining == null) {
+            reclaim();
+        }
+    }
+
+    /**
+     * 重新裁剪因快照而保留了旧版本的链，仍被更老的快照需要的链会重新登记
+     */
+    private void reclaim() {
+        // 遍历副本：裁剪后仍需保留的会重新登记，直接遍历集合可能再次遇到同一序号
+        for (Long sequence : new ArrayList<>(retained)) {
+            retained.remove(sequence);
+            Version head = chains.get(sequence);
+            if (head != null) {
+                prune(sequence, head);
+            }
+        }
+    }
+
+    private static Student visible(Version head, long version) {
+        for (Version v = head; v != null; v = v.older) {
+            if (v.version <= version) {
+                return v.student;
+            }
+        }
+        return null;
+    }
+
+    private static final class Snapshot implements StudentSnapshot {
+        private final ConcurrentNavigableMap<Long, Version> chains;
+        private final long version;
+        private final Release release;
+        private final Cleaner.Cleanable cleanable;
+
+        private Snapshot(StudentVersions owner, ConcurrentNavigableMap<Long, Version> chains, long version) {
+            this.chains = chains;
+            this.version = version;
+            this.release = new Release(owner, version);
+            this.cleanable = CLEANER.register(this, release);
+        }
+
+        @Override
+        public Stream<Student> stream() {
+            if (release.done.get()) {
+                throw new StudentManagementException("快照已关闭");
+            }
+            return chains.values().stream().map(head -> visible(head, version)).filter(Objects::nonNull);
+        }
+
+        @Override
+        public void close() {
+            cleanable.clean();
+        }
+    }
+
+    /**
+     * 释放快照登记的动作，不能引用快照本身，否则快照永远不会被回收
+     */
+    private static final class Release implements Runnable {
+        private final StudentVersions owner;
+        private final long version;
+        private final AtomicBoolean done = new AtomicBoolean();
+
+        private Release(StudentVersions owner, long version) {
+            this.owner = owner;
+            this.version = version;
+        }
+
+        @Override
+        public void run() {
+            if (done.compareAndSet(false, true)) {
+                owner.release(version);
+            }
+        }
+    }
+}
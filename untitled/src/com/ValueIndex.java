@@ -0,0 +1,69 @@
+package com;
+
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * 字段值精确匹配索引：字段值 -> 学号集合
+ * 基于有序的 TreeMap，同时支持精确匹配和前缀匹配
+ */
+class ValueIndex implements SecondaryIndex {
+    private final QueryType field;
+    private final NavigableMap<String, Set<String>> entries = new TreeMap<>();
+
+    ValueIndex(QueryType field) {
+        this.field = field;
+    }
+
+    @Override
+    public void add(Student student) {
+        String value = field.getFieldValue(student);
+        if (value != null) {
+            entries.computeIfAbsent(value, v -> new HashSet<>()).add(student.getStudentId());
+        }
+    }
+
+    @Override
+    public void remove(Student student) {
+        String value = field.getFieldValue(student);
+        if (value == null) {
+            return;
+        }
+        Set<String> ids = entries.get(value);
+        if (ids != null) {
+            ids.remove(student.getStudentId());
+            if (ids.isEmpty()) {
+                entries.remove(value);
+            }
+        }
+    }
+
+    @Override
+    public void clear() {
+        entries.clear();
+    }
+
+    @Override
+    public Set<String> candidates(String keyword, MatchMode mode) {
+        return switch (mode) {
+            case EXACT -> entries.getOrDefault(keyword, Collections.emptySet());
+            case PREFIX -> prefixCandidates(keyword);
+            default -> null;
+        };
+    }
+
+    private Set<String> prefixCandidates(String prefix) {
+        Set<String> result = new HashSet<>();
+        for (Map.Entry<String, Set<String>> entry : entries.tailMap(prefix, true).entrySet()) {
+            if (!entry.getKey().startsWith(prefix)) {
+                break;
+            }
+            result.addAll(entry.getValue());
+        }
+        return result;
+    }
+}